@@ -40,7 +40,9 @@ public enum AnalyticsMetaDataKey
     PAGER( "pager" ),
     ORG_UNIT_HIERARCHY( "ouHierarchy" ),
     ORG_UNIT_NAME_HIERARCHY( "ouNameHierarchy" ),
-    ORG_UNIT_ANCESTORS( "ouAncestors");
+    ORG_UNIT_ANCESTORS( "ouAncestors"),
+    NEXT_PAGE_CURSOR( "nextPageCursor" ),
+    TOTAL_ESTIMATED( "totalEstimated" );
 
     private String key;
 
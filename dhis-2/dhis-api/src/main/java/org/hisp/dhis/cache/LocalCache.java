@@ -35,6 +35,10 @@ import static org.springframework.util.Assert.hasText;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Optional;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
 import java.util.function.Function;
 
 import org.cache2k.Cache2kBuilder;
@@ -47,7 +51,29 @@ import org.cache2k.Cache2kBuilder;
  */
 public class LocalCache<V> implements Cache<V>
 {
-    private org.cache2k.Cache<String, V> cache2kInstance;
+    private static final int SAMPLE_SIZE = 32;
+
+    private final CacheBuilder<V> cacheBuilder;
+
+    private final boolean weighted;
+
+    private volatile org.cache2k.Cache<String, V> cache2kInstance;
+
+    private volatile long capacity;
+
+    /**
+     * Guards the swap of the underlying instance on resize. Modifications hold
+     * the read lock so that they can run concurrently with each other, while a
+     * resize holds the write lock so that no put or invalidation is applied to
+     * the previous instance after its entries have been copied.
+     */
+    private final ReadWriteLock resizeLock = new ReentrantReadWriteLock();
+
+    /**
+     * The instance replaced by the last resize, closed on the next resize so
+     * that concurrent readers never see a closed cache.
+     */
+    private org.cache2k.Cache<String, V> retiredInstance;
 
     private V defaultValue;
 
@@ -56,10 +82,32 @@ public class LocalCache<V> implements Cache<V>
      *
      * @param cacheBuilder CacheBuilder instance
      */
-    @SuppressWarnings("unchecked")
     public LocalCache( final CacheBuilder<V> cacheBuilder )
     {
-        Cache2kBuilder<?, ?> builder = Cache2kBuilder.forUnknownTypes();
+        this( cacheBuilder, 0 );
+    }
+
+    /**
+     * Constructor to instantiate LocalCache object bounded by the estimated
+     * memory of its values rather than by the number of entries.
+     *
+     * @param cacheBuilder CacheBuilder instance
+     * @param maximumWeight the maximum total estimated size of the values in
+     *        bytes, or 0 to bound the cache by number of entries.
+     */
+    public LocalCache( final CacheBuilder<V> cacheBuilder, long maximumWeight )
+    {
+        this.cacheBuilder = cacheBuilder;
+        this.weighted = maximumWeight > 0;
+        this.capacity = weighted ? maximumWeight : cacheBuilder.getMaximumSize();
+        this.cache2kInstance = buildInstance( capacity );
+        this.defaultValue = cacheBuilder.getDefaultValue();
+    }
+
+    @SuppressWarnings( "unchecked" )
+    private org.cache2k.Cache<String, V> buildInstance( long capacity )
+    {
+        Cache2kBuilder<Object, Object> builder = Cache2kBuilder.forUnknownTypes();
 
         if ( cacheBuilder.isExpiryEnabled() )
         {
@@ -79,14 +127,152 @@ public class LocalCache<V> implements Cache<V>
         {
             builder.eternal( true );
         }
-        if ( cacheBuilder.getMaximumSize() > 0 )
+        if ( weighted )
+        {
+            builder.weigher( ( key, value ) -> (int) Math.min( Integer.MAX_VALUE,
+                ObjectSizeEstimator.estimate( value ) ) );
+            builder.maximumWeight( capacity );
+        }
+        else if ( capacity > 0 )
         {
-            builder.entryCapacity( cacheBuilder.getMaximumSize() );
+            builder.entryCapacity( capacity );
         }
 
         // Using unknown typed key for builder and casting it
-        this.cache2kInstance = (org.cache2k.Cache<String, V>) builder.build();
-        this.defaultValue = cacheBuilder.getDefaultValue();
+        return (org.cache2k.Cache<String, V>) (org.cache2k.Cache<?, ?>) builder.build();
+    }
+
+    /**
+     * Changes the capacity of this cache, which is the maximum number of
+     * entries or, for memory weighted caches, the maximum total estimated size
+     * of the values in bytes. The underlying cache cannot be resized in place,
+     * so a new instance is created and the live entries are carried over. As
+     * the remaining time to live of entries is not known, entries of caches
+     * with expiry are carried over with the full time to live of the cache.
+     *
+     * @param newCapacity the new capacity, must be greater than 0.
+     */
+    public void resize( long newCapacity )
+    {
+        if ( newCapacity <= 0 )
+        {
+            return;
+        }
+
+        Lock lock = resizeLock.writeLock();
+        lock.lock();
+
+        try
+        {
+            if ( newCapacity == capacity )
+            {
+                return;
+            }
+
+            org.cache2k.Cache<String, V> previous = cache2kInstance;
+            org.cache2k.Cache<String, V> resized = buildInstance( newCapacity );
+
+            resized.putAll( previous.asMap() );
+
+            cache2kInstance = resized;
+            capacity = newCapacity;
+
+            if ( retiredInstance != null )
+            {
+                retiredInstance.close();
+            }
+
+            retiredInstance = previous;
+            retiredInstance.clear();
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Closes this cache and releases its entries. The cache is not to be used
+     * after being closed.
+     */
+    public void close()
+    {
+        Lock lock = resizeLock.writeLock();
+        lock.lock();
+
+        try
+        {
+            cache2kInstance.close();
+
+            if ( retiredInstance != null )
+            {
+                retiredInstance.close();
+                retiredInstance = null;
+            }
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Indicates whether this cache is closed.
+     */
+    public boolean isClosed()
+    {
+        return cache2kInstance.isClosed();
+    }
+
+    /**
+     * Returns the current capacity, the maximum number of entries or for memory
+     * weighted caches the maximum total estimated size in bytes.
+     */
+    public long getCapacity()
+    {
+        return capacity;
+    }
+
+    /**
+     * Indicates whether this cache is bounded by the estimated memory of its
+     * values rather than by the number of entries.
+     */
+    public boolean isWeighted()
+    {
+        return weighted;
+    }
+
+    /**
+     * Returns the current number of entries.
+     */
+    public long size()
+    {
+        return cache2kInstance.asMap().size();
+    }
+
+    /**
+     * Estimates the heap size of the cached values in bytes, extrapolated
+     * from a sample of the entries.
+     */
+    public long estimateMemory()
+    {
+        Collection<V> values = cache2kInstance.asMap().values();
+
+        int size = values.size();
+        long sampled = 0;
+        int count = 0;
+
+        for ( V value : values )
+        {
+            if ( count++ >= SAMPLE_SIZE )
+            {
+                break;
+            }
+
+            sampled += ObjectSizeEstimator.estimate( value );
+        }
+
+        return count == 0 ? 0 : sampled / Math.min( count, SAMPLE_SIZE ) * size;
     }
 
     @Override
@@ -117,7 +303,9 @@ public class LocalCache<V> implements Cache<V>
 
             if ( value != null )
             {
-                cache2kInstance.put( key, value );
+                V loaded = value;
+
+                modify( instance -> instance.put( key, loaded ) );
             }
         }
 
@@ -137,27 +325,27 @@ public class LocalCache<V> implements Cache<V>
         {
             throw new IllegalArgumentException( "Value cannot be null" );
         }
-        cache2kInstance.put( key, value );
+        modify( instance -> instance.put( key, value ) );
     }
 
     @Override
     public void put( String key, V value, long ttlInSeconds )
     {
         hasText( key, "Value cannot be null" );
-        cache2kInstance.invoke( key,
-            e -> e.setValue( value ).setExpiryTime( currentTimeMillis() + SECONDS.toMillis( ttlInSeconds ) ) );
+        modify( instance -> instance.invoke( key,
+            e -> e.setValue( value ).setExpiryTime( currentTimeMillis() + SECONDS.toMillis( ttlInSeconds ) ) ) );
     }
 
     @Override
     public void invalidate( String key )
     {
-        cache2kInstance.remove( key );
+        modify( instance -> instance.remove( key ) );
     }
 
     @Override
     public void invalidateAll()
     {
-        cache2kInstance.clear();
+        modify( org.cache2k.Cache::clear );
     }
 
     @Override
@@ -165,4 +353,23 @@ public class LocalCache<V> implements Cache<V>
     {
         return CacheType.IN_MEMORY;
     }
+
+    /**
+     * Applies the given modification to the current instance while holding
+     * the read lock, so that it is not lost to a concurrent resize.
+     */
+    private void modify( Consumer<org.cache2k.Cache<String, V>> modification )
+    {
+        Lock lock = resizeLock.readLock();
+        lock.lock();
+
+        try
+        {
+            modification.accept( cache2kInstance );
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
 }
@@ -0,0 +1,161 @@
+package org.hisp.dhis.cache;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.lang.reflect.Array;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+
+import org.hisp.dhis.common.Grid;
+
+/**
+ * Gives a rough estimate of the heap size of cached values, used to weigh
+ * entries of memory bounded caches. Only strings, boxed primitives, dates,
+ * arrays, collections, maps and grids are inspected; any other object is
+ * assumed to have a fixed size, so that entities are never traversed and lazy
+ * associations never initialized. Grids are estimated from their rows, meta
+ * data and headers, so that the size of analytics responses grows with the
+ * number of rows and columns.
+ */
+public final class ObjectSizeEstimator
+{
+    private static final int OBJECT_BYTES = 16;
+
+    private static final int REFERENCE_BYTES = 8;
+
+    private static final int DEFAULT_OBJECT_BYTES = 256;
+
+    private static final int MAX_SAMPLED_ELEMENTS = 16;
+
+    private static final int MAX_DEPTH = 3;
+
+    private ObjectSizeEstimator()
+    {
+        throw new UnsupportedOperationException( "util" );
+    }
+
+    /**
+     * Returns the estimated heap size in bytes of the given object.
+     *
+     * @param object the object, can be null.
+     * @return the estimated size in bytes.
+     */
+    public static long estimate( Object object )
+    {
+        return estimate( object, 0 );
+    }
+
+    private static long estimate( Object object, int depth )
+    {
+        if ( object == null )
+        {
+            return 0;
+        }
+        else if ( object instanceof String )
+        {
+            return 40 + 2L * ((String) object).length();
+        }
+        else if ( object instanceof Number || object instanceof Boolean || object instanceof Character
+            || object instanceof Enum )
+        {
+            return OBJECT_BYTES + REFERENCE_BYTES;
+        }
+        else if ( object instanceof Date )
+        {
+            return 24;
+        }
+        else if ( object instanceof Optional )
+        {
+            return OBJECT_BYTES + estimate( ((Optional<?>) object).orElse( null ), depth );
+        }
+        else if ( depth >= MAX_DEPTH )
+        {
+            return DEFAULT_OBJECT_BYTES;
+        }
+        else if ( object instanceof Grid )
+        {
+            Grid grid = (Grid) object;
+
+            return OBJECT_BYTES + estimate( grid.getRows(), depth ) + estimate( grid.getMetaData(), depth )
+                + (long) DEFAULT_OBJECT_BYTES * grid.getHeaders().size();
+        }
+        else if ( object instanceof Collection )
+        {
+            Collection<?> collection = (Collection<?>) object;
+
+            return OBJECT_BYTES + estimateElements( collection.iterator(), collection.size(), depth );
+        }
+        else if ( object instanceof Map )
+        {
+            Map<?, ?> map = (Map<?, ?>) object;
+
+            return OBJECT_BYTES + 32L * map.size() + estimateElements( map.keySet().iterator(), map.size(), depth )
+                + estimateElements( map.values().iterator(), map.size(), depth );
+        }
+        else if ( object instanceof Object[] )
+        {
+            Object[] array = (Object[]) object;
+
+            return OBJECT_BYTES + estimateElements( Arrays.asList( array ).iterator(), array.length, depth );
+        }
+        else if ( object.getClass().isArray() )
+        {
+            return OBJECT_BYTES + 8L * Array.getLength( object );
+        }
+
+        return DEFAULT_OBJECT_BYTES;
+    }
+
+    /**
+     * Estimates the size of the elements by sampling the first elements and
+     * extrapolating to the given total number of elements.
+     */
+    private static long estimateElements( Iterator<?> iterator, int size, int depth )
+    {
+        if ( size == 0 )
+        {
+            return 0;
+        }
+
+        long sampled = 0;
+        int count = 0;
+
+        while ( iterator.hasNext() && count < MAX_SAMPLED_ELEMENTS )
+        {
+            sampled += REFERENCE_BYTES + estimate( iterator.next(), depth + 1 );
+            count++;
+        }
+
+        return count == 0 ? 0 : sampled / count * size;
+    }
+}
@@ -35,7 +35,6 @@ import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import com.fasterxml.jackson.dataformat.xml.annotation.JacksonXmlElementWrapper;
 import com.fasterxml.jackson.dataformat.xml.annotation.JacksonXmlProperty;
 import com.fasterxml.jackson.dataformat.xml.annotation.JacksonXmlRootElement;
-import org.apache.commons.lang3.StringUtils;
 import org.hisp.dhis.attribute.Attribute;
 import org.hisp.dhis.attribute.AttributeValue;
 import org.hisp.dhis.audit.AuditAttribute;
@@ -48,6 +47,7 @@ import org.hisp.dhis.schema.annotation.PropertyTransformer;
 import org.hisp.dhis.schema.transformer.UserPropertyTransformer;
 import org.hisp.dhis.security.acl.Access;
 import org.hisp.dhis.translation.Translation;
+import org.hisp.dhis.translation.TranslationDictionary;
 import org.hisp.dhis.translation.TranslationProperty;
 import org.hisp.dhis.user.User;
 import org.hisp.dhis.user.UserAccess;
@@ -116,12 +116,6 @@ public class BaseIdentifiableObject
      */
     protected Set<Translation> translations = new HashSet<>();
 
-    /**
-     * Cache for object translations, where the cache key is a combination of
-     * locale and translation property, and value is the translated value.
-     */
-    protected Map<String, String> translationCache = new HashMap<>();
-
     /**
      * This object is available as external read-only.
      */
@@ -366,18 +360,15 @@ public class BaseIdentifiableObject
         return translations != null ? translations : new HashSet<>();
     }
 
-    /**
-     * Clears out cache when setting translations.
-     */
     public void setTranslations( Set<Translation> translations )
     {
-        this.translationCache.clear();
         this.translations = translations;
     }
 
     /**
      * Returns a translated value for this object for the given property. The
-     * current locale is read from the user context.
+     * current locale is read from the user context and the value is looked up
+     * in the shared {@link TranslationDictionary}.
      *
      * @param property     the translation property.
      * @param defaultValue the value to use if there are no translations.
@@ -394,29 +385,9 @@ public class BaseIdentifiableObject
             return defaultValue;
         }
 
-        loadTranslationsCacheIfEmpty();
+        String translation = TranslationDictionary.getTranslation( this, locale, property );
 
-        String cacheKey = Translation.getCacheKey( locale.toString(), property );
-
-        return translationCache.getOrDefault( cacheKey, defaultValue );
-    }
-
-    /**
-     * Populates the translationsCache map unless it is already populated.
-     */
-    private void loadTranslationsCacheIfEmpty()
-    {
-        if ( translationCache.isEmpty() && translations != null )
-        {
-            for ( Translation translation : translations )
-            {
-                if ( translation.getLocale() != null && translation.getProperty() != null && !StringUtils.isEmpty( translation.getValue() ) )
-                {
-                    String key = Translation.getCacheKey( translation.getLocale(), translation.getProperty() );
-                    translationCache.put( key, translation.getValue() );
-                }
-            }
-        }
+        return translation != null ? translation : defaultValue;
     }
 
     private void loadAttributeValuesCacheIfEmpty()
@@ -112,6 +112,10 @@ public class EventDataQueryRequest
 
     protected Integer pageSize;
 
+    protected String pageCursor;
+
+    protected boolean estimateTotal;
+
     public String getProgram()
     {
         return program;
@@ -292,6 +296,16 @@ public class EventDataQueryRequest
         return pageSize;
     }
 
+    public String getPageCursor()
+    {
+        return pageCursor;
+    }
+
+    public boolean isEstimateTotal()
+    {
+        return estimateTotal;
+    }
+
     /**
      * Copies all properties of this request onto the given request.
      *
@@ -334,6 +348,8 @@ public class EventDataQueryRequest
         request.coordinateField = this.coordinateField;
         request.page = this.page;
         request.pageSize = this.pageSize;
+        request.pageCursor = this.pageCursor;
+        request.estimateTotal = this.estimateTotal;
         return request;
     }
 
@@ -581,6 +597,18 @@ public class EventDataQueryRequest
             return this;
         }
 
+        public EventDataQueryRequestBuilder pageCursor( String pageCursor )
+        {
+            this.request.pageCursor = pageCursor;
+            return this;
+        }
+
+        public EventDataQueryRequestBuilder estimateTotal( boolean estimateTotal )
+        {
+            this.request.estimateTotal = estimateTotal;
+            return this;
+        }
+
         public EventDataQueryRequestBuilder fromCriteria( EventsAnalyticsQueryCriteria criteria )
         {
             this.request.aggregationType = criteria.getAggregationType();
@@ -603,6 +631,8 @@ public class EventDataQueryRequest
             this.request.outputType = criteria.getOutputType();
             this.request.page = criteria.getPage();
             this.request.pageSize = criteria.getPageSize();
+            this.request.pageCursor = criteria.getPageCursor();
+            this.request.estimateTotal = criteria.isEstimateTotal();
             this.request.programStatus = criteria.getProgramStatus();
             this.request.relativePeriodDate = criteria.getRelativePeriodDate();
             this.request.showHierarchy = criteria.isShowHierarchy();
@@ -263,4 +263,15 @@ public class EventsAnalyticsQueryCriteria
      * The page size.
      */
     private Integer pageSize = 50;
+
+    /**
+     * The keyset cursor of the previous page, returned as "nextPageCursor" in
+     * the response meta data. Takes precedence over the page number.
+     */
+    private String pageCursor;
+
+    /**
+     * Whether to return an estimated total instead of an exact count.
+     */
+    private boolean estimateTotal;
 }
@@ -65,6 +65,16 @@ public interface IdentifiableObjectManager
 
     void delete( IdentifiableObject object, User user );
 
+    /**
+     * Deletes the given objects. Delete checks of deletion handlers are run
+     * once for all objects of a type using set based queries where supported.
+     *
+     * @param objects the objects to delete.
+     */
+    void delete( List<? extends IdentifiableObject> objects );
+
+    void delete( List<? extends IdentifiableObject> objects, User user );
+
     <T extends IdentifiableObject> T get( String uid );
 
     <T extends IdentifiableObject> T get( Class<T> clazz, long id );
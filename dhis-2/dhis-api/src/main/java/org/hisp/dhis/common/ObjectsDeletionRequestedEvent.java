@@ -0,0 +1,87 @@
+package org.hisp.dhis.common;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.List;
+
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Event requesting deletion of a batch of objects. Listeners verify that all
+ * objects can be deleted using set based checks before running the deletion,
+ * so that the checks are not repeated for each object.
+ */
+public class ObjectsDeletionRequestedEvent
+    extends ApplicationEvent
+{
+    /**
+     * Performs the actual deletion of the objects.
+     */
+    private final Runnable deletion;
+
+    /**
+     * Whether the deletion was run by a listener.
+     */
+    private boolean handled = false;
+
+    // -------------------------------------------------------------------------
+    // Constructors
+    // -------------------------------------------------------------------------
+
+    public ObjectsDeletionRequestedEvent( List<? extends IdentifiableObject> objects, Runnable deletion )
+    {
+        super( objects );
+        this.deletion = deletion;
+    }
+
+    // -------------------------------------------------------------------------
+    // Getter && Setter
+    // -------------------------------------------------------------------------
+
+    @SuppressWarnings( "unchecked" )
+    public List<? extends IdentifiableObject> getObjects()
+    {
+        return (List<? extends IdentifiableObject>) getSource();
+    }
+
+    public Runnable getDeletion()
+    {
+        return deletion;
+    }
+
+    public boolean isHandled()
+    {
+        return handled;
+    }
+
+    public void setHandled( boolean handled )
+    {
+        this.handled = handled;
+    }
+}
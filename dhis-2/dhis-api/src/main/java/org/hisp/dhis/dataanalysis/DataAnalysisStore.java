@@ -60,6 +60,29 @@ public interface DataAnalysisStore
         Collection<CategoryOptionCombo> categoryOptionCombos,
         Collection<String> parentPaths, Date from );
 
+    /**
+     * Returns the outlier data values for the given data elements, periods and
+     * organisation unit parents. Statistics are computed per organisation unit,
+     * data element and category option combo from the data values registered
+     * for periods starting on or after the from date, and the outliers are
+     * ranked by their deviation from the statistics, largest first. The min
+     * and max properties of the returned values hold the outlier bounds.
+     *
+     * @param dataElements the data elements.
+     * @param categoryOptionCombos the category option combos.
+     * @param periods the periods for which to return outliers.
+     * @param parentPaths the parent OrganisationUnits' paths.
+     * @param from the from date for which to include data values in statistics.
+     * @param threshold the number of standard deviations, or the modified z-score
+     *        threshold, beyond which a value is an outlier.
+     * @param algorithm the {@link OutlierDetectionAlgorithm}.
+     * @param limit the max limit of outliers to return.
+     * @return a list of outlier DeflatedDataValues.
+     */
+    List<DeflatedDataValue> getOutliers( Collection<DataElement> dataElements,
+        Collection<CategoryOptionCombo> categoryOptionCombos, Collection<Period> periods,
+        Collection<String> parentPaths, Date from, double threshold, OutlierDetectionAlgorithm algorithm, int limit );
+
     /**
      * Generates a collection of data value violations of min-max predefined values.
      *
@@ -80,6 +80,22 @@ public interface DataApprovalStore
      */
     void deleteDataApprovals( OrganisationUnit organisationUnit );
 
+    /**
+     * Invalidates the materialised approval state of the given workflow and
+     * workflow period, after data was approved, unapproved, accepted or
+     * unaccepted for it.
+     *
+     * @param workflow the workflow.
+     * @param period the workflow period.
+     */
+    void invalidateDataApprovalStatuses( DataApprovalWorkflow workflow, Period period );
+
+    /**
+     * Invalidates all materialised approval state, after metadata affecting
+     * approval state was changed.
+     */
+    void invalidateDataApprovalStatuses();
+
     /**
      * Returns the DataApproval object (if any) matching the properties
      * of a (non-Hibernate) DataApproval object.
@@ -108,4 +108,20 @@ public interface FileResourceContentStore
      * @param output the output stream to copy the stream into
      */
     void copyContent( String key, OutputStream output ) throws IOException, NoSuchElementException;
+
+    /**
+     * Copies the given range of the content of the resource stored under key to the output stream.
+     * @param key the key used to store a resource
+     * @param output the output stream to copy the stream into
+     * @param offset the offset of the first byte to copy
+     * @param length the number of bytes to copy
+     */
+    void copyContent( String key, OutputStream output, long offset, long length ) throws IOException, NoSuchElementException;
+
+    /**
+     * Get the file holding the content of a FileResource, if the file store keeps content on the local file system.
+     * @param key the key.
+     * @return the file or null if the content is not stored on the local file system or cannot be found.
+     */
+    File getFileResourceContentFile( String key );
 }
@@ -68,6 +68,26 @@ public interface FileResourceService
     void copyFileResourceContent( FileResource fileResource, OutputStream outputStream )
         throws IOException, NoSuchElementException;
 
+    /**
+     * Copy the given range of the fileResource content to outputStream.
+     * @param fileResource the file resource.
+     * @param outputStream the output stream.
+     * @param offset the offset of the first byte to copy.
+     * @param length the number of bytes to copy.
+     * @throws IOException
+     * @throws NoSuchElementException
+     */
+    void copyFileResourceContent( FileResource fileResource, OutputStream outputStream, long offset, long length )
+        throws IOException, NoSuchElementException;
+
+    /**
+     * Returns the local file holding the fileResource content, or null if the
+     * content is not stored on the local file system.
+     * @param fileResource the file resource.
+     * @return the file or null.
+     */
+    File getFileResourceContentFile( FileResource fileResource );
+
     boolean fileResourceExists( String uid );
 
     void updateFileResource( FileResource fileResource );
@@ -0,0 +1,195 @@
+package org.hisp.dhis.keyjsonvalue;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import lombok.Builder;
+import lombok.Data;
+import lombok.Value;
+
+import org.hisp.dhis.common.IllegalQueryException;
+
+/**
+ * Query on the entries of a datastore namespace. Filters, projection, order
+ * and paging are applied by the database on the JSON values of the entries.
+ * <p>
+ * Paths into the JSON values are given as dot separated property names, for
+ * example {@code address.city}.
+ */
+@Data
+@Builder
+public class KeyJsonValueQuery
+{
+    public static final int DEFAULT_PAGE_SIZE = 50;
+
+    public static final int MAX_PAGE_SIZE = 10000;
+
+    private static final Pattern PATH_PATTERN = Pattern.compile( "[A-Za-z0-9_\\-]+(\\.[A-Za-z0-9_\\-]+)*" );
+
+    /**
+     * The namespace to query.
+     */
+    private String namespace;
+
+    /**
+     * Paths of the properties to return for each entry. The whole value is
+     * returned when empty.
+     */
+    @Builder.Default
+    private List<String> fields = new ArrayList<>();
+
+    /**
+     * Filters which must all match for an entry to be returned.
+     */
+    @Builder.Default
+    private List<Filter> filters = new ArrayList<>();
+
+    /**
+     * Path of the property to order by, ordering is by key when null.
+     */
+    private String order;
+
+    /**
+     * Whether to order descending.
+     */
+    private boolean orderDescending;
+
+    @Builder.Default
+    private boolean paging = true;
+
+    @Builder.Default
+    private int page = 1;
+
+    @Builder.Default
+    private int pageSize = DEFAULT_PAGE_SIZE;
+
+    /**
+     * Returns the offset of the first entry of the requested page.
+     */
+    public int getOffset()
+    {
+        return (Math.max( 1, page ) - 1) * getLimit();
+    }
+
+    /**
+     * Returns the number of entries of the requested page.
+     */
+    public int getLimit()
+    {
+        return Math.min( Math.max( 1, pageSize ), MAX_PAGE_SIZE );
+    }
+
+    /**
+     * Splits the given path into its property names.
+     *
+     * @param path the dot separated path.
+     * @return the property names.
+     * @throws IllegalQueryException if the path is not valid.
+     */
+    public static List<String> getPathElements( String path )
+    {
+        if ( path == null || !PATH_PATTERN.matcher( path ).matches() )
+        {
+            throw new IllegalQueryException( "Invalid datastore path: '" + path + "'" );
+        }
+
+        return Arrays.asList( path.split( "\\." ) );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive classes
+    // -------------------------------------------------------------------------
+
+    public enum Operator
+    {
+        EQ, NE, GT, GE, LT, LE, LIKE, ILIKE, IN, NULL, NOT_NULL;
+
+        public boolean isUnary()
+        {
+            return this == NULL || this == NOT_NULL;
+        }
+
+        public static Operator fromString( String operator )
+        {
+            for ( Operator op : values() )
+            {
+                if ( op.name().replace( "_", "" ).equalsIgnoreCase( operator.replace( "_", "" ) ) )
+                {
+                    return op;
+                }
+            }
+
+            throw new IllegalQueryException( "Invalid datastore filter operator: '" + operator + "'" );
+        }
+    }
+
+    @Value
+    public static class Filter
+    {
+        private String path;
+
+        private Operator operator;
+
+        private String value;
+
+        /**
+         * Parses a filter on the form {@code path:operator:value}, where the
+         * value is omitted for the {@code null} and {@code notnull} operators
+         * and is a comma separated list for the {@code in} operator.
+         *
+         * @param filter the filter string.
+         * @return the filter.
+         * @throws IllegalQueryException if the filter is not valid.
+         */
+        public static Filter parse( String filter )
+        {
+            String[] parts = filter == null ? new String[0] : filter.split( ":", 3 );
+
+            if ( parts.length < 2 )
+            {
+                throw new IllegalQueryException( "Invalid datastore filter: '" + filter + "'" );
+            }
+
+            getPathElements( parts[0] );
+
+            Operator operator = Operator.fromString( parts[1] );
+
+            if ( !operator.isUnary() && parts.length < 3 )
+            {
+                throw new IllegalQueryException( "Datastore filter requires a value: '" + filter + "'" );
+            }
+
+            return new Filter( parts[0], operator, operator.isUnary() ? null : parts[2] );
+        }
+    }
+}
@@ -30,6 +30,7 @@ package org.hisp.dhis.keyjsonvalue;
 
 import java.util.Date;
 import java.util.List;
+import java.util.function.BiConsumer;
 
 /**
  * @author Stian Sandvold
@@ -51,6 +52,26 @@ public interface KeyJsonValueService
      */
     List<KeyJsonValue> getKeyJsonValuesInNamespace( String namespace, boolean isAdmin );
 
+    /**
+     * Retrieves the entries of a namespace matching the given query. Entries
+     * are passed to the given consumer one at a time as they are read.
+     *
+     * @param query    the query.
+     * @param isAdmin  whether the current user is admin.
+     * @param consumer the consumer of the key and the JSON value, or the JSON
+     *                 projection of the value, of each entry.
+     */
+    void getKeyJsonValues( KeyJsonValueQuery query, boolean isAdmin, BiConsumer<String, String> consumer );
+
+    /**
+     * Creates an index on the given path of the values of the given
+     * namespace, to speed up queries filtering or ordering on the path.
+     *
+     * @param namespace the namespace.
+     * @param path      the dot separated path into the values.
+     */
+    void createIndex( String namespace, String path );
+
     /**
      * Retrieves a list of keys from a namespace which are updated after lastUpdated time.
      *
@@ -32,6 +32,7 @@ import org.hisp.dhis.common.IdentifiableObjectStore;
 
 import java.util.List;
 import java.util.Date;
+import java.util.function.BiConsumer;
 
 /**
  * @author Stian Sandvold
@@ -74,4 +75,26 @@ public interface KeyJsonValueStore
      * @return the KeyJsonValue retrieved
      */
     KeyJsonValue getKeyJsonValue( String namespace, String key );
+
+    /**
+     * Retrieves the entries of a namespace matching the given query. Entries
+     * are passed to the given consumer one at a time as they are read from
+     * the database. Encrypted entries are not included. Must be called within
+     * a read-only transaction for the entries to be read in batches.
+     *
+     * @param query the query.
+     * @param consumer the consumer of the key and the JSON value, or the JSON
+     *        projection of the value, of each entry.
+     */
+    void getKeyJsonValues( KeyJsonValueQuery query, BiConsumer<String, String> consumer );
+
+    /**
+     * Creates an expression index on the given path of the values of the
+     * given namespace, unless it already exists. The index is built
+     * concurrently, so this must not be called within a transaction.
+     *
+     * @param namespace the namespace.
+     * @param path the dot separated path into the values.
+     */
+    void createIndex( String namespace, String path );
 }
@@ -102,6 +102,15 @@ public interface ProgramInstanceService
      */
     ProgramInstance getProgramInstance( String uid );
 
+    /**
+     * Returns the {@link ProgramInstance} objects with the given ids, with
+     * their events and tracked entity attribute values loaded in bulk.
+     *
+     * @param ids the ids of the ProgramInstances to return.
+     * @return the ProgramInstances with the given ids
+     */
+    List<ProgramInstance> getProgramInstancesWithEventsAndAttributeValues( List<Long> ids );
+
     /**
      * Checks for the existence of a PI by UID. Deleted values are not taken into account.
      *
@@ -161,4 +161,15 @@ public interface ProgramInstanceStore
      */
     List<ProgramInstance> getByProgramAndTrackedEntityInstance(
         List<Pair<Program, TrackedEntityInstance>> programTeiPair, ProgramStatus programStatus );
+
+    /**
+     * Returns the program instances with the given identifiers. The events of
+     * each program instance and the attribute values of its tracked entity
+     * instance are fetched in the same round trip, using one query per
+     * collection instead of one query per program instance.
+     *
+     * @param ids the program instance identifiers.
+     * @return a List of {@see ProgramInstance}
+     */
+    List<ProgramInstance> getWithEventsAndAttributeValues( List<Long> ids );
 }
@@ -29,6 +29,7 @@ package org.hisp.dhis.programrule.engine;
  */
 
 import java.util.List;
+import java.util.Map;
 
 import org.hisp.dhis.rules.models.RuleEffect;
 import org.hisp.dhis.rules.models.RuleValidationResult;
@@ -56,5 +57,30 @@ public interface ProgramRuleEngineService
      */
     List<RuleEffect> evaluateEventAndRunEffects( long event );
 
+    /**
+     * Evaluates the given enrollments in bulk and runs the actions present in
+     * the resulting rule effects. Enrollments, their events and attribute
+     * values are loaded with a few set based queries and the rule engine
+     * evaluations are run in parallel. The actions of each enrollment are run
+     * in a transaction of their own, a failing action does not affect the
+     * other enrollments.
+     *
+     * @param enrollments ids of the target enrollments
+     * @return the rule effects calculated by rule engine keyed on enrollment id
+     */
+    Map<Long, List<RuleEffect>> evaluateEnrollmentsAndRunEffects( List<Long> enrollments );
+
+    /**
+     * Evaluates the given events in bulk and runs the actions present in the
+     * resulting rule effects. Events, their enrollments and attribute values
+     * are loaded with a few set based queries and the rule engine evaluations
+     * are run in parallel. The actions of each event are run in a transaction
+     * of their own, a failing action does not affect the other events.
+     *
+     * @param events ids of the target events
+     * @return the rule effects calculated by rule engine keyed on event id
+     */
+    Map<Long, List<RuleEffect>> evaluateEventsAndRunEffects( List<Long> events );
+
     RuleValidationResult getDescription( String condition, String programId );
 }
@@ -0,0 +1,103 @@
+package org.hisp.dhis.scheduling;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+/**
+ * Coordinates execution of jobs across the nodes of a cluster. When
+ * distributed scheduling is enabled, every node schedules every job and the
+ * node which first acquires the lease for a job configuration executes it.
+ * Leases are kept alive through heartbeats and expire when a node stops
+ * renewing them, which allows other nodes to take over.
+ */
+public interface JobLeaseManager
+{
+    /**
+     * Indicates whether distributed job execution is enabled. When disabled,
+     * job execution is governed by the {@link org.hisp.dhis.leader.election.LeaderManager}.
+     *
+     * @return true if distributed job execution is enabled.
+     */
+    boolean isEnabled();
+
+    /**
+     * Returns the identifier of this node.
+     *
+     * @return the node identifier.
+     */
+    String getNodeId();
+
+    /**
+     * Indicates whether this node accepts jobs of the given type. Nodes can be
+     * pinned to a set of job types through configuration.
+     *
+     * @param jobType the {@link JobType}.
+     * @return true if this node accepts jobs of the given type.
+     */
+    boolean isAccepted( JobType jobType );
+
+    /**
+     * Attempts to acquire the lease for the given job configuration. The lease
+     * is acquired if no other node holds an unexpired lease and the job has
+     * not completed within the configured grace period.
+     *
+     * @param jobConfiguration the {@link JobConfiguration}.
+     * @return true if this node now holds the lease.
+     */
+    boolean tryAcquire( JobConfiguration jobConfiguration );
+
+    /**
+     * Attempts to acquire the lease for an execution of the given job
+     * configuration which was triggered manually on this node. The job types
+     * pinned to this node and the grace period are not applied, the lease is
+     * refused only if another node holds an unexpired lease.
+     *
+     * @param jobConfiguration the {@link JobConfiguration}.
+     * @return true if this node now holds the lease.
+     */
+    boolean tryAcquireForManualExecution( JobConfiguration jobConfiguration );
+
+    /**
+     * Releases the lease for the given job configuration if held by this node.
+     *
+     * @param jobConfiguration the {@link JobConfiguration}.
+     */
+    void release( JobConfiguration jobConfiguration );
+
+    /**
+     * Extends the expiry time of all leases currently held by this node.
+     */
+    void renewLeases();
+
+    /**
+     * Returns the interval in seconds between lease renewals.
+     *
+     * @return the heartbeat interval in seconds.
+     */
+    int getHeartbeatIntervalSeconds();
+}
@@ -0,0 +1,192 @@
+package org.hisp.dhis.translation;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.StringUtils;
+import org.hisp.dhis.cache.Cache;
+import org.hisp.dhis.cache.SimpleCacheBuilder;
+import org.hisp.dhis.common.IdentifiableObject;
+
+/**
+ * Shared dictionary of object translations, keyed on object UID and holding
+ * an immutable table of translated values per locale and property. Entries
+ * are built on first lookup and rebuilt when the last updated timestamp or
+ * the number of translations of the object has changed, or after being
+ * invalidated through {@link #invalidate(String)}. Objects which are not
+ * persisted are looked up directly in their set of translations.
+ * <p>
+ * Entries are held in a bounded local cache which is always in memory, as
+ * lookups happen on every display property of an object. Since entries are
+ * validated against the object they are looked up for, the dictionary needs
+ * no setup and can be shared by all objects of the JVM.
+ */
+public final class TranslationDictionary
+{
+    private static final int PROPERTY_COUNT = TranslationProperty.values().length;
+
+    private static final Cache<ObjectTranslations> DICTIONARY = new SimpleCacheBuilder<ObjectTranslations>()
+        .forRegion( "translationDictionary" )
+        .expireAfterWrite( 1, TimeUnit.HOURS )
+        .withInitialCapacity( 1000 )
+        .withMaximumSize( 50000 )
+        .build();
+
+    private static final ConcurrentMap<Locale, String> LOCALE_KEYS = new ConcurrentHashMap<>();
+
+    private TranslationDictionary()
+    {
+    }
+
+    /**
+     * Returns the translated value of the given property of the given object
+     * for the given locale.
+     *
+     * @param object the object.
+     * @param locale the locale.
+     * @param property the translation property.
+     * @return the translated value, or null if there is no translation.
+     */
+    public static String getTranslation( IdentifiableObject object, Locale locale, TranslationProperty property )
+    {
+        Set<Translation> translations = object.getTranslations();
+
+        if ( translations.isEmpty() )
+        {
+            return null;
+        }
+
+        String localeKey = LOCALE_KEYS.computeIfAbsent( locale, Locale::toString );
+
+        if ( object.getId() <= 0 || object.getUid() == null )
+        {
+            return findTranslation( translations, localeKey, property );
+        }
+
+        ObjectTranslations objectTranslations = DICTIONARY.getIfPresent( object.getUid() ).orElse( null );
+
+        if ( objectTranslations == null || !objectTranslations.isValidFor( object ) )
+        {
+            objectTranslations = new ObjectTranslations( object );
+
+            DICTIONARY.put( object.getUid(), objectTranslations );
+        }
+
+        return objectTranslations.get( localeKey, property );
+    }
+
+    /**
+     * Invalidates the translations of the object with the given UID.
+     *
+     * @param uid the object UID.
+     */
+    public static void invalidate( String uid )
+    {
+        DICTIONARY.invalidate( uid );
+    }
+
+    /**
+     * Invalidates all translations.
+     */
+    public static void invalidateAll()
+    {
+        DICTIONARY.invalidateAll();
+    }
+
+    private static String findTranslation( Set<Translation> translations, String localeKey, TranslationProperty property )
+    {
+        for ( Translation translation : translations )
+        {
+            if ( property == translation.getProperty() && localeKey.equals( translation.getLocale() )
+                && !StringUtils.isEmpty( translation.getValue() ) )
+            {
+                return translation.getValue();
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Immutable translations of an object, with translated values per locale
+     * indexed on translation property ordinal.
+     */
+    private static final class ObjectTranslations
+    {
+        private final Date lastUpdated;
+
+        private final int size;
+
+        private final Map<String, String[]> values;
+
+        private ObjectTranslations( IdentifiableObject object )
+        {
+            Set<Translation> translations = object.getTranslations();
+
+            Map<String, String[]> map = new HashMap<>();
+
+            for ( Translation translation : translations )
+            {
+                if ( translation.getLocale() != null && translation.getProperty() != null
+                    && !StringUtils.isEmpty( translation.getValue() ) )
+                {
+                    map.computeIfAbsent( translation.getLocale(), locale -> new String[PROPERTY_COUNT] )
+                        [translation.getProperty().ordinal()] = translation.getValue();
+                }
+            }
+
+            this.lastUpdated = object.getLastUpdated();
+            this.size = translations.size();
+            this.values = Collections.unmodifiableMap( map );
+        }
+
+        private boolean isValidFor( IdentifiableObject object )
+        {
+            return size == object.getTranslations().size()
+                && Objects.equals( lastUpdated, object.getLastUpdated() );
+        }
+
+        private String get( String localeKey, TranslationProperty property )
+        {
+            String[] localeValues = values.get( localeKey );
+
+            return localeValues != null ? localeValues[property.ordinal()] : null;
+        }
+    }
+}
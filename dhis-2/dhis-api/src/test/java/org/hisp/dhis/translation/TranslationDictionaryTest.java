@@ -0,0 +1,122 @@
+package org.hisp.dhis.translation;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Date;
+import java.util.Locale;
+
+import org.hisp.dhis.common.CodeGenerator;
+import org.hisp.dhis.dataelement.DataElement;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TranslationDictionaryTest
+{
+    private DataElement deA;
+
+    @Before
+    public void before()
+    {
+        deA = new DataElement( "NameA" );
+        deA.setId( 1L );
+        deA.setUid( CodeGenerator.generateUid() );
+        deA.setLastUpdated( new Date() );
+        deA.getTranslations().add( new Translation( "fr", TranslationProperty.NAME, "NomA" ) );
+        deA.getTranslations().add( new Translation( "fr", TranslationProperty.SHORT_NAME, "NomCourtA" ) );
+        deA.getTranslations().add( new Translation( "pt_BR", TranslationProperty.NAME, "NomeA" ) );
+        deA.getTranslations().add( new Translation( "es", TranslationProperty.NAME, "" ) );
+    }
+
+    @Test
+    public void testGetTranslation()
+    {
+        assertEquals( "NomA", TranslationDictionary.getTranslation( deA, Locale.FRENCH, TranslationProperty.NAME ) );
+        assertEquals( "NomCourtA", TranslationDictionary.getTranslation( deA, Locale.FRENCH, TranslationProperty.SHORT_NAME ) );
+        assertEquals( "NomeA", TranslationDictionary.getTranslation( deA, new Locale( "pt", "BR" ), TranslationProperty.NAME ) );
+        assertNull( TranslationDictionary.getTranslation( deA, Locale.FRENCH, TranslationProperty.DESCRIPTION ) );
+        assertNull( TranslationDictionary.getTranslation( deA, new Locale( "es" ), TranslationProperty.NAME ) );
+        assertNull( TranslationDictionary.getTranslation( deA, Locale.GERMAN, TranslationProperty.NAME ) );
+    }
+
+    @Test
+    public void testGetTranslationNotPersisted()
+    {
+        deA.setId( 0L );
+
+        assertEquals( "NomA", TranslationDictionary.getTranslation( deA, Locale.FRENCH, TranslationProperty.NAME ) );
+        assertNull( TranslationDictionary.getTranslation( deA, Locale.GERMAN, TranslationProperty.NAME ) );
+    }
+
+    @Test
+    public void testRebuildOnChange()
+    {
+        assertEquals( "NomA", TranslationDictionary.getTranslation( deA, Locale.FRENCH, TranslationProperty.NAME ) );
+
+        deA.getTranslations().add( new Translation( "de", TranslationProperty.NAME, "NameDeA" ) );
+
+        assertEquals( "NameDeA", TranslationDictionary.getTranslation( deA, Locale.GERMAN, TranslationProperty.NAME ) );
+
+        deA.getTranslations().removeIf( t -> "fr".equals( t.getLocale() ) && t.getProperty() == TranslationProperty.NAME );
+        deA.getTranslations().add( new Translation( "fr", TranslationProperty.NAME, "NouveauNomA" ) );
+        deA.setLastUpdated( new Date( deA.getLastUpdated().getTime() + 1000 ) );
+
+        assertEquals( "NouveauNomA", TranslationDictionary.getTranslation( deA, Locale.FRENCH, TranslationProperty.NAME ) );
+    }
+
+    @Test
+    public void testInvalidate()
+    {
+        assertEquals( "NomA", TranslationDictionary.getTranslation( deA, Locale.FRENCH, TranslationProperty.NAME ) );
+
+        deA.getTranslations().removeIf( t -> "fr".equals( t.getLocale() ) && t.getProperty() == TranslationProperty.NAME );
+        deA.getTranslations().add( new Translation( "fr", TranslationProperty.NAME, "NouveauNomA" ) );
+
+        assertEquals( "NomA", TranslationDictionary.getTranslation( deA, Locale.FRENCH, TranslationProperty.NAME ) );
+
+        TranslationDictionary.invalidate( deA.getUid() );
+
+        assertEquals( "NouveauNomA", TranslationDictionary.getTranslation( deA, Locale.FRENCH, TranslationProperty.NAME ) );
+    }
+
+    @Test
+    public void testInvalidateAll()
+    {
+        assertEquals( "NomA", TranslationDictionary.getTranslation( deA, Locale.FRENCH, TranslationProperty.NAME ) );
+
+        deA.getTranslations().removeIf( t -> "fr".equals( t.getLocale() ) && t.getProperty() == TranslationProperty.NAME );
+        deA.getTranslations().add( new Translation( "fr", TranslationProperty.NAME, "NouveauNomA" ) );
+
+        TranslationDictionary.invalidateAll();
+
+        assertEquals( "NouveauNomA", TranslationDictionary.getTranslation( deA, Locale.FRENCH, TranslationProperty.NAME ) );
+    }
+}
@@ -0,0 +1,184 @@
+package org.hisp.dhis.benchmark;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.hisp.dhis.benchmark.BenchmarkFixtures.stub;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.hisp.dhis.analytics.AggregationType;
+import org.hisp.dhis.analytics.AnalyticsAggregationType;
+import org.hisp.dhis.analytics.AnalyticsIndexAdvisor;
+import org.hisp.dhis.analytics.AnalyticsManager;
+import org.hisp.dhis.analytics.DataQueryParams;
+import org.hisp.dhis.analytics.DataType;
+import org.hisp.dhis.analytics.QueryPlanner;
+import org.hisp.dhis.analytics.data.JdbcAnalyticsManager;
+import org.hisp.dhis.common.DimensionalItemObject;
+import org.hisp.dhis.common.ListMap;
+import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.monitoring.metrics.ApplicationMetrics;
+import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.hisp.dhis.period.Period;
+import org.hisp.dhis.period.PeriodType;
+import org.hisp.dhis.period.QuarterlyPeriodType;
+import org.hisp.dhis.period.YearlyPeriodType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Benchmarks for analytics value key handling in {@link JdbcAnalyticsManager}:
+ * building keys from dimension values through
+ * {@link JdbcAnalyticsManager#getValueKey(String[])}, which is used when rows
+ * are read, and rewriting keys when data periods are replaced with
+ * aggregation periods.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+public class AnalyticsKeyBenchmark
+{
+    private static final int ROWS = 50000;
+
+    private AnalyticsManager analyticsManager;
+
+    private DataQueryParams params;
+
+    private ListMap<DimensionalItemObject, DimensionalItemObject> dataPeriodAggregationPeriodMap;
+
+    private String[][] rows;
+
+    private Map<String, Object> dataValueMap;
+
+    @Setup( Level.Trial )
+    public void setUpTrial()
+    {
+        analyticsManager = new JdbcAnalyticsManager( stub( QueryPlanner.class ), new JdbcTemplate(),
+            stub( AnalyticsIndexAdvisor.class ), new ApplicationMetrics() );
+
+        Random random = BenchmarkFixtures.random();
+
+        List<DataElement> dataElements = BenchmarkFixtures.dataElements( random, 20 );
+
+        List<OrganisationUnit> orgUnits = new ArrayList<>();
+
+        for ( int i = 0; i < 250; i++ )
+        {
+            OrganisationUnit orgUnit = new OrganisationUnit( "OrgUnit" + i );
+            orgUnit.setUid( BenchmarkFixtures.uid( random ) );
+            orgUnits.add( orgUnit );
+        }
+
+        List<Period> years = new ArrayList<>();
+        dataPeriodAggregationPeriodMap = new ListMap<>();
+
+        for ( int year = 2010; year < 2020; year++ )
+        {
+            Period period = PeriodType.getPeriodFromIsoString( String.valueOf( year ) );
+            years.add( period );
+
+            for ( Period quarter : new QuarterlyPeriodType().generatePeriods( period.getStartDate() ) )
+            {
+                dataPeriodAggregationPeriodMap.putValue( period, quarter );
+            }
+        }
+
+        params = DataQueryParams.newBuilder()
+            .withDataElements( dataElements )
+            .withPeriods( years )
+            .withOrganisationUnits( orgUnits )
+            .withDataPeriodType( new YearlyPeriodType() )
+            .withAggregationType( new AnalyticsAggregationType(
+                AggregationType.SUM, AggregationType.AVERAGE, DataType.NUMERIC, true ) )
+            .build();
+
+        rows = new String[ROWS][];
+
+        for ( int i = 0; i < ROWS; i++ )
+        {
+            rows[i] = new String[] {
+                dataElements.get( random.nextInt( dataElements.size() ) ).getUid(),
+                years.get( random.nextInt( years.size() ) ).getIsoDate(),
+                orgUnits.get( random.nextInt( orgUnits.size() ) ).getUid() };
+        }
+
+        dataValueMap = buildValueKeys();
+    }
+
+    @Benchmark
+    public Map<String, Object> buildValueKeys()
+    {
+        Map<String, Object> map = new HashMap<>();
+
+        for ( String[] row : rows )
+        {
+            map.put( JdbcAnalyticsManager.getValueKey( row ), 1d );
+        }
+
+        return map;
+    }
+
+    /**
+     * Baseline for {@link #replaceDataPeriodsWithAggregationPeriods}, which
+     * rewrites a copy of the value map as the rewrite is done in place.
+     */
+    @Benchmark
+    public Map<String, Object> copyValueMap()
+    {
+        return new HashMap<>( dataValueMap );
+    }
+
+    @Benchmark
+    public Map<String, Object> replaceDataPeriodsWithAggregationPeriods()
+    {
+        Map<String, Object> map = new HashMap<>( dataValueMap );
+
+        analyticsManager.replaceDataPeriodsWithAggregationPeriods( map, params, dataPeriodAggregationPeriodMap );
+
+        return map;
+    }
+}
@@ -0,0 +1,208 @@
+package org.hisp.dhis.benchmark;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.period.Period;
+import org.hisp.dhis.period.PeriodType;
+
+/**
+ * Synthetic fixtures for benchmarks. All fixtures are generated from a fixed
+ * seed so that consecutive runs and releases operate on identical data.
+ */
+public final class BenchmarkFixtures
+{
+    public static final long SEED = 20201126L;
+
+    private static final String LETTERS = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ";
+
+    private static final String ALPHANUMERIC = LETTERS + "0123456789";
+
+    private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+
+    /**
+     * Fixed reference time, 2020-11-26T00:00:00Z, from which dates are
+     * generated backwards.
+     */
+    public static final long EPOCH = 1606348800000L;
+
+    private BenchmarkFixtures()
+    {
+        throw new UnsupportedOperationException( "util" );
+    }
+
+    /**
+     * Returns a new random generator with the fixed seed.
+     */
+    public static Random random()
+    {
+        return new Random( SEED );
+    }
+
+    /**
+     * Generates a UID on the format used by {@link org.hisp.dhis.common.CodeGenerator}.
+     */
+    public static String uid( Random random )
+    {
+        StringBuilder builder = new StringBuilder( 11 );
+
+        builder.append( LETTERS.charAt( random.nextInt( LETTERS.length() ) ) );
+
+        for ( int i = 1; i < 11; i++ )
+        {
+            builder.append( ALPHANUMERIC.charAt( random.nextInt( ALPHANUMERIC.length() ) ) );
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Generates data elements with random UIDs.
+     */
+    public static List<DataElement> dataElements( Random random, int count )
+    {
+        List<DataElement> dataElements = new ArrayList<>( count );
+
+        for ( int i = 0; i < count; i++ )
+        {
+            DataElement dataElement = new DataElement( "DataElement" + i );
+            dataElement.setId( i + 1 );
+            dataElement.setUid( uid( random ) );
+            dataElements.add( dataElement );
+        }
+
+        return dataElements;
+    }
+
+    /**
+     * Generates an organisation unit hierarchy as a mapping of parent to
+     * immediate children, where each level fans out into the given number of
+     * children. The root has identifier 1, and identifiers are assigned level
+     * by level.
+     *
+     * @param fanOut the number of children per unit for each level below the root.
+     */
+    public static Map<Long, Set<Long>> hierarchy( int... fanOut )
+    {
+        Map<Long, Set<Long>> relationships = new HashMap<>();
+
+        List<Long> level = new ArrayList<>();
+        level.add( 1L );
+
+        long nextId = 2L;
+
+        for ( int children : fanOut )
+        {
+            List<Long> nextLevel = new ArrayList<>( level.size() * children );
+
+            for ( Long parent : level )
+            {
+                Set<Long> childIds = new HashSet<>();
+
+                for ( int i = 0; i < children; i++ )
+                {
+                    childIds.add( nextId );
+                    nextLevel.add( nextId++ );
+                }
+
+                relationships.put( parent, childIds );
+            }
+
+            level = nextLevel;
+        }
+
+        return relationships;
+    }
+
+    /**
+     * Generates random dates within the given number of years back in time.
+     */
+    public static List<Date> dates( Random random, int count, int years )
+    {
+        List<Date> dates = new ArrayList<>( count );
+
+        for ( int i = 0; i < count; i++ )
+        {
+            dates.add( new Date( EPOCH - ( random.nextInt( years * 365 ) * DAY_MILLIS ) ) );
+        }
+
+        return dates;
+    }
+
+    /**
+     * Generates ISO period strings of the given period type for random dates.
+     */
+    public static List<String> isoPeriods( Random random, PeriodType periodType, int count, int years )
+    {
+        List<String> isoPeriods = new ArrayList<>( count );
+
+        for ( Date date : dates( random, count, years ) )
+        {
+            Period period = periodType.createPeriod( date );
+            isoPeriods.add( period.getIsoDate() );
+        }
+
+        return isoPeriods;
+    }
+
+    /**
+     * Returns an implementation of the given interface for collaborators which
+     * must be present but are never invoked by a benchmark. Any invocation
+     * fails, which makes a benchmark accidentally measuring a collaborator
+     * visible.
+     */
+    @SuppressWarnings( "unchecked" )
+    public static <T> T stub( Class<T> type )
+    {
+        return (T) Proxy.newProxyInstance( type.getClassLoader(), new Class<?>[] { type },
+            ( proxy, method, args ) -> {
+                switch ( method.getName() )
+                {
+                    case "hashCode":
+                        return System.identityHashCode( proxy );
+                    case "equals":
+                        return proxy == args[0];
+                    case "toString":
+                        return "Stub of " + type.getSimpleName();
+                    default:
+                        throw new UnsupportedOperationException( method.toString() );
+                }
+            } );
+    }
+}
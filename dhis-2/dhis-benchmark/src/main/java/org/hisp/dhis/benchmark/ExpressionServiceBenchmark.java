@@ -0,0 +1,162 @@
+package org.hisp.dhis.benchmark;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.hisp.dhis.benchmark.BenchmarkFixtures.stub;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.hibernate.SessionFactory;
+import org.hisp.dhis.category.CategoryService;
+import org.hisp.dhis.common.DimensionService;
+import org.hisp.dhis.common.DimensionalItemObject;
+import org.hisp.dhis.constant.Constant;
+import org.hisp.dhis.constant.ConstantService;
+import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.dataelement.DataElementService;
+import org.hisp.dhis.expression.DefaultExpressionService;
+import org.hisp.dhis.expression.Expression;
+import org.hisp.dhis.expression.ExpressionService;
+import org.hisp.dhis.expression.MissingValueStrategy;
+import org.hisp.dhis.expression.ParseType;
+import org.hisp.dhis.hibernate.HibernateGenericStore;
+import org.hisp.dhis.organisationunit.OrganisationUnitGroupService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Benchmarks for evaluation of indicator expressions through
+ * {@link DefaultExpressionService}, which happens for every indicator,
+ * organisation unit and period in analytics requests.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+public class ExpressionServiceBenchmark
+{
+    private static final int EXPRESSIONS = 100;
+
+    private ExpressionService expressionService;
+
+    private List<String> expressions;
+
+    private Map<DimensionalItemObject, Double> valueMap;
+
+    private Map<String, Constant> constantMap;
+
+    private Map<String, Integer> orgUnitCountMap;
+
+    @Setup
+    public void setUp()
+    {
+        HibernateGenericStore<Expression> expressionStore = new HibernateGenericStore<>( stub( SessionFactory.class ),
+            new JdbcTemplate(), event -> {
+            }, Expression.class, false );
+
+        expressionService = new DefaultExpressionService( expressionStore, stub( DataElementService.class ),
+            stub( ConstantService.class ), stub( CategoryService.class ), stub( OrganisationUnitGroupService.class ),
+            stub( DimensionService.class ) );
+
+        Random random = BenchmarkFixtures.random();
+
+        List<DataElement> dataElements = BenchmarkFixtures.dataElements( random, 200 );
+
+        Constant constant = new Constant( "Population factor", 1000d );
+        constant.setUid( BenchmarkFixtures.uid( random ) );
+
+        constantMap = new HashMap<>();
+        constantMap.put( constant.getUid(), constant );
+
+        orgUnitCountMap = new HashMap<>();
+
+        valueMap = new HashMap<>();
+
+        for ( DataElement dataElement : dataElements )
+        {
+            valueMap.put( dataElement, (double) random.nextInt( 1000 ) );
+        }
+
+        expressions = new ArrayList<>( EXPRESSIONS );
+
+        for ( int i = 0; i < EXPRESSIONS; i++ )
+        {
+            String a = item( dataElements, random );
+            String b = item( dataElements, random );
+            String c = item( dataElements, random );
+
+            switch ( i % 4 )
+            {
+                case 0:
+                    expressions.add( a + "+" + b + "+" + c );
+                    break;
+                case 1:
+                    expressions.add( "(" + a + "+" + b + ")/" + c + "*100" );
+                    break;
+                case 2:
+                    expressions.add( a + "/C{" + constant.getUid() + "}" );
+                    break;
+                default:
+                    expressions.add( "(" + a + "-" + b + ")*(" + c + "+1)/2" );
+            }
+        }
+    }
+
+    @Benchmark
+    public void evaluateIndicatorExpressions( Blackhole blackhole )
+    {
+        for ( String expression : expressions )
+        {
+            blackhole.consume( expressionService.getExpressionValue( expression, ParseType.INDICATOR_EXPRESSION,
+                valueMap, constantMap, orgUnitCountMap, 31, MissingValueStrategy.NEVER_SKIP ) );
+        }
+    }
+
+    private static String item( List<DataElement> dataElements, Random random )
+    {
+        return "#{" + dataElements.get( random.nextInt( dataElements.size() ) ).getUid() + "}";
+    }
+}
@@ -0,0 +1,152 @@
+package org.hisp.dhis.benchmark;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.hisp.dhis.common.Grid;
+import org.hisp.dhis.common.GridHeader;
+import org.hisp.dhis.common.ValueType;
+import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.period.MonthlyPeriodType;
+import org.hisp.dhis.system.grid.ListGrid;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for {@link ListGrid} operations used when assembling analytics
+ * responses: populating rows, sorting and substituting meta data.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+public class ListGridBenchmark
+{
+    @Param( { "10000", "100000" } )
+    private int rows;
+
+    private Object[][] values;
+
+    private Map<String, String> metaData;
+
+    private Grid grid;
+
+    @Setup( Level.Trial )
+    public void setUpTrial()
+    {
+        Random random = BenchmarkFixtures.random();
+
+        List<DataElement> dataElements = BenchmarkFixtures.dataElements( random, 50 );
+        List<String> periods = BenchmarkFixtures.isoPeriods( random, new MonthlyPeriodType(), 60, 5 );
+
+        String[] orgUnits = new String[500];
+
+        metaData = new HashMap<>();
+
+        for ( int i = 0; i < orgUnits.length; i++ )
+        {
+            orgUnits[i] = BenchmarkFixtures.uid( random );
+            metaData.put( orgUnits[i], "Facility " + i );
+        }
+
+        for ( DataElement dataElement : dataElements )
+        {
+            metaData.put( dataElement.getUid(), dataElement.getName() );
+        }
+
+        values = new Object[rows][];
+
+        for ( int i = 0; i < rows; i++ )
+        {
+            values[i] = new Object[] {
+                dataElements.get( random.nextInt( dataElements.size() ) ).getUid(),
+                periods.get( random.nextInt( periods.size() ) ),
+                orgUnits[random.nextInt( orgUnits.length )],
+                random.nextInt( 10000 ) / 10d };
+        }
+    }
+
+    @Setup( Level.Invocation )
+    public void setUpInvocation()
+    {
+        grid = populate();
+    }
+
+    @Benchmark
+    public Grid populateGrid()
+    {
+        return populate();
+    }
+
+    @Benchmark
+    public Grid sortGrid()
+    {
+        return grid.sortGrid( 4, 1 );
+    }
+
+    @Benchmark
+    public Grid substituteMetaData()
+    {
+        return grid.substituteMetaData( metaData );
+    }
+
+    private Grid populate()
+    {
+        Grid listGrid = new ListGrid();
+
+        listGrid.addHeader( new GridHeader( "dx", "Data", ValueType.TEXT, String.class.getName(), false, true ) );
+        listGrid.addHeader( new GridHeader( "pe", "Period", ValueType.TEXT, String.class.getName(), false, true ) );
+        listGrid.addHeader( new GridHeader( "ou", "Organisation unit", ValueType.TEXT, String.class.getName(), false, true ) );
+        listGrid.addHeader( new GridHeader( "value", "Value", ValueType.NUMBER, Double.class.getName(), false, false ) );
+
+        for ( Object[] row : values )
+        {
+            listGrid.addRow().addValues( row );
+        }
+
+        return listGrid;
+    }
+}
@@ -0,0 +1,101 @@
+package org.hisp.dhis.benchmark;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.hisp.dhis.organisationunit.OrganisationUnitHierarchy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for {@link OrganisationUnitHierarchy#getChildren(long)} on a
+ * synthetic national hierarchy with 1 country, 10 provinces, 150 districts,
+ * 1 500 chiefdoms and 30 000 facilities.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+public class OrganisationUnitHierarchyBenchmark
+{
+    private static final long ROOT_ID = 1L;
+
+    private Map<Long, Set<Long>> relationships;
+
+    private OrganisationUnitHierarchy hierarchy;
+
+    private List<Long> districtIds;
+
+    @Setup
+    public void setUp()
+    {
+        relationships = BenchmarkFixtures.hierarchy( 10, 15, 10, 20 );
+        hierarchy = new OrganisationUnitHierarchy( relationships );
+
+        districtIds = new ArrayList<>();
+
+        for ( Long provinceId : relationships.get( ROOT_ID ) )
+        {
+            districtIds.addAll( relationships.get( provinceId ) );
+        }
+    }
+
+    @Benchmark
+    public Set<Long> getChildrenOfRoot()
+    {
+        return hierarchy.getChildren( ROOT_ID );
+    }
+
+    @Benchmark
+    public Set<Long> getChildrenOfDistricts()
+    {
+        return hierarchy.getChildren( districtIds );
+    }
+
+    @Benchmark
+    public Set<Long> createAndGetChildrenOfRoot()
+    {
+        return new OrganisationUnitHierarchy( relationships ).getChildren( ROOT_ID );
+    }
+}
@@ -0,0 +1,115 @@
+package org.hisp.dhis.benchmark;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.hisp.dhis.period.MonthlyPeriodType;
+import org.hisp.dhis.period.PeriodType;
+import org.hisp.dhis.period.QuarterlyPeriodType;
+import org.hisp.dhis.period.WeeklyPeriodType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks for {@link PeriodType#createPeriod(Date)} and
+ * {@link PeriodType#getPeriodFromIsoString(String)}, which are invoked for
+ * every row in analytics and data value import.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+public class PeriodTypeBenchmark
+{
+    private static final int SIZE = 1000;
+
+    @Param( { "Monthly", "Weekly", "Quarterly" } )
+    private String periodTypeName;
+
+    private PeriodType periodType;
+
+    private List<Date> dates;
+
+    private List<String> isoPeriods;
+
+    @Setup
+    public void setUp()
+    {
+        Random random = BenchmarkFixtures.random();
+
+        switch ( periodTypeName )
+        {
+            case "Weekly":
+                periodType = new WeeklyPeriodType();
+                break;
+            case "Quarterly":
+                periodType = new QuarterlyPeriodType();
+                break;
+            default:
+                periodType = new MonthlyPeriodType();
+        }
+
+        dates = BenchmarkFixtures.dates( random, SIZE, 10 );
+        isoPeriods = BenchmarkFixtures.isoPeriods( random, periodType, SIZE, 10 );
+    }
+
+    @Benchmark
+    public void createPeriod( Blackhole blackhole )
+    {
+        for ( Date date : dates )
+        {
+            blackhole.consume( periodType.createPeriod( date ) );
+        }
+    }
+
+    @Benchmark
+    public void getPeriodFromIsoString( Blackhole blackhole )
+    {
+        for ( String isoPeriod : isoPeriods )
+        {
+            blackhole.consume( PeriodType.getPeriodFromIsoString( isoPeriod ) );
+        }
+    }
+}
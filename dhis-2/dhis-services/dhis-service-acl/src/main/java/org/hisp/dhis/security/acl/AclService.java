@@ -33,6 +33,7 @@ import org.hisp.dhis.feedback.ErrorReport;
 import org.hisp.dhis.user.User;
 
 import java.util.List;
+import java.util.Set;
 
 /**
  * @author Morten Olav Hansen <mortenoh@gmail.com>
@@ -289,4 +290,13 @@ public interface AclService
      * @return List of error reports (if any)
      */
     <T extends IdentifiableObject> List<ErrorReport> verifySharing( T object, User user );
+
+    /**
+     * Returns the identifiers of the user groups which the user with the given
+     * identifier is a member of. Intended for sharing predicates in queries.
+     *
+     * @param userId the user identifier.
+     * @return a set of user group identifiers.
+     */
+    Set<Long> getUserGroupIds( long userId );
 }
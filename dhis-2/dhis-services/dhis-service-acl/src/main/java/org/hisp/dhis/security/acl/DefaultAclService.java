@@ -46,6 +46,7 @@ import org.springframework.stereotype.Service;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static org.springframework.util.CollectionUtils.containsAny;
@@ -60,11 +61,21 @@ public class DefaultAclService implements AclService
 {
     private final SchemaService schemaService;
 
-    public DefaultAclService( SchemaService schemaService )
+    private final EffectiveAccessIndex effectiveAccessIndex;
+
+    public DefaultAclService( SchemaService schemaService, EffectiveAccessIndex effectiveAccessIndex )
     {
         checkNotNull( schemaService );
+        checkNotNull( effectiveAccessIndex );
 
         this.schemaService = schemaService;
+        this.effectiveAccessIndex = effectiveAccessIndex;
+    }
+
+    @Override
+    public Set<Long> getUserGroupIds( long userId )
+    {
+        return effectiveAccessIndex.getMembership( userId ).getUserGroupIds();
     }
 
     @Override
@@ -649,6 +660,17 @@ public class DefaultAclService implements AclService
             return true;
         }
 
+        UserGroupMembership membership = effectiveAccessIndex.getMembership( user );
+
+        ObjectAccess objectAccess = membership != null ? effectiveAccessIndex.getObjectAccess( object ) : null;
+
+        if ( objectAccess != null )
+        {
+            return effectiveAccessIndex.isEnabled( objectAccess, membership, user.getId(), permission );
+        }
+
+        // Fall back to sharing of objects and users which are not persisted
+
         for ( UserGroupAccess userGroupAccess : object.getUserGroupAccesses() )
         {
             // Check if user is allowed to read this object through group access
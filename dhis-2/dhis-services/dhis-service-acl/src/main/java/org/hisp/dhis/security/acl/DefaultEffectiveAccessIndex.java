@@ -0,0 +1,445 @@
+package org.hisp.dhis.security.acl;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.hibernate.HibernateException;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hisp.dhis.cache.Cache;
+import org.hisp.dhis.cache.CacheProvider;
+import org.hisp.dhis.cache.CacheRegionInvalidation;
+import org.hisp.dhis.cache.CacheRegionInvalidationEvent;
+import org.hisp.dhis.common.IdentifiableObject;
+import org.hisp.dhis.commons.util.SystemUtils;
+import org.hisp.dhis.security.acl.AccessStringHelper.Permission;
+import org.hisp.dhis.user.User;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Cache backed {@link EffectiveAccessIndex}. Memberships and object sharing
+ * are cached as user group identifiers, which are mapped to dense node local
+ * positions on first use so that they can be matched as bitsets. The number
+ * of positions is bounded, when the bound is reached the positions are
+ * reassigned from scratch. Memberships are resolved with a query on the user
+ * group members so that pending changes in the session are flushed before
+ * being read.
+ * <p>
+ * Memberships resolved within a transaction are kept with the transaction and
+ * only put in the cache once it commits, unless an invalidation happened in
+ * the meantime, so that uncommitted or rolled back memberships are never
+ * shared. Invalidations are published as {@link CacheRegionInvalidationEvent}s
+ * to be propagated to the other nodes of a cluster, and remote invalidations
+ * received for the regions of this index are applied locally. As not every
+ * cluster transport propagates these events, cached memberships expire after
+ * one minute.
+ */
+@Slf4j
+@Component( "org.hisp.dhis.security.acl.EffectiveAccessIndex" )
+public class DefaultEffectiveAccessIndex
+    implements EffectiveAccessIndex
+{
+    static final String MEMBERSHIP_REGION = "userGroupMembership";
+
+    static final String OBJECT_ACCESS_REGION = "objectAccess";
+
+    static final int MAX_USER_GROUP_POSITIONS = 50_000;
+
+    private static final String MEMBERSHIP_HQL = "select g.id from UserGroup g join g.members m where m.id = :userId";
+
+    private final SessionFactory sessionFactory;
+
+    private final CacheProvider cacheProvider;
+
+    private final Environment env;
+
+    private final ApplicationEventPublisher publisher;
+
+    private final AtomicLong membershipGeneration = new AtomicLong();
+
+    private volatile UserGroupPositions userGroupPositions = new UserGroupPositions();
+
+    private Cache<UserGroupMembership> membershipCache;
+
+    private Cache<ObjectAccess> objectAccessCache;
+
+    public DefaultEffectiveAccessIndex( SessionFactory sessionFactory, CacheProvider cacheProvider, Environment env,
+        ApplicationEventPublisher publisher )
+    {
+        checkNotNull( sessionFactory );
+        checkNotNull( cacheProvider );
+        checkNotNull( env );
+        checkNotNull( publisher );
+
+        this.sessionFactory = sessionFactory;
+        this.cacheProvider = cacheProvider;
+        this.env = env;
+        this.publisher = publisher;
+    }
+
+    @PostConstruct
+    public void init()
+    {
+        final boolean testRun = SystemUtils.isTestRun( env.getActiveProfiles() );
+
+        membershipCache = cacheProvider.newCacheBuilder( UserGroupMembership.class )
+            .forRegion( MEMBERSHIP_REGION ).expireAfterWrite( 1, TimeUnit.MINUTES )
+            .withInitialCapacity( 200 )
+            .forceInMemory()
+            .withMaximumSize( testRun ? 0 : 10000 ).build();
+
+        objectAccessCache = cacheProvider.newCacheBuilder( ObjectAccess.class )
+            .forRegion( OBJECT_ACCESS_REGION ).expireAfterWrite( 1, TimeUnit.HOURS )
+            .withInitialCapacity( 1000 )
+            .forceInMemory()
+            .withMaximumSize( testRun ? 0 : 50000 ).build();
+    }
+
+    // -------------------------------------------------------------------------
+    // EffectiveAccessIndex implementation
+    // -------------------------------------------------------------------------
+
+    @Override
+    public UserGroupMembership getMembership( User user )
+    {
+        if ( user == null || user.getId() <= 0 )
+        {
+            return null;
+        }
+
+        Optional<UserGroupMembership> membership = membershipCache.getIfPresent( String.valueOf( user.getId() ) );
+
+        if ( membership.isPresent() )
+        {
+            return membership.get();
+        }
+
+        Session session = getCurrentSession();
+
+        return session != null ? loadMembership( session, user.getId() ) : null;
+    }
+
+    @Override
+    public UserGroupMembership getMembership( long userId )
+    {
+        Optional<UserGroupMembership> membership = membershipCache.getIfPresent( String.valueOf( userId ) );
+
+        return membership.orElseGet( () -> loadMembership( sessionFactory.getCurrentSession(), userId ) );
+    }
+
+    @Override
+    public ObjectAccess getObjectAccess( IdentifiableObject object )
+    {
+        if ( object == null || object.getId() <= 0 || object.getUid() == null )
+        {
+            return null;
+        }
+
+        ObjectAccess objectAccess = objectAccessCache.getIfPresent( object.getUid() ).orElse( null );
+
+        if ( objectAccess != null && objectAccess.isValidFor( object ) )
+        {
+            return objectAccess;
+        }
+
+        objectAccess = ObjectAccess.of( object );
+
+        if ( objectAccess != null )
+        {
+            objectAccessCache.put( object.getUid(), objectAccess );
+        }
+
+        return objectAccess;
+    }
+
+    @Override
+    public boolean isEnabled( ObjectAccess objectAccess, UserGroupMembership membership, long userId,
+        Permission permission )
+    {
+        return objectAccess.isEnabled( membership, userId, permission, getUserGroupPositions() );
+    }
+
+    @Override
+    public void invalidateUser( long userId )
+    {
+        membershipGeneration.incrementAndGet();
+        membershipCache.invalidate( String.valueOf( userId ) );
+
+        publish( CacheRegionInvalidation.key( MEMBERSHIP_REGION, String.valueOf( userId ) ) );
+    }
+
+    @Override
+    public void invalidateUsers()
+    {
+        membershipGeneration.incrementAndGet();
+        membershipCache.invalidateAll();
+
+        publish( CacheRegionInvalidation.all( MEMBERSHIP_REGION ) );
+    }
+
+    @Override
+    public void invalidateObject( String uid )
+    {
+        objectAccessCache.invalidate( uid );
+
+        publish( CacheRegionInvalidation.key( OBJECT_ACCESS_REGION, uid ) );
+    }
+
+    @Override
+    public void invalidateObjects()
+    {
+        objectAccessCache.invalidateAll();
+
+        publish( CacheRegionInvalidation.all( OBJECT_ACCESS_REGION ) );
+    }
+
+    /**
+     * Applies invalidations received from other cluster nodes to the regions
+     * of this index.
+     */
+    @EventListener( condition = "#event.remote" )
+    public void handleRemoteInvalidation( CacheRegionInvalidationEvent event )
+    {
+        for ( CacheRegionInvalidation invalidation : event.getInvalidations() )
+        {
+            Cache<?> cache = getCache( invalidation.getRegion() );
+
+            if ( cache == null )
+            {
+                continue;
+            }
+
+            if ( cache == membershipCache )
+            {
+                membershipGeneration.incrementAndGet();
+            }
+
+            if ( invalidation.isAll() )
+            {
+                cache.invalidateAll();
+            }
+            else
+            {
+                cache.invalidate( invalidation.getKey() );
+            }
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    /**
+     * Resolves the membership of the given user. Within a transaction the
+     * membership is kept with the transaction and put in the cache after
+     * commit, outside of a transaction it is put in the cache right away.
+     */
+    private UserGroupMembership loadMembership( Session session, long userId )
+    {
+        String key = String.valueOf( userId );
+
+        PendingMemberships pending = getPendingMemberships();
+
+        if ( pending != null )
+        {
+            UserGroupMembership membership = pending.get( key );
+
+            if ( membership != null )
+            {
+                return membership;
+            }
+        }
+
+        long generation = membershipGeneration.get();
+
+        List<Long> userGroupIds = session.createQuery( MEMBERSHIP_HQL, Long.class )
+            .setParameter( "userId", userId )
+            .list();
+
+        UserGroupMembership membership = new UserGroupMembership( new HashSet<>( userGroupIds ) );
+
+        if ( pending != null )
+        {
+            pending.put( key, membership, generation );
+        }
+        else if ( generation == membershipGeneration.get() )
+        {
+            membershipCache.put( key, membership );
+        }
+
+        log.debug( "Resolved user group membership for user: " + userId + ", " + membership );
+
+        return membership;
+    }
+
+    /**
+     * Returns the memberships pending on the current transaction, or null if
+     * no transaction is active.
+     */
+    private PendingMemberships getPendingMemberships()
+    {
+        if ( !TransactionSynchronizationManager.isSynchronizationActive() )
+        {
+            return null;
+        }
+
+        PendingMemberships pending = (PendingMemberships) TransactionSynchronizationManager.getResource( this );
+
+        if ( pending == null )
+        {
+            pending = new PendingMemberships();
+
+            TransactionSynchronizationManager.bindResource( this, pending );
+            TransactionSynchronizationManager.registerSynchronization( pending );
+        }
+
+        return pending;
+    }
+
+    /**
+     * Returns the current user group positions, replacing them with empty
+     * positions if the bound is reached. Bitsets resolved with the replaced
+     * positions are recomputed on next use.
+     */
+    UserGroupPositions getUserGroupPositions()
+    {
+        UserGroupPositions positions = userGroupPositions;
+
+        if ( positions.size() < MAX_USER_GROUP_POSITIONS )
+        {
+            return positions;
+        }
+
+        synchronized ( this )
+        {
+            if ( userGroupPositions == positions )
+            {
+                userGroupPositions = new UserGroupPositions();
+
+                log.info( "Reset user group positions after reaching bound of: " + MAX_USER_GROUP_POSITIONS );
+            }
+
+            return userGroupPositions;
+        }
+    }
+
+    private Cache<?> getCache( String region )
+    {
+        if ( MEMBERSHIP_REGION.equals( region ) )
+        {
+            return membershipCache;
+        }
+        else if ( OBJECT_ACCESS_REGION.equals( region ) )
+        {
+            return objectAccessCache;
+        }
+
+        return null;
+    }
+
+    /**
+     * Memberships resolved within a transaction together with the membership
+     * generation they were resolved at. A membership is served and cached
+     * after commit only as long as no membership was invalidated since.
+     */
+    private class PendingMemberships
+        extends TransactionSynchronizationAdapter
+    {
+        private final Map<String, UserGroupMembership> memberships = new HashMap<>();
+
+        private final Map<String, Long> generations = new HashMap<>();
+
+        private UserGroupMembership get( String key )
+        {
+            Long generation = generations.get( key );
+
+            return generation != null && generation == membershipGeneration.get() ? memberships.get( key ) : null;
+        }
+
+        private void put( String key, UserGroupMembership membership, long generation )
+        {
+            memberships.put( key, membership );
+            generations.put( key, generation );
+        }
+
+        @Override
+        public void afterCommit()
+        {
+            memberships.forEach( ( key, membership ) -> {
+                if ( generations.get( key ) == membershipGeneration.get() )
+                {
+                    membershipCache.put( key, membership );
+                }
+            } );
+        }
+
+        @Override
+        public void afterCompletion( int status )
+        {
+            TransactionSynchronizationManager.unbindResourceIfPossible( DefaultEffectiveAccessIndex.this );
+        }
+    }
+
+    private void publish( CacheRegionInvalidation invalidation )
+    {
+        publisher.publishEvent( new CacheRegionInvalidationEvent( this,
+            Collections.singletonList( invalidation ), false ) );
+    }
+
+    private Session getCurrentSession()
+    {
+        try
+        {
+            return sessionFactory.getCurrentSession();
+        }
+        catch ( HibernateException ex )
+        {
+            return null;
+        }
+    }
+}
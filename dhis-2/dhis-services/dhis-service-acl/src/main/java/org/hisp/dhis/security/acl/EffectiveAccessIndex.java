@@ -0,0 +1,110 @@
+package org.hisp.dhis.security.acl;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import org.hisp.dhis.common.IdentifiableObject;
+import org.hisp.dhis.security.acl.AccessStringHelper.Permission;
+import org.hisp.dhis.user.User;
+
+/**
+ * Index of the effective access of users to shareable objects. The user
+ * group membership of users and the user group and user sharing of objects
+ * are resolved once and cached until invalidated by membership or sharing
+ * changes. Invalidations are propagated to the other nodes of a cluster.
+ */
+public interface EffectiveAccessIndex
+{
+    /**
+     * Returns the user group membership of the given user. Returns null if the
+     * user is not persisted or if the membership is not cached and no session
+     * is available to resolve it.
+     *
+     * @param user the user.
+     * @return a {@link UserGroupMembership} or null.
+     */
+    UserGroupMembership getMembership( User user );
+
+    /**
+     * Returns the user group membership of the user with the given identifier.
+     * Requires an active session if the membership is not cached.
+     *
+     * @param userId the user identifier.
+     * @return a {@link UserGroupMembership}.
+     */
+    UserGroupMembership getMembership( long userId );
+
+    /**
+     * Returns the resolved sharing of the given object. Returns null if the
+     * object is not persisted or if its sharing refers to user groups or
+     * users which are not persisted.
+     *
+     * @param object the object.
+     * @return an {@link ObjectAccess} or null.
+     */
+    ObjectAccess getObjectAccess( IdentifiableObject object );
+
+    /**
+     * Indicates whether the given permission is granted by the given resolved
+     * sharing to the user with the given identifier and user group membership.
+     * Public access is not considered.
+     *
+     * @param objectAccess the resolved sharing of the object.
+     * @param membership the user group membership of the user.
+     * @param userId the user identifier.
+     * @param permission the permission.
+     */
+    boolean isEnabled( ObjectAccess objectAccess, UserGroupMembership membership, long userId,
+        Permission permission );
+
+    /**
+     * Invalidates the user group membership of the user with the given
+     * identifier.
+     *
+     * @param userId the user identifier.
+     */
+    void invalidateUser( long userId );
+
+    /**
+     * Invalidates the user group membership of all users.
+     */
+    void invalidateUsers();
+
+    /**
+     * Invalidates the resolved sharing of the object with the given
+     * identifier.
+     *
+     * @param uid the object identifier.
+     */
+    void invalidateObject( String uid );
+
+    /**
+     * Invalidates the resolved sharing of all objects.
+     */
+    void invalidateObjects();
+}
@@ -0,0 +1,98 @@
+package org.hisp.dhis.security.acl;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hisp.dhis.common.IdentifiableObject;
+import org.hisp.dhis.hibernate.CacheInvalidationListener;
+import org.hisp.dhis.user.User;
+import org.hisp.dhis.user.UserAccess;
+import org.hisp.dhis.user.UserGroup;
+import org.hisp.dhis.user.UserGroupAccess;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps the {@link EffectiveAccessIndex} up to date. Changes to user groups
+ * invalidate the membership of all users, changes to users invalidate the
+ * membership of the user and changes to other objects or to their sharing
+ * collections invalidate the resolved sharing of the object. Updates of
+ * individual sharing entries invalidate the resolved sharing of all objects.
+ */
+@Component
+public class EffectiveAccessIndexListener
+    extends CacheInvalidationListener
+{
+    private final EffectiveAccessIndex effectiveAccessIndex;
+
+    public EffectiveAccessIndexListener( EffectiveAccessIndex effectiveAccessIndex )
+    {
+        checkNotNull( effectiveAccessIndex );
+
+        this.effectiveAccessIndex = effectiveAccessIndex;
+    }
+
+    @Override
+    protected boolean isInvalidateOnCollectionChange()
+    {
+        return true;
+    }
+
+    @Override
+    public void onPostUpdate( PostUpdateEvent event )
+    {
+        if ( event.getEntity() instanceof UserGroupAccess || event.getEntity() instanceof UserAccess )
+        {
+            // Owner of updated sharing entry is not known
+
+            effectiveAccessIndex.invalidateObjects();
+        }
+
+        super.onPostUpdate( event );
+    }
+
+    @Override
+    protected void invalidate( Object entity )
+    {
+        if ( entity instanceof UserGroup )
+        {
+            effectiveAccessIndex.invalidateUsers();
+        }
+        else if ( entity instanceof User )
+        {
+            effectiveAccessIndex.invalidateUser( ((User) entity).getId() );
+        }
+
+        if ( entity instanceof IdentifiableObject && ((IdentifiableObject) entity).getUid() != null )
+        {
+            effectiveAccessIndex.invalidateObject( ((IdentifiableObject) entity).getUid() );
+        }
+    }
+}
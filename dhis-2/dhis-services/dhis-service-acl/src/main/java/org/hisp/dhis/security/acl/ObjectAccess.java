@@ -0,0 +1,195 @@
+package org.hisp.dhis.security.acl;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.io.Serializable;
+import java.util.BitSet;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import org.hisp.dhis.common.IdentifiableObject;
+import org.hisp.dhis.security.acl.AccessStringHelper.Permission;
+import org.hisp.dhis.user.User;
+import org.hisp.dhis.user.UserAccess;
+import org.hisp.dhis.user.UserGroup;
+import org.hisp.dhis.user.UserGroupAccess;
+
+/**
+ * The user group and user sharing of an object resolved per permission. User
+ * groups are held as identifiers, which are resolved to a bitset of node local
+ * {@link UserGroupPositions} on first use and matched against a
+ * {@link UserGroupMembership}. The bitsets are not serialized.
+ */
+public final class ObjectAccess
+    implements Serializable
+{
+    private final Map<Permission, Set<Long>> userGroups = new EnumMap<>( Permission.class );
+
+    private final Map<Permission, Set<Long>> users = new EnumMap<>( Permission.class );
+
+    private final Date lastUpdated;
+
+    private final int userGroupAccessCount;
+
+    private final int userAccessCount;
+
+    private transient volatile PositionedUserGroups positioned;
+
+    private ObjectAccess( IdentifiableObject object )
+    {
+        this.lastUpdated = object.getLastUpdated();
+        this.userGroupAccessCount = object.getUserGroupAccesses().size();
+        this.userAccessCount = object.getUserAccesses().size();
+
+        for ( Permission permission : Permission.values() )
+        {
+            userGroups.put( permission, new HashSet<>() );
+            users.put( permission, new HashSet<>() );
+        }
+    }
+
+    /**
+     * Resolves the sharing of the given object. Returns null if the sharing
+     * refers to user groups or users which are not persisted.
+     *
+     * @param object the object.
+     * @return an {@link ObjectAccess} or null.
+     */
+    static ObjectAccess of( IdentifiableObject object )
+    {
+        ObjectAccess objectAccess = new ObjectAccess( object );
+
+        for ( UserGroupAccess userGroupAccess : object.getUserGroupAccesses() )
+        {
+            UserGroup userGroup = userGroupAccess.getUserGroup();
+
+            if ( userGroup.getId() <= 0 )
+            {
+                return null;
+            }
+
+            for ( Permission permission : Permission.values() )
+            {
+                if ( AccessStringHelper.isEnabled( userGroupAccess.getAccess(), permission ) )
+                {
+                    objectAccess.userGroups.get( permission ).add( userGroup.getId() );
+                }
+            }
+        }
+
+        for ( UserAccess userAccess : object.getUserAccesses() )
+        {
+            User user = userAccess.getUser();
+
+            if ( user == null || user.getId() <= 0 )
+            {
+                return null;
+            }
+
+            for ( Permission permission : Permission.values() )
+            {
+                if ( AccessStringHelper.isEnabled( userAccess.getAccess(), permission ) )
+                {
+                    objectAccess.users.get( permission ).add( user.getId() );
+                }
+            }
+        }
+
+        return objectAccess;
+    }
+
+    /**
+     * Indicates whether the given permission is granted to the user with the
+     * given identifier and user group membership through user group or user
+     * sharing. Public access is not considered.
+     *
+     * @param membership the user group membership of the user.
+     * @param userId the user identifier.
+     * @param permission the permission.
+     * @param positions the positions user groups are resolved with.
+     */
+    boolean isEnabled( UserGroupMembership membership, long userId, Permission permission,
+        UserGroupPositions positions )
+    {
+        return users.get( permission ).contains( userId ) ||
+            membership.intersects( getUserGroups( positions ).get( permission ), positions );
+    }
+
+    /**
+     * Indicates whether this access still reflects the sharing of the given
+     * object, based on its last updated timestamp and number of sharing
+     * entries.
+     *
+     * @param object the object.
+     */
+    public boolean isValidFor( IdentifiableObject object )
+    {
+        return Objects.equals( lastUpdated, object.getLastUpdated() )
+            && userGroupAccessCount == object.getUserGroupAccesses().size()
+            && userAccessCount == object.getUserAccesses().size();
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private Map<Permission, BitSet> getUserGroups( UserGroupPositions positions )
+    {
+        PositionedUserGroups current = positioned;
+
+        if ( current == null || current.positions != positions )
+        {
+            Map<Permission, BitSet> bitSets = new EnumMap<>( Permission.class );
+
+            userGroups.forEach( ( permission, ids ) -> bitSets.put( permission, positions.toBitSet( ids ) ) );
+
+            current = new PositionedUserGroups( positions, bitSets );
+            positioned = current;
+        }
+
+        return current.userGroups;
+    }
+
+    private static final class PositionedUserGroups
+    {
+        private final UserGroupPositions positions;
+
+        private final Map<Permission, BitSet> userGroups;
+
+        private PositionedUserGroups( UserGroupPositions positions, Map<Permission, BitSet> userGroups )
+        {
+            this.positions = positions;
+            this.userGroups = userGroups;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package org.hisp.dhis.security.acl;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.io.Serializable;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The user groups a user is a member of, held as a set of user group
+ * identifiers for use in SQL predicates. For in-memory checks against
+ * {@link ObjectAccess} the identifiers are resolved to a bitset of node local
+ * {@link UserGroupPositions}, which is computed on first use and not
+ * serialized.
+ */
+public final class UserGroupMembership
+    implements Serializable
+{
+    private final Set<Long> userGroupIds;
+
+    private transient volatile PositionedUserGroups positioned;
+
+    UserGroupMembership( Set<Long> userGroupIds )
+    {
+        this.userGroupIds = Collections.unmodifiableSet( new HashSet<>( userGroupIds ) );
+    }
+
+    /**
+     * Returns the identifiers of the user groups of the user.
+     */
+    public Set<Long> getUserGroupIds()
+    {
+        return userGroupIds;
+    }
+
+    /**
+     * Indicates whether the user is a member of any of the user groups with
+     * the given positions.
+     *
+     * @param userGroups the user group positions.
+     * @param positions the positions the user groups are resolved with.
+     */
+    boolean intersects( BitSet userGroups, UserGroupPositions positions )
+    {
+        PositionedUserGroups current = positioned;
+
+        if ( current == null || current.positions != positions )
+        {
+            current = new PositionedUserGroups( positions, positions.toBitSet( userGroupIds ) );
+            positioned = current;
+        }
+
+        return current.userGroups.intersects( userGroups );
+    }
+
+    @Override
+    public String toString()
+    {
+        return "[User group ids: " + userGroupIds + "]";
+    }
+
+    private static final class PositionedUserGroups
+    {
+        private final UserGroupPositions positions;
+
+        private final BitSet userGroups;
+
+        private PositionedUserGroups( UserGroupPositions positions, BitSet userGroups )
+        {
+            this.positions = positions;
+            this.userGroups = userGroups;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package org.hisp.dhis.security.acl;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Maps user group identifiers to dense positions on first use, so that user
+ * group sets can be matched as bitsets. Positions are local to the node and
+ * are never part of cached state, which only holds user group identifiers.
+ */
+final class UserGroupPositions
+{
+    private final Map<Long, Integer> positions = new ConcurrentHashMap<>();
+
+    private final AtomicInteger nextPosition = new AtomicInteger();
+
+    /**
+     * Returns the position of the given user group identifier, assigning the
+     * next free position if the identifier has none yet.
+     *
+     * @param userGroupId the user group identifier.
+     */
+    int getPosition( long userGroupId )
+    {
+        return positions.computeIfAbsent( userGroupId, id -> nextPosition.getAndIncrement() );
+    }
+
+    /**
+     * Returns the number of positions assigned.
+     */
+    int size()
+    {
+        return positions.size();
+    }
+
+    /**
+     * Returns a bitset with the positions of the given user group identifiers.
+     *
+     * @param userGroupIds the user group identifiers.
+     */
+    BitSet toBitSet( Collection<Long> userGroupIds )
+    {
+        BitSet bitSet = new BitSet();
+
+        userGroupIds.forEach( id -> bitSet.set( getPosition( id ) ) );
+
+        return bitSet;
+    }
+}
@@ -0,0 +1,215 @@
+package org.hisp.dhis.security.acl;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Date;
+
+import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.security.acl.AccessStringHelper.Permission;
+import org.hisp.dhis.user.User;
+import org.hisp.dhis.user.UserAccess;
+import org.hisp.dhis.user.UserGroup;
+import org.hisp.dhis.user.UserGroupAccess;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Sets;
+
+public class ObjectAccessTest
+{
+    private UserGroupPositions positions;
+
+    private UserGroup groupA;
+
+    private UserGroup groupB;
+
+    private User userA;
+
+    private DataElement dataElement;
+
+    @Before
+    public void before()
+    {
+        positions = new UserGroupPositions();
+
+        groupA = new UserGroup( "GroupA" );
+        groupA.setId( 11L );
+        groupA.setUid( "GroupUidAA1" );
+        groupB = new UserGroup( "GroupB" );
+        groupB.setId( 12L );
+        groupB.setUid( "GroupUidBB1" );
+
+        userA = new User();
+        userA.setId( 21L );
+        userA.setUid( "UserUidAA11" );
+
+        dataElement = new DataElement( "DataElementA" );
+        dataElement.setId( 31L );
+        dataElement.setLastUpdated( new Date() );
+        dataElement.getUserGroupAccesses().add( new UserGroupAccess( groupA, "rw------" ) );
+        dataElement.getUserGroupAccesses().add( new UserGroupAccess( groupB, "r-r-----" ) );
+        dataElement.getUserAccesses().add( new UserAccess( userA, "--rw----" ) );
+    }
+
+    @Test
+    public void testIsEnabledUserGroup()
+    {
+        ObjectAccess objectAccess = ObjectAccess.of( dataElement );
+
+        assertNotNull( objectAccess );
+
+        UserGroupMembership memberA = membership( 11L );
+        UserGroupMembership memberB = membership( 12L );
+        UserGroupMembership memberC = membership( 13L );
+
+        assertTrue( isEnabled( objectAccess, memberA, 99L, Permission.READ ) );
+        assertTrue( isEnabled( objectAccess, memberA, 99L, Permission.WRITE ) );
+        assertFalse( isEnabled( objectAccess, memberA, 99L, Permission.DATA_READ ) );
+
+        assertTrue( isEnabled( objectAccess, memberB, 99L, Permission.DATA_READ ) );
+        assertFalse( isEnabled( objectAccess, memberB, 99L, Permission.WRITE ) );
+
+        assertFalse( isEnabled( objectAccess, memberC, 99L, Permission.READ ) );
+    }
+
+    @Test
+    public void testIsEnabledUser()
+    {
+        ObjectAccess objectAccess = ObjectAccess.of( dataElement );
+
+        UserGroupMembership noGroups = membership();
+
+        assertTrue( isEnabled( objectAccess, noGroups, 21L, Permission.DATA_READ ) );
+        assertTrue( isEnabled( objectAccess, noGroups, 21L, Permission.DATA_WRITE ) );
+        assertFalse( isEnabled( objectAccess, noGroups, 21L, Permission.READ ) );
+        assertFalse( isEnabled( objectAccess, noGroups, 22L, Permission.DATA_READ ) );
+    }
+
+    @Test
+    public void testNotPersistedUserGroup()
+    {
+        UserGroup groupC = new UserGroup( "GroupC" );
+        groupC.setUid( "GroupUidCC1" );
+
+        dataElement.getUserGroupAccesses().add( new UserGroupAccess( groupC, "rw------" ) );
+
+        assertNull( ObjectAccess.of( dataElement ) );
+    }
+
+    @Test
+    public void testIsValidFor()
+    {
+        ObjectAccess objectAccess = ObjectAccess.of( dataElement );
+
+        assertTrue( objectAccess.isValidFor( dataElement ) );
+
+        dataElement.getUserAccesses().clear();
+
+        assertFalse( objectAccess.isValidFor( dataElement ) );
+
+        objectAccess = ObjectAccess.of( dataElement );
+
+        dataElement.setLastUpdated( new Date( dataElement.getLastUpdated().getTime() + 1000 ) );
+
+        assertFalse( objectAccess.isValidFor( dataElement ) );
+    }
+
+    @Test
+    public void testIsEnabledWithReassignedPositions()
+    {
+        ObjectAccess objectAccess = ObjectAccess.of( dataElement );
+
+        UserGroupMembership memberA = membership( 11L );
+        UserGroupMembership memberB = membership( 12L );
+
+        assertTrue( isEnabled( objectAccess, memberA, 99L, Permission.WRITE ) );
+
+        positions = new UserGroupPositions();
+        positions.getPosition( 12L );
+
+        assertTrue( isEnabled( objectAccess, memberA, 99L, Permission.WRITE ) );
+        assertFalse( isEnabled( objectAccess, memberB, 99L, Permission.WRITE ) );
+        assertTrue( isEnabled( objectAccess, memberB, 99L, Permission.DATA_READ ) );
+    }
+
+    @Test
+    public void testIsEnabledAfterSerialization()
+        throws Exception
+    {
+        ObjectAccess objectAccess = ObjectAccess.of( dataElement );
+        UserGroupMembership memberA = membership( 11L );
+
+        assertTrue( isEnabled( objectAccess, memberA, 99L, Permission.WRITE ) );
+
+        ObjectAccess copy = copy( objectAccess );
+        UserGroupMembership memberACopy = copy( memberA );
+
+        assertTrue( isEnabled( copy, memberACopy, 99L, Permission.WRITE ) );
+        assertFalse( isEnabled( copy, memberACopy, 99L, Permission.DATA_READ ) );
+        assertTrue( isEnabled( copy, membership(), 21L, Permission.DATA_WRITE ) );
+        assertTrue( copy.isValidFor( dataElement ) );
+    }
+
+    private boolean isEnabled( ObjectAccess objectAccess, UserGroupMembership membership, long userId,
+        Permission permission )
+    {
+        return objectAccess.isEnabled( membership, userId, permission, positions );
+    }
+
+    private UserGroupMembership membership( Long... userGroupIds )
+    {
+        return new UserGroupMembership( Sets.newHashSet( userGroupIds ) );
+    }
+
+    @SuppressWarnings( "unchecked" )
+    private static <T> T copy( T object )
+        throws Exception
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        try ( ObjectOutputStream out = new ObjectOutputStream( bytes ) )
+        {
+            out.writeObject( object );
+        }
+
+        try ( ObjectInputStream in = new ObjectInputStream( new ByteArrayInputStream( bytes.toByteArray() ) ) )
+        {
+            return (T) in.readObject();
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package org.hisp.dhis.analytics;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Records which analytics table columns are filtered and grouped on by
+ * analytics queries, and advises which indexes are worth creating when
+ * analytics tables are generated.
+ */
+public interface AnalyticsIndexAdvisor
+{
+    /**
+     * Indicates whether index advice is enabled.
+     */
+    boolean isEnabled();
+
+    /**
+     * Records the columns referenced in the given SQL clause of a query
+     * against an analytics table of the given type. The clause should hold
+     * the filter and grouping parts of the query only.
+     *
+     * @param tableType the {@link AnalyticsTableType}.
+     * @param sql the SQL clause.
+     */
+    void recordColumnUsage( AnalyticsTableType tableType, String sql );
+
+    /**
+     * Returns the names of the columns used by analytics queries against the
+     * given table type, or null if advice is disabled or too few queries have
+     * been recorded to give advice.
+     *
+     * @param tableType the {@link AnalyticsTableType}.
+     * @return a set of unquoted column names, or null.
+     */
+    Set<String> getUsedColumns( AnalyticsTableType tableType );
+
+    /**
+     * Indicates whether an index should be created for the given column.
+     *
+     * @param column the {@link AnalyticsTableColumn}.
+     * @param usedColumns the columns used by queries, as returned by
+     *        {@link #getUsedColumns(AnalyticsTableType)}.
+     * @return true if an index should be created.
+     */
+    boolean isIndexRequired( AnalyticsTableColumn column, Set<String> usedColumns );
+
+    /**
+     * Returns the index type to use for the given column, or null for the
+     * default type.
+     *
+     * @param column the {@link AnalyticsTableColumn}.
+     * @return the index type.
+     */
+    String getIndexType( AnalyticsTableColumn column );
+
+    /**
+     * Stores the given report as the latest report of its table type.
+     *
+     * @param report the {@link AnalyticsIndexReport}.
+     */
+    void addReport( AnalyticsIndexReport report );
+
+    /**
+     * Returns the latest report of each table type.
+     */
+    List<AnalyticsIndexReport> getReports();
+}
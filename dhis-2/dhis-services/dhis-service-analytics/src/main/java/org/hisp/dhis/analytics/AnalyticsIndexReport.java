@@ -0,0 +1,158 @@
+package org.hisp.dhis.analytics;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.Date;
+import java.util.List;
+
+import org.hisp.dhis.common.DxfNamespaces;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.dataformat.xml.annotation.JacksonXmlElementWrapper;
+import com.fasterxml.jackson.dataformat.xml.annotation.JacksonXmlProperty;
+import com.fasterxml.jackson.dataformat.xml.annotation.JacksonXmlRootElement;
+
+/**
+ * Report of the indexes created and skipped on the last analytics table
+ * update of a table type, based on the advice of the
+ * {@link AnalyticsIndexAdvisor}.
+ */
+@JacksonXmlRootElement( localName = "analyticsIndexReport", namespace = DxfNamespaces.DXF_2_0 )
+public class AnalyticsIndexReport
+{
+    /**
+     * The analytics table type.
+     */
+    private AnalyticsTableType tableType;
+
+    /**
+     * The time of the table update.
+     */
+    private Date created;
+
+    /**
+     * The number of indexes created.
+     */
+    private int createdIndexes;
+
+    /**
+     * The columns for which no index was created, as no query used them.
+     */
+    private List<String> skippedColumns;
+
+    /**
+     * The number of indexes skipped across all partitions.
+     */
+    private int skippedIndexes;
+
+    /**
+     * The time in milliseconds spent creating indexes.
+     */
+    private long indexTimeMillis;
+
+    public AnalyticsIndexReport( AnalyticsTableType tableType, int createdIndexes, List<String> skippedColumns,
+        int skippedIndexes, long indexTimeMillis )
+    {
+        this.tableType = tableType;
+        this.created = new Date();
+        this.createdIndexes = createdIndexes;
+        this.skippedColumns = skippedColumns;
+        this.skippedIndexes = skippedIndexes;
+        this.indexTimeMillis = indexTimeMillis;
+    }
+
+    // -------------------------------------------------------------------------
+    // Logic
+    // -------------------------------------------------------------------------
+
+    /**
+     * Returns the estimated time in milliseconds saved by skipping indexes,
+     * based on the average time spent per created index.
+     */
+    @JsonProperty
+    @JacksonXmlProperty( namespace = DxfNamespaces.DXF_2_0 )
+    public long getEstimatedTimeSavedMillis()
+    {
+        return createdIndexes > 0 ? ( indexTimeMillis / createdIndexes ) * skippedIndexes : 0;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format( "Analytics index report, table type: %s, created: %d, skipped: %d, index time: %d ms, estimated time saved: %d ms, skipped columns: %s",
+            tableType, createdIndexes, skippedIndexes, indexTimeMillis, getEstimatedTimeSavedMillis(), skippedColumns );
+    }
+
+    // -------------------------------------------------------------------------
+    // Get methods
+    // -------------------------------------------------------------------------
+
+    @JsonProperty
+    @JacksonXmlProperty( namespace = DxfNamespaces.DXF_2_0 )
+    public AnalyticsTableType getTableType()
+    {
+        return tableType;
+    }
+
+    @JsonProperty
+    @JacksonXmlProperty( namespace = DxfNamespaces.DXF_2_0 )
+    public Date getCreated()
+    {
+        return created;
+    }
+
+    @JsonProperty
+    @JacksonXmlProperty( namespace = DxfNamespaces.DXF_2_0 )
+    public int getCreatedIndexes()
+    {
+        return createdIndexes;
+    }
+
+    @JsonProperty
+    @JacksonXmlElementWrapper( localName = "skippedColumns", namespace = DxfNamespaces.DXF_2_0 )
+    @JacksonXmlProperty( localName = "skippedColumn", namespace = DxfNamespaces.DXF_2_0 )
+    public List<String> getSkippedColumns()
+    {
+        return skippedColumns;
+    }
+
+    @JsonProperty
+    @JacksonXmlProperty( namespace = DxfNamespaces.DXF_2_0 )
+    public int getSkippedIndexes()
+    {
+        return skippedIndexes;
+    }
+
+    @JsonProperty
+    @JacksonXmlProperty( namespace = DxfNamespaces.DXF_2_0 )
+    public long getIndexTimeMillis()
+    {
+        return indexTimeMillis;
+    }
+}
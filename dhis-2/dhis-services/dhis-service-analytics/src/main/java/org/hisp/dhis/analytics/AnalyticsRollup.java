@@ -0,0 +1,201 @@
+package org.hisp.dhis.analytics;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.hisp.dhis.analytics.DataQueryParams.LEVEL_PREFIX;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.commons.lang3.math.NumberUtils;
+import org.hisp.dhis.common.DimensionType;
+import org.hisp.dhis.common.DimensionalObject;
+import org.hisp.dhis.period.PeriodType;
+
+import com.google.common.base.MoreObjects;
+
+/**
+ * Pre-aggregated rollup of the data value analytics table. A rollup retains
+ * the organisation unit level columns down to its level and the period
+ * columns of its period type and coarser period types, and sums values over
+ * the remaining organisation unit and period columns. The rollup is stored
+ * as one table per year partition of the analytics table.
+ */
+public class AnalyticsRollup
+{
+    public static final String TABLE_PREFIX = "analytics_rollup_";
+
+    /**
+     * The lowest organisation unit level retained.
+     */
+    private final int level;
+
+    /**
+     * The finest period type retained.
+     */
+    private final PeriodType periodType;
+
+    /**
+     * The year partitions for which a rollup table exists.
+     */
+    private final Set<Integer> partitions = new HashSet<>();
+
+    /**
+     * The estimated number of rows over all partitions.
+     */
+    private long rows;
+
+    public AnalyticsRollup( int level, PeriodType periodType )
+    {
+        this.level = level;
+        this.periodType = periodType;
+    }
+
+    // -------------------------------------------------------------------------
+    // Logic
+    // -------------------------------------------------------------------------
+
+    /**
+     * Returns the base table name of this rollup. Partition tables are named
+     * by appending the year, like the analytics table partitions.
+     */
+    public String getTableName()
+    {
+        return TABLE_PREFIX + "l" + level + "_" + periodType.getName().toLowerCase();
+    }
+
+    /**
+     * Indicates whether the given org unit level column is retained.
+     *
+     * @param orgUnitLevel the org unit level.
+     */
+    public boolean hasOrgUnitLevel( int orgUnitLevel )
+    {
+        return orgUnitLevel <= level;
+    }
+
+    /**
+     * Indicates whether the column of the given period type is retained.
+     *
+     * @param type the {@link PeriodType}.
+     */
+    public boolean hasPeriodType( PeriodType type )
+    {
+        return type.getFrequencyOrder() >= periodType.getFrequencyOrder();
+    }
+
+    /**
+     * Indicates whether this rollup holds all data required to answer the
+     * given query, meaning that every org unit and period dimension and filter
+     * refers to a retained column, and that a rollup table exists for every
+     * partition of the query. The aggregation type and other restrictions of
+     * the query must be checked separately.
+     *
+     * @param params the {@link DataQueryParams}.
+     */
+    public boolean canAnswer( DataQueryParams params )
+    {
+        if ( !params.hasPartitions() || !partitions.containsAll( params.getPartitions().getPartitions() ) )
+        {
+            return false;
+        }
+
+        for ( DimensionalObject dimension : params.getDimensionsAndFilters() )
+        {
+            if ( !hasColumn( dimension ) )
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private boolean hasColumn( DimensionalObject dimension )
+    {
+        String name = dimension.getDimensionName();
+
+        if ( DimensionType.ORGANISATION_UNIT == dimension.getDimensionType() )
+        {
+            return name != null && name.startsWith( LEVEL_PREFIX ) &&
+                hasOrgUnitLevel( NumberUtils.toInt( name.substring( LEVEL_PREFIX.length() ), Integer.MAX_VALUE ) );
+        }
+        else if ( DimensionType.PERIOD == dimension.getDimensionType() )
+        {
+            PeriodType type = name != null ? PeriodType.getByNameIgnoreCase( name ) : null;
+
+            return type != null && hasPeriodType( type );
+        }
+
+        return true;
+    }
+
+    public void addPartition( Integer partition )
+    {
+        this.partitions.add( partition );
+    }
+
+    public void addRows( long rows )
+    {
+        this.rows += rows;
+    }
+
+    // -------------------------------------------------------------------------
+    // Getters
+    // -------------------------------------------------------------------------
+
+    public int getLevel()
+    {
+        return level;
+    }
+
+    public PeriodType getPeriodType()
+    {
+        return periodType;
+    }
+
+    public Set<Integer> getPartitions()
+    {
+        return partitions;
+    }
+
+    public long getRows()
+    {
+        return rows;
+    }
+
+    @Override
+    public String toString()
+    {
+        return MoreObjects.toStringHelper( this )
+            .add( "table", getTableName() )
+            .add( "partitions", partitions )
+            .add( "rows", rows ).toString();
+    }
+}
@@ -0,0 +1,69 @@
+package org.hisp.dhis.analytics;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Manages pre-aggregated rollup tables of the data value analytics table.
+ * Rollups are configured through the
+ * {@link org.hisp.dhis.setting.SettingKey#ANALYTICS_ROLLUPS} system setting.
+ */
+public interface AnalyticsRollupManager
+{
+    /**
+     * Returns the configured rollups for which rollup tables exist, ordered
+     * by size, smallest first.
+     *
+     * @return a list of {@link AnalyticsRollup}.
+     */
+    List<AnalyticsRollup> getRollups();
+
+    /**
+     * Indicates whether the rollup tables of the given rollup exist for all of
+     * the given partitions. Tables found recently are not looked up again
+     * until the rollups are regenerated. Discards the cached rollups if a
+     * table is missing, as they no longer reflect the database.
+     *
+     * @param rollup the {@link AnalyticsRollup}.
+     * @param partitions the year partitions.
+     * @return true if all rollup tables exist.
+     */
+    boolean rollupTablesExist( AnalyticsRollup rollup, Set<Integer> partitions );
+
+    /**
+     * Generates the configured rollup tables from the data value analytics
+     * table partitions updated by the given update, and drops rollup tables
+     * which are no longer configured or whose partition no longer exists.
+     *
+     * @param params the {@link AnalyticsTableUpdateParams}.
+     */
+    void generateRollups( AnalyticsTableUpdateParams params );
+}
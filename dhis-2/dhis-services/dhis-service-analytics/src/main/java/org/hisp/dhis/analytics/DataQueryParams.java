@@ -435,6 +435,12 @@ public class DataQueryParams
      */
     protected transient boolean skipDataDimensionValidation = false;
 
+    /**
+     * Cancellation of the query, such as when the client has disconnected.
+     * Not part of the query key.
+     */
+    protected transient QueryCancellation cancellation;
+
     // Constructors
     // -------------------------------------------------------------------------
 
@@ -524,6 +530,7 @@ public class DataQueryParams
         params.dataApprovalLevels = new HashMap<>( this.dataApprovalLevels );
         params.skipDataDimensionValidation = this.skipDataDimensionValidation;
         params.userOrgUnitType = this.userOrgUnitType;
+        params.cancellation = this.cancellation;
         return params;
     }
 
@@ -2483,6 +2490,16 @@ public class DataQueryParams
         return userOrgUnitType;
     }
 
+    public QueryCancellation getCancellation()
+    {
+        return cancellation;
+    }
+
+    public boolean hasCancellation()
+    {
+        return cancellation != null;
+    }
+
     // -------------------------------------------------------------------------
     // Builder of immutable instances
     // -------------------------------------------------------------------------
@@ -3007,6 +3024,12 @@ public class DataQueryParams
             return this;
         }
 
+        public Builder withCancellation( QueryCancellation cancellation )
+        {
+            this.params.cancellation = cancellation;
+            return this;
+        }
+
         public DataQueryParams build()
         {
             return params;
@@ -0,0 +1,137 @@
+package org.hisp.dhis.analytics;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Allows an analytics query to be cancelled while it is executing, typically
+ * because the client which requested it has gone away. JDBC statements
+ * executed on behalf of the query register themselves and are cancelled
+ * through {@link Statement#cancel()}. Statements registered after
+ * cancellation are cancelled immediately.
+ */
+@Slf4j
+public class QueryCancellation
+{
+    private final Set<Statement> statements = ConcurrentHashMap.newKeySet();
+
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+
+    private volatile boolean cancelled = false;
+
+    /**
+     * Registers a statement which is about to be executed.
+     *
+     * @param statement the {@link Statement}.
+     */
+    public void register( Statement statement )
+    {
+        statements.add( statement );
+
+        if ( cancelled )
+        {
+            cancel( statement );
+        }
+    }
+
+    /**
+     * Unregisters a statement which has completed.
+     *
+     * @param statement the {@link Statement}.
+     */
+    public void unregister( Statement statement )
+    {
+        statements.remove( statement );
+    }
+
+    /**
+     * Registers a callback to invoke on cancellation. The callback is invoked
+     * immediately if this query is already cancelled.
+     *
+     * @param listener the callback.
+     */
+    public void onCancel( Runnable listener )
+    {
+        listeners.add( listener );
+
+        if ( cancelled && listeners.remove( listener ) )
+        {
+            listener.run();
+        }
+    }
+
+    /**
+     * Cancels all registered statements and invokes the cancellation
+     * callbacks. Has no effect if already cancelled.
+     */
+    public void cancel()
+    {
+        if ( cancelled )
+        {
+            return;
+        }
+
+        cancelled = true;
+
+        statements.forEach( this::cancel );
+
+        for ( Runnable listener : listeners )
+        {
+            if ( listeners.remove( listener ) )
+            {
+                listener.run();
+            }
+        }
+    }
+
+    public boolean isCancelled()
+    {
+        return cancelled;
+    }
+
+    private void cancel( Statement statement )
+    {
+        try
+        {
+            statement.cancel();
+        }
+        catch ( SQLException ex )
+        {
+            log.debug( "Failed to cancel statement", ex );
+        }
+    }
+}
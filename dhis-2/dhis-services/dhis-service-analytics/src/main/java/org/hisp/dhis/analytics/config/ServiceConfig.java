@@ -28,6 +28,7 @@ package org.hisp.dhis.analytics.config;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import org.hisp.dhis.analytics.AnalyticsIndexAdvisor;
 import org.hisp.dhis.analytics.AnalyticsTableManager;
 import org.hisp.dhis.analytics.table.DefaultAnalyticsTableService;
 import org.hisp.dhis.dataelement.DataElementService;
@@ -49,69 +50,76 @@ public class ServiceConfig
     public DefaultAnalyticsTableService analyticsTableService(
         @Qualifier( "org.hisp.dhis.analytics.AnalyticsTableManager" ) AnalyticsTableManager tableManager,
         OrganisationUnitService organisationUnitService, DataElementService dataElementService,
-        ResourceTableService resourceTableService, Notifier notifier, SystemSettingManager systemSettingManager )
+        ResourceTableService resourceTableService, Notifier notifier, SystemSettingManager systemSettingManager,
+            AnalyticsIndexAdvisor indexAdvisor )
     {
         return new DefaultAnalyticsTableService( tableManager, organisationUnitService, dataElementService,
-            resourceTableService, notifier, systemSettingManager );
+            resourceTableService, notifier, systemSettingManager, indexAdvisor );
     }
 
     @Bean( "org.hisp.dhis.analytics.CompletenessTableService" )
     public DefaultAnalyticsTableService completenessTableService(
             @Qualifier( "org.hisp.dhis.analytics.CompletenessTableManager" ) AnalyticsTableManager tableManager,
             OrganisationUnitService organisationUnitService, DataElementService dataElementService,
-            ResourceTableService resourceTableService, Notifier notifier, SystemSettingManager systemSettingManager )
+            ResourceTableService resourceTableService, Notifier notifier, SystemSettingManager systemSettingManager,
+            AnalyticsIndexAdvisor indexAdvisor )
     {
         return new DefaultAnalyticsTableService( tableManager, organisationUnitService, dataElementService,
-                resourceTableService, notifier, systemSettingManager );
+                resourceTableService, notifier, systemSettingManager, indexAdvisor );
     }
 
     @Bean( "org.hisp.dhis.analytics.CompletenessTargetTableService" )
     public DefaultAnalyticsTableService completenessTargetTableService(
             @Qualifier( "org.hisp.dhis.analytics.CompletenessTargetTableManager" ) AnalyticsTableManager tableManager,
             OrganisationUnitService organisationUnitService, DataElementService dataElementService,
-            ResourceTableService resourceTableService, Notifier notifier, SystemSettingManager systemSettingManager )
+            ResourceTableService resourceTableService, Notifier notifier, SystemSettingManager systemSettingManager,
+            AnalyticsIndexAdvisor indexAdvisor )
     {
         return new DefaultAnalyticsTableService( tableManager, organisationUnitService, dataElementService,
-                resourceTableService, notifier, systemSettingManager );
+                resourceTableService, notifier, systemSettingManager, indexAdvisor );
     }
 
     @Bean( "org.hisp.dhis.analytics.OrgUnitTargetTableService" )
     public DefaultAnalyticsTableService orgUnitTargetTableService(
             @Qualifier( "org.hisp.dhis.analytics.OrgUnitTargetTableManager" ) AnalyticsTableManager tableManager,
             OrganisationUnitService organisationUnitService, DataElementService dataElementService,
-            ResourceTableService resourceTableService, Notifier notifier, SystemSettingManager systemSettingManager )
+            ResourceTableService resourceTableService, Notifier notifier, SystemSettingManager systemSettingManager,
+            AnalyticsIndexAdvisor indexAdvisor )
     {
         return new DefaultAnalyticsTableService( tableManager, organisationUnitService, dataElementService,
-                resourceTableService, notifier, systemSettingManager );
+                resourceTableService, notifier, systemSettingManager, indexAdvisor );
     }
 
     @Bean( "org.hisp.dhis.analytics.EventAnalyticsTableService" )
     public DefaultAnalyticsTableService eventAnalyticsTableService(
             @Qualifier( "org.hisp.dhis.analytics.EventAnalyticsTableManager" ) AnalyticsTableManager tableManager,
             OrganisationUnitService organisationUnitService, DataElementService dataElementService,
-            ResourceTableService resourceTableService, Notifier notifier, SystemSettingManager systemSettingManager )
+            ResourceTableService resourceTableService, Notifier notifier, SystemSettingManager systemSettingManager,
+            AnalyticsIndexAdvisor indexAdvisor )
     {
         return new DefaultAnalyticsTableService( tableManager, organisationUnitService, dataElementService,
-                resourceTableService, notifier, systemSettingManager );
+                resourceTableService, notifier, systemSettingManager, indexAdvisor );
     }
 
     @Bean( "org.hisp.dhis.analytics.ValidationResultTableService" )
     public DefaultAnalyticsTableService validationResultTableService(
             @Qualifier( "org.hisp.dhis.analytics.ValidationResultAnalyticsTableManager" ) AnalyticsTableManager tableManager,
             OrganisationUnitService organisationUnitService, DataElementService dataElementService,
-            ResourceTableService resourceTableService, Notifier notifier, SystemSettingManager systemSettingManager )
+            ResourceTableService resourceTableService, Notifier notifier, SystemSettingManager systemSettingManager,
+            AnalyticsIndexAdvisor indexAdvisor )
     {
         return new DefaultAnalyticsTableService( tableManager, organisationUnitService, dataElementService,
-                resourceTableService, notifier, systemSettingManager );
+                resourceTableService, notifier, systemSettingManager, indexAdvisor );
     }
 
     @Bean( "org.hisp.dhis.analytics.EnrollmentAnalyticsTableService" )
     public DefaultAnalyticsTableService enrollmentAnalyticsTableManager(
             @Qualifier( "org.hisp.dhis.analytics.EnrollmentAnalyticsTableManager" ) AnalyticsTableManager tableManager,
             OrganisationUnitService organisationUnitService, DataElementService dataElementService,
-            ResourceTableService resourceTableService, Notifier notifier, SystemSettingManager systemSettingManager )
+            ResourceTableService resourceTableService, Notifier notifier, SystemSettingManager systemSettingManager,
+            AnalyticsIndexAdvisor indexAdvisor )
     {
         return new DefaultAnalyticsTableService( tableManager, organisationUnitService, dataElementService,
-                resourceTableService, notifier, systemSettingManager );
+                resourceTableService, notifier, systemSettingManager, indexAdvisor );
     }
 }
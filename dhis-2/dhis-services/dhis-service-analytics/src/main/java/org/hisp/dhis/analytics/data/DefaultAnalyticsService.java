@@ -78,25 +78,30 @@ public class DefaultAnalyticsService
 
     private final DataAggregator dataAggregator;
 
+    private final QueryCoalescer queryCoalescer;
+
     // -------------------------------------------------------------------------
     // AnalyticsService implementation
     // -------------------------------------------------------------------------
 
     @Autowired
     public DefaultAnalyticsService( AnalyticsSecurityManager securityManager, QueryValidator queryValidator,
-        DataQueryService dataQueryService, AnalyticsCache analyticsCache, DataAggregator dataAggregator )
+        DataQueryService dataQueryService, AnalyticsCache analyticsCache, DataAggregator dataAggregator,
+        QueryCoalescer queryCoalescer )
     {
         checkNotNull( securityManager );
         checkNotNull( queryValidator );
         checkNotNull( dataQueryService );
         checkNotNull( analyticsCache );
         checkNotNull( dataAggregator );
+        checkNotNull( queryCoalescer );
 
         this.securityManager = securityManager;
         this.queryValidator = queryValidator;
         this.dataQueryService = dataQueryService;
         this.analyticsCache = analyticsCache;
         this.dataAggregator = dataAggregator;
+        this.queryCoalescer = queryCoalescer;
     }
 
     @Override
@@ -108,13 +113,11 @@ public class DefaultAnalyticsService
 
         if ( analyticsCache.isEnabled() )
         {
-            final DataQueryParams immutableParams = newBuilder( params ).build();
-
-            return analyticsCache.getOrFetch( params,
-                p -> dataAggregator.getAggregatedDataValueGrid( immutableParams ) );
+            return queryCoalescer.getOrExecute( params,
+                p -> analyticsCache.getOrFetch( p, dataAggregator::getAggregatedDataValueGrid ) );
         }
 
-        return dataAggregator.getAggregatedDataValueGrid( params );
+        return queryCoalescer.getOrExecute( params, dataAggregator::getAggregatedDataValueGrid );
     }
 
     @Override
@@ -34,6 +34,7 @@ import static org.hisp.dhis.common.DimensionalObject.DATA_X_DIM_ID;
 import static org.hisp.dhis.common.DimensionalObject.ORGUNIT_DIM_ID;
 import static org.hisp.dhis.common.DimensionalObject.PERIOD_DIM_ID;
 import static org.hisp.dhis.analytics.util.AnalyticsUtils.throwIllegalQueryEx;
+import static org.hisp.dhis.monitoring.metrics.ApplicationMetrics.SUBSYSTEM_ANALYTICS;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -41,6 +42,8 @@ import java.util.function.Function;
 
 import org.hisp.dhis.analytics.AggregationType;
 import org.hisp.dhis.analytics.AnalyticsAggregationType;
+import org.hisp.dhis.analytics.AnalyticsRollup;
+import org.hisp.dhis.analytics.AnalyticsRollupManager;
 import org.hisp.dhis.analytics.AnalyticsTableType;
 import org.hisp.dhis.analytics.DataQueryGroups;
 import org.hisp.dhis.analytics.DataQueryParams;
@@ -62,6 +65,7 @@ import org.hisp.dhis.commons.collection.PaginatedList;
 import org.hisp.dhis.dataelement.DataElement;
 import org.hisp.dhis.dataelement.DataElementGroup;
 import org.hisp.dhis.feedback.ErrorCode;
+import org.hisp.dhis.monitoring.metrics.ApplicationMetrics;
 import org.hisp.dhis.period.Period;
 import org.hisp.dhis.period.PeriodType;
 import org.hisp.dhis.system.util.MathUtils;
@@ -85,13 +89,22 @@ public class DefaultQueryPlanner
 
     private final PartitionManager partitionManager;
 
-    public DefaultQueryPlanner( QueryValidator queryValidator, PartitionManager partitionManager )
+    private final AnalyticsRollupManager rollupManager;
+
+    private final ApplicationMetrics applicationMetrics;
+
+    public DefaultQueryPlanner( QueryValidator queryValidator, PartitionManager partitionManager,
+        AnalyticsRollupManager rollupManager, ApplicationMetrics applicationMetrics )
     {
         checkNotNull( queryValidator );
         checkNotNull( partitionManager );
+        checkNotNull( rollupManager );
+        checkNotNull( applicationMetrics );
 
         this.queryValidator = queryValidator;
         this.partitionManager = partitionManager;
+        this.rollupManager = rollupManager;
+        this.applicationMetrics = applicationMetrics;
     }
 
     // -------------------------------------------------------------------------
@@ -100,6 +113,20 @@ public class DefaultQueryPlanner
 
     @Override
     public DataQueryGroups planQuery( DataQueryParams params, QueryPlannerParams plannerParams )
+    {
+        long start = applicationMetrics.start();
+
+        try
+        {
+            return getQueryGroups( params, plannerParams );
+        }
+        finally
+        {
+            applicationMetrics.stop( start, SUBSYSTEM_ANALYTICS, "query_planning" );
+        }
+    }
+
+    private DataQueryGroups getQueryGroups( DataQueryParams params, QueryPlannerParams plannerParams )
     {
         queryValidator.validate( params );
 
@@ -132,6 +159,15 @@ public class DefaultQueryPlanner
             currentQueries.forEach( query -> queries.addAll( grouper.apply( query ) ) );
         }
 
+        // ---------------------------------------------------------------------
+        // Route queries to pre-aggregated rollup tables where possible
+        // ---------------------------------------------------------------------
+
+        if ( AnalyticsTableType.DATA_VALUE == plannerParams.getTableType() )
+        {
+            queries.replaceAll( this::withRollupTable );
+        }
+
         // ---------------------------------------------------------------------
         // Split queries until optimal number
         // ---------------------------------------------------------------------
@@ -189,6 +225,64 @@ public class DefaultQueryPlanner
             .build();
     }
 
+    /**
+     * Sets the table name of the given query to the smallest rollup table
+     * which can answer the query, if the query is eligible for rollups. The
+     * query must be grouped by org unit level and period type. The rollup
+     * tables are checked to exist, as the cached rollups can be outdated.
+     *
+     * @param params the {@link DataQueryParams}.
+     * @return the given query, or a copy with the rollup table name.
+     */
+    private DataQueryParams withRollupTable( DataQueryParams params )
+    {
+        if ( !isRollupEligible( params ) )
+        {
+            return params;
+        }
+
+        for ( AnalyticsRollup rollup : rollupManager.getRollups() )
+        {
+            if ( rollup.canAnswer( params ) &&
+                rollupManager.rollupTablesExist( rollup, params.getPartitions().getPartitions() ) )
+            {
+                log.debug( String.format( "Routing query to rollup table: '%s'", rollup.getTableName() ) );
+
+                return DataQueryParams.newBuilder( params )
+                    .withTableName( rollup.getTableName() )
+                    .build();
+            }
+        }
+
+        return params;
+    }
+
+    /**
+     * Indicates whether the given query can be answered from a rollup table.
+     * Rollups hold sums of numeric values only, and lack the columns for
+     * approval levels, dates and disaggregation.
+     *
+     * @param params the {@link DataQueryParams}.
+     */
+    private boolean isRollupEligible( DataQueryParams params )
+    {
+        AnalyticsAggregationType aggType = params.getAggregationType();
+
+        return aggType != null &&
+            aggType.isAggregationType( AggregationType.SUM ) &&
+            aggType.isPeriodAggregationType( AggregationType.SUM ) &&
+            aggType.isNumericDataType() &&
+            !aggType.isDisaggregation() &&
+            !params.isSkipPartitioning() &&
+            params.hasPartitions() &&
+            !params.isDataApproval() &&
+            !params.hasStartEndDate() &&
+            !params.isTimely() &&
+            !params.hasPreAggregateMeasureCriteria() &&
+            !params.isRestrictByOrgUnitOpeningClosedDate() &&
+            !params.isRestrictByCategoryOptionStartEndDate();
+    }
+
     // -------------------------------------------------------------------------
     // Supportive split methods
     // -------------------------------------------------------------------------
@@ -49,8 +49,10 @@ import static org.hisp.dhis.common.DimensionalObject.DIMENSION_SEP;
 import static org.hisp.dhis.common.IdentifiableObjectUtils.getUids;
 import static org.hisp.dhis.commons.util.TextUtils.getQuotedCommaDelimitedString;
 import static org.hisp.dhis.commons.util.TextUtils.removeLastOr;
+import static org.hisp.dhis.monitoring.metrics.ApplicationMetrics.SUBSYSTEM_ANALYTICS;
 import static org.hisp.dhis.util.DateUtils.getMediumDateString;
 
+import java.sql.ResultSet;
 import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
@@ -63,11 +65,13 @@ import java.util.stream.Collectors;
 
 import org.hisp.dhis.analytics.AggregationType;
 import org.hisp.dhis.analytics.AnalyticsAggregationType;
+import org.hisp.dhis.analytics.AnalyticsIndexAdvisor;
 import org.hisp.dhis.analytics.AnalyticsManager;
 import org.hisp.dhis.analytics.AnalyticsTableType;
 import org.hisp.dhis.analytics.DataQueryParams;
 import org.hisp.dhis.analytics.DataType;
 import org.hisp.dhis.analytics.MeasureFilter;
+import org.hisp.dhis.analytics.QueryCancellation;
 import org.hisp.dhis.analytics.QueryPlanner;
 import org.hisp.dhis.analytics.table.PartitionUtils;
 import org.hisp.dhis.analytics.util.AnalyticsSqlUtils;
@@ -82,6 +86,7 @@ import org.hisp.dhis.commons.util.DebugUtils;
 import org.hisp.dhis.commons.util.SqlHelper;
 import org.hisp.dhis.commons.util.TextUtils;
 import org.hisp.dhis.feedback.ErrorCode;
+import org.hisp.dhis.monitoring.metrics.ApplicationMetrics;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.period.Period;
 import org.hisp.dhis.period.PeriodType;
@@ -89,6 +94,8 @@ import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.dao.DataAccessResourceFailureException;
 import org.springframework.jdbc.BadSqlGrammarException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.SqlRowSetResultSetExtractor;
+import org.springframework.jdbc.core.StatementCallback;
 import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.scheduling.annotation.AsyncResult;
@@ -127,13 +134,22 @@ public class JdbcAnalyticsManager
 
     private final JdbcTemplate jdbcTemplate;
 
-    public JdbcAnalyticsManager( QueryPlanner queryPlanner, @Qualifier( "readOnlyJdbcTemplate" ) JdbcTemplate jdbcTemplate )
+    private final AnalyticsIndexAdvisor indexAdvisor;
+
+    private final ApplicationMetrics applicationMetrics;
+
+    public JdbcAnalyticsManager( QueryPlanner queryPlanner, @Qualifier( "readOnlyJdbcTemplate" ) JdbcTemplate jdbcTemplate,
+        AnalyticsIndexAdvisor indexAdvisor, ApplicationMetrics applicationMetrics )
     {
         checkNotNull( queryPlanner );
         checkNotNull( jdbcTemplate );
+        checkNotNull( indexAdvisor );
+        checkNotNull( applicationMetrics );
 
         this.queryPlanner = queryPlanner;
         this.jdbcTemplate = jdbcTemplate;
+        this.indexAdvisor = indexAdvisor;
+        this.applicationMetrics = applicationMetrics;
     }
 
     // -------------------------------------------------------------------------
@@ -164,9 +180,11 @@ public class JdbcAnalyticsManager
 
             sql += getFromClause( params );
 
-            sql += getWhereClause( params, tableType );
+            String whereAndGroupByClause = getWhereClause( params, tableType ) + getGroupByClause( params );
+
+            sql += whereAndGroupByClause;
 
-            sql += getGroupByClause( params );
+            indexAdvisor.recordColumnUsage( tableType, whereAndGroupByClause );
 
             if ( params.hasMeasureCriteria() && params.isDataType( DataType.NUMERIC ) )
             {
@@ -653,6 +671,33 @@ public class JdbcAnalyticsManager
         return sql;
     }
 
+    /**
+     * Executes the given SQL. If the query can be cancelled, the statement is
+     * registered with the {@link QueryCancellation} while executing.
+     */
+    private SqlRowSet queryForRowSet( DataQueryParams params, String sql )
+    {
+        if ( !params.hasCancellation() )
+        {
+            return jdbcTemplate.queryForRowSet( sql );
+        }
+
+        QueryCancellation cancellation = params.getCancellation();
+
+        return jdbcTemplate.execute( (StatementCallback<SqlRowSet>) statement -> {
+            cancellation.register( statement );
+
+            try ( ResultSet resultSet = statement.executeQuery( sql ) )
+            {
+                return new SqlRowSetResultSetExtractor().extractData( resultSet );
+            }
+            finally
+            {
+                cancellation.unregister( statement );
+            }
+        } );
+    }
+
     /**
      * Retrieves data from the database based on the given query and SQL and puts
      * into a value key and value mapping.
@@ -663,47 +708,88 @@ public class JdbcAnalyticsManager
 
         log.debug( String.format( "Analytics SQL: %s", sql ) );
 
-        SqlRowSet rowSet = jdbcTemplate.queryForRowSet( sql );
+        long start = applicationMetrics.start();
+
+        SqlRowSet rowSet = queryForRowSet( params, sql );
 
         int counter = 0;
 
+        List<DimensionalObject> dimensions = params.getDimensions();
+
+        String[] keyValues = new String[dimensions.size()];
+
         while ( rowSet.next() )
         {
-            boolean exceedsMaxLimit = maxLimit > 0 && ++counter > maxLimit;
+            boolean exceedsMaxLimit = ++counter > maxLimit && maxLimit > 0;
 
             if ( exceedsMaxLimit )
             {
                 throwIllegalQueryEx( ErrorCode.E7128, maxLimit );
             }
 
-            StringBuilder key = new StringBuilder();
-
-            for ( DimensionalObject dim : params.getDimensions() )
+            for ( int i = 0; i < keyValues.length; i++ )
             {
-                String value = dim.isFixed() ? dim.getDimensionName() : rowSet.getString( dim.getDimensionName() );
+                DimensionalObject dim = dimensions.get( i );
 
-                key.append( value ).append( DIMENSION_SEP );
+                keyValues[i] = dim.isFixed() ? dim.getDimensionName() : rowSet.getString( dim.getDimensionName() );
             }
 
-            key.deleteCharAt( key.length() - 1 );
+            String key = getValueKey( keyValues );
 
             if ( params.isDataType( TEXT ) )
             {
                 String value = rowSet.getString( VALUE_ID );
 
-                map.put( key.toString(), value );
+                map.put( key, value );
             }
             else // NUMERIC
             {
                 Double value = rowSet.getDouble( VALUE_ID );
 
-                map.put( key.toString(), value );
+                map.put( key, value );
             }
         }
 
+        applicationMetrics.stop( start, SUBSYSTEM_ANALYTICS, "partition_query", "partition", getPartitionTag( params ) );
+        applicationMetrics.count( SUBSYSTEM_ANALYTICS, "partition_query", counter );
+
         return map;
     }
 
+    /**
+     * Returns the value key for the given dimension values of a row, which is
+     * the values joined by the dimension separator.
+     *
+     * @param values the dimension values, in dimension order.
+     * @return the value key.
+     */
+    public static String getValueKey( String[] values )
+    {
+        StringBuilder key = new StringBuilder();
+
+        for ( String value : values )
+        {
+            key.append( value ).append( DIMENSION_SEP );
+        }
+
+        key.deleteCharAt( key.length() - 1 );
+
+        return key.toString();
+    }
+
+    /**
+     * Returns the partition the given query reads from, for tagging metrics.
+     */
+    private String getPartitionTag( DataQueryParams params )
+    {
+        if ( params.getPartitions() == null || !params.getPartitions().hasAny() )
+        {
+            return "none";
+        }
+
+        return params.getPartitions().hasOne() ? String.valueOf( params.getPartitions().getAny() ) : "multiple";
+    }
+
     /**
      * Generates a comma-delimited string based on the dimension names of the
      * given dimensions where each dimension name is quoted.
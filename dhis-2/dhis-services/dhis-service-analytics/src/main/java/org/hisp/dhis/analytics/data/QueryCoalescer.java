@@ -0,0 +1,203 @@
+package org.hisp.dhis.analytics.data;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.hisp.dhis.analytics.DataQueryParams;
+import org.hisp.dhis.analytics.QueryCancellation;
+import org.hisp.dhis.common.Grid;
+import org.springframework.stereotype.Component;
+
+/**
+ * Coalesces identical analytics queries which are executing at the same time,
+ * so that the query is executed once and its grid is handed to all callers.
+ * Queries are identified by {@link DataQueryParams#getKey()}, the same key
+ * which is used by the analytics cache, and must hence be coalesced after
+ * security constraints have been applied to the query.
+ * <p>
+ * The shared execution is cancelled only when every caller has cancelled its
+ * own {@link QueryCancellation}. Callers without a cancellation keep the
+ * shared execution alive until it completes.
+ */
+@Slf4j
+@Component
+public class QueryCoalescer
+{
+    private final Map<String, InFlightQuery> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder coalesced = new LongAdder();
+
+    /**
+     * Returns the grid for the given query, either by joining an identical
+     * query which is already executing, or by executing the given function.
+     *
+     * @param params the {@link DataQueryParams}.
+     * @param function the function which executes the query.
+     * @return the {@link Grid}.
+     */
+    public Grid getOrExecute( DataQueryParams params, Function<DataQueryParams, Grid> function )
+    {
+        String key = params.getKey();
+
+        InFlightQuery query = new InFlightQuery();
+        InFlightQuery existing = inFlight.putIfAbsent( key, query );
+
+        if ( existing != null && existing.subscribe( params.getCancellation() ) )
+        {
+            coalesced.increment();
+
+            log.debug( "Joining in-flight analytics query: " + key );
+
+            CompletableFuture<Grid> result = existing.future.thenApply( Function.identity() );
+
+            if ( params.hasCancellation() )
+            {
+                params.getCancellation().onCancel( () -> result.cancel( false ) );
+            }
+
+            try
+            {
+                return result.join();
+            }
+            catch ( CancellationException | CompletionException ex )
+            {
+                if ( params.hasCancellation() && params.getCancellation().isCancelled() )
+                {
+                    throw new CancellationException( "Analytics query was cancelled" );
+                }
+
+                if ( !existing.cancellation.isCancelled() && ex.getCause() instanceof RuntimeException )
+                {
+                    throw (RuntimeException) ex.getCause();
+                }
+
+                // Shared execution was cancelled by the other callers, hence
+                // execute the query separately
+
+                return function.apply( params );
+            }
+        }
+
+        if ( existing != null )
+        {
+            return function.apply( params );
+        }
+
+        query.subscribe( params.getCancellation() );
+
+        try
+        {
+            Grid grid = function.apply( DataQueryParams.newBuilder( params )
+                .withCancellation( query.cancellation ).build() );
+
+            query.future.complete( grid );
+
+            return grid;
+        }
+        catch ( RuntimeException ex )
+        {
+            query.future.completeExceptionally( ex );
+
+            throw ex;
+        }
+        finally
+        {
+            inFlight.remove( key, query );
+        }
+    }
+
+    /**
+     * Returns the number of queries which were served by joining an identical
+     * in-flight query.
+     */
+    public long getCoalescedCount()
+    {
+        return coalesced.sum();
+    }
+
+    /**
+     * Returns the number of distinct queries currently executing.
+     */
+    public int getInFlightCount()
+    {
+        return inFlight.size();
+    }
+
+    /**
+     * A shared query execution with reference counted cancellation.
+     */
+    private static class InFlightQuery
+    {
+        private final CompletableFuture<Grid> future = new CompletableFuture<>();
+
+        private final QueryCancellation cancellation = new QueryCancellation();
+
+        /**
+         * Number of callers which may still cancel, or -1 if a caller which
+         * cannot cancel has subscribed.
+         */
+        private final AtomicInteger cancellable = new AtomicInteger();
+
+        /**
+         * Subscribes a caller. Returns false if the shared execution has
+         * already been cancelled and cannot be joined.
+         */
+        boolean subscribe( QueryCancellation callerCancellation )
+        {
+            if ( callerCancellation == null )
+            {
+                cancellable.set( -1 );
+            }
+            else if ( cancellable.getAndUpdate( n -> n < 0 ? n : n + 1 ) >= 0 )
+            {
+                callerCancellation.onCancel( this::unsubscribe );
+            }
+
+            return !cancellation.isCancelled();
+        }
+
+        private void unsubscribe()
+        {
+            if ( cancellable.updateAndGet( n -> n <= 0 ? n : n - 1 ) == 0 )
+            {
+                cancellation.cancel();
+            }
+        }
+    }
+}
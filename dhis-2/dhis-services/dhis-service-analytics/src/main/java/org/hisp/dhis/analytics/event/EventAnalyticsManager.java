@@ -28,6 +28,8 @@ package org.hisp.dhis.analytics.event;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import java.util.concurrent.Future;
+
 import org.hisp.dhis.common.Grid;
 
 import org.hisp.dhis.analytics.Rectangle;
@@ -45,5 +47,11 @@ public interface EventAnalyticsManager
 
     long getEventCount( EventQueryParams params );
 
+    /**
+     * Returns the number of events asynchronously. Returns an estimate based
+     * on the query plan if {@link EventQueryParams#isEstimateTotal()} is set.
+     */
+    Future<Long> getEventCountAsync( EventQueryParams params );
+
     Rectangle getRectangle( EventQueryParams params );
 }
@@ -40,6 +40,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.hisp.dhis.analytics.AggregationType;
 import org.hisp.dhis.analytics.AnalyticsAggregationType;
@@ -52,6 +53,7 @@ import org.hisp.dhis.analytics.TimeField;
 import org.hisp.dhis.analytics.QueryParamsBuilder;
 import org.hisp.dhis.common.BaseDimensionalObject;
 import org.hisp.dhis.common.DhisApiVersion;
+import org.hisp.dhis.common.DimensionItemType;
 import org.hisp.dhis.common.DimensionType;
 import org.hisp.dhis.common.DimensionalItemObject;
 import org.hisp.dhis.common.DimensionalObject;
@@ -149,6 +151,18 @@ public class EventQueryParams
      */
     private Integer pageSize;
 
+    /**
+     * Keyset cursor pointing at the last row of the previous page, used
+     * instead of an offset when present.
+     */
+    private String pageCursor;
+
+    /**
+     * Whether to return a planner-based estimate of the total number of
+     * events instead of an exact count.
+     */
+    private boolean estimateTotal;
+
     /**
      * The value sort order.
      */
@@ -271,6 +285,8 @@ public class EventQueryParams
         params.organisationUnitMode = this.organisationUnitMode;
         params.page = this.page;
         params.pageSize = this.pageSize;
+        params.pageCursor = this.pageCursor;
+        params.estimateTotal = this.estimateTotal;
         params.sortOrder = this.sortOrder;
         params.limit = this.limit;
         params.outputType = this.outputType;
@@ -367,6 +383,8 @@ public class EventQueryParams
             .addIgnoreNull( "organisationUnitMode", organisationUnitMode )
             .addIgnoreNull( "page", page )
             .addIgnoreNull( "pageSize", pageSize )
+            .addIgnoreNull( "pageCursor", pageCursor )
+            .add( "estimateTotal", estimateTotal )
             .addIgnoreNull( "sortOrder", sortOrder )
             .addIgnoreNull( "limit", limit )
             .addIgnoreNull( "outputType", outputType )
@@ -706,6 +724,21 @@ public class EventQueryParams
         return (getPageWithDefault() - 1) * getPageSizeWithDefault();
     }
 
+    public boolean hasPageCursor()
+    {
+        return pageCursor != null;
+    }
+
+    /**
+     * Indicates whether this query can be paged with a keyset cursor, which
+     * requires paging and that no program indicator is used for sorting.
+     */
+    public boolean isKeysetPaging()
+    {
+        return isPaging() && Stream.concat( asc.stream(), desc.stream() )
+            .noneMatch( item -> DimensionItemType.PROGRAM_INDICATOR == item.getDimensionItemType() );
+    }
+
     public boolean hasSortOrder()
     {
         return sortOrder != null;
@@ -879,6 +912,16 @@ public class EventQueryParams
         return pageSize;
     }
 
+    public String getPageCursor()
+    {
+        return pageCursor;
+    }
+
+    public boolean isEstimateTotal()
+    {
+        return estimateTotal;
+    }
+
     public SortOrder getSortOrder()
     {
         return sortOrder;
@@ -1143,6 +1186,18 @@ public class EventQueryParams
             return this;
         }
 
+        public Builder withPageCursor( String pageCursor )
+        {
+            this.params.pageCursor = pageCursor;
+            return this;
+        }
+
+        public Builder withEstimateTotal( boolean estimateTotal )
+        {
+            this.params.estimateTotal = estimateTotal;
+            return this;
+        }
+
         public Builder withPartitions( Partitions partitions )
         {
             this.params.partitions = partitions;
@@ -29,6 +29,7 @@ package org.hisp.dhis.analytics.event.data;
  */
 
 import com.google.common.collect.Lists;
+import org.hisp.dhis.analytics.AnalyticsMetaDataKey;
 import org.hisp.dhis.analytics.AnalyticsSecurityManager;
 import org.hisp.dhis.analytics.event.EventQueryParams;
 import org.hisp.dhis.analytics.event.EventQueryValidator;
@@ -151,11 +152,29 @@ public abstract class AbstractAnalyticsService
             Pager pager = new Pager( params.getPageWithDefault(), count, params.getPageSizeWithDefault() );
 
             grid.getMetaData().put( PAGER.getKey(), pager );
+
+            copyInternalMetaData( grid, NEXT_PAGE_CURSOR );
+            copyInternalMetaData( grid, TOTAL_ESTIMATED );
         }
 
         return grid;
     }
 
+    /**
+     * Copies the value for the given key from the internal meta data to the
+     * meta data of the given grid, if present.
+     *
+     * @param grid the grid.
+     * @param key the meta data key.
+     */
+    private void copyInternalMetaData( Grid grid, AnalyticsMetaDataKey key )
+    {
+        if ( grid.hasInternalMetaDataKey( key.getKey() ) )
+        {
+            grid.getMetaData().put( key.getKey(), grid.getInternalMetaData().get( key.getKey() ) );
+        }
+    }
+
     protected abstract Grid createGridWithHeaders( EventQueryParams params );
 
     protected abstract long addEventData( Grid grid, EventQueryParams params );
@@ -41,6 +41,8 @@ import java.util.List;
 
 import org.apache.commons.lang3.StringUtils;
 import org.hisp.dhis.analytics.AggregationType;
+import org.hisp.dhis.analytics.AnalyticsIndexAdvisor;
+import org.hisp.dhis.analytics.AnalyticsTableType;
 import org.hisp.dhis.analytics.EventOutputType;
 import org.hisp.dhis.analytics.SortOrder;
 import org.hisp.dhis.analytics.event.EventQueryParams;
@@ -97,19 +99,23 @@ public abstract class AbstractJdbcEventAnalyticsManager
 
     protected final ProgramIndicatorSubqueryBuilder programIndicatorSubqueryBuilder;
 
+    protected final AnalyticsIndexAdvisor indexAdvisor;
+
     public AbstractJdbcEventAnalyticsManager( @Qualifier( "readOnlyJdbcTemplate" ) JdbcTemplate jdbcTemplate,
         StatementBuilder statementBuilder, ProgramIndicatorService programIndicatorService,
-        ProgramIndicatorSubqueryBuilder programIndicatorSubqueryBuilder )
+        ProgramIndicatorSubqueryBuilder programIndicatorSubqueryBuilder, AnalyticsIndexAdvisor indexAdvisor )
     {
         checkNotNull( jdbcTemplate );
         checkNotNull( statementBuilder );
         checkNotNull( programIndicatorService );
         checkNotNull( programIndicatorSubqueryBuilder );
+        checkNotNull( indexAdvisor );
 
         this.jdbcTemplate = jdbcTemplate;
         this.statementBuilder = statementBuilder;
         this.programIndicatorService = programIndicatorService;
         this.programIndicatorSubqueryBuilder = programIndicatorSubqueryBuilder;
+        this.indexAdvisor = indexAdvisor;
     }
 
     /**
@@ -309,7 +315,9 @@ public abstract class AbstractJdbcEventAnalyticsManager
 
         sql += getFromClause( params );
 
-        sql += getWhereClause( params );
+        String whereClause = getWhereClause( params );
+
+        sql += whereClause;
 
         // ---------------------------------------------------------------------
         // Group by
@@ -317,10 +325,11 @@ public abstract class AbstractJdbcEventAnalyticsManager
 
         List<String> selectColumnNames = getGroupByColumnNames( params );
 
-        if ( selectColumnNames.size() > 0 )
-        {
-            sql += "group by " + StringUtils.join( selectColumnNames, "," ) + " ";
-        }
+        String groupByClause = selectColumnNames.size() > 0 ? "group by " + StringUtils.join( selectColumnNames, "," ) + " " : "";
+
+        sql += groupByClause;
+
+        recordColumnUsage( whereClause + groupByClause );
 
         // ---------------------------------------------------------------------
         // Sort order
@@ -638,15 +647,31 @@ public abstract class AbstractJdbcEventAnalyticsManager
 
         sql += getFromClause( params );
 
-        sql += getWhereClause( params );
+        String whereAndSortClause = getWhereClause( params ) + getSortClause( params );
 
-        sql += getSortClause( params );
+        sql += whereAndSortClause;
 
         sql += getPagingClause( params, maxLimit );
 
+        recordColumnUsage( whereAndSortClause );
+
         return sql;
     }
 
+    /**
+     * Records the columns referenced in the given filter, grouping or sort
+     * SQL with the {@link AnalyticsIndexAdvisor}.
+     *
+     * @param sql the SQL clause.
+     */
+    protected void recordColumnUsage( String sql )
+    {
+        AnalyticsTableType tableType = AnalyticsType.ENROLLMENT == getAnalyticsType() ?
+            AnalyticsTableType.ENROLLMENT : AnalyticsTableType.EVENT;
+
+        indexAdvisor.recordColumnUsage( tableType, sql );
+    }
+
     /**
      * Wraps the provided interface around a common exception handling strategy
      *
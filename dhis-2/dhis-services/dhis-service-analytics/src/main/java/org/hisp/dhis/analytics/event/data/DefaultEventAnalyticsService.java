@@ -31,6 +31,7 @@ package org.hisp.dhis.analytics.event.data;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static org.hisp.dhis.analytics.AnalyticsMetaDataKey.DIMENSIONS;
 import static org.hisp.dhis.analytics.AnalyticsMetaDataKey.ITEMS;
+import static org.hisp.dhis.analytics.AnalyticsMetaDataKey.TOTAL_ESTIMATED;
 import static org.hisp.dhis.analytics.DataQueryParams.DENOMINATOR_HEADER_NAME;
 import static org.hisp.dhis.analytics.DataQueryParams.DENOMINATOR_ID;
 import static org.hisp.dhis.analytics.DataQueryParams.DIVISOR_HEADER_NAME;
@@ -57,6 +58,8 @@ import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import org.apache.commons.lang3.StringUtils;
 import org.hisp.dhis.analytics.AnalyticsSecurityManager;
@@ -665,7 +668,10 @@ public class DefaultEventAnalyticsService
 
     /**
      * Adds event data to the given grid. Returns the number of events
-     * matching the given event query.
+     * matching the given event query. When paging, the events are counted
+     * concurrently with the retrieval of the page, and the count is cancelled
+     * if the retrieval of the page fails. If an estimated total is
+     * requested, this is flagged in the internal meta data of the grid.
      *
      * @param grid the {@link Grid}.
      * @param params the {@link EventQueryParams}.
@@ -684,16 +690,54 @@ public class DefaultEventAnalyticsService
 
         if ( params.getPartitions().hasAny() )
         {
-            if ( params.isPaging() )
+            Future<Long> countFuture = params.isPaging() ? eventAnalyticsManager.getEventCountAsync( params ) : null;
+
+            try
             {
-                count += eventAnalyticsManager.getEventCount( params );
-            }
+                eventAnalyticsManager.getEvents( params, grid, queryValidator.getMaxLimit() );
+
+                timer.getSplitTime( "Got events " + grid.getHeight() );
 
-            eventAnalyticsManager.getEvents( params, grid, queryValidator.getMaxLimit() );
+                if ( countFuture != null )
+                {
+                    count += getCount( countFuture );
+
+                    grid.getInternalMetaData().put( TOTAL_ESTIMATED.getKey(), params.isEstimateTotal() );
 
-            timer.getTime( "Got events " + grid.getHeight() );
+                    timer.getTime( "Got event count " + count );
+                }
+            }
+            finally
+            {
+                if ( countFuture != null && !countFuture.isDone() )
+                {
+                    countFuture.cancel( true ); // Do not leave the count query running if the page query failed
+                }
+            }
         }
 
         return count;
     }
+
+    private long getCount( Future<Long> future )
+    {
+        try
+        {
+            return future.get();
+        }
+        catch ( InterruptedException ex )
+        {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException( "Interrupted while counting events", ex );
+        }
+        catch ( ExecutionException ex )
+        {
+            if ( ex.getCause() instanceof RuntimeException )
+            {
+                throw (RuntimeException) ex.getCause(); // Throw the real exception instead of execution exception
+            }
+
+            throw new RuntimeException( "Error during execution of event count query", ex );
+        }
+    }
 }
@@ -247,8 +247,10 @@ public class DefaultEventDataQueryService
             .withTimeField( request.getTimeField() )
             .withOrgUnitField( request.getOrgUnitField() )
             .withCoordinateField( getCoordinateField( request.getCoordinateField() ) )
-            .withPage( request.getPage() )
+            .withPage( getPage( request ) )
             .withPageSize( request.getPageSize() )
+            .withPageCursor( request.getPageCursor() )
+            .withEstimateTotal( request.isEstimateTotal() )
             .withProgramStatus( request.getProgramStatus() )
             .withApiVersion( request.getApiVersion() )
             .build();
@@ -343,6 +345,17 @@ public class DefaultEventDataQueryService
     // Supportive methods
     // -------------------------------------------------------------------------
 
+    /**
+     * Returns the page of the given request. A page cursor points at a
+     * specific page and takes precedence over the page number.
+     */
+    private Integer getPage( EventDataQueryRequest request )
+    {
+        EventPageCursor cursor = request.getPageCursor() != null ? EventPageCursor.decode( request.getPageCursor() ) : null;
+
+        return cursor != null ? cursor.getPage() : request.getPage();
+    }
+
     private QueryItem getQueryItem( String dimension, String filter, Program program, EventOutputType type )
     {
         if ( filter != null )
@@ -141,6 +141,11 @@ public class DefaultEventQueryValidator
             error = new ErrorMessage( ErrorCode.E7208, params.getPageSize() );
         }
 
+        if ( params.hasPageCursor() && !isValidPageCursor( params ) )
+        {
+            error = new ErrorMessage( ErrorCode.E7228, params.getPageCursor() );
+        }
+
         if ( params.hasLimit() && getMaxLimit() > 0 && params.getLimit() > getMaxLimit() )
         {
             error = new ErrorMessage( ErrorCode.E7209, params.getLimit(), getMaxLimit() );
@@ -229,4 +234,22 @@ public class DefaultEventQueryValidator
     {
         return (Integer) systemSettingManager.getSystemSetting( SettingKey.ANALYTICS_MAX_LIMIT );
     }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    /**
+     * Indicates whether the page cursor of the given query can be decoded,
+     * points at the page of the query and holds one value per sort column plus
+     * the event identifier.
+     */
+    private boolean isValidPageCursor( EventQueryParams params )
+    {
+        EventPageCursor cursor = EventPageCursor.decode( params.getPageCursor() );
+
+        return params.isKeysetPaging() && cursor != null
+            && cursor.getPage() == params.getPageWithDefault()
+            && cursor.getValues().size() == params.getAsc().size() + params.getDesc().size() + 1;
+    }
 }
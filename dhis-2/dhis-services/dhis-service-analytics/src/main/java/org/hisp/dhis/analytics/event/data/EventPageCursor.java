@@ -0,0 +1,132 @@
+package org.hisp.dhis.analytics.event.data;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+import org.apache.commons.lang3.math.NumberUtils;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Keyset cursor for paged event queries. A cursor holds the number of the page
+ * it points at, and the sort column values of the last row of the previous
+ * page, in sort order, followed by the event identifier which acts as
+ * tie-breaker.
+ */
+public class EventPageCursor
+{
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final TypeReference<List<String>> VALUES_TYPE = new TypeReference<List<String>>()
+    {
+    };
+
+    private final int page;
+
+    private final List<String> values;
+
+    private EventPageCursor( int page, List<String> values )
+    {
+        this.page = page;
+        this.values = values;
+    }
+
+    /**
+     * Returns the number of the page this cursor points at.
+     */
+    public int getPage()
+    {
+        return page;
+    }
+
+    /**
+     * Returns the sort column values followed by the event identifier.
+     */
+    public List<String> getValues()
+    {
+        return values;
+    }
+
+    /**
+     * Encodes the given page and values into an URL-safe cursor.
+     *
+     * @param page the number of the page the cursor points at.
+     * @param values the sort column values followed by the event identifier.
+     * @return the cursor.
+     */
+    public static String encode( int page, List<String> values )
+    {
+        List<String> elements = new ArrayList<>();
+        elements.add( String.valueOf( page ) );
+        elements.addAll( values );
+
+        try
+        {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString( MAPPER.writeValueAsBytes( elements ) );
+        }
+        catch ( JsonProcessingException ex )
+        {
+            throw new IllegalStateException( "Failed to encode page cursor", ex );
+        }
+    }
+
+    /**
+     * Decodes the given cursor.
+     *
+     * @param cursor the cursor.
+     * @return the {@link EventPageCursor}, or null if the cursor is malformed.
+     */
+    public static EventPageCursor decode( String cursor )
+    {
+        try
+        {
+            List<String> elements = MAPPER.readValue( new String( Base64.getUrlDecoder().decode( cursor ), StandardCharsets.UTF_8 ), VALUES_TYPE );
+
+            if ( elements == null || elements.size() < 2 || elements.get( elements.size() - 1 ) == null )
+            {
+                return null;
+            }
+
+            int page = NumberUtils.toInt( elements.get( 0 ), 0 );
+
+            return page > 1 ? new EventPageCursor( page, elements.subList( 1, elements.size() ) ) : null;
+        }
+        catch ( IllegalArgumentException | IOException ex )
+        {
+            return null;
+        }
+    }
+}
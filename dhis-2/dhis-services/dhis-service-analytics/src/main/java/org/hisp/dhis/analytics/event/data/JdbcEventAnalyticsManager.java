@@ -29,6 +29,7 @@ package org.hisp.dhis.analytics.event.data;
  */
 
 import static org.apache.commons.lang.time.DateUtils.addYears;
+import static org.hisp.dhis.analytics.AnalyticsMetaDataKey.NEXT_PAGE_CURSOR;
 import static org.hisp.dhis.analytics.event.EventAnalyticsService.ITEM_LATITUDE;
 import static org.hisp.dhis.analytics.event.EventAnalyticsService.ITEM_LONGITUDE;
 import static org.hisp.dhis.analytics.table.JdbcEventAnalyticsTableManager.OU_GEOMETRY_COL_SUFFIX;
@@ -48,14 +49,22 @@ import static org.hisp.dhis.feedback.ErrorCode.E7133;
 import static org.hisp.dhis.util.DateUtils.getMediumDateString;
 import static org.postgresql.util.PSQLState.DIVISION_BY_ZERO;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.math3.util.Precision;
 import org.hisp.dhis.analytics.AggregationType;
+import org.hisp.dhis.analytics.AnalyticsIndexAdvisor;
 import org.hisp.dhis.analytics.Rectangle;
+import org.hisp.dhis.analytics.SortOrder;
 import org.hisp.dhis.analytics.event.EventAnalyticsManager;
 import org.hisp.dhis.analytics.event.EventQueryParams;
 import org.hisp.dhis.analytics.event.ProgramIndicatorSubqueryBuilder;
@@ -87,9 +96,12 @@ import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.jdbc.BadSqlGrammarException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.support.rowset.SqlRowSet;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.AsyncResult;
 import org.springframework.stereotype.Component;
 import org.springframework.util.Assert;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
@@ -111,17 +123,29 @@ public class JdbcEventAnalyticsManager
 
     private static final String OPEN_IN = " in (";
 
+    private static final String KEYSET_COL_PREFIX = "keyset_";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
     public JdbcEventAnalyticsManager( JdbcTemplate jdbcTemplate, StatementBuilder statementBuilder,
                                      ProgramIndicatorService programIndicatorService,
-                                     ProgramIndicatorSubqueryBuilder programIndicatorSubqueryBuilder )
+                                     ProgramIndicatorSubqueryBuilder programIndicatorSubqueryBuilder,
+                                     AnalyticsIndexAdvisor indexAdvisor )
     {
-        super( jdbcTemplate, statementBuilder, programIndicatorService, programIndicatorSubqueryBuilder );
+        super( jdbcTemplate, statementBuilder, programIndicatorService, programIndicatorSubqueryBuilder, indexAdvisor );
     }
 
     @Override
     public Grid getEvents( EventQueryParams params, Grid grid, int maxLimit )
     {
-        withExceptionHandling( () -> getEvents( params, grid, getEventsOrEnrollmentsSql( params, maxLimit ) ) );
+        if ( params.isKeysetPaging() )
+        {
+            withExceptionHandling( () -> getKeysetEvents( params, grid ) );
+        }
+        else
+        {
+            withExceptionHandling( () -> getEvents( params, grid, getEventsOrEnrollmentsSql( params, maxLimit ) ) );
+        }
 
         return grid;
     }
@@ -141,29 +165,209 @@ public class JdbcEventAnalyticsManager
 
         while ( rowSet.next() )
         {
-            grid.addRow();
+            addEventRow( params, grid, rowSet );
+        }
+    }
 
-            int index = 1;
+    /**
+     * Adds a page of events to the given grid using keyset pagination. The
+     * sort columns are ordered with the event identifier as tie-breaker, so
+     * that a page can be located from the last row of the previous page
+     * without scanning and discarding the preceding rows. When the page is
+     * full, a cursor for the next page is put in the internal meta data of the
+     * grid.
+     *
+     * @param params the {@link EventQueryParams}.
+     * @param grid the {@link Grid}.
+     */
+    private void getKeysetEvents( EventQueryParams params, Grid grid )
+    {
+        String sql = getKeysetEventsSql( params );
+
+        log.debug( String.format( "Analytics event keyset query SQL: %s", sql ) );
+
+        List<String> sortColumns = getKeysetSortColumns( params );
+
+        SqlRowSet rowSet = queryForRows( sql );
 
-            for ( GridHeader header : grid.getHeaders() )
+        List<String> lastValues = null;
+        int rows = 0;
+
+        while ( rowSet.next() )
+        {
+            addEventRow( params, grid, rowSet );
+
+            lastValues = new ArrayList<>();
+
+            for ( int i = 0; i < sortColumns.size(); i++ )
             {
-                if ( ITEM_LONGITUDE.equals( header.getName() ) || ITEM_LATITUDE.equals( header.getName() ) )
-                {
-                    double val = rowSet.getDouble( index );
-                    grid.addValue( Precision.round( val, COORD_DEC ) );
-                }
-                else if ( Double.class.getName().equals( header.getType() ) && !header.hasLegendSet() )
-                {
-                    double val = rowSet.getDouble( index );
-                    grid.addValue( params.isSkipRounding() ? val : MathUtils.getRounded( val ) );
-                }
-                else
-                {
-                    grid.addValue( rowSet.getString( index ) );
-                }
+                lastValues.add( rowSet.getString( KEYSET_COL_PREFIX + i ) );
+            }
+
+            lastValues.add( rowSet.getString( "psi" ) );
+            rows++;
+        }
+
+        if ( lastValues != null && rows == params.getPageSizeWithDefault() )
+        {
+            grid.getInternalMetaData().put( NEXT_PAGE_CURSOR.getKey(), EventPageCursor.encode( params.getPageWithDefault() + 1, lastValues ) );
+        }
+    }
+
+    /**
+     * Returns the SQL for a keyset paged event query. The sort column values
+     * are selected as additional trailing columns so that the cursor of the
+     * next page can be derived from the last row. Without a page cursor the
+     * page offset is used, which allows clients to jump to any page.
+     *
+     * @param params the {@link EventQueryParams}.
+     * @return the SQL statement.
+     */
+    String getKeysetEventsSql( EventQueryParams params )
+    {
+        List<String> sortColumns = getKeysetSortColumns( params );
+        List<SortOrder> sortOrders = getKeysetSortOrders( params );
+
+        String sql = getSelectClause( params ).trim();
+
+        for ( int i = 0; i < sortColumns.size(); i++ )
+        {
+            sql += "," + sortColumns.get( i ) + " as " + quote( KEYSET_COL_PREFIX + i );
+        }
+
+        String whereClause = getWhereClause( params );
+
+        sql += " " + getFromClause( params ) + whereClause;
+
+        if ( params.hasPageCursor() )
+        {
+            sql += "and (" + getKeysetCondition( sortColumns, sortOrders, EventPageCursor.decode( params.getPageCursor() ).getValues() ) + ") ";
+        }
+
+        recordColumnUsage( whereClause + StringUtils.join( sortColumns, "," ) );
+
+        sql += "order by ";
+
+        for ( int i = 0; i < sortColumns.size(); i++ )
+        {
+            sql += sortColumns.get( i ) + ( SortOrder.ASC == sortOrders.get( i ) ? " asc nulls last," : " desc nulls first," );
+        }
+
+        sql += "psi asc limit " + params.getPageSizeWithDefault();
+
+        if ( !params.hasPageCursor() )
+        {
+            sql += " offset " + params.getOffset();
+        }
+
+        return sql;
+    }
+
+    /**
+     * Returns a condition matching the rows which come after the row
+     * described by the given cursor values in the keyset sort order, where
+     * null values sort last in ascending and first in descending order.
+     *
+     * @param sortColumns the sort columns.
+     * @param sortOrders the sort order of each sort column.
+     * @param values the cursor values, one per sort column followed by the
+     *        event identifier.
+     * @return the SQL condition.
+     */
+    private String getKeysetCondition( List<String> sortColumns, List<SortOrder> sortOrders, List<String> values )
+    {
+        List<String> terms = new ArrayList<>();
+        List<String> equalities = new ArrayList<>();
+
+        for ( int i = 0; i < sortColumns.size(); i++ )
+        {
+            String column = sortColumns.get( i );
+            String value = values.get( i );
+
+            String after;
+
+            if ( SortOrder.ASC == sortOrders.get( i ) )
+            {
+                after = value != null ? "(" + column + " > " + statementBuilder.encode( value ) + " or " + column + " is null)" : null;
+            }
+            else
+            {
+                after = value != null ? column + " < " + statementBuilder.encode( value ) : column + " is not null";
+            }
+
+            if ( after != null )
+            {
+                terms.add( getConjunction( equalities, after ) );
+            }
+
+            equalities.add( value != null ? column + " = " + statementBuilder.encode( value ) : column + " is null" );
+        }
+
+        terms.add( getConjunction( equalities, "psi > " + statementBuilder.encode( values.get( values.size() - 1 ) ) ) );
 
-                index++;
+        return StringUtils.join( terms, " or " );
+    }
+
+    private String getConjunction( List<String> equalities, String condition )
+    {
+        List<String> conditions = new ArrayList<>( equalities );
+        conditions.add( condition );
+
+        return "(" + StringUtils.join( conditions, " and " ) + ")";
+    }
+
+    /**
+     * Returns the keyset sort columns, ascending columns first.
+     */
+    private List<String> getKeysetSortColumns( EventQueryParams params )
+    {
+        return Stream.concat( params.getAsc().stream(), params.getDesc().stream() )
+            .map( item -> quoteAlias( item.getUid() ) )
+            .collect( Collectors.toList() );
+    }
+
+    /**
+     * Returns the sort order of each keyset sort column.
+     */
+    private List<SortOrder> getKeysetSortOrders( EventQueryParams params )
+    {
+        List<SortOrder> orders = new ArrayList<>( Collections.nCopies( params.getAsc().size(), SortOrder.ASC ) );
+        orders.addAll( Collections.nCopies( params.getDesc().size(), SortOrder.DESC ) );
+
+        return orders;
+    }
+
+    /**
+     * Adds the current row of the given row set to the grid.
+     *
+     * @param params the {@link EventQueryParams}.
+     * @param grid the {@link Grid}.
+     * @param rowSet the {@link SqlRowSet} positioned at a row.
+     */
+    private void addEventRow( EventQueryParams params, Grid grid, SqlRowSet rowSet )
+    {
+        grid.addRow();
+
+        int index = 1;
+
+        for ( GridHeader header : grid.getHeaders() )
+        {
+            if ( ITEM_LONGITUDE.equals( header.getName() ) || ITEM_LATITUDE.equals( header.getName() ) )
+            {
+                double val = rowSet.getDouble( index );
+                grid.addValue( Precision.round( val, COORD_DEC ) );
             }
+            else if ( Double.class.getName().equals( header.getType() ) && !header.hasLegendSet() )
+            {
+                double val = rowSet.getDouble( index );
+                grid.addValue( params.isSkipRounding() ? val : MathUtils.getRounded( val ) );
+            }
+            else
+            {
+                grid.addValue( rowSet.getString( index ) );
+            }
+
+            index++;
         }
     }
 
@@ -212,19 +416,72 @@ public class JdbcEventAnalyticsManager
     @Override
     public long getEventCount( EventQueryParams params )
     {
-        String sql = "select count(psi) ";
+        String sql = "select count(psi) " + getFromClause( params ) + getWhereClause( params );
 
-        sql += getFromClause( params );
+        log.debug( "Analytics event count SQL: " + sql );
 
-        sql += getWhereClause( params );
+        return queryForCount( () -> jdbcTemplate.queryForObject( sql, Long.class ) );
+    }
+
+    @Override
+    @Async
+    public Future<Long> getEventCountAsync( EventQueryParams params )
+    {
+        return new AsyncResult<>( params.isEstimateTotal() ? getEventCountEstimate( params ) : getEventCount( params ) );
+    }
+
+    /**
+     * Returns the number of events estimated by the query planner, which
+     * avoids scanning the matching rows. The estimate is based on table
+     * statistics and can deviate from the exact count.
+     *
+     * @param params the {@link EventQueryParams}.
+     * @return the estimated number of events.
+     */
+    long getEventCountEstimate( EventQueryParams params )
+    {
+        String sql = "explain (format json) select psi " + getFromClause( params ) + getWhereClause( params );
 
+        log.debug( "Analytics event count estimate SQL: " + sql );
+
+        return queryForCount( () -> getPlanRows( jdbcTemplate.queryForObject( sql, String.class ) ) );
+    }
+
+    /**
+     * Returns the estimated number of rows of the top node of the given
+     * JSON query plan.
+     *
+     * @param plan the query plan in JSON format.
+     * @return the estimated number of rows.
+     */
+    static long getPlanRows( String plan )
+    {
+        try
+        {
+            return MAPPER.readTree( plan ).path( 0 ).path( "Plan" ).path( "Plan Rows" ).asLong( 0 );
+        }
+        catch ( IOException ex )
+        {
+            log.warn( "Failed to parse query plan", ex );
+            return 0;
+        }
+    }
+
+    /**
+     * Runs the given count query and handles common query exceptions.
+     *
+     * @param query the count query.
+     * @return the count, 0 if the analytics table does not exist.
+     */
+    private long queryForCount( Supplier<Long> query )
+    {
         long count = 0;
 
         try
         {
-            log.debug( "Analytics event count SQL: " + sql );
+            Long result = query.get();
 
-            count = jdbcTemplate.queryForObject( sql, Long.class );
+            count = result != null ? result : 0;
         }
         catch ( BadSqlGrammarException ex )
         {
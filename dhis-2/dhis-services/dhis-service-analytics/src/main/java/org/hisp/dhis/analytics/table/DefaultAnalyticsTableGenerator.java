@@ -38,6 +38,7 @@ import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
 
+import org.hisp.dhis.analytics.AnalyticsRollupManager;
 import org.hisp.dhis.analytics.AnalyticsTableGenerator;
 import org.hisp.dhis.analytics.AnalyticsTableService;
 import org.hisp.dhis.analytics.AnalyticsTableType;
@@ -74,21 +75,25 @@ public class DefaultAnalyticsTableGenerator
 
     private Notifier notifier;
 
+    private AnalyticsRollupManager rollupManager;
+
     public DefaultAnalyticsTableGenerator( List<AnalyticsTableService> analyticsTableServices,
         ResourceTableService resourceTableService, MessageService messageService,
-        SystemSettingManager systemSettingManager, Notifier notifier )
+        SystemSettingManager systemSettingManager, Notifier notifier, AnalyticsRollupManager rollupManager )
     {
         checkNotNull( analyticsTableServices );
         checkNotNull( resourceTableService );
         checkNotNull( messageService );
         checkNotNull( systemSettingManager );
         checkNotNull( notifier );
+        checkNotNull( rollupManager );
 
         this.analyticsTableServices = analyticsTableServices;
         this.resourceTableService = resourceTableService;
         this.messageService = messageService;
         this.systemSettingManager = systemSettingManager;
         this.notifier = notifier;
+        this.rollupManager = rollupManager;
     }
 
     // -------------------------------------------------------------------------
@@ -138,6 +143,13 @@ public class DefaultAnalyticsTableGenerator
                 }
             }
 
+            if ( !params.isLatestUpdate() && !skipTypes.contains( AnalyticsTableType.DATA_VALUE ) && availableTypes.contains( AnalyticsTableType.DATA_VALUE ) )
+            {
+                notifier.notify( jobId, "Generating analytics rollup tables" );
+
+                rollupManager.generateRollups( params );
+            }
+
             clock.logTime( "Analytics tables updated" );
 
             notifier.notify( jobId, INFO, "Analytics tables updated: " + clock.time(), true );
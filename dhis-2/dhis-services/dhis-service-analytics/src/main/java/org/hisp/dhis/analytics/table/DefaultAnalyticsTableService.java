@@ -30,6 +30,8 @@ package org.hisp.dhis.analytics.table;
 
 import lombok.extern.slf4j.Slf4j;
 import org.hisp.dhis.analytics.AnalyticsIndex;
+import org.hisp.dhis.analytics.AnalyticsIndexAdvisor;
+import org.hisp.dhis.analytics.AnalyticsIndexReport;
 import org.hisp.dhis.analytics.AnalyticsTable;
 import org.hisp.dhis.analytics.AnalyticsTableColumn;
 import org.hisp.dhis.analytics.AnalyticsTableManager;
@@ -48,6 +50,7 @@ import org.hisp.dhis.setting.SettingKey;
 import org.hisp.dhis.setting.SystemSettingManager;
 import org.hisp.dhis.system.notification.Notifier;
 import org.hisp.dhis.system.util.Clock;
+import org.hisp.dhis.util.Timer;
 
 import com.google.common.collect.Lists;
 
@@ -55,9 +58,11 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Future;
 
+import static org.hisp.dhis.analytics.util.AnalyticsSqlUtils.removeQuote;
 import static org.hisp.dhis.util.DateUtils.getLongDateString;
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -80,9 +85,12 @@ public class DefaultAnalyticsTableService
 
     private SystemSettingManager systemSettingManager;
 
+    private AnalyticsIndexAdvisor indexAdvisor;
+
     public DefaultAnalyticsTableService( AnalyticsTableManager tableManager,
         OrganisationUnitService organisationUnitService, DataElementService dataElementService,
-        ResourceTableService resourceTableService, Notifier notifier, SystemSettingManager systemSettingManager )
+        ResourceTableService resourceTableService, Notifier notifier, SystemSettingManager systemSettingManager,
+        AnalyticsIndexAdvisor indexAdvisor )
     {
         checkNotNull( tableManager );
         checkNotNull( organisationUnitService );
@@ -90,6 +98,7 @@ public class DefaultAnalyticsTableService
         checkNotNull( resourceTableService );
         checkNotNull( notifier );
         checkNotNull( systemSettingManager );
+        checkNotNull( indexAdvisor );
 
         this.tableManager = tableManager;
         this.organisationUnitService = organisationUnitService;
@@ -97,6 +106,7 @@ public class DefaultAnalyticsTableService
         this.resourceTableService = resourceTableService;
         this.notifier = notifier;
         this.systemSettingManager = systemSettingManager;
+        this.indexAdvisor = indexAdvisor;
     }
 
     // -------------------------------------------------------------------------
@@ -186,7 +196,7 @@ public class DefaultAnalyticsTableService
 
         notifier.notify( jobId, "Creating indexes" );
 
-        createIndexes( tables );
+        createIndexes( tables, jobId );
 
         clock.logTime( "Created indexes" );
         notifier.notify( jobId, "Analyzing analytics tables" );
@@ -341,32 +351,55 @@ public class DefaultAnalyticsTableService
     }
 
     /**
-     * Creates indexes on the given analytics tables.
+     * Creates indexes on the given analytics tables. When the index advisor
+     * is enabled and has enough query statistics, indexes are only created
+     * for columns used by analytics queries, and a report of the skipped
+     * indexes is produced.
      *
      * @param tables the list of {@link AnalyticsTable}.
+     * @param jobId the {@link JobConfiguration}.
      */
-    private void createIndexes( List<AnalyticsTable> tables )
+    private void createIndexes( List<AnalyticsTable> tables, JobConfiguration jobId )
     {
         List<AnalyticsTablePartition> partitions = PartitionUtils.getTablePartitions( tables );
 
+        Set<String> usedColumns = indexAdvisor.getUsedColumns( getAnalyticsTableType() );
+
         ConcurrentLinkedQueue<AnalyticsIndex> indexes = new ConcurrentLinkedQueue<>();
 
+        Set<String> skippedColumns = new TreeSet<>();
+        int skippedIndexes = 0;
+
         for ( AnalyticsTablePartition partition : partitions )
         {
             List<AnalyticsTableColumn> columns = partition.getMasterTable().getDimensionColumns();
 
             for ( AnalyticsTableColumn col : columns )
             {
-                if ( !col.isSkipIndex() )
+                if ( col.isSkipIndex() )
                 {
-                    List<String> indexColumns = col.hasIndexColumns() ? col.getIndexColumns() : Lists.newArrayList( col.getName() );
+                    continue;
+                }
 
-                    indexes.add( new AnalyticsIndex( partition.getTempTableName(), indexColumns, col.getIndexType() ) );
+                if ( !indexAdvisor.isIndexRequired( col, usedColumns ) )
+                {
+                    skippedColumns.add( removeQuote( col.getName() ) );
+                    skippedIndexes++;
+                    continue;
                 }
+
+                List<String> indexColumns = col.hasIndexColumns() ? col.getIndexColumns() : Lists.newArrayList( col.getName() );
+                String indexType = usedColumns != null ? indexAdvisor.getIndexType( col ) : col.getIndexType();
+
+                indexes.add( new AnalyticsIndex( partition.getTempTableName(), indexColumns, indexType ) );
             }
         }
 
-        log.info( "No of analytics table indexes: " + indexes.size() );
+        final int indexCount = indexes.size();
+
+        log.info( "No of analytics table indexes: " + indexCount + ", skipped: " + skippedIndexes );
+
+        Timer timer = new Timer().start().disablePrint();
 
         List<Future<?>> futures = new ArrayList<>();
 
@@ -376,6 +409,18 @@ public class DefaultAnalyticsTableService
         }
 
         ConcurrentUtils.waitForCompletion( futures );
+
+        if ( usedColumns != null )
+        {
+            AnalyticsIndexReport report = new AnalyticsIndexReport( getAnalyticsTableType(), indexCount,
+                new ArrayList<>( skippedColumns ), skippedIndexes, timer.getTimeInMs() );
+
+            indexAdvisor.addReport( report );
+
+            log.info( report.toString() );
+            notifier.notify( jobId, String.format( "Skipped %d unused indexes, estimated time saved: %d s",
+                skippedIndexes, report.getEstimatedTimeSavedMillis() / 1000 ) );
+        }
     }
 
     /**
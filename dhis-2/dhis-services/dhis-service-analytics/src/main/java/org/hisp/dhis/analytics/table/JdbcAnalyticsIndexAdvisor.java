@@ -0,0 +1,320 @@
+package org.hisp.dhis.analytics.table;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.hisp.dhis.analytics.util.AnalyticsSqlUtils.removeQuote;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import org.apache.commons.lang3.time.DateUtils;
+import org.hisp.dhis.analytics.AnalyticsIndexAdvisor;
+import org.hisp.dhis.analytics.AnalyticsIndexReport;
+import org.hisp.dhis.analytics.AnalyticsTableColumn;
+import org.hisp.dhis.analytics.AnalyticsTableType;
+import org.hisp.dhis.analytics.ColumnDataType;
+import org.hisp.dhis.analytics.ColumnNotNullConstraint;
+import org.hisp.dhis.period.PeriodType;
+import org.hisp.dhis.setting.SettingKey;
+import org.hisp.dhis.setting.SystemSettingManager;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.rowset.SqlRowSet;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.google.common.collect.Lists;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Index advisor which counts column usage in memory and periodically flushes
+ * the counts to the {@code analyticsindexusage} table, so that the
+ * statistics survive restarts and are shared between cluster nodes. Usage
+ * older than {@link #USAGE_RETENTION_DAYS} days is ignored, so that indexes
+ * for columns no longer queried are eventually dropped.
+ */
+@Slf4j
+@Component( "org.hisp.dhis.analytics.AnalyticsIndexAdvisor" )
+public class JdbcAnalyticsIndexAdvisor
+    implements AnalyticsIndexAdvisor
+{
+    /**
+     * Pseudo column name under which the number of queries is counted.
+     */
+    static final String QUERY_COUNT_COLUMN = "*";
+
+    private static final int USAGE_RETENTION_DAYS = 90;
+
+    private static final String INDEX_TYPE_BRIN = "brin";
+
+    private static final Pattern QUOTED_LITERAL = Pattern.compile( "'(?:[^']|'')*'" );
+
+    private static final Pattern QUOTED_IDENTIFIER = Pattern.compile( "\"([^\"]+)\"" );
+
+    private static final String UPSERT_SQL =
+        "insert into analyticsindexusage (tabletype, columnname, usagecount, lastused) values (?, ?, ?, ?) " +
+        "on conflict (tabletype, columnname) do update " +
+        "set usagecount = analyticsindexusage.usagecount + excluded.usagecount, lastused = excluded.lastused";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final SystemSettingManager systemSettingManager;
+
+    private final Map<AnalyticsTableType, Map<String, LongAdder>> usage = new ConcurrentHashMap<>();
+
+    private final Map<AnalyticsTableType, AnalyticsIndexReport> reports = new ConcurrentHashMap<>();
+
+    public JdbcAnalyticsIndexAdvisor( JdbcTemplate jdbcTemplate, SystemSettingManager systemSettingManager )
+    {
+        checkNotNull( jdbcTemplate );
+        checkNotNull( systemSettingManager );
+
+        this.jdbcTemplate = jdbcTemplate;
+        this.systemSettingManager = systemSettingManager;
+    }
+
+    // -------------------------------------------------------------------------
+    // AnalyticsIndexAdvisor implementation
+    // -------------------------------------------------------------------------
+
+    @Override
+    public boolean isEnabled()
+    {
+        return (Boolean) systemSettingManager.getSystemSetting( SettingKey.ANALYTICS_INDEX_ADVISOR );
+    }
+
+    @Override
+    public void recordColumnUsage( AnalyticsTableType tableType, String sql )
+    {
+        if ( !isEnabled() )
+        {
+            return;
+        }
+
+        Map<String, LongAdder> counters = usage.computeIfAbsent( tableType, type -> new ConcurrentHashMap<>() );
+
+        counters.computeIfAbsent( QUERY_COUNT_COLUMN, col -> new LongAdder() ).increment();
+
+        for ( String column : getColumns( sql ) )
+        {
+            counters.computeIfAbsent( column, col -> new LongAdder() ).increment();
+        }
+    }
+
+    @Override
+    public Set<String> getUsedColumns( AnalyticsTableType tableType )
+    {
+        if ( !isEnabled() )
+        {
+            return null;
+        }
+
+        flushUsage();
+
+        Integer minQueries = (Integer) systemSettingManager.getSystemSetting( SettingKey.ANALYTICS_INDEX_ADVISOR_MIN_QUERIES );
+        Date since = DateUtils.addDays( new Date(), -USAGE_RETENTION_DAYS );
+
+        Set<String> columns = new HashSet<>();
+        long queries = 0;
+
+        try
+        {
+            SqlRowSet rowSet = jdbcTemplate.queryForRowSet( "select columnname, usagecount from analyticsindexusage " +
+                "where tabletype = ? and lastused >= ?", tableType.name(), since );
+
+            while ( rowSet.next() )
+            {
+                String column = rowSet.getString( "columnname" );
+
+                if ( QUERY_COUNT_COLUMN.equals( column ) )
+                {
+                    queries = rowSet.getLong( "usagecount" );
+                }
+                else
+                {
+                    columns.add( column );
+                }
+            }
+        }
+        catch ( DataAccessException ex )
+        {
+            log.warn( "Failed to read analytics index usage", ex );
+            return null;
+        }
+
+        if ( queries < minQueries )
+        {
+            log.info( String.format( "Not enough analytics queries recorded for index advice, table type: %s, queries: %d, required: %d",
+                tableType, queries, minQueries ) );
+
+            return null;
+        }
+
+        return columns;
+    }
+
+    @Override
+    public boolean isIndexRequired( AnalyticsTableColumn column, Set<String> usedColumns )
+    {
+        if ( usedColumns == null || isIdentifierColumn( column ) )
+        {
+            return true;
+        }
+
+        List<String> indexColumns = column.hasIndexColumns() ? column.getIndexColumns() : Lists.newArrayList( column.getName() );
+
+        return indexColumns.stream().anyMatch( col -> usedColumns.contains( removeQuote( col ) ) );
+    }
+
+    @Override
+    public String getIndexType( AnalyticsTableColumn column )
+    {
+        if ( column.getIndexType() != null )
+        {
+            return column.getIndexType();
+        }
+
+        return isTimeColumn( column ) ? INDEX_TYPE_BRIN : null;
+    }
+
+    @Override
+    public void addReport( AnalyticsIndexReport report )
+    {
+        reports.put( report.getTableType(), report );
+    }
+
+    @Override
+    public List<AnalyticsIndexReport> getReports()
+    {
+        return new ArrayList<>( reports.values() );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    /**
+     * Writes the column usage counted in memory since the last flush to the
+     * database.
+     */
+    @Scheduled( fixedDelay = 60_000 )
+    public void flushUsage()
+    {
+        List<Object[]> batchArgs = new ArrayList<>();
+        Date now = new Date();
+
+        for ( Map.Entry<AnalyticsTableType, Map<String, LongAdder>> tableUsage : usage.entrySet() )
+        {
+            for ( Map.Entry<String, LongAdder> columnUsage : tableUsage.getValue().entrySet() )
+            {
+                long count = columnUsage.getValue().sumThenReset();
+
+                if ( count > 0 )
+                {
+                    batchArgs.add( new Object[] { tableUsage.getKey().name(), columnUsage.getKey(), count, now } );
+                }
+            }
+        }
+
+        if ( batchArgs.isEmpty() )
+        {
+            return;
+        }
+
+        try
+        {
+            jdbcTemplate.batchUpdate( UPSERT_SQL, batchArgs );
+        }
+        catch ( DataAccessException ex )
+        {
+            log.warn( "Failed to write analytics index usage", ex );
+        }
+    }
+
+    /**
+     * Returns the unquoted names of the identifiers referenced in the given
+     * SQL, ignoring string literals.
+     *
+     * @param sql the SQL.
+     * @return a set of column names.
+     */
+    static Set<String> getColumns( String sql )
+    {
+        Set<String> columns = new HashSet<>();
+
+        Matcher matcher = QUOTED_IDENTIFIER.matcher( QUOTED_LITERAL.matcher( sql ).replaceAll( "''" ) );
+
+        while ( matcher.find() )
+        {
+            columns.add( matcher.group( 1 ) );
+        }
+
+        return columns;
+    }
+
+    /**
+     * Indicates whether the given column is a mandatory identifier column.
+     * These are always indexed as they are used for lookups when tables are
+     * updated incrementally, not only by analytics queries.
+     */
+    private static boolean isIdentifierColumn( AnalyticsTableColumn column )
+    {
+        return ColumnNotNullConstraint.NOT_NULL == column.getNotNull() && ColumnDataType.CHARACTER_11 == column.getDataType();
+    }
+
+    /**
+     * Indicates whether the given column holds dates or periods, which are
+     * well correlated with the physical row order of analytics tables and
+     * are served well by compact BRIN indexes.
+     */
+    private static boolean isTimeColumn( AnalyticsTableColumn column )
+    {
+        if ( ColumnDataType.DATE == column.getDataType() || ColumnDataType.TIMESTAMP == column.getDataType() )
+        {
+            return true;
+        }
+
+        Set<String> periodColumns = PeriodType.getAvailablePeriodTypes().stream()
+            .map( pt -> pt.getName().toLowerCase() )
+            .collect( Collectors.toSet() );
+
+        return periodColumns.contains( removeQuote( column.getName() ) );
+    }
+}
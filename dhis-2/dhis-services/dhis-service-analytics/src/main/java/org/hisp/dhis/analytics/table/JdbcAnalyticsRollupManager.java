@@ -0,0 +1,458 @@
+package org.hisp.dhis.analytics.table;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.hisp.dhis.analytics.table.AbstractJdbcTableManager.PREFIX_ORGUNITLEVEL;
+import static org.hisp.dhis.analytics.util.AnalyticsSqlUtils.quote;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.hisp.dhis.analytics.AnalyticsRollup;
+import org.hisp.dhis.analytics.AnalyticsRollupManager;
+import org.hisp.dhis.analytics.AnalyticsTableType;
+import org.hisp.dhis.analytics.AnalyticsTableUpdateParams;
+import org.hisp.dhis.common.event.ApplicationCacheClearedEvent;
+import org.hisp.dhis.period.PeriodType;
+import org.hisp.dhis.setting.SettingKey;
+import org.hisp.dhis.setting.SystemSettingManager;
+import org.hisp.dhis.system.util.Clock;
+import org.joda.time.DateTime;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.rowset.SqlRowSet;
+import org.springframework.stereotype.Component;
+
+import com.google.common.collect.ImmutableSet;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Rollup manager which creates one rollup table per configured rollup and
+ * year partition of the data value analytics table. Rollup tables are created
+ * under a temporary name and swapped in when complete. The rollups available
+ * for querying are read from the database catalog and cached until the next
+ * rollup generation, application cache clear or until a query finds a rollup
+ * table missing. Rollup tables found to exist by a query are not looked up
+ * again for a few minutes.
+ */
+@Slf4j
+@Component( "org.hisp.dhis.analytics.AnalyticsRollupManager" )
+public class JdbcAnalyticsRollupManager
+    implements AnalyticsRollupManager
+{
+    /**
+     * Analytics table columns which are aggregated away in rollups.
+     */
+    private static final Set<String> EXCLUDED_COLUMNS = ImmutableSet.of( "id", "ou", "level", "pe",
+        "pestartdate", "peenddate", "approvallevel", "daysxvalue", "daysno", "value", "textvalue" );
+
+    private static final String TEMP_SUFFIX = "_temp";
+
+    /**
+     * Time for which rollup tables found in the database catalog are assumed
+     * to exist. Bounds how long tables dropped by the analytics table update
+     * of another node can go unnoticed.
+     */
+    private static final long VERIFICATION_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis( 5 );
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final SystemSettingManager systemSettingManager;
+
+    private volatile List<AnalyticsRollup> rollups;
+
+    /**
+     * Time at which each rollup table was last found in the database catalog.
+     */
+    private final Map<String, Long> verifiedTables = new ConcurrentHashMap<>();
+
+    public JdbcAnalyticsRollupManager( JdbcTemplate jdbcTemplate, SystemSettingManager systemSettingManager )
+    {
+        checkNotNull( jdbcTemplate );
+        checkNotNull( systemSettingManager );
+
+        this.jdbcTemplate = jdbcTemplate;
+        this.systemSettingManager = systemSettingManager;
+    }
+
+    // -------------------------------------------------------------------------
+    // AnalyticsRollupManager implementation
+    // -------------------------------------------------------------------------
+
+    @Override
+    public List<AnalyticsRollup> getRollups()
+    {
+        List<AnalyticsRollup> current = rollups;
+
+        if ( current == null )
+        {
+            current = loadRollups( new ArrayList<>() );
+            rollups = current;
+        }
+
+        return current;
+    }
+
+    @Override
+    public boolean rollupTablesExist( AnalyticsRollup rollup, Set<Integer> partitions )
+    {
+        long now = System.currentTimeMillis();
+
+        List<String> unverified = partitions.stream()
+            .map( year -> PartitionUtils.getPartitionName( rollup.getTableName(), year ) )
+            .filter( table -> !isVerified( table, now ) )
+            .collect( Collectors.toList() );
+
+        if ( unverified.isEmpty() )
+        {
+            return true;
+        }
+
+        final String sql =
+            "select count(*) from pg_class " +
+            "where relkind = 'r' and relname in (" + unverified.stream()
+                .map( table -> "'" + table + "'" )
+                .collect( Collectors.joining( "," ) ) + ")";
+
+        Long count = jdbcTemplate.queryForObject( sql, Long.class );
+
+        boolean exist = count != null && count == unverified.size();
+
+        if ( exist )
+        {
+            unverified.forEach( table -> verifiedTables.put( table, now ) );
+        }
+        else
+        {
+            log.info( String.format( "Rollup tables of '%s' missing for partitions: %s, reloading rollups",
+                rollup.getTableName(), partitions ) );
+
+            clearRollups();
+        }
+
+        return exist;
+    }
+
+    @Override
+    public void generateRollups( AnalyticsTableUpdateParams params )
+    {
+        Clock clock = new Clock( log ).startClock();
+
+        List<AnalyticsRollup> configured = getConfiguredRollups();
+
+        List<Integer> dataYears = getDataYears();
+
+        List<Integer> years = getUpdatedYears( params, dataYears );
+
+        for ( AnalyticsRollup rollup : configured )
+        {
+            for ( Integer year : years )
+            {
+                createRollupTable( rollup, year );
+            }
+
+            clock.logTime( "Created rollup table: " + rollup.getTableName() );
+        }
+
+        List<String> obsoleteTables = getObsoleteRollupTables( configured, dataYears );
+
+        // Publish the rollups without the obsolete tables before dropping them
+
+        verifiedTables.clear();
+        rollups = loadRollups( obsoleteTables );
+
+        obsoleteTables.forEach( table -> {
+            log.info( "Dropping rollup table: " + table );
+            jdbcTemplate.execute( "drop table if exists " + table );
+        } );
+
+        clock.logTime( String.format( "Generated %d rollups for %d years", configured.size(), years.size() ) );
+    }
+
+    @EventListener
+    public void handleApplicationCachesCleared( ApplicationCacheClearedEvent event )
+    {
+        clearRollups();
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private void clearRollups()
+    {
+        rollups = null;
+        verifiedTables.clear();
+    }
+
+    /**
+     * Indicates whether the given rollup table was found in the database
+     * catalog recently enough to be assumed to still exist.
+     */
+    private boolean isVerified( String table, long now )
+    {
+        Long verified = verifiedTables.get( table );
+
+        return verified != null && now - verified < VERIFICATION_INTERVAL_MILLIS;
+    }
+
+    /**
+     * Returns the configured rollups which have at least one rollup table,
+     * with partitions and estimated rows, ordered by size, smallest first.
+     *
+     * @param excludedTables the rollup tables to ignore.
+     */
+    private List<AnalyticsRollup> loadRollups( List<String> excludedTables )
+    {
+        Map<String, AnalyticsRollup> rollupMap = new LinkedHashMap<>();
+
+        getConfiguredRollups().forEach( rollup -> rollupMap.put( rollup.getTableName(), rollup ) );
+
+        if ( rollupMap.isEmpty() )
+        {
+            return new ArrayList<>();
+        }
+
+        final String sql =
+            "select relname, reltuples from pg_class " +
+            "where relkind = 'r' and relname like '" + AnalyticsRollup.TABLE_PREFIX.replace( "_", "\\_" ) + "%'";
+
+        SqlRowSet rowSet = jdbcTemplate.queryForRowSet( sql );
+
+        while ( rowSet.next() )
+        {
+            String table = rowSet.getString( "relname" );
+            int index = table.lastIndexOf( PartitionUtils.SEP );
+            AnalyticsRollup rollup = rollupMap.get( table.substring( 0, index ) );
+            int year = NumberUtils.toInt( table.substring( index + 1 ), -1 );
+
+            if ( rollup != null && year > 0 && !excludedTables.contains( table ) )
+            {
+                rollup.addPartition( year );
+                rollup.addRows( Math.max( 0L, rowSet.getLong( "reltuples" ) ) );
+            }
+        }
+
+        List<AnalyticsRollup> list = rollupMap.values().stream()
+            .filter( rollup -> !rollup.getPartitions().isEmpty() )
+            .sorted( Comparator.comparingLong( AnalyticsRollup::getRows ) )
+            .collect( Collectors.toList() );
+
+        log.info( "Analytics rollups available: " + list );
+
+        return list;
+    }
+
+    /**
+     * Returns the rollups configured through system settings.
+     */
+    private List<AnalyticsRollup> getConfiguredRollups()
+    {
+        return parseRollups( (String) systemSettingManager.getSystemSetting( SettingKey.ANALYTICS_ROLLUPS ) );
+    }
+
+    /**
+     * Returns the years for which a data value analytics table partition
+     * exists.
+     */
+    private List<Integer> getDataYears()
+    {
+        final String sql =
+            "select table_name from information_schema.tables " +
+            "where table_name ~ '^" + AnalyticsTableType.DATA_VALUE.getTableName() + "_[0-9]{4}$' " +
+            "and table_type = 'BASE TABLE'";
+
+        return jdbcTemplate.queryForList( sql, String.class ).stream()
+            .map( table -> Integer.valueOf( StringUtils.substringAfterLast( table, PartitionUtils.SEP ) ) )
+            .sorted()
+            .collect( Collectors.toList() );
+    }
+
+    /**
+     * Creates the rollup table for the given rollup and year under a temporary
+     * name, and swaps it with the current rollup table.
+     *
+     * @param rollup the {@link AnalyticsRollup}.
+     * @param year the year partition.
+     */
+    private void createRollupTable( AnalyticsRollup rollup, Integer year )
+    {
+        String sourceTable = PartitionUtils.getPartitionName( AnalyticsTableType.DATA_VALUE.getTableName(), year );
+        String tempTable = PartitionUtils.getPartitionName( rollup.getTableName() + TEMP_SUFFIX, year );
+        String table = PartitionUtils.getPartitionName( rollup.getTableName(), year );
+
+        List<String> sourceColumns = jdbcTemplate.queryForList(
+            "select column_name from information_schema.columns where table_name = ?", String.class, sourceTable );
+
+        String columns = StringUtils.join( getRollupColumns( rollup, sourceColumns ), "," );
+
+        final String sql =
+            "drop table if exists " + tempTable + ";" +
+            "create table " + tempTable + " as " +
+            "select " + columns + ",sum(" + quote( "value" ) + ") as " + quote( "value" ) + " " +
+            "from " + sourceTable + " " +
+            "where " + quote( "value" ) + " is not null " +
+            "group by " + columns + ";" +
+            "create index on " + tempTable + " (" + quote( "dx" ) + ");" +
+            "analyze " + tempTable + ";" +
+            "drop table if exists " + table + ";" +
+            "alter table " + tempTable + " rename to " + table + ";";
+
+        log.debug( "Rollup table SQL: " + sql );
+
+        jdbcTemplate.execute( sql );
+    }
+
+    /**
+     * Returns the years of the given data years which were updated by the
+     * given update, which are all data years unless only the last years were
+     * updated.
+     *
+     * @param params the {@link AnalyticsTableUpdateParams}.
+     * @param dataYears the years for which a data value analytics table
+     *        partition exists.
+     */
+    static List<Integer> getUpdatedYears( AnalyticsTableUpdateParams params, List<Integer> dataYears )
+    {
+        if ( params.getFromDate() == null )
+        {
+            return dataYears;
+        }
+
+        int fromYear = new DateTime( params.getFromDate() ).getYear();
+
+        return dataYears.stream()
+            .filter( year -> year >= fromYear )
+            .collect( Collectors.toList() );
+    }
+
+    /**
+     * Returns the rollup tables, including left over temporary tables, which
+     * do not belong to any of the given rollups or whose year partition no
+     * longer exists in the data value analytics table.
+     *
+     * @param configured the configured rollups.
+     * @param dataYears the years for which a data value analytics table
+     *        partition exists.
+     */
+    private List<String> getObsoleteRollupTables( List<AnalyticsRollup> configured, List<Integer> dataYears )
+    {
+        Set<String> tableNames = new HashSet<>();
+
+        configured.forEach( rollup -> dataYears.forEach( year ->
+            tableNames.add( PartitionUtils.getPartitionName( rollup.getTableName(), year ) ) ) );
+
+        final String sql =
+            "select table_name from information_schema.tables " +
+            "where table_name like '" + AnalyticsRollup.TABLE_PREFIX.replace( "_", "\\_" ) + "%' " +
+            "and table_type = 'BASE TABLE'";
+
+        return jdbcTemplate.queryForList( sql, String.class ).stream()
+            .filter( table -> !tableNames.contains( table ) )
+            .collect( Collectors.toList() );
+    }
+
+    /**
+     * Parses the given rollup configuration. The configuration is a comma
+     * separated list of org unit level and period type pairs separated by
+     * colon, like {@code 2:Yearly,3:Monthly}. Invalid entries are ignored.
+     *
+     * @param value the rollup configuration.
+     * @return a list of {@link AnalyticsRollup}.
+     */
+    static List<AnalyticsRollup> parseRollups( String value )
+    {
+        Map<String, AnalyticsRollup> rollups = new LinkedHashMap<>();
+
+        for ( String entry : StringUtils.split( StringUtils.trimToEmpty( value ), ',' ) )
+        {
+            String[] parts = StringUtils.split( entry.trim(), ':' );
+
+            int level = parts.length == 2 ? NumberUtils.toInt( parts[0].trim(), -1 ) : -1;
+            PeriodType periodType = parts.length == 2 ? PeriodType.getByNameIgnoreCase( parts[1] ) : null;
+
+            if ( level < 1 || periodType == null )
+            {
+                log.warn( "Ignoring invalid analytics rollup: '" + entry + "'" );
+                continue;
+            }
+
+            AnalyticsRollup rollup = new AnalyticsRollup( level, periodType );
+            rollups.putIfAbsent( rollup.getTableName(), rollup );
+        }
+
+        return new ArrayList<>( rollups.values() );
+    }
+
+    /**
+     * Returns the quoted columns of the given analytics table columns which
+     * are retained by the given rollup.
+     *
+     * @param rollup the {@link AnalyticsRollup}.
+     * @param columns the unquoted analytics table column names.
+     * @return a list of quoted column names.
+     */
+    static List<String> getRollupColumns( AnalyticsRollup rollup, List<String> columns )
+    {
+        return columns.stream()
+            .filter( column -> isRollupColumn( rollup, column ) )
+            .map( column -> quote( column ) )
+            .collect( Collectors.toList() );
+    }
+
+    private static boolean isRollupColumn( AnalyticsRollup rollup, String column )
+    {
+        if ( EXCLUDED_COLUMNS.contains( column ) )
+        {
+            return false;
+        }
+
+        if ( column.startsWith( PREFIX_ORGUNITLEVEL ) )
+        {
+            return rollup.hasOrgUnitLevel( NumberUtils.toInt(
+                column.substring( PREFIX_ORGUNITLEVEL.length() ), Integer.MAX_VALUE ) );
+        }
+
+        PeriodType periodType = PeriodType.getByNameIgnoreCase( column );
+
+        return periodType == null || rollup.hasPeriodType( periodType );
+    }
+}
@@ -0,0 +1,189 @@
+package org.hisp.dhis.analytics.data;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.hisp.dhis.DhisConvenienceTest.createDataElement;
+import static org.hisp.dhis.DhisConvenienceTest.createOrganisationUnit;
+import static org.hisp.dhis.analytics.DataQueryParams.DISPLAY_NAME_DATA_X;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.hisp.dhis.analytics.AnalyticsAggregationType;
+import org.hisp.dhis.analytics.AnalyticsRollup;
+import org.hisp.dhis.analytics.AnalyticsRollupManager;
+import org.hisp.dhis.analytics.AnalyticsTableType;
+import org.hisp.dhis.analytics.DataQueryGroups;
+import org.hisp.dhis.analytics.DataQueryParams;
+import org.hisp.dhis.analytics.QueryPlannerParams;
+import org.hisp.dhis.analytics.QueryValidator;
+import org.hisp.dhis.analytics.partition.PartitionManager;
+import org.hisp.dhis.common.BaseDimensionalObject;
+import org.hisp.dhis.common.DimensionType;
+import org.hisp.dhis.monitoring.metrics.ApplicationMetrics;
+import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.hisp.dhis.period.MonthlyPeriodType;
+import org.hisp.dhis.period.Period;
+import org.hisp.dhis.period.PeriodType;
+import org.hisp.dhis.period.QuarterlyPeriodType;
+import org.hisp.dhis.period.YearlyPeriodType;
+import org.joda.time.DateTime;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+import com.google.common.collect.Lists;
+
+public class DefaultQueryPlannerRollupTest
+{
+    @Rule
+    public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    @Mock
+    private QueryValidator queryValidator;
+
+    @Mock
+    private PartitionManager partitionManager;
+
+    @Mock
+    private AnalyticsRollupManager rollupManager;
+
+    private DefaultQueryPlanner subject;
+
+    private OrganisationUnit ouA;
+
+    @Before
+    public void setUp()
+    {
+        subject = new DefaultQueryPlanner( queryValidator, partitionManager, rollupManager,
+            new ApplicationMetrics() );
+
+        ouA = createOrganisationUnit( 'A' );
+        ouA.setPath( "/ouRoot/ouA" );
+
+        AnalyticsRollup yearly = createRollup( 2, new YearlyPeriodType(), 100, 2014 );
+        AnalyticsRollup quarterly = createRollup( 3, new QuarterlyPeriodType(), 1000, 2014 );
+
+        when( rollupManager.getRollups() ).thenReturn( Lists.newArrayList( yearly, quarterly ) );
+        when( rollupManager.rollupTablesExist( any(), any() ) ).thenReturn( true );
+    }
+
+    @Test
+    public void testRouteToSmallestRollup()
+    {
+        DataQueryParams params = createParams( new YearlyPeriodType(), AnalyticsAggregationType.SUM );
+
+        assertEquals( "analytics_rollup_l2_yearly", getTableName( params ) );
+    }
+
+    @Test
+    public void testRouteToRollupWithPeriodType()
+    {
+        DataQueryParams params = createParams( new QuarterlyPeriodType(), AnalyticsAggregationType.SUM );
+
+        assertEquals( "analytics_rollup_l3_quarterly", getTableName( params ) );
+    }
+
+    @Test
+    public void testNoRollupForFinerPeriodType()
+    {
+        DataQueryParams params = createParams( new MonthlyPeriodType(), AnalyticsAggregationType.SUM );
+
+        assertEquals( "analytics", getTableName( params ) );
+    }
+
+    @Test
+    public void testNoRollupForAverageAggregation()
+    {
+        DataQueryParams params = createParams( new YearlyPeriodType(), AnalyticsAggregationType.AVERAGE );
+
+        assertEquals( "analytics", getTableName( params ) );
+    }
+
+    @Test
+    public void testNoRollupForMissingPartition()
+    {
+        Period period = new YearlyPeriodType().createPeriod( new DateTime( 2015, 1, 1, 0, 0 ).toDate() );
+
+        DataQueryParams params = DataQueryParams.newBuilder( createParams( new YearlyPeriodType(), AnalyticsAggregationType.SUM ) )
+            .withPeriods( Lists.newArrayList( period ) )
+            .build();
+
+        assertEquals( "analytics", getTableName( params ) );
+    }
+
+    @Test
+    public void testNoRollupForMissingRollupTable()
+    {
+        when( rollupManager.rollupTablesExist( any(), any() ) ).thenReturn( false );
+
+        DataQueryParams params = createParams( new YearlyPeriodType(), AnalyticsAggregationType.SUM );
+
+        assertEquals( "analytics", getTableName( params ) );
+    }
+
+    private String getTableName( DataQueryParams params )
+    {
+        DataQueryGroups groups = subject.planQuery( params,
+            QueryPlannerParams.newBuilder().withTableType( AnalyticsTableType.DATA_VALUE ).build() );
+
+        List<DataQueryParams> queries = groups.getAllQueries();
+
+        assertEquals( 1, queries.size() );
+
+        return queries.get( 0 ).getTableName();
+    }
+
+    private DataQueryParams createParams( PeriodType periodType, AnalyticsAggregationType aggregationType )
+    {
+        Period period = periodType.createPeriod( new DateTime( 2014, 1, 1, 0, 0 ).toDate() );
+
+        return DataQueryParams.newBuilder()
+            .withDimensions( Lists.newArrayList(
+                new BaseDimensionalObject( "dx", DimensionType.DATA_X, DISPLAY_NAME_DATA_X, "display name",
+                    Lists.newArrayList( createDataElement( 'A' ) ) ),
+                new BaseDimensionalObject( "pe", DimensionType.PERIOD, Lists.newArrayList( period ) ),
+                new BaseDimensionalObject( "ou", DimensionType.ORGANISATION_UNIT, Lists.newArrayList( ouA ) ) ) )
+            .withAggregationType( aggregationType )
+            .build();
+    }
+
+    private AnalyticsRollup createRollup( int level, PeriodType periodType, long rows, Integer partition )
+    {
+        AnalyticsRollup rollup = new AnalyticsRollup( level, periodType );
+        rollup.addRows( rows );
+        rollup.addPartition( partition );
+        return rollup;
+    }
+}
@@ -33,6 +33,7 @@ import static org.hisp.dhis.DhisConvenienceTest.*;
 import static org.hisp.dhis.common.DimensionalObject.*;
 import static org.hisp.dhis.common.DimensionalObjectUtils.getList;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertEquals;
 import static org.mockito.Mockito.when;
 
 import org.hisp.dhis.analytics.*;
@@ -41,6 +42,7 @@ import org.hisp.dhis.common.BaseDimensionalObject;
 import org.hisp.dhis.common.DimensionType;
 import org.hisp.dhis.common.ValueType;
 import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.monitoring.metrics.ApplicationMetrics;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.period.Period;
 import org.hisp.dhis.period.PeriodType;
@@ -73,6 +75,12 @@ public class JdbcAnalyticsManagerTest
     @Mock
     private JdbcTemplate jdbcTemplate;
 
+    @Mock
+    private AnalyticsIndexAdvisor indexAdvisor;
+
+    @Mock
+    private AnalyticsRollupManager rollupManager;
+
     @Mock
     private SqlRowSet rowSet;
 
@@ -89,13 +97,13 @@ public class JdbcAnalyticsManagerTest
     {
         QueryPlanner queryPlanner = new DefaultQueryPlanner(
             new DefaultQueryValidator( this.systemSettingManager, nestedIndicatorCyclicDependencyInspector ),
-            partitionManager );
+            partitionManager, rollupManager, new ApplicationMetrics() );
 
         mockRowSet();
 
         when( jdbcTemplate.queryForRowSet( sql.capture() ) ).thenReturn( rowSet );
 
-        subject = new JdbcAnalyticsManager( queryPlanner, jdbcTemplate );
+        subject = new JdbcAnalyticsManager( queryPlanner, jdbcTemplate, indexAdvisor, new ApplicationMetrics() );
     }
 
     @Test
@@ -128,6 +136,14 @@ public class JdbcAnalyticsManagerTest
         assertExpectedLastSql( "desc" );
     }
 
+    @Test
+    public void verifyValueKeyJoinsDimensionValues()
+    {
+        assertEquals( "fbfJHSPpUQD-2017Q1-ImspTQPwCqd",
+            JdbcAnalyticsManager.getValueKey( new String[] { "fbfJHSPpUQD", "2017Q1", "ImspTQPwCqd" } ) );
+        assertEquals( "fbfJHSPpUQD", JdbcAnalyticsManager.getValueKey( new String[] { "fbfJHSPpUQD" } ) );
+    }
+
     @Test
     public void verifyQueryGeneratedWhenDataElementHasLastInPeriodAvgOrgUnitAggregationType()
     {
@@ -0,0 +1,246 @@
+package org.hisp.dhis.analytics.data;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.hisp.dhis.analytics.DataQueryParams;
+import org.hisp.dhis.analytics.QueryCancellation;
+import org.hisp.dhis.common.Grid;
+import org.hisp.dhis.system.grid.ListGrid;
+import org.junit.After;
+import org.junit.Test;
+
+public class QueryCoalescerTest
+{
+    private final QueryCoalescer coalescer = new QueryCoalescer();
+
+    private final ExecutorService executor = Executors.newFixedThreadPool( 2 );
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+    @After
+    public void tearDown()
+    {
+        executor.shutdownNow();
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void testIdenticalQueriesExecuteOnce()
+        throws Exception
+    {
+        DataQueryParams params = DataQueryParams.newBuilder().build();
+
+        Grid grid = new ListGrid();
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch( 1 );
+        CountDownLatch release = new CountDownLatch( 1 );
+
+        Future<Grid> leader = executor.submit( () -> coalescer.getOrExecute( params, p -> {
+            executions.incrementAndGet();
+            started.countDown();
+            await( release );
+            return grid;
+        } ) );
+
+        assertTrue( started.await( 10, TimeUnit.SECONDS ) );
+
+        Future<Grid> follower = executor.submit( () -> coalescer.getOrExecute( params, p -> {
+            executions.incrementAndGet();
+            return new ListGrid();
+        } ) );
+
+        while ( coalescer.getCoalescedCount() == 0 )
+        {
+            Thread.sleep( 10 );
+        }
+
+        release.countDown();
+
+        assertSame( grid, leader.get( 10, TimeUnit.SECONDS ) );
+        assertSame( grid, follower.get( 10, TimeUnit.SECONDS ) );
+        assertEquals( 1, executions.get() );
+        assertEquals( 0, coalescer.getInFlightCount() );
+    }
+
+    @Test
+    public void testSharedQueryIsCancelledWhenAllCallersCancel()
+    {
+        QueryCancellation cancellation = new QueryCancellation();
+
+        DataQueryParams params = DataQueryParams.newBuilder()
+            .withCancellation( cancellation ).build();
+
+        AtomicInteger cancelled = new AtomicInteger();
+
+        coalescer.getOrExecute( params, p -> {
+            p.getCancellation().onCancel( cancelled::incrementAndGet );
+            cancellation.cancel();
+            return new ListGrid();
+        } );
+
+        assertEquals( 1, cancelled.get() );
+    }
+
+    @Test
+    public void testCancelledFollowerDoesNotCancelSharedQuery()
+        throws Exception
+    {
+        QueryCancellation leaderCancellation = new QueryCancellation();
+        QueryCancellation followerCancellation = new QueryCancellation();
+
+        Grid grid = new ListGrid();
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch( 1 );
+        CountDownLatch release = new CountDownLatch( 1 );
+        QueryCancellation[] shared = new QueryCancellation[1];
+
+        Future<Grid> leader = executor.submit( () -> coalescer.getOrExecute(
+            DataQueryParams.newBuilder().withCancellation( leaderCancellation ).build(), p -> {
+                executions.incrementAndGet();
+                shared[0] = p.getCancellation();
+                started.countDown();
+                await( release );
+                return grid;
+            } ) );
+
+        assertTrue( started.await( 10, TimeUnit.SECONDS ) );
+
+        Future<Grid> follower = executor.submit( () -> coalescer.getOrExecute(
+            DataQueryParams.newBuilder().withCancellation( followerCancellation ).build(), p -> {
+                executions.incrementAndGet();
+                return new ListGrid();
+            } ) );
+
+        awaitCoalesced( 1 );
+
+        followerCancellation.cancel();
+
+        assertCancelled( follower );
+        assertFalse( shared[0].isCancelled() );
+
+        release.countDown();
+
+        assertSame( grid, leader.get( 10, TimeUnit.SECONDS ) );
+        assertEquals( 1, executions.get() );
+        assertEquals( 0, coalescer.getInFlightCount() );
+    }
+
+    @Test
+    public void testSharedQueryIsCancelledWhenAllCallersTimeOut()
+        throws Exception
+    {
+        QueryCancellation leaderCancellation = new QueryCancellation();
+        QueryCancellation followerCancellation = new QueryCancellation();
+
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch( 1 );
+        CountDownLatch cancelled = new CountDownLatch( 1 );
+
+        Future<Grid> leader = executor.submit( () -> coalescer.getOrExecute(
+            DataQueryParams.newBuilder().withCancellation( leaderCancellation ).build(), p -> {
+                executions.incrementAndGet();
+                p.getCancellation().onCancel( cancelled::countDown );
+                started.countDown();
+                await( cancelled );
+                throw new CancellationException( "Statement was cancelled" );
+            } ) );
+
+        assertTrue( started.await( 10, TimeUnit.SECONDS ) );
+
+        Future<Grid> follower = executor.submit( () -> coalescer.getOrExecute(
+            DataQueryParams.newBuilder().withCancellation( followerCancellation ).build(), p -> {
+                executions.incrementAndGet();
+                return new ListGrid();
+            } ) );
+
+        awaitCoalesced( 1 );
+
+        // Request timeouts cancel the caller cancellations
+
+        scheduler.schedule( leaderCancellation::cancel, 50, TimeUnit.MILLISECONDS );
+        scheduler.schedule( followerCancellation::cancel, 100, TimeUnit.MILLISECONDS );
+
+        assertTrue( cancelled.await( 10, TimeUnit.SECONDS ) );
+        assertCancelled( leader );
+        assertCancelled( follower );
+        assertEquals( 1, executions.get() );
+        assertEquals( 0, coalescer.getInFlightCount() );
+    }
+
+    private void awaitCoalesced( long count )
+        throws InterruptedException
+    {
+        while ( coalescer.getCoalescedCount() < count )
+        {
+            Thread.sleep( 10 );
+        }
+    }
+
+    private static void assertCancelled( Future<Grid> future )
+        throws Exception
+    {
+        try
+        {
+            future.get( 10, TimeUnit.SECONDS );
+            fail( "Expected query to be cancelled" );
+        }
+        catch ( ExecutionException ex )
+        {
+            assertTrue( ex.getCause() instanceof CancellationException );
+        }
+    }
+
+    private static void await( CountDownLatch latch )
+    {
+        try
+        {
+            latch.await( 10, TimeUnit.SECONDS );
+        }
+        catch ( InterruptedException ex )
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -44,6 +44,7 @@ import java.util.List;
 import com.google.common.collect.Lists;
 import org.hisp.dhis.analytics.AggregationType;
 import org.hisp.dhis.analytics.AnalyticsAggregationType;
+import org.hisp.dhis.analytics.AnalyticsIndexAdvisor;
 import org.hisp.dhis.analytics.event.EventQueryParams;
 import org.hisp.dhis.analytics.event.data.programindicator.DefaultProgramIndicatorSubqueryBuilder;
 import org.hisp.dhis.common.BaseDimensionalItemObject;
@@ -82,6 +83,9 @@ public class AbstractJdbcEventAnalyticsManagerTest
     @Mock
     private JdbcTemplate jdbcTemplate;
 
+    @Mock
+    private AnalyticsIndexAdvisor indexAdvisor;
+
     @Mock
     private ProgramIndicatorService programIndicatorService;
 
@@ -102,7 +106,7 @@ public class AbstractJdbcEventAnalyticsManagerTest
         DefaultProgramIndicatorSubqueryBuilder programIndicatorSubqueryBuilder = new DefaultProgramIndicatorSubqueryBuilder(
             programIndicatorService );
         subject = new JdbcEventAnalyticsManager( jdbcTemplate, statementBuilder, programIndicatorService,
-            programIndicatorSubqueryBuilder );
+            programIndicatorSubqueryBuilder, indexAdvisor );
 
         // data init
 
@@ -261,6 +261,35 @@ public class EventQueryValidatorTest
         assertEquals( ErrorCode.E7208, error.getErrorCode() );
     }
 
+    @Test
+    public void validateErrorPageCursor()
+    {
+        EventQueryParams params = new EventQueryParams.Builder()
+            .withProgram( prA )
+            .withOrganisationUnits( Lists.newArrayList( ouB ) )
+            .withPageSize( 10 )
+            .withPageCursor( "not-a-cursor" ).build();
+
+        ErrorMessage error = queryValidator.validateForErrorMessage( params );
+
+        assertEquals( ErrorCode.E7228, error.getErrorCode() );
+    }
+
+    @Test
+    public void validateErrorPageCursorPageMismatch()
+    {
+        EventQueryParams params = new EventQueryParams.Builder()
+            .withProgram( prA )
+            .withOrganisationUnits( Lists.newArrayList( ouB ) )
+            .withPage( 4 )
+            .withPageSize( 10 )
+            .withPageCursor( EventPageCursor.encode( 2, Lists.newArrayList( "psiabcdefgA" ) ) ).build();
+
+        ErrorMessage error = queryValidator.validateForErrorMessage( params );
+
+        assertEquals( ErrorCode.E7228, error.getErrorCode() );
+    }
+
     @Test
     public void validateErrorMaxLimit()
     {
@@ -30,12 +30,14 @@ package org.hisp.dhis.analytics.event.data;
 
 import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hisp.dhis.DhisConvenienceTest.createDataElement;
 import static org.hisp.dhis.DhisConvenienceTest.createOrganisationUnit;
 import static org.hisp.dhis.DhisConvenienceTest.createProgram;
 import static org.hisp.dhis.DhisConvenienceTest.createProgramIndicator;
+import static org.hisp.dhis.analytics.AnalyticsMetaDataKey.NEXT_PAGE_CURSOR;
 import static org.hisp.dhis.common.DimensionalObject.DATA_X_DIM_ID;
 import static org.hisp.dhis.common.DimensionalObject.ORGUNIT_DIM_ID;
 import static org.hisp.dhis.common.DimensionalObject.PERIOD_DIM_ID;
@@ -47,10 +49,12 @@ import static org.mockito.Mockito.when;
 
 import org.hisp.dhis.analytics.AggregationType;
 import org.hisp.dhis.analytics.AnalyticsAggregationType;
+import org.hisp.dhis.analytics.AnalyticsIndexAdvisor;
 import org.hisp.dhis.analytics.DataQueryParams;
 import org.hisp.dhis.analytics.DataType;
 import org.hisp.dhis.analytics.event.EventQueryParams;
 import org.hisp.dhis.analytics.event.data.programindicator.DefaultProgramIndicatorSubqueryBuilder;
+import org.hisp.dhis.common.BaseDimensionalItemObject;
 import org.hisp.dhis.common.BaseDimensionalObject;
 import org.hisp.dhis.common.DimensionType;
 import org.hisp.dhis.common.Grid;
@@ -81,6 +85,8 @@ import org.mockito.junit.MockitoJUnit;
 import org.mockito.junit.MockitoRule;
 import org.springframework.jdbc.core.JdbcTemplate;
 
+import com.google.common.collect.Lists;
+
 /**
  * @author Luciano Fiandesio
  */
@@ -92,6 +98,9 @@ public class EventsAnalyticsManagerTest extends EventAnalyticsTest
     @Mock
     private JdbcTemplate jdbcTemplate;
 
+    @Mock
+    private AnalyticsIndexAdvisor indexAdvisor;
+
     private JdbcEventAnalyticsManager subject;
 
     @Captor
@@ -107,7 +116,7 @@ public class EventsAnalyticsManagerTest extends EventAnalyticsTest
         ProgramIndicatorService programIndicatorService = mock(ProgramIndicatorService.class);
         DefaultProgramIndicatorSubqueryBuilder programIndicatorSubqueryBuilder = new DefaultProgramIndicatorSubqueryBuilder( programIndicatorService );
 
-        subject = new JdbcEventAnalyticsManager( jdbcTemplate, statementBuilder, programIndicatorService, programIndicatorSubqueryBuilder );
+        subject = new JdbcEventAnalyticsManager( jdbcTemplate, statementBuilder, programIndicatorService, programIndicatorSubqueryBuilder, indexAdvisor );
 
         when( jdbcTemplate.queryForRowSet( anyString() ) ).thenReturn( this.rowSet );
     }
@@ -373,6 +382,100 @@ public class EventsAnalyticsManagerTest extends EventAnalyticsTest
 
     }
 
+    @Test
+    public void verifyGetEventsWithPagingUsesKeysetSortOrder()
+    {
+        mockEmptyRowSet();
+
+        EventQueryParams params = new EventQueryParams.Builder( createRequestParams() )
+            .addAscSortItem( new BaseDimensionalItemObject( "deabcdefghA" ) )
+            .withPage( 2 )
+            .withPageSize( 10 )
+            .build();
+
+        subject.getEvents( params, createGrid(), 100 );
+
+        verify( jdbcTemplate ).queryForRowSet( sql.capture() );
+
+        assertThat( sql.getValue(), containsString( "ax.\"ou\",ax.\"deabcdefghA\" as \"keyset_0\"  from " ) );
+        assertThat( sql.getValue(), containsString( "(ax.\"uidlevel0\" = 'ouabcdefghA' ) order by ax.\"deabcdefghA\" asc nulls last,psi asc limit 10 offset 10" ) );
+    }
+
+    @Test
+    public void verifyGetEventsWithPageCursorUsesKeysetCondition()
+    {
+        mockEmptyRowSet();
+
+        EventQueryParams params = new EventQueryParams.Builder( createRequestParams() )
+            .addAscSortItem( new BaseDimensionalItemObject( "deabcdefghA" ) )
+            .withPage( 2 )
+            .withPageSize( 10 )
+            .withPageCursor( EventPageCursor.encode( 2, Lists.newArrayList( "5", "psiabcdefgA" ) ) )
+            .build();
+
+        subject.getEvents( params, createGrid(), 100 );
+
+        verify( jdbcTemplate ).queryForRowSet( sql.capture() );
+
+        assertThat( sql.getValue(), containsString( "and (((ax.\"deabcdefghA\" > '5' or ax.\"deabcdefghA\" is null)) "
+            + "or (ax.\"deabcdefghA\" = '5' and psi > 'psiabcdefgA')) order by ax.\"deabcdefghA\" asc nulls last,psi asc limit 10" ) );
+        assertThat( sql.getValue(), not( containsString( "offset" ) ) );
+    }
+
+    @Test
+    public void verifyGetEventsWithFullKeysetPageReturnsNextPageCursor()
+    {
+        when( rowSet.next() ).thenReturn( true ).thenReturn( true ).thenReturn( false );
+        when( rowSet.getString( "keyset_0" ) ).thenReturn( "5" ).thenReturn( "7" );
+        when( rowSet.getString( "psi" ) ).thenReturn( "psiabcdefgA" ).thenReturn( "psiabcdefgB" );
+
+        EventQueryParams params = new EventQueryParams.Builder( createRequestParams() )
+            .addAscSortItem( new BaseDimensionalItemObject( "deabcdefghA" ) )
+            .withPage( 2 )
+            .withPageSize( 2 )
+            .build();
+
+        Grid grid = createGrid();
+
+        subject.getEvents( params, grid, 100 );
+
+        assertThat( grid.getHeight(), is( 2 ) );
+
+        EventPageCursor cursor = EventPageCursor.decode( (String) grid.getInternalMetaData().get( NEXT_PAGE_CURSOR.getKey() ) );
+
+        assertThat( cursor.getPage(), is( 3 ) );
+        assertThat( cursor.getValues(), is( Lists.newArrayList( "7", "psiabcdefgB" ) ) );
+    }
+
+    @Test
+    public void verifyGetEventsWithPartialKeysetPageReturnsNoCursor()
+    {
+        when( rowSet.next() ).thenReturn( true ).thenReturn( false );
+        when( rowSet.getString( "keyset_0" ) ).thenReturn( "5" );
+        when( rowSet.getString( "psi" ) ).thenReturn( "psiabcdefgA" );
+
+        EventQueryParams params = new EventQueryParams.Builder( createRequestParams() )
+            .addAscSortItem( new BaseDimensionalItemObject( "deabcdefghA" ) )
+            .withPageSize( 2 )
+            .build();
+
+        Grid grid = createGrid();
+
+        subject.getEvents( params, grid, 100 );
+
+        assertThat( grid.getHeight(), is( 1 ) );
+        assertThat( grid.hasInternalMetaDataKey( NEXT_PAGE_CURSOR.getKey() ), is( false ) );
+    }
+
+    @Test
+    public void verifyGetPlanRows()
+    {
+        String plan = "[{\"Plan\": {\"Node Type\": \"Seq Scan\", \"Plan Rows\": 1234, \"Plan Width\": 12}}]";
+
+        assertThat( JdbcEventAnalyticsManager.getPlanRows( plan ), is( 1234L ) );
+        assertThat( JdbcEventAnalyticsManager.getPlanRows( "[]" ), is( 0L ) );
+    }
+
     private EventQueryParams createRequestParamsWithFilter( ValueType queryItemValueType )
     {
         EventQueryParams.Builder params = new EventQueryParams.Builder( createRequestParams( queryItemValueType ) );
@@ -0,0 +1,136 @@
+package org.hisp.dhis.analytics.table;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.hisp.dhis.analytics.ColumnDataType.CHARACTER_11;
+import static org.hisp.dhis.analytics.ColumnDataType.TEXT;
+import static org.hisp.dhis.analytics.ColumnDataType.TIMESTAMP;
+import static org.hisp.dhis.analytics.ColumnNotNullConstraint.NOT_NULL;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+import java.util.Set;
+
+import org.hisp.dhis.analytics.AnalyticsTableColumn;
+import org.hisp.dhis.analytics.AnalyticsTableType;
+import org.hisp.dhis.setting.SettingKey;
+import org.hisp.dhis.setting.SystemSettingManager;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.rowset.SqlRowSet;
+
+import com.google.common.collect.Sets;
+
+public class JdbcAnalyticsIndexAdvisorTest
+{
+    @Rule
+    public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private SystemSettingManager systemSettingManager;
+
+    @Mock
+    private SqlRowSet rowSet;
+
+    private JdbcAnalyticsIndexAdvisor subject;
+
+    @Before
+    public void setUp()
+    {
+        when( systemSettingManager.getSystemSetting( SettingKey.ANALYTICS_INDEX_ADVISOR ) ).thenReturn( true );
+        when( systemSettingManager.getSystemSetting( SettingKey.ANALYTICS_INDEX_ADVISOR_MIN_QUERIES ) ).thenReturn( 100 );
+
+        subject = new JdbcAnalyticsIndexAdvisor( jdbcTemplate, systemSettingManager );
+    }
+
+    @Test
+    public void testGetColumns()
+    {
+        String sql = "where ax.\"monthly\" in ('202001','202002') and (ax.\"uidlevel2\" = 'ImspTQPwCqd' ) " +
+            "and ax.\"name\" = 'with \"quoted\" and '' text' group by ax.\"dx\",ax.\"monthly\" ";
+
+        assertEquals( Sets.newHashSet( "monthly", "uidlevel2", "name", "dx" ), JdbcAnalyticsIndexAdvisor.getColumns( sql ) );
+    }
+
+    @Test
+    public void testIsIndexRequired()
+    {
+        Set<String> usedColumns = Sets.newHashSet( "monthly", "uidlevel2" );
+
+        assertTrue( subject.isIndexRequired( new AnalyticsTableColumn( "\"monthly\"", TEXT, "ps.\"monthly\"" ), usedColumns ) );
+        assertFalse( subject.isIndexRequired( new AnalyticsTableColumn( "\"uidlevel3\"", CHARACTER_11, "ous.\"uidlevel3\"" ), usedColumns ) );
+        assertTrue( subject.isIndexRequired( new AnalyticsTableColumn( "\"psi\"", CHARACTER_11, NOT_NULL, "psi.uid" ), usedColumns ) );
+        assertTrue( subject.isIndexRequired( new AnalyticsTableColumn( "\"uidlevel3\"", CHARACTER_11, "ous.\"uidlevel3\"" ), null ) );
+    }
+
+    @Test
+    public void testGetIndexType()
+    {
+        assertEquals( "brin", subject.getIndexType( new AnalyticsTableColumn( "\"monthly\"", TEXT, "ps.\"monthly\"" ) ) );
+        assertEquals( "brin", subject.getIndexType( new AnalyticsTableColumn( "\"executiondate\"", TIMESTAMP, "psi.executiondate" ) ) );
+        assertEquals( "gist", subject.getIndexType( new AnalyticsTableColumn( "\"psigeometry\"", TEXT, "psi.geometry" ).withIndexType( "gist" ) ) );
+        assertNull( subject.getIndexType( new AnalyticsTableColumn( "\"ou\"", CHARACTER_11, "ou.uid" ) ) );
+    }
+
+    @Test
+    public void testGetUsedColumns()
+    {
+        when( jdbcTemplate.queryForRowSet( anyString(), eq( "EVENT" ), any() ) ).thenReturn( rowSet );
+        when( rowSet.next() ).thenReturn( true, true, true, false );
+        when( rowSet.getString( "columnname" ) ).thenReturn( JdbcAnalyticsIndexAdvisor.QUERY_COUNT_COLUMN, "monthly", "ou" );
+        when( rowSet.getLong( "usagecount" ) ).thenReturn( 150L );
+
+        assertEquals( Sets.newHashSet( "monthly", "ou" ), subject.getUsedColumns( AnalyticsTableType.EVENT ) );
+    }
+
+    @Test
+    public void testGetUsedColumnsTooFewQueries()
+    {
+        when( jdbcTemplate.queryForRowSet( anyString(), eq( "EVENT" ), any() ) ).thenReturn( rowSet );
+        when( rowSet.next() ).thenReturn( true, true, false );
+        when( rowSet.getString( "columnname" ) ).thenReturn( JdbcAnalyticsIndexAdvisor.QUERY_COUNT_COLUMN, "monthly" );
+        when( rowSet.getLong( "usagecount" ) ).thenReturn( 20L );
+
+        assertNull( subject.getUsedColumns( AnalyticsTableType.EVENT ) );
+    }
+}
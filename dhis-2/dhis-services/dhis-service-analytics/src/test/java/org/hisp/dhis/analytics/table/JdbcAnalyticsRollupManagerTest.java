@@ -0,0 +1,124 @@
+package org.hisp.dhis.analytics.table;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.hisp.dhis.analytics.AnalyticsRollup;
+import org.hisp.dhis.analytics.AnalyticsTableUpdateParams;
+import org.hisp.dhis.period.MonthlyPeriodType;
+import org.hisp.dhis.period.YearlyPeriodType;
+import org.hisp.dhis.setting.SystemSettingManager;
+import org.joda.time.DateTime;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+public class JdbcAnalyticsRollupManagerTest
+{
+    @Test
+    public void testParseRollups()
+    {
+        List<AnalyticsRollup> rollups = JdbcAnalyticsRollupManager.parseRollups( "2:Yearly, 3:monthly,x:Yearly,4:Unknown,2:Yearly" );
+
+        assertEquals( 2, rollups.size() );
+        assertEquals( "analytics_rollup_l2_yearly", rollups.get( 0 ).getTableName() );
+        assertEquals( "analytics_rollup_l3_monthly", rollups.get( 1 ).getTableName() );
+    }
+
+    @Test
+    public void testParseEmptyRollups()
+    {
+        assertTrue( JdbcAnalyticsRollupManager.parseRollups( "" ).isEmpty() );
+        assertTrue( JdbcAnalyticsRollupManager.parseRollups( null ).isEmpty() );
+    }
+
+    @Test
+    public void testGetRollupColumns()
+    {
+        List<String> columns = Lists.newArrayList( "id", "dx", "co", "ao", "uidlevel1", "uidlevel2", "uidlevel3",
+            "daily", "weekly", "monthly", "quarterly", "yearly", "financialapril", "year", "pe", "ou", "value" );
+
+        assertEquals( Lists.newArrayList( "\"dx\"", "\"co\"", "\"ao\"", "\"uidlevel1\"", "\"uidlevel2\"",
+            "\"monthly\"", "\"quarterly\"", "\"yearly\"", "\"financialapril\"", "\"year\"" ),
+            JdbcAnalyticsRollupManager.getRollupColumns( new AnalyticsRollup( 2, new MonthlyPeriodType() ), columns ) );
+
+        assertEquals( Lists.newArrayList( "\"dx\"", "\"co\"", "\"ao\"", "\"uidlevel1\"",
+            "\"yearly\"", "\"financialapril\"", "\"year\"" ),
+            JdbcAnalyticsRollupManager.getRollupColumns( new AnalyticsRollup( 1, new YearlyPeriodType() ), columns ) );
+    }
+
+    @Test
+    public void testGetUpdatedYears()
+    {
+        List<Integer> dataYears = Lists.newArrayList( 2017, 2018, 2019, 2020 );
+
+        AnalyticsTableUpdateParams lastYears = AnalyticsTableUpdateParams.newBuilder()
+            .withLastYears( 2 )
+            .withToday( new DateTime( 2020, 6, 1, 0, 0 ).toDate() )
+            .build();
+
+        assertEquals( Lists.newArrayList( 2019, 2020 ), JdbcAnalyticsRollupManager.getUpdatedYears( lastYears, dataYears ) );
+        assertEquals( dataYears, JdbcAnalyticsRollupManager.getUpdatedYears( AnalyticsTableUpdateParams.newBuilder().build(), dataYears ) );
+    }
+
+    @Test
+    public void testRollupTablesExistAreLookedUpOnce()
+    {
+        JdbcTemplate jdbcTemplate = mock( JdbcTemplate.class );
+        JdbcAnalyticsRollupManager manager = new JdbcAnalyticsRollupManager( jdbcTemplate,
+            mock( SystemSettingManager.class ) );
+
+        AnalyticsRollup rollup = new AnalyticsRollup( 2, new YearlyPeriodType() );
+
+        when( jdbcTemplate.queryForObject( contains( "analytics_rollup_l2_yearly_2019" ), eq( Long.class ) ) )
+            .thenReturn( 2L );
+        when( jdbcTemplate.queryForObject( contains( "analytics_rollup_l2_yearly_2021" ), eq( Long.class ) ) )
+            .thenReturn( 0L );
+
+        assertTrue( manager.rollupTablesExist( rollup, Sets.newHashSet( 2019, 2020 ) ) );
+        assertTrue( manager.rollupTablesExist( rollup, Sets.newHashSet( 2019, 2020 ) ) );
+        assertFalse( manager.rollupTablesExist( rollup, Sets.newHashSet( 2020, 2021 ) ) );
+
+        verify( jdbcTemplate, times( 2 ) ).queryForObject( anyString(), eq( Long.class ) );
+    }
+}
@@ -48,10 +48,12 @@ import org.hisp.dhis.hibernate.HibernateUtils;
 import org.hisp.dhis.schema.Schema;
 import org.hisp.dhis.schema.SchemaService;
 import org.hisp.dhis.translation.Translation;
+import org.hisp.dhis.translation.TranslationDictionary;
 import org.hisp.dhis.user.CurrentUserService;
 import org.hisp.dhis.user.User;
 import org.hisp.dhis.user.UserCredentials;
 import org.hisp.dhis.user.UserInfo;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
@@ -102,6 +104,8 @@ public class DefaultIdentifiableObjectManager
 
     private final CacheProvider cacheProvider;
 
+    private final ApplicationEventPublisher publisher;
+
     private Map<Class<? extends IdentifiableObject>, IdentifiableObjectStore<? extends IdentifiableObject>> identifiableObjectStoreMap;
 
     private Map<Class<? extends DimensionalObject>, GenericDimensionalObjectStore<? extends DimensionalObject>> dimensionalObjectStoreMap;
@@ -111,7 +115,7 @@ public class DefaultIdentifiableObjectManager
         Set<IdentifiableObjectStore<? extends IdentifiableObject>> identifiableObjectStores,
         Set<GenericDimensionalObjectStore<? extends DimensionalObject>> dimensionalObjectStores,
         SessionFactory sessionFactory, CurrentUserService currentUserService, SchemaService schemaService,
-        Environment env, CacheProvider cacheProvider )
+        Environment env, CacheProvider cacheProvider, ApplicationEventPublisher publisher )
     {
         checkNotNull( identifiableObjectStores );
         checkNotNull( dimensionalObjectStores );
@@ -120,6 +124,7 @@ public class DefaultIdentifiableObjectManager
         checkNotNull( schemaService );
         checkNotNull( env );
         checkNotNull( cacheProvider );
+        checkNotNull( publisher );
 
         this.identifiableObjectStores = identifiableObjectStores;
         this.dimensionalObjectStores = dimensionalObjectStores;
@@ -128,6 +133,7 @@ public class DefaultIdentifiableObjectManager
         this.schemaService = schemaService;
         this.env = env;
         this.cacheProvider = cacheProvider;
+        this.publisher = publisher;
     }
 
     @PostConstruct
@@ -234,6 +240,8 @@ public class DefaultIdentifiableObjectManager
         translatedObject.setLastUpdatedBy( currentUserService.getCurrentUser() );
 
         session.update( translatedObject );
+
+        TranslationDictionary.invalidate( translatedObject.getUid() );
     }
 
     @Override
@@ -255,6 +263,37 @@ public class DefaultIdentifiableObjectManager
         }
     }
 
+    @Override
+    @Transactional
+    public void delete( List<? extends IdentifiableObject> objects )
+    {
+        delete( objects, currentUserService.getCurrentUser() );
+    }
+
+    @Override
+    @Transactional
+    public void delete( List<? extends IdentifiableObject> objects, User user )
+    {
+        if ( objects == null || objects.isEmpty() )
+        {
+            return;
+        }
+
+        ObjectsDeletionRequestedEvent event = new ObjectsDeletionRequestedEvent( objects, () -> {
+            for ( IdentifiableObject object : objects )
+            {
+                delete( object, user );
+            }
+        } );
+
+        publisher.publishEvent( event );
+
+        if ( !event.isHandled() )
+        {
+            event.getDeletion().run();
+        }
+    }
+
     @Override
     @Transactional( readOnly = true )
     @SuppressWarnings( "unchecked" )
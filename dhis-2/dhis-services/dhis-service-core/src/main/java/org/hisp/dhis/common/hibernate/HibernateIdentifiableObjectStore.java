@@ -1033,18 +1033,21 @@ public class HibernateIdentifiableObjectStore<T extends BaseIdentifiableObject>
         disjunction.add( Restrictions.like( "c.publicAccess", access ) );
         disjunction.add( Restrictions.isNull( "c.publicAccess" ) );
 
-        DetachedCriteria userGroupDetachedCriteria = DetachedCriteria.forClass( getClazz(), "ugdc" );
-        userGroupDetachedCriteria.createCriteria( "ugdc.userGroupAccesses", "uga" );
-        userGroupDetachedCriteria.createCriteria( "uga.userGroup", "ug" );
-        userGroupDetachedCriteria.createCriteria( "ug.members", "ugm" );
+        Set<Long> userGroupIds = aclService.getUserGroupIds( user.getId() );
 
-        userGroupDetachedCriteria.add( Restrictions.eqProperty( "ugdc.id", "c.id" ) );
-        userGroupDetachedCriteria.add( Restrictions.eq( "ugm.id", user.getId() ) );
-        userGroupDetachedCriteria.add( Restrictions.like( "uga.access", access ) );
+        if ( !userGroupIds.isEmpty() )
+        {
+            DetachedCriteria userGroupDetachedCriteria = DetachedCriteria.forClass( getClazz(), "ugdc" );
+            userGroupDetachedCriteria.createCriteria( "ugdc.userGroupAccesses", "uga" );
+
+            userGroupDetachedCriteria.add( Restrictions.eqProperty( "ugdc.id", "c.id" ) );
+            userGroupDetachedCriteria.add( Restrictions.in( "uga.userGroup.id", userGroupIds ) );
+            userGroupDetachedCriteria.add( Restrictions.like( "uga.access", access ) );
 
-        userGroupDetachedCriteria.setProjection( Property.forName( "uga.id" ) );
+            userGroupDetachedCriteria.setProjection( Property.forName( "uga.id" ) );
 
-        disjunction.add( Subqueries.exists( userGroupDetachedCriteria ) );
+            disjunction.add( Subqueries.exists( userGroupDetachedCriteria ) );
+        }
 
         DetachedCriteria userDetachedCriteria = DetachedCriteria.forClass( getClazz(), "udc" );
         userDetachedCriteria.createCriteria( "udc.userAccesses", "ua" );
@@ -1091,18 +1094,21 @@ public class HibernateIdentifiableObjectStore<T extends BaseIdentifiableObject>
         disjunction.add( Restrictions.isNull( "c.user.id" ) );
         disjunction.add( Restrictions.eq( "c.user.id", user.getId() ) );
 
-        DetachedCriteria userGroupDetachedCriteria = DetachedCriteria.forClass( getClazz(), "ugdc" );
-        userGroupDetachedCriteria.createCriteria( "ugdc.userGroupAccesses", "uga" );
-        userGroupDetachedCriteria.createCriteria( "uga.userGroup", "ug" );
-        userGroupDetachedCriteria.createCriteria( "ug.members", "ugm" );
+        Set<Long> userGroupIds = aclService.getUserGroupIds( user.getId() );
 
-        userGroupDetachedCriteria.add( Restrictions.eqProperty( "ugdc.id", "c.id" ) );
-        userGroupDetachedCriteria.add( Restrictions.eq( "ugm.id", user.getId() ) );
-        userGroupDetachedCriteria.add( Restrictions.like( "uga.access", access ) );
+        if ( !userGroupIds.isEmpty() )
+        {
+            DetachedCriteria userGroupDetachedCriteria = DetachedCriteria.forClass( getClazz(), "ugdc" );
+            userGroupDetachedCriteria.createCriteria( "ugdc.userGroupAccesses", "uga" );
 
-        userGroupDetachedCriteria.setProjection( Property.forName( "uga.id" ) );
+            userGroupDetachedCriteria.add( Restrictions.eqProperty( "ugdc.id", "c.id" ) );
+            userGroupDetachedCriteria.add( Restrictions.in( "uga.userGroup.id", userGroupIds ) );
+            userGroupDetachedCriteria.add( Restrictions.like( "uga.access", access ) );
 
-        disjunction.add( Subqueries.exists( userGroupDetachedCriteria ) );
+            userGroupDetachedCriteria.setProjection( Property.forName( "uga.id" ) );
+
+            disjunction.add( Subqueries.exists( userGroupDetachedCriteria ) );
+        }
 
         DetachedCriteria userDetachedCriteria = DetachedCriteria.forClass( getClazz(), "udc" );
         userDetachedCriteria.createCriteria( "udc.userAccesses", "ua" );
@@ -1221,6 +1227,8 @@ public class HibernateIdentifiableObjectStore<T extends BaseIdentifiableObject>
             return predicates;
         }
 
+        Set<Long> userGroupIds = aclService.getUserGroupIds( user.getId() );
+
         Function<Root<T>, Subquery<Integer>> userGroupPredicate = (( Root<T> root ) -> {
             Subquery<Integer> userGroupSubQuery = criteria.subquery( Integer.class );
             Root<T> ugdc = userGroupSubQuery.from( getClazz() );
@@ -1230,7 +1238,7 @@ public class HibernateIdentifiableObjectStore<T extends BaseIdentifiableObject>
             return userGroupSubQuery.where(
                 builder.and(
                     builder.equal( root.get( "id" ), ugdc.get( "id" ) ),
-                    builder.equal( uga.join( "userGroup" ).join( "members" ).get( "id" ), user.getId() ),
+                    uga.get( "userGroup" ).get( "id" ).in( userGroupIds ),
                     builder.like( uga.get( "access" ), access ) ) );
         });
 
@@ -1247,13 +1255,22 @@ public class HibernateIdentifiableObjectStore<T extends BaseIdentifiableObject>
                     builder.like( ua.get( "access" ), access ) ) );
         });
 
-        predicates.add( root -> builder.or(
-            builder.like( root.get( "publicAccess" ), access ),
-            builder.isNull( root.get( "publicAccess" ) ),
-            builder.isNull( root.get( "user" ) ),
-            builder.equal( root.get( "user" ).get( "id" ), user.getId() ),
-            builder.exists( userGroupPredicate.apply( root ) ),
-            builder.exists( userPredicate.apply( root ) ) ) );
+        predicates.add( root -> {
+            List<Predicate> disjunction = new ArrayList<>();
+            disjunction.add( builder.like( root.get( "publicAccess" ), access ) );
+            disjunction.add( builder.isNull( root.get( "publicAccess" ) ) );
+            disjunction.add( builder.isNull( root.get( "user" ) ) );
+            disjunction.add( builder.equal( root.get( "user" ).get( "id" ), user.getId() ) );
+
+            if ( !userGroupIds.isEmpty() )
+            {
+                disjunction.add( builder.exists( userGroupPredicate.apply( root ) ) );
+            }
+
+            disjunction.add( builder.exists( userPredicate.apply( root ) ) );
+
+            return builder.or( disjunction.toArray( new Predicate[0] ) );
+        } );
 
         return predicates;
     }
@@ -1272,6 +1289,8 @@ public class HibernateIdentifiableObjectStore<T extends BaseIdentifiableObject>
             return predicates;
         }
 
+        Set<Long> userGroupIds = aclService.getUserGroupIds( user.getId() );
+
         Function<Root<T>, Subquery<Integer>> userGroupPredicate = (( Root<T> root ) -> {
             Subquery<Integer> userGroupSubQuery = criteria.subquery( Integer.class );
             Root<T> ugdc = userGroupSubQuery.from( getClazz() );
@@ -1281,7 +1300,7 @@ public class HibernateIdentifiableObjectStore<T extends BaseIdentifiableObject>
             return userGroupSubQuery.where(
                 builder.and(
                     builder.equal( root.get( "id" ), ugdc.get( "id" ) ),
-                    builder.equal( uga.join( "userGroup" ).join( "members" ).get( "id" ), user.getId() ),
+                    uga.get( "userGroup" ).get( "id" ).in( userGroupIds ),
                     builder.like( uga.get( "access" ), access ) ) );
         });
 
@@ -1298,11 +1317,20 @@ public class HibernateIdentifiableObjectStore<T extends BaseIdentifiableObject>
                     builder.like( ua.get( "access" ), access ) ) );
         });
 
-        predicates.add( root -> builder.or(
-            builder.like( root.get( "publicAccess" ), access ),
-            builder.isNull( root.get( "publicAccess" ) ),
-            builder.exists( userGroupPredicate.apply( root ) ),
-            builder.exists( userPredicate.apply( root ) ) ) );
+        predicates.add( root -> {
+            List<Predicate> disjunction = new ArrayList<>();
+            disjunction.add( builder.like( root.get( "publicAccess" ), access ) );
+            disjunction.add( builder.isNull( root.get( "publicAccess" ) ) );
+
+            if ( !userGroupIds.isEmpty() )
+            {
+                disjunction.add( builder.exists( userGroupPredicate.apply( root ) ) );
+            }
+
+            disjunction.add( builder.exists( userPredicate.apply( root ) ) );
+
+            return builder.or( disjunction.toArray( new Predicate[0] ) );
+        } );
 
         return predicates;
     }
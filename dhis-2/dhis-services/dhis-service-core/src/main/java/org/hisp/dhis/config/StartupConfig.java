@@ -47,6 +47,7 @@ import org.hisp.dhis.period.PeriodTypePopulator;
 import org.hisp.dhis.scheduling.JobConfigurationService;
 import org.hisp.dhis.scheduling.SchedulingManager;
 import org.hisp.dhis.setting.SystemSettingManager;
+import org.hisp.dhis.startup.CacheWarmupRoutine;
 import org.hisp.dhis.startup.ConfigurationPopulator;
 import org.hisp.dhis.startup.DefaultAdminUserPopulator;
 import org.hisp.dhis.startup.ExpressionUpgrader;
@@ -55,6 +56,7 @@ import org.hisp.dhis.startup.ModelUpgrader;
 import org.hisp.dhis.startup.SchedulerStart;
 import org.hisp.dhis.startup.SettingUpgrader;
 import org.hisp.dhis.startup.TwoFAPopulator;
+import org.hisp.dhis.system.startup.WarmupService;
 import org.hisp.dhis.user.CurrentUserService;
 import org.hisp.dhis.user.UserService;
 import org.springframework.context.annotation.Bean;
@@ -174,4 +176,14 @@ public class StartupConfig
         schedulerStart.setSkipInTests( true );
         return schedulerStart;
     }
+
+    @Bean( "org.hisp.dhis.startup.CacheWarmupRoutine" )
+    public CacheWarmupRoutine cacheWarmupRoutine( WarmupService warmupService )
+    {
+        CacheWarmupRoutine routine = new CacheWarmupRoutine( warmupService );
+        routine.setName( "CacheWarmupRoutine" );
+        routine.setRunlevel( 20 );
+        routine.setSkipInTests( true );
+        return routine;
+    }
 }
@@ -664,15 +664,21 @@ public class DefaultDataApprovalService
         {
             List<DataApproval> dataApprovals = entry.getValue();
 
-            Set<OrganisationUnit> orgUnits = dataApprovals.stream().map( DataApproval::getOrganisationUnit ).collect( Collectors.toSet() );
-
             DataApproval da = dataApprovals.get( 0 );
 
-            List<DataApprovalStatus> statuses = dataApprovalStore.getDataApprovalStatuses( da.getWorkflow(),
-                da.getPeriod(), orgUnits, da.getOrganisationUnit().getHierarchyLevel(), null,
-                getCategoryOptionCombos( dataApprovals ), dataApprovalLevelService
-                    .getUserDataApprovalLevelsOrLowestLevel( currentUserService.getCurrentUser(), da.getWorkflow() ),
-                dataApprovalLevelService.getDataApprovalLevelMap() );
+            List<DataApprovalStatus> statuses = getDataApprovalStatuses( dataApprovals );
+
+            if ( statuses.isEmpty() )
+            {
+                // Nothing is returned for any org unit if one of them is not
+                // visible to the user, so check the org units one by one
+
+                statuses = dataApprovals.stream()
+                    .collect( Collectors.groupingBy( DataApproval::getOrganisationUnit ) ).values().stream()
+                    .filter( orgUnitApprovals -> orgUnitApprovals.size() < dataApprovals.size() )
+                    .flatMap( orgUnitApprovals -> getDataApprovalStatuses( orgUnitApprovals ).stream() )
+                    .collect( Collectors.toList() );
+            }
 
             for ( DataApprovalStatus status : statuses )
             {
@@ -685,6 +691,23 @@ public class DefaultDataApprovalService
         return statusMap;
     }
 
+    /**
+     * Returns the data approval statuses for a list of data approvals which
+     * share the same organisation unit level, period, and workflow.
+     */
+    private List<DataApprovalStatus> getDataApprovalStatuses( List<DataApproval> dataApprovals )
+    {
+        Set<OrganisationUnit> orgUnits = dataApprovals.stream().map( DataApproval::getOrganisationUnit ).collect( Collectors.toSet() );
+
+        DataApproval da = dataApprovals.get( 0 );
+
+        return dataApprovalStore.getDataApprovalStatuses( da.getWorkflow(),
+            da.getPeriod(), orgUnits, da.getOrganisationUnit().getHierarchyLevel(), null,
+            getCategoryOptionCombos( dataApprovals ), dataApprovalLevelService
+                .getUserDataApprovalLevelsOrLowestLevel( currentUserService.getCurrentUser(), da.getWorkflow() ),
+            dataApprovalLevelService.getDataApprovalLevelMap() );
+    }
+
     /**
      * Returns an indexed map where the key is based on each distinct
      * combination of organisation unit level, period, and workflow.
@@ -706,14 +729,15 @@ public class DefaultDataApprovalService
     }
 
     /**
-     * Returns a key consisting of organisation unit, period, and workflow.
-     * Approval status with these three values in common can be fetched in
-     * one call for many values of attributeOptionCombo.
+     * Returns a key consisting of organisation unit level, period, and
+     * workflow. Approval status with these three values in common can be
+     * fetched in one call for many organisation units and values of
+     * attributeOptionCombo.
      */
     private String statusKey( DataApproval approval )
     {
         return approval == null ? null :
-            approval.getOrganisationUnit().getId() +
+            approval.getOrganisationUnit().getHierarchyLevel() +
                 IdentifiableObjectUtils.SEPARATOR + approval.getPeriod().getId() +
                 IdentifiableObjectUtils.SEPARATOR + approval.getWorkflow().getId();
     }
@@ -0,0 +1,144 @@
+package org.hisp.dhis.dataapproval.hibernate;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Set;
+
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hisp.dhis.category.CategoryCombo;
+import org.hisp.dhis.category.CategoryOption;
+import org.hisp.dhis.category.CategoryOptionCombo;
+import org.hisp.dhis.dataapproval.DataApproval;
+import org.hisp.dhis.dataapproval.DataApprovalLevel;
+import org.hisp.dhis.dataapproval.DataApprovalStore;
+import org.hisp.dhis.dataapproval.DataApprovalWorkflow;
+import org.hisp.dhis.dataset.DataSet;
+import org.hisp.dhis.hibernate.CacheInvalidationListener;
+import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.hisp.dhis.user.UserGroup;
+import org.hisp.dhis.user.UserGroupAccess;
+import org.springframework.stereotype.Component;
+
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Keeps the cached approval state of {@link HibernateDataApprovalStore} up to
+ * date. Approval changes invalidate the state of their workflow period only.
+ * Other changes invalidate all state, but only if they touch data which the
+ * status query reads from the database. User restrictions are part of the
+ * query text and so never require an invalidation.
+ */
+@Component
+public class DataApprovalStateListener
+    extends CacheInvalidationListener
+{
+    /**
+     * Properties of org units read by the status query.
+     */
+    private static final Set<String> ORG_UNIT_PROPERTIES = ImmutableSet.of(
+        "name", "parent", "path", "hierarchyLevel" );
+
+    /**
+     * Properties of data sets read by the status query.
+     */
+    private static final Set<String> DATA_SET_PROPERTIES = ImmutableSet.of( "workflow" );
+
+    /**
+     * Collections read by the status query, besides the collections of
+     * attribute options, combos and option combos.
+     */
+    private static final Set<String> COLLECTION_ROLES = ImmutableSet.of(
+        DataSet.class.getName() + ".sources",
+        UserGroup.class.getName() + ".members" );
+
+    private final DataApprovalStore dataApprovalStore;
+
+    public DataApprovalStateListener( DataApprovalStore dataApprovalStore )
+    {
+        checkNotNull( dataApprovalStore );
+
+        this.dataApprovalStore = dataApprovalStore;
+    }
+
+    @Override
+    protected boolean isInvalidateOnCollectionChange()
+    {
+        return true;
+    }
+
+    @Override
+    public void onPostUpdate( PostUpdateEvent event )
+    {
+        Object entity = event.getEntity();
+
+        if ( (entity instanceof OrganisationUnit && !isAnyDirty( event, ORG_UNIT_PROPERTIES ))
+            || (entity instanceof DataSet && !isAnyDirty( event, DATA_SET_PROPERTIES )) )
+        {
+            return;
+        }
+
+        super.onPostUpdate( event );
+    }
+
+    @Override
+    protected void invalidate( Object entity )
+    {
+        if ( entity instanceof DataApproval )
+        {
+            DataApproval dataApproval = (DataApproval) entity;
+
+            dataApprovalStore.invalidateDataApprovalStatuses( dataApproval.getWorkflow(), dataApproval.getPeriod() );
+        }
+        else if ( entity instanceof OrganisationUnit
+            || entity instanceof DataSet
+            || entity instanceof DataApprovalLevel
+            || entity instanceof DataApprovalWorkflow
+            || entity instanceof CategoryOption
+            || entity instanceof CategoryOptionCombo
+            || entity instanceof CategoryCombo
+            || entity instanceof UserGroupAccess )
+        {
+            dataApprovalStore.invalidateDataApprovalStatuses();
+        }
+    }
+
+    @Override
+    protected void invalidateCollection( Object owner, String role )
+    {
+        if ( owner instanceof CategoryOption
+            || owner instanceof CategoryOptionCombo
+            || owner instanceof CategoryCombo
+            || COLLECTION_ROLES.contains( role ) )
+        {
+            dataApprovalStore.invalidateDataApprovalStatuses();
+        }
+    }
+}
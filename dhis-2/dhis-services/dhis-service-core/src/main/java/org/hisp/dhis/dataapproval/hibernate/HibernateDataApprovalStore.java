@@ -31,7 +31,10 @@ package org.hisp.dhis.dataapproval.hibernate;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static org.hisp.dhis.dataapproval.DataApprovalState.*;
 
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
@@ -43,6 +46,8 @@ import org.apache.commons.lang3.StringUtils;
 import org.hibernate.SessionFactory;
 import org.hisp.dhis.cache.Cache;
 import org.hisp.dhis.cache.CacheProvider;
+import org.hisp.dhis.cache.CacheRegionInvalidation;
+import org.hisp.dhis.cache.CacheRegionInvalidationEvent;
 import org.hisp.dhis.category.CategoryCombo;
 import org.hisp.dhis.category.CategoryOptionCombo;
 import org.hisp.dhis.category.CategoryService;
@@ -60,11 +65,14 @@ import org.hisp.dhis.user.CurrentUserService;
 import org.hisp.dhis.user.User;
 import org.hisp.dhis.util.DateUtils;
 import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
 import org.springframework.core.env.Environment;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.stereotype.Repository;
 
+import com.google.common.hash.Hashing;
+
 import lombok.extern.slf4j.Slf4j;
 
 /**
@@ -81,8 +89,28 @@ public class HibernateDataApprovalStore
     private static final String SQL_CONCAT = "-";
     private static final String SQL_CAT = StatementBuilder.QUOTE + SQL_CONCAT + StatementBuilder.QUOTE;
 
+    private static final String IS_APPROVED_REGION = "isDataApproved";
+
+    private static final String STATE_REGION = "dataApprovalState";
+
+    private static final String STATE_VERSION_REGION = "dataApprovalStateVersion";
+
     private Cache<Boolean> IS_APPROVED_CACHE;
 
+    /**
+     * Approval state rows keyed on workflow period version and status query.
+     * Entries of a workflow period become unreachable as soon as data is
+     * approved, unapproved, accepted or unaccepted for it, and all entries are
+     * dropped when metadata affecting approval state changes. Invalidations
+     * are published to be applied by the other nodes of a cluster as well.
+     */
+    private Cache<StatusRows> APPROVAL_STATE_CACHE;
+
+    /**
+     * Version of the approval state of each workflow period.
+     */
+    private Cache<Long> APPROVAL_STATE_VERSION_CACHE;
+
     // -------------------------------------------------------------------------
     // Dependencies
     // -------------------------------------------------------------------------
@@ -141,9 +169,19 @@ public class HibernateDataApprovalStore
     public void init()
     {
         IS_APPROVED_CACHE = cacheProvider.newCacheBuilder( Boolean.class )
-            .forRegion( "isDataApproved" )
+            .forRegion( IS_APPROVED_REGION )
             .expireAfterAccess( 12, TimeUnit.HOURS )
             .withMaximumSize( SystemUtils.isTestRun(env.getActiveProfiles()) ? 0 : 20000 ).build();
+
+        APPROVAL_STATE_CACHE = cacheProvider.newCacheBuilder( StatusRows.class )
+            .forRegion( STATE_REGION )
+            .expireAfterWrite( 1, TimeUnit.HOURS )
+            .withMaximumSize( SystemUtils.isTestRun(env.getActiveProfiles()) ? 0 : 10000 ).build();
+
+        APPROVAL_STATE_VERSION_CACHE = cacheProvider.newCacheBuilder( Long.class )
+            .forRegion( STATE_VERSION_REGION )
+            .expireAfterWrite( 12, TimeUnit.HOURS )
+            .withMaximumSize( SystemUtils.isTestRun(env.getActiveProfiles()) ? 0 : 20000 ).build();
     }
 
     // -------------------------------------------------------------------------
@@ -153,37 +191,37 @@ public class HibernateDataApprovalStore
     @Override
     public void addDataApproval( DataApproval dataApproval )
     {
-        IS_APPROVED_CACHE.invalidateAll();
-
         dataApproval.setPeriod( periodService.reloadPeriod( dataApproval.getPeriod() ) );
 
+        invalidateDataApprovals( dataApproval.getWorkflow(), dataApproval.getPeriod() );
+
         save( dataApproval );
     }
 
     @Override
     public void updateDataApproval( DataApproval dataApproval )
     {
-        IS_APPROVED_CACHE.invalidateAll();
-
         dataApproval.setPeriod( periodService.reloadPeriod( dataApproval.getPeriod() ) );
 
+        invalidateDataApprovals( dataApproval.getWorkflow(), dataApproval.getPeriod() );
+
         update( dataApproval );
     }
 
     @Override
     public void deleteDataApproval( DataApproval dataApproval )
     {
-        IS_APPROVED_CACHE.invalidateAll();
-
         dataApproval.setPeriod( periodService.reloadPeriod( dataApproval.getPeriod() ) );
 
+        invalidateDataApprovals( dataApproval.getWorkflow(), dataApproval.getPeriod() );
+
         delete( dataApproval );
     }
 
     @Override
     public void deleteDataApprovals( OrganisationUnit organisationUnit )
     {
-        IS_APPROVED_CACHE.invalidateAll();
+        invalidateDataApprovals( null, null );
 
         String hql = "delete from DataApproval d where d.organisationUnit = :unit";
 
@@ -191,6 +229,98 @@ public class HibernateDataApprovalStore
             setParameter( "unit", organisationUnit ).executeUpdate();
     }
 
+    @Override
+    public void invalidateDataApprovalStatuses( DataApprovalWorkflow workflow, Period period )
+    {
+        publish( invalidateStatuses( workflow, period ) );
+    }
+
+    @Override
+    public void invalidateDataApprovalStatuses()
+    {
+        invalidateDataApprovalStatuses( null, null );
+    }
+
+    /**
+     * Applies invalidations of the approval caches received from other
+     * cluster nodes. A workflow period version is dropped rather than
+     * replaced, so that the next lookup on this node starts a new version.
+     */
+    @EventListener( condition = "#event.remote" )
+    public void handleRemoteInvalidation( CacheRegionInvalidationEvent event )
+    {
+        for ( CacheRegionInvalidation invalidation : event.getInvalidations() )
+        {
+            Cache<?> cache = getCache( invalidation.getRegion() );
+
+            if ( cache == null )
+            {
+                continue;
+            }
+
+            if ( invalidation.isAll() )
+            {
+                cache.invalidateAll();
+            }
+            else
+            {
+                cache.invalidate( invalidation.getKey() );
+            }
+        }
+    }
+
+    private void invalidateDataApprovals( DataApprovalWorkflow workflow, Period period )
+    {
+        IS_APPROVED_CACHE.invalidateAll();
+
+        publish( CacheRegionInvalidation.all( IS_APPROVED_REGION ), invalidateStatuses( workflow, period ) );
+    }
+
+    /**
+     * Invalidates the approval state of the given workflow period, or all
+     * approval state if no workflow period is given.
+     *
+     * @return the invalidation to publish.
+     */
+    private CacheRegionInvalidation invalidateStatuses( DataApprovalWorkflow workflow, Period period )
+    {
+        if ( workflow == null || period == null || period.getId() == 0 )
+        {
+            APPROVAL_STATE_CACHE.invalidateAll();
+
+            return CacheRegionInvalidation.all( STATE_REGION );
+        }
+
+        String versionKey = getStateVersionKey( workflow.getId(), period.getId() );
+
+        APPROVAL_STATE_VERSION_CACHE.put( versionKey, newStateVersion() );
+
+        return CacheRegionInvalidation.key( STATE_VERSION_REGION, versionKey );
+    }
+
+    private Cache<?> getCache( String region )
+    {
+        if ( IS_APPROVED_REGION.equals( region ) )
+        {
+            return IS_APPROVED_CACHE;
+        }
+        else if ( STATE_REGION.equals( region ) )
+        {
+            return APPROVAL_STATE_CACHE;
+        }
+        else if ( STATE_VERSION_REGION.equals( region ) )
+        {
+            return APPROVAL_STATE_VERSION_CACHE;
+        }
+
+        return null;
+    }
+
+    private void publish( CacheRegionInvalidation... invalidations )
+    {
+        publisher.publishEvent( new CacheRegionInvalidationEvent( this, Arrays.asList( invalidations ), false ) );
+    }
+
     @Override
     public DataApproval getDataApproval( DataApproval dataApproval )
     {
@@ -322,6 +452,7 @@ public class HibernateDataApprovalStore
 
         final String startDate = DateUtils.getMediumDateString( period.getStartDate() );
         final String endDate = DateUtils.getMediumDateString( period.getEndDate() );
+        final int workflowPeriodId = getWorkflowPeriodId( workflow, endDate );
 
         DataApprovalLevel highestApprovalLevel = approvalLevels.get( 0 );
         DataApprovalLevel highestUserApprovalLevel = userApprovalLevels.get( 0 );
@@ -508,7 +639,7 @@ public class HibernateDataApprovalStore
                 "join dataapprovallevel dal on dal.dataapprovallevelid = da.dataapprovallevelid " +
                 highestApprovedOrgUnitJoin +
                 "where da.workflowid = " + workflow.getId() + " " +
-                "and da.periodid = " + getWorkflowPeriodId( workflow, endDate ) + " " +
+                "and da.periodid = " + workflowPeriodId + " " +
                 "and da.attributeoptioncomboid = coc.categoryoptioncomboid " +
                 "and " + highestApprovedOrgUnitCompare + userApprovalLevelRestrictions +
             ") as highest_approved, " +
@@ -571,18 +702,18 @@ public class HibernateDataApprovalStore
         // Fetch query results and process them
         // ---------------------------------------------------------------------
 
-        SqlRowSet rowSet = jdbcTemplate.queryForRowSet( sql );
+        List<StatusRow> rows = getStatusRows( workflow, workflowPeriodId, sql );
 
         List<DataApprovalStatus> statusList = new ArrayList<>();
 
-        while ( rowSet.next() )
+        for ( StatusRow row : rows )
         {
-            final String aocUid = rowSet.getString( 1 );
-            final String ouUid = rowSet.getString( 2 );
-            final String ouName = rowSet.getString( 3 );
-            final String highestApproved = rowSet.getString( 4 );
-            final boolean readyBelow = rowSet.getBoolean( 5 );
-            boolean approvedAbove = rowSet.getBoolean( 6 );
+            final String aocUid = row.aocUid;
+            final String ouUid = row.ouUid;
+            final String ouName = row.ouName;
+            final String highestApproved = row.highestApproved;
+            final boolean readyBelow = row.readyBelow;
+            boolean approvedAbove = row.approvedAbove;
 
             final String[] approved = highestApproved == null ? null : highestApproved.split( SQL_CONCAT );
             final int level = approved == null ? 0 : Integer.parseInt( approved[ 0 ] ) - MAX_APPROVAL_LEVEL;
@@ -621,6 +752,57 @@ public class HibernateDataApprovalStore
         return statusList;
     }
 
+    /**
+     * Returns the approval state rows for the given status query. The rows
+     * only depend on the query text and on the approvals of the workflow
+     * period, so they are looked up in the approval state cache under the
+     * current version of the workflow period and the digest of the query.
+     *
+     * @param workflow workflow we are checking
+     * @param workflowPeriodId id of the workflow period we are checking.
+     * @param sql the status query.
+     * @return the approval state rows.
+     */
+    private List<StatusRow> getStatusRows( DataApprovalWorkflow workflow, int workflowPeriodId, String sql )
+    {
+        String versionKey = getStateVersionKey( workflow.getId(), workflowPeriodId );
+
+        long version = APPROVAL_STATE_VERSION_CACHE.get( versionKey, key -> newStateVersion() ).orElse( 0L );
+
+        String key = versionKey + SQL_CONCAT + version + SQL_CONCAT + Hashing.sha256().hashString( sql, StandardCharsets.UTF_8 ).toString();
+
+        return APPROVAL_STATE_CACHE.get( key, k -> queryStatusRows( sql ) ).orElseGet( () -> queryStatusRows( sql ) ).rows;
+    }
+
+    private StatusRows queryStatusRows( String sql )
+    {
+        SqlRowSet rowSet = jdbcTemplate.queryForRowSet( sql );
+
+        StatusRows statusRows = new StatusRows();
+
+        while ( rowSet.next() )
+        {
+            statusRows.rows.add( new StatusRow( rowSet.getString( 1 ), rowSet.getString( 2 ), rowSet.getString( 3 ),
+                rowSet.getString( 4 ), rowSet.getBoolean( 5 ), rowSet.getBoolean( 6 ) ) );
+        }
+
+        return statusRows;
+    }
+
+    private String getStateVersionKey( long workflowId, long periodId )
+    {
+        return workflowId + SQL_CONCAT + periodId;
+    }
+
+    /**
+     * Returns a new random version, so that a version which was evicted from
+     * the version cache never matches state rows stored under an older one.
+     */
+    private long newStateVersion()
+    {
+        return ThreadLocalRandom.current().nextLong();
+    }
+
     /**
      * Get the id for the workflow period that spans the given end date.
      * The workflow period may or may not be the same as the period for which
@@ -676,4 +858,41 @@ public class HibernateDataApprovalStore
     {
         return pathPositionAtLevel( level.getOrgUnitLevel() );
     }
+
+    // -------------------------------------------------------------------------
+    // Supportive classes
+    // -------------------------------------------------------------------------
+
+    private static class StatusRows
+        implements Serializable
+    {
+        private final ArrayList<StatusRow> rows = new ArrayList<>();
+    }
+
+    private static class StatusRow
+        implements Serializable
+    {
+        private final String aocUid;
+
+        private final String ouUid;
+
+        private final String ouName;
+
+        private final String highestApproved;
+
+        private final boolean readyBelow;
+
+        private final boolean approvedAbove;
+
+        private StatusRow( String aocUid, String ouUid, String ouName, String highestApproved,
+            boolean readyBelow, boolean approvedAbove )
+        {
+            this.aocUid = aocUid;
+            this.ouUid = ouUid;
+            this.ouName = ouName;
+            this.highestApproved = highestApproved;
+            this.readyBelow = readyBelow;
+            this.approvedAbove = approvedAbove;
+        }
+    }
 }
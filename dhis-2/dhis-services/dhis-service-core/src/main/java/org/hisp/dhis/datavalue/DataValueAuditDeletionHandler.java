@@ -30,18 +30,27 @@ package org.hisp.dhis.datavalue;
 
 import org.hisp.dhis.dataelement.DataElement;
 import org.hisp.dhis.category.CategoryOptionCombo;
+import org.hisp.dhis.commons.util.TextUtils;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.period.Period;
 import org.hisp.dhis.system.deletion.DeletionHandler;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
 
+import java.util.Collection;
+import java.util.Set;
+
+import com.google.common.collect.ImmutableSet;
+
 import static com.google.common.base.Preconditions.checkNotNull;
 
 @Component( "org.hisp.dhis.datavalue.DataValueAuditDeletionHandler" )
 public class DataValueAuditDeletionHandler
     extends DeletionHandler
 {
+    private static final Set<Class<?>> ALLOW_DELETE_ALL_TYPES = ImmutableSet.of(
+        DataElement.class, Period.class, OrganisationUnit.class, CategoryOptionCombo.class );
+
     // -------------------------------------------------------------------------
     // Dependencies
     // -------------------------------------------------------------------------
@@ -95,4 +104,42 @@ public class DataValueAuditDeletionHandler
         
         return jdbcTemplate.queryForObject( sql, Integer.class ) == 0 ? null : ERROR;
     }
+
+    @Override
+    public Set<Class<?>> getAllowDeleteAllTypes()
+    {
+        return ALLOW_DELETE_ALL_TYPES;
+    }
+
+    @Override
+    public String allowDeleteAll( Class<?> type, Collection<Long> ids )
+    {
+        String idList = TextUtils.getCommaDelimitedString( ids );
+
+        String sql;
+
+        if ( DataElement.class.equals( type ) )
+        {
+            sql = "SELECT COUNT(*) FROM datavalueaudit where dataelementid in (" + idList + ")";
+        }
+        else if ( Period.class.equals( type ) )
+        {
+            sql = "SELECT COUNT(*) FROM datavalueaudit where periodid in (" + idList + ")";
+        }
+        else if ( OrganisationUnit.class.equals( type ) )
+        {
+            sql = "SELECT COUNT(*) FROM datavalueaudit where organisationunitid in (" + idList + ")";
+        }
+        else if ( CategoryOptionCombo.class.equals( type ) )
+        {
+            sql = "SELECT COUNT(*) FROM datavalueaudit where categoryoptioncomboid in (" + idList + ")"
+                + " or attributeoptioncomboid in (" + idList + ")";
+        }
+        else
+        {
+            return null;
+        }
+
+        return jdbcTemplate.queryForObject( sql, Integer.class ) == 0 ? null : ERROR;
+    }
 }
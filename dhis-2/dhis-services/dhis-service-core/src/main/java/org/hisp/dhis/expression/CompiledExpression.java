@@ -0,0 +1,222 @@
+package org.hisp.dhis.expression;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.hisp.dhis.parser.expression.antlr.ExpressionParser.ExprContext;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.hisp.dhis.antlr.AntlrExpressionVisitor;
+import org.hisp.dhis.antlr.Parser;
+import org.hisp.dhis.common.DimensionalItemObject;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * An expression which has been parsed once, and which can be evaluated many
+ * times without being parsed again.
+ * <p/>
+ * If the expression is indexed, each dimensional item in the parse tree has
+ * been assigned an index into an array of item values, so that items can be
+ * evaluated without building and looking up a map of item values keyed by
+ * item identifier.
+ * <p/>
+ * Instances are immutable and safe to share between threads.
+ *
+ * @see DefaultExpressionService
+ */
+public final class CompiledExpression
+{
+    private final String expression;
+
+    private final ExprContext parseTree;
+
+    private final List<String> itemKeys;
+
+    private final Map<String, Integer> itemKeyIndexMap;
+
+    private final Map<ExprContext, Integer> itemIndexMap;
+
+    private final boolean indexed;
+
+    /**
+     * Creates a compiled expression.
+     *
+     * @param expression the expression.
+     * @param parseTree the parse tree of the expression.
+     * @param itemIndexMap the index of each item context, or null if the
+     *        expression cannot be evaluated by item index.
+     * @param itemKeys the item keys in item index order.
+     */
+    CompiledExpression( String expression, ExprContext parseTree,
+        Map<ExprContext, Integer> itemIndexMap, List<String> itemKeys )
+    {
+        this.expression = expression;
+        this.parseTree = parseTree;
+        this.indexed = itemIndexMap != null;
+        this.itemIndexMap = indexed
+            ? Collections.unmodifiableMap( new IdentityHashMap<>( itemIndexMap ) )
+            : null;
+        this.itemKeys = indexed ? ImmutableList.copyOf( itemKeys ) : ImmutableList.of();
+
+        Map<String, Integer> keyIndexMap = new HashMap<>();
+
+        for ( int i = 0; i < this.itemKeys.size(); i++ )
+        {
+            keyIndexMap.put( this.itemKeys.get( i ), i );
+        }
+
+        this.itemKeyIndexMap = Collections.unmodifiableMap( keyIndexMap );
+    }
+
+    // -------------------------------------------------------------------------
+    // Logic
+    // -------------------------------------------------------------------------
+
+    /**
+     * Parses an expression and returns the top-level expression context of
+     * its parse tree.
+     *
+     * @param expression the expression to parse.
+     * @return the top-level expression context.
+     * @throws org.hisp.dhis.antlr.ParserException if the expression could not
+     *         be parsed.
+     */
+    public static ExprContext parse( String expression )
+    {
+        ParseTreeCapture capture = new ParseTreeCapture();
+
+        Parser.visit( expression, capture );
+
+        return capture.parseTree;
+    }
+
+    /**
+     * Returns the key by which values of the given item are looked up, which
+     * is the dimension item identifier followed by the period offset, if any.
+     *
+     * @param item the dimensional item object.
+     * @return the item key.
+     */
+    public static String getItemKey( DimensionalItemObject item )
+    {
+        return item.getDimensionItem() + (item.getPeriodOffset() == 0 ? "" : "." + item.getPeriodOffset());
+    }
+
+    /**
+     * Builds the array of item values for evaluating this expression by item
+     * index. Values for items that are not in the expression are ignored.
+     *
+     * @param valueMap the values by dimensional item object.
+     * @return the item values by item index.
+     */
+    public Double[] getItemValues( Map<DimensionalItemObject, Double> valueMap )
+    {
+        Double[] values = new Double[itemKeys.size()];
+
+        for ( Map.Entry<DimensionalItemObject, Double> entry : valueMap.entrySet() )
+        {
+            Integer index = itemKeyIndexMap.get( getItemKey( entry.getKey() ) );
+
+            if ( index != null )
+            {
+                values[index] = entry.getValue();
+            }
+        }
+
+        return values;
+    }
+
+    // -------------------------------------------------------------------------
+    // Getters
+    // -------------------------------------------------------------------------
+
+    public String getExpression()
+    {
+        return expression;
+    }
+
+    public ExprContext getParseTree()
+    {
+        return parseTree;
+    }
+
+    /**
+     * Indicates whether the items of this expression can be evaluated by item
+     * index. This is not the case for expressions which aggregate samples,
+     * which must look up item values for each sample period.
+     */
+    public boolean isIndexed()
+    {
+        return indexed;
+    }
+
+    public Map<ExprContext, Integer> getItemIndexMap()
+    {
+        return itemIndexMap;
+    }
+
+    /**
+     * Gets the keys of the dimensional items in this expression, in item
+     * index order.
+     */
+    public List<String> getItemKeys()
+    {
+        return itemKeys;
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive classes
+    // -------------------------------------------------------------------------
+
+    /**
+     * Visitor which captures the top-level expression context of the parse
+     * tree without visiting it.
+     */
+    private static class ParseTreeCapture
+        extends AntlrExpressionVisitor
+    {
+        private ExprContext parseTree;
+
+        @Override
+        public Object visitExpr( ExprContext ctx )
+        {
+            if ( parseTree == null )
+            {
+                parseTree = ctx;
+            }
+
+            return null;
+        }
+    }
+}
@@ -30,9 +30,12 @@ package org.hisp.dhis.expression;
 
 import com.google.common.collect.ImmutableMap;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.mutable.MutableBoolean;
 import org.hisp.dhis.analytics.DataType;
 import org.hisp.dhis.antlr.Parser;
 import org.hisp.dhis.antlr.ParserException;
+import org.hisp.dhis.cache.Cache;
+import org.hisp.dhis.cache.SimpleCacheBuilder;
 import org.hisp.dhis.category.CategoryService;
 import org.hisp.dhis.common.DimensionService;
 import org.hisp.dhis.common.DimensionalItemId;
@@ -49,6 +52,7 @@ import org.hisp.dhis.expression.dataitem.DimItemProgramAttribute;
 import org.hisp.dhis.expression.dataitem.DimItemProgramDataElement;
 import org.hisp.dhis.expression.dataitem.DimItemProgramIndicator;
 import org.hisp.dhis.expression.dataitem.DimItemReportingRate;
+import org.hisp.dhis.expression.dataitem.DimensionalItem;
 import org.hisp.dhis.expression.dataitem.ItemDays;
 import org.hisp.dhis.expression.dataitem.ItemOrgUnitGroup;
 import org.hisp.dhis.hibernate.HibernateGenericStore;
@@ -61,6 +65,7 @@ import org.hisp.dhis.parser.expression.ExpressionItem;
 import org.hisp.dhis.parser.expression.ExpressionItemMethod;
 import org.hisp.dhis.parser.expression.function.VectorAvg;
 import org.hisp.dhis.parser.expression.function.VectorCount;
+import org.hisp.dhis.parser.expression.function.VectorFunction;
 import org.hisp.dhis.parser.expression.function.VectorMax;
 import org.hisp.dhis.parser.expression.function.VectorMedian;
 import org.hisp.dhis.parser.expression.function.VectorMin;
@@ -75,13 +80,17 @@ import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -182,6 +191,18 @@ public class DefaultExpressionService
             .put( SIMPLE_TEST, COMMON_EXPRESSION_ITEMS )
             .build();
 
+    /**
+     * Compiled expressions by parse type and expression. The parse tree and
+     * item indexes depend only on the expression text and parse type, so
+     * entries never need to be invalidated.
+     */
+    private final static Cache<CompiledExpression> COMPILED_EXPRESSION_CACHE = new SimpleCacheBuilder<CompiledExpression>()
+        .forRegion( "compiledExpression" )
+        .expireAfterAccess( 10, TimeUnit.HOURS )
+        .withInitialCapacity( 1000 )
+        .withMaximumSize( 20000 )
+        .build();
+
     // -------------------------------------------------------------------------
     // Constructor
     // -------------------------------------------------------------------------
@@ -525,11 +546,24 @@ public class DefaultExpressionService
             return null;
         }
 
+        CompiledExpression compiled = getCompiledExpression( expression, parseType );
+
         CommonExpressionVisitor visitor = newVisitor( parseType, ITEM_EVALUATE,
             samplePeriods, constantMap, missingValueStrategy );
 
-        visitor.setItemValueMap( convertToIdentifierMap( valueMap ) );
-        visitor.setPeriodItemValueMap( convertToIdentifierPeriodMap( periodValueMap ) );
+        if ( compiled != null && compiled.isIndexed() )
+        {
+            visitor.setItemIndexMap( compiled.getItemIndexMap() );
+            visitor.setItemValues( compiled.getItemValues( valueMap ) );
+            visitor.setItemValueMap( new HashMap<>() );
+            visitor.setPeriodItemValueMap( new MapMap<>() );
+        }
+        else
+        {
+            visitor.setItemValueMap( convertToIdentifierMap( valueMap ) );
+            visitor.setPeriodItemValueMap( convertToIdentifierPeriodMap( periodValueMap ) );
+        }
+
         visitor.setOrgUnitCountMap( orgUnitCountMap );
 
         if ( days != null )
@@ -537,7 +571,9 @@ public class DefaultExpressionService
             visitor.setDays( Double.valueOf( days ) );
         }
 
-        Object value = visit( expression, parseType.getDataType(), visitor, true );
+        Object value = compiled != null
+            ? visit( expression, parseType.getDataType(), () -> visitor.visit( compiled.getParseTree() ), true )
+            : visit( expression, parseType.getDataType(), visitor, true );
 
         int itemsFound = visitor.getItemsFound();
         int itemValuesFound = visitor.getItemValuesFound();
@@ -598,6 +634,94 @@ public class DefaultExpressionService
             .buildForExpressions();
     }
 
+    /**
+     * Gets the compiled form of an expression from the cache, compiling it
+     * if not already cached.
+     *
+     * @param expression the expression.
+     * @param parseType the type of expression.
+     * @return the compiled expression, or null if the expression could not
+     *         be parsed.
+     */
+    private CompiledExpression getCompiledExpression( String expression, ParseType parseType )
+    {
+        try
+        {
+            return COMPILED_EXPRESSION_CACHE.get( parseType.name() + ":" + expression,
+                k -> compileExpression( expression, parseType ) ).orElse( null );
+        }
+        catch ( ParserException ex )
+        {
+            return null;
+        }
+    }
+
+    /**
+     * Parses an expression once and assigns each dimensional item in the parse
+     * tree an index into an array of item values. All paths of the expression
+     * are visited, so that items in branches which are not taken for some
+     * values are indexed as well.
+     * <p/>
+     * Expressions containing sample aggregation functions are not indexed, as
+     * their items must be looked up for each sample period.
+     *
+     * @param expression the expression.
+     * @param parseType the type of expression.
+     * @return the compiled expression.
+     */
+    private CompiledExpression compileExpression( String expression, ParseType parseType )
+    {
+        ExprContext parseTree = CompiledExpression.parse( expression );
+
+        Map<ExprContext, Integer> itemIndexMap = new IdentityHashMap<>();
+        List<String> itemKeys = new ArrayList<>();
+        Map<String, Integer> keyIndexMap = new HashMap<>();
+        MutableBoolean indexable = new MutableBoolean( true );
+
+        ExpressionItemMethod itemIndexer = ( item, ctx, visitor ) -> {
+            if ( item instanceof DimensionalItem )
+            {
+                String key = ((DimensionalItem) item).getId( ctx, visitor );
+
+                itemIndexMap.put( ctx, keyIndexMap.computeIfAbsent( key, k -> {
+                    itemKeys.add( k );
+                    return itemKeys.size() - 1;
+                } ) );
+
+                return DOUBLE_VALUE_IF_NULL;
+            }
+
+            if ( item instanceof VectorFunction )
+            {
+                indexable.setFalse();
+
+                return DOUBLE_VALUE_IF_NULL;
+            }
+
+            if ( ctx.expr().isEmpty() )
+            {
+                return DOUBLE_VALUE_IF_NULL;
+            }
+
+            return item.getItemId( ctx, visitor );
+        };
+
+        CommonExpressionVisitor visitor = newVisitor( parseType, itemIndexer,
+            DEFAULT_SAMPLE_PERIODS, new HashMap<>(), NEVER_SKIP );
+
+        try
+        {
+            visitor.visit( parseTree );
+        }
+        catch ( ParserException ex )
+        {
+            indexable.setFalse();
+        }
+
+        return new CompiledExpression( expression, parseTree,
+            indexable.isTrue() ? itemIndexMap : null, itemKeys );
+    }
+
     /**
      * Returns all non-aggregated and all aggregated dimensional item object ids
      * in the given expression.
@@ -635,10 +759,24 @@ public class DefaultExpressionService
      * @return the expression value.
      */
     private Object visit( String expression, DataType dataType, CommonExpressionVisitor visitor, boolean logWarnings )
+    {
+        return visit( expression, dataType, () -> Parser.visit( expression, visitor ), logWarnings );
+    }
+
+    /**
+     * Visits an expression and returns the expected expression type.
+     *
+     * @param expression the expresion to visit.
+     * @param dataType the expected data type of the expression value.
+     * @param visit the visit of the expression parse tree.
+     * @param logWarnings whether to log warnings or not.
+     * @return the expression value.
+     */
+    private Object visit( String expression, DataType dataType, Supplier<Object> visit, boolean logWarnings )
     {
         try
         {
-            Object result = Parser.visit( expression, visitor );
+            Object result = visit.get();
 
             switch( dataType )
             {
@@ -718,10 +856,7 @@ public class DefaultExpressionService
     private Map<String, Double> convertToIdentifierMap( Map<DimensionalItemObject, Double> valueMap )
     {
         return valueMap.entrySet().stream().collect(
-            Collectors.toMap(
-                e -> e.getKey().getDimensionItem()
-                    + (e.getKey().getPeriodOffset() == 0 ? "" : "." + e.getKey().getPeriodOffset()),
-                Map.Entry::getValue ) );
+            Collectors.toMap( e -> CompiledExpression.getItemKey( e.getKey() ), Map.Entry::getValue ) );
 
     }
 
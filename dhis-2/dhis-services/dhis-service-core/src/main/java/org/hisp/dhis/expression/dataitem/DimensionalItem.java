@@ -80,7 +80,11 @@ public abstract class DimensionalItem
     @Override
     public final Object evaluate( ExprContext ctx, CommonExpressionVisitor visitor )
     {
-        Double value = visitor.getItemValueMap().get( getId( ctx, visitor ) );
+        Integer index = visitor.getItemIndex( ctx );
+
+        Double value = index != null
+            ? visitor.getItemValues()[index]
+            : visitor.getItemValueMap().get( getId( ctx, visitor ) );
 
         return visitor.handleNulls( value );
     }
@@ -32,14 +32,20 @@ import java.awt.image.BufferedImage;
 import java.io.*;
 import java.net.URLConnection;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
 
 import org.hisp.dhis.commons.util.DebugUtils;
 import org.imgscalr.Scalr;
 import org.springframework.stereotype.Service;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 
 import lombok.extern.slf4j.Slf4j;
@@ -56,6 +62,20 @@ public class DefaultImageProcessingService implements ImageProcessingService
         ImageFileDimension.MEDIUM, new ImageSize( 512, 512 ),
         ImageFileDimension.LARGE, new ImageSize( 1024, 1024 ) );
 
+    /**
+     * Images wider than this factor times the largest target width are
+     * subsampled while decoding, which bounds the memory used for very large
+     * source images while leaving enough detail for a high quality resize.
+     */
+    private static final int SUBSAMPLING_FACTOR = 2;
+
+    /**
+     * Dimensions ordered from the largest to the smallest, as each size is
+     * derived from the previous one.
+     */
+    private static final List<ImageFileDimension> RESIZE_ORDER = ImmutableList.of(
+        ImageFileDimension.LARGE, ImageFileDimension.MEDIUM, ImageFileDimension.SMALL );
+
     @Override
     public Map<ImageFileDimension, File> createImages( FileResource fileResource, File file )
     {
@@ -68,26 +88,34 @@ public class DefaultImageProcessingService implements ImageProcessingService
 
         try
         {
-            BufferedImage image = ImageIO.read( file );
+            BufferedImage image = read( file, IMAGE_FILE_SIZES.get( RESIZE_ORDER.get( 0 ) ).width );
 
-            for ( ImageFileDimension dimension : ImageFileDimension.values() )
+            if ( image == null )
             {
-                if ( ImageFileDimension.ORIGINAL == dimension )
-                {
-                    images.put( dimension, file );
-                    continue;
-                }
+                log.error( "Image file resource cannot be decoded: " + fileResource.getUid() );
+                return new HashMap<>();
+            }
+
+            images.put( ImageFileDimension.ORIGINAL, file );
 
+            for ( ImageFileDimension dimension : RESIZE_ORDER )
+            {
                 ImageSize size = IMAGE_FILE_SIZES.get( dimension );
 
                 BufferedImage resizedImage = resize( image, size );
 
+                image.flush();
+
                 File tempFile = new File( file.getPath() + dimension.getDimension() );
 
                 ImageIO.write( resizedImage, fileResource.getFormat(), tempFile );
 
                 images.put( dimension, tempFile );
+
+                image = resizedImage;
             }
+
+            image.flush();
         }
         catch ( IOException e )
         {
@@ -99,6 +127,53 @@ public class DefaultImageProcessingService implements ImageProcessingService
         return images;
     }
 
+    /**
+     * Decodes the given image file. Images wider than the subsampling factor
+     * times the given target width are decoded with subsampling, so that only
+     * every n-th pixel is read into memory.
+     *
+     * @param file the image file.
+     * @param targetWidth the largest width the image will be resized to.
+     * @return the image, or null if the image cannot be decoded.
+     */
+    private BufferedImage read( File file, int targetWidth )
+        throws IOException
+    {
+        try ( ImageInputStream input = ImageIO.createImageInputStream( file ) )
+        {
+            Iterator<ImageReader> readers = input != null ? ImageIO.getImageReaders( input ) : null;
+
+            if ( readers == null || !readers.hasNext() )
+            {
+                return ImageIO.read( file );
+            }
+
+            ImageReader reader = readers.next();
+
+            try
+            {
+                reader.setInput( input, true, true );
+
+                int subsampling = Math.max( 1, reader.getWidth( 0 ) / (targetWidth * SUBSAMPLING_FACTOR) );
+
+                ImageReadParam param = reader.getDefaultReadParam();
+
+                if ( subsampling > 1 )
+                {
+                    log.debug( String.format( "Decoding image '%s' with subsampling %d", file.getName(), subsampling ) );
+
+                    param.setSourceSubsampling( subsampling, subsampling, 0, 0 );
+                }
+
+                return reader.read( 0, param );
+            }
+            finally
+            {
+                reader.dispose();
+            }
+        }
+    }
+
     private BufferedImage resize( BufferedImage image, ImageSize dimensions )
     {
         return Scalr.resize( image, Scalr.Method.BALANCED, Scalr.Mode.FIT_TO_WIDTH, dimensions.width, dimensions.height );
@@ -28,44 +28,93 @@ package org.hisp.dhis.fileresource;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.hisp.dhis.system.notification.NotificationLevel.ERROR;
+import static org.hisp.dhis.system.notification.NotificationLevel.INFO;
+
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
-import org.hisp.dhis.commons.util.DebugUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.hisp.dhis.external.conf.ConfigurationKey;
+import org.hisp.dhis.external.conf.DhisConfigurationProvider;
 import org.hisp.dhis.scheduling.AbstractJob;
 import org.hisp.dhis.scheduling.JobConfiguration;
 import org.hisp.dhis.scheduling.JobType;
+import org.hisp.dhis.system.notification.Notifier;
 import org.springframework.stereotype.Component;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
 import lombok.extern.slf4j.Slf4j;
 
 /**
  * Job will fetch all the image FileResources with flag hasMultiple set to false. It will process those image FileResources create three images files for each of them.
  * Once created, images will be stored at EWS and flag hasMultiple is set to true.
+ * <p>
+ * Images are processed by a bounded number of threads, configured with
+ * {@link ConfigurationKey#IMAGE_PROCESSING_PARALLELISM}. Progress and
+ * throughput are reported through the notifier, the backlog and the number of
+ * processed and failed images are exposed as metrics.
  *
  * @Author Zubair Asghar.
  */
 @Slf4j
 @Component( "imageResizingJob" )
-public class ImageResizingJob extends AbstractJob
+public class ImageResizingJob extends AbstractJob implements MeterBinder
 {
+    private static final int NOTIFY_INTERVAL = 100;
+
     private final FileResourceContentStore fileResourceContentStore;
 
     private final FileResourceService fileResourceService;
 
     private final ImageProcessingService imageProcessingService;
 
-    public ImageResizingJob(FileResourceContentStore fileResourceContentStore, FileResourceService fileResourceService,
-        ImageProcessingService imageProcessingService )
+    private final Notifier notifier;
+
+    private final int parallelism;
+
+    /**
+     * Number of images of the current run which are not yet processed.
+     */
+    private final AtomicInteger backlog = new AtomicInteger();
+
+    private final AtomicLong processedCount = new AtomicLong();
+
+    private final AtomicLong failedCount = new AtomicLong();
+
+    public ImageResizingJob( FileResourceContentStore fileResourceContentStore, FileResourceService fileResourceService,
+        ImageProcessingService imageProcessingService, Notifier notifier, DhisConfigurationProvider config )
     {
+        checkNotNull( fileResourceContentStore );
+        checkNotNull( fileResourceService );
+        checkNotNull( imageProcessingService );
+        checkNotNull( notifier );
+        checkNotNull( config );
+
         this.fileResourceContentStore = fileResourceContentStore;
         this.fileResourceService = fileResourceService;
         this.imageProcessingService = imageProcessingService;
+        this.notifier = notifier;
+        this.parallelism = Math.max( 1, NumberUtils.toInt(
+            config.getProperty( ConfigurationKey.IMAGE_PROCESSING_PARALLELISM ),
+            Integer.parseInt( ConfigurationKey.IMAGE_PROCESSING_PARALLELISM.getDefaultValue() ) ) );
     }
 
     @Override
@@ -79,64 +128,164 @@ public class ImageResizingJob extends AbstractJob
     {
         List<FileResource> fileResources = fileResourceService.getAllUnProcessedImagesFiles();
 
-        File tmpFile = null;
+        int total = fileResources.size();
+
+        backlog.set( total );
+
+        notifier.notify( jobConfiguration, INFO, String.format( "Processing %d images with %d threads",
+            total, parallelism ), false );
 
-        String storageKey;
+        long startTime = System.currentTimeMillis();
 
-        int count = 0;
+        long processedBefore = processedCount.get();
 
-        for ( FileResource fileResource : fileResources )
+        ExecutorService executor = Executors.newFixedThreadPool( parallelism,
+            new ThreadFactoryBuilder().setNameFormat( "image-resizing-%d" ).setDaemon( true ).build() );
+
+        try
         {
-            String key = fileResource.getStorageKey();
+            List<Future<?>> futures = new ArrayList<>();
 
-            tmpFile = new File( UUID.randomUUID().toString() );
+            for ( FileResource fileResource : fileResources )
+            {
+                futures.add( executor.submit( () -> {
+                    boolean processed = process( fileResource );
+
+                    (processed ? processedCount : failedCount).incrementAndGet();
+
+                    int done = total - backlog.decrementAndGet();
+
+                    if ( done % NOTIFY_INTERVAL == 0 )
+                    {
+                        notifier.notify( jobConfiguration, INFO, String.format(
+                            "Processed %d of %d images, %.1f images per second", done, total,
+                            getThroughput( done, startTime ) ), false );
+                    }
+                } ) );
+            }
 
-	    if ( !fileResourceContentStore.fileResourceContentExists( key ) )
+            for ( Future<?> future : futures )
             {
-                log.error( "The referenced file could not be found for FileResource: " + fileResource.getUid() );
-                continue;
+                future.get();
             }
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            notifier.notify( jobConfiguration, ERROR, "Image processing was interrupted", true );
+            return;
+        }
+        catch ( ExecutionException e )
+        {
+            log.error( "Image processing failed", e.getCause() );
+        }
+        finally
+        {
+            executor.shutdownNow();
+            backlog.set( 0 );
+        }
+
+        String message = String.format( "Number of FileResources processed: %d of %d, %.1f images per second",
+            processedCount.get() - processedBefore, total, getThroughput( total, startTime ) );
+
+        log.info( message );
+
+        notifier.notify( jobConfiguration, INFO, message, true );
+    }
+
+    @Override
+    public void bindTo( MeterRegistry registry )
+    {
+        Gauge.builder( "dhis.image.processing.backlog", backlog, AtomicInteger::get )
+            .description( "Number of images of the current run which are not yet processed" )
+            .register( registry );
+
+        FunctionCounter.builder( "dhis.image.processing.images", processedCount, AtomicLong::get )
+            .tags( "result", "processed" )
+            .description( "Number of images processed since startup" )
+            .register( registry );
+
+        FunctionCounter.builder( "dhis.image.processing.images", failedCount, AtomicLong::get )
+            .tags( "result", "failed" )
+            .description( "Number of images which failed to process since startup" )
+            .register( registry );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    /**
+     * Creates and stores the resized images of the given file resource.
+     *
+     * @return true if the images were stored, false otherwise.
+     */
+    private boolean process( FileResource fileResource )
+    {
+        String key = fileResource.getStorageKey();
+
+        if ( !fileResourceContentStore.fileResourceContentExists( key ) )
+        {
+            log.error( "The referenced file could not be found for FileResource: " + fileResource.getUid() );
+            return false;
+        }
+
+        File tmpFile = null;
+
+        try
+        {
+            tmpFile = Files.createTempFile( "dhis2-image-", ".tmp" ).toFile();
 
             try ( FileOutputStream fileOutputStream = new FileOutputStream( tmpFile ) )
             {
-
                 fileResourceContentStore.copyContent( key, fileOutputStream );
+            }
 
-                Map<ImageFileDimension, File> imageFiles = imageProcessingService.createImages( fileResource, tmpFile );
-
-                storageKey = fileResourceContentStore.saveFileResourceContent( fileResource, imageFiles );
+            Map<ImageFileDimension, File> imageFiles = imageProcessingService.createImages( fileResource, tmpFile );
 
-                if ( storageKey != null )
-                {
-                    fileResource.setHasMultipleStorageFiles( true );
-                    fileResourceService.updateFileResource( fileResource );
-                    count++;
-                }
-                else
-                {
-                    log.error( "File upload failed" );
-                }
+            if ( imageFiles.isEmpty() )
+            {
+                return false;
             }
-            catch ( Exception e )
+
+            String storageKey = fileResourceContentStore.saveFileResourceContent( fileResource, imageFiles );
+
+            if ( storageKey == null )
             {
-                DebugUtils.getStackTrace( e );
+                log.error( "File upload failed" );
+                return false;
             }
-            finally
+
+            fileResource.setHasMultipleStorageFiles( true );
+            fileResourceService.updateFileResource( fileResource );
+
+            return true;
+        }
+        catch ( Exception e )
+        {
+            log.error( "Image processing failed for FileResource: " + fileResource.getUid(), e );
+            return false;
+        }
+        finally
+        {
+            try
             {
-                try
+                if ( tmpFile != null )
                 {
-                    if ( tmpFile != null )
-                    {
-                        Files.deleteIfExists( tmpFile.toPath() );
-                    }
-                }
-                catch ( IOException ioe )
-                {
-                    log.warn( String.format( "Temporary file '%s' could not be deleted.", tmpFile.toPath() ), ioe );
+                    Files.deleteIfExists( tmpFile.toPath() );
                 }
             }
+            catch ( IOException ioe )
+            {
+                log.warn( String.format( "Temporary file '%s' could not be deleted.", tmpFile.toPath() ), ioe );
+            }
         }
+    }
+
+    private static double getThroughput( int count, long startTime )
+    {
+        long millis = Math.max( 1, System.currentTimeMillis() - startTime );
 
-        log.info( String.format( "Number of FileResources processed: %d", count ) );
+        return count * 1000d / millis;
     }
 }
@@ -30,12 +30,19 @@ package org.hisp.dhis.fileresource;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import java.io.EOFException;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
 import java.util.regex.Pattern;
 
@@ -48,10 +55,12 @@ import org.apache.commons.lang3.tuple.Pair;
 import org.hisp.dhis.external.conf.ConfigurationKey;
 import org.hisp.dhis.external.conf.DhisConfigurationProvider;
 import org.hisp.dhis.external.location.LocationManager;
+import org.hisp.dhis.external.location.LocationManagerException;
 import org.jclouds.ContextBuilder;
 import org.jclouds.blobstore.*;
 import org.jclouds.blobstore.domain.Blob;
 import org.jclouds.blobstore.internal.RequestSigningUnsupported;
+import org.jclouds.blobstore.options.GetOptions;
 import org.jclouds.domain.Credentials;
 import org.jclouds.domain.Location;
 import org.jclouds.domain.LocationBuilder;
@@ -374,11 +383,70 @@ public class JCloudsFileResourceContentStore
             throw new NoSuchElementException( "key '" + key + "' not found." );
         }
 
+        File file = getFileResourceContentFile( key );
+
+        if ( file != null )
+        {
+            transferContent( file, output, 0, file.length() );
+            return;
+        }
+
         Blob blob = getBlob( key );
 
         try ( InputStream in = blob.getPayload().openStream() )
         {
-            IOUtils.copy( in, output );
+            IOUtils.copyLarge( in, output );
+        }
+    }
+
+    @Override
+    public void copyContent( String key, OutputStream output, long offset, long length )
+        throws IOException, NoSuchElementException
+    {
+        if ( !blobExists( key ) )
+        {
+            throw new NoSuchElementException( "key '" + key + "' not found." );
+        }
+
+        if ( length <= 0 )
+        {
+            return;
+        }
+
+        File file = getFileResourceContentFile( key );
+
+        if ( file != null )
+        {
+            transferContent( file, output, offset, length );
+            return;
+        }
+
+        Blob blob = blobStore.getBlob( config.container, key, GetOptions.Builder.range( offset, offset + length - 1 ) );
+
+        try ( InputStream in = blob.getPayload().openStream() )
+        {
+            IOUtils.copyLarge( in, output, 0, length );
+        }
+    }
+
+    @Override
+    public File getFileResourceContentFile( String key )
+    {
+        if ( key == null || !JCLOUDS_PROVIDER_KEY_FILESYSTEM.equals( config.provider ) )
+        {
+            return null;
+        }
+
+        try
+        {
+            Path container = Paths.get( locationManager.getExternalDirectoryPath(), config.container ).normalize();
+            Path path = container.resolve( key ).normalize();
+
+            return path.startsWith( container ) && Files.isRegularFile( path ) ? path.toFile() : null;
+        }
+        catch ( LocationManagerException ex )
+        {
+            return null;
         }
     }
 
@@ -391,6 +459,36 @@ public class JCloudsFileResourceContentStore
         return blobStore.getBlob( config.container, key );
     }
 
+    /**
+     * Transfers the given range of the given file to the output stream through
+     * a file channel, which lets the operating system copy the content without
+     * passing it through the heap where possible.
+     */
+    private void transferContent( File file, OutputStream output, long offset, long length )
+        throws IOException
+    {
+        try ( FileChannel channel = FileChannel.open( file.toPath(), StandardOpenOption.READ ) )
+        {
+            WritableByteChannel target = Channels.newChannel( output );
+
+            long position = offset;
+            long remaining = length;
+
+            while ( remaining > 0 )
+            {
+                long transferred = channel.transferTo( position, remaining, target );
+
+                if ( transferred <= 0 )
+                {
+                    throw new EOFException( String.format( "Unexpected end of file '%s' at position %d", file, position ) );
+                }
+
+                position += transferred;
+                remaining -= transferred;
+            }
+        }
+    }
+
     private boolean blobExists( String key )
     {
         return key != null && blobStore.blobExists( config.container, key );
@@ -38,6 +38,7 @@ import java.io.UncheckedIOException;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.function.BiConsumer;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -113,6 +114,26 @@ public class DefaultKeyJsonValueService
         return keyJsonValueStore.getKeyJsonValueByNamespace( namespace );
     }
 
+    @Override
+    @Transactional( readOnly = true )
+    public void getKeyJsonValues( KeyJsonValueQuery query, boolean isAdmin, BiConsumer<String, String> consumer )
+    {
+        if ( !isAdmin && MetadataVersionService.METADATASTORE.equals( query.getNamespace() ) )
+        {
+            return;
+        }
+
+        keyJsonValueStore.getKeyJsonValues( query, consumer );
+    }
+
+    @Override
+    public void createIndex( String namespace, String path ) // Not transactional, index is built concurrently
+    {
+        KeyJsonValueQuery.getPathElements( path );
+
+        keyJsonValueStore.createIndex( namespace, path );
+    }
+
     @Override
     @Transactional
     public Long addKeyJsonValue( KeyJsonValue keyJsonValue )
@@ -28,30 +28,41 @@
 
 package org.hisp.dhis.keyjsonvalue.hibernate;
 
+import java.sql.PreparedStatement;
 import java.util.Date;
 import java.util.List;
+import java.util.function.BiConsumer;
 
 import javax.persistence.criteria.CriteriaBuilder;
 
+import lombok.extern.slf4j.Slf4j;
+
 import org.hibernate.SessionFactory;
 import org.hibernate.query.Query;
 import org.hisp.dhis.common.hibernate.HibernateIdentifiableObjectStore;
 import org.hisp.dhis.keyjsonvalue.KeyJsonValue;
+import org.hisp.dhis.keyjsonvalue.KeyJsonValueQuery;
 import org.hisp.dhis.keyjsonvalue.KeyJsonValueStore;
 import org.hisp.dhis.security.acl.AclService;
 import org.hisp.dhis.user.CurrentUserService;
+import org.hisp.dhis.user.UserInfo;
 import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.stereotype.Repository;
 
 /**
  * @author Stian Sandvold
  */
+@Slf4j
 @Repository( "org.hisp.dhis.keyjsonvalue.KeyJsonValueStore" )
 public class HibernateKeyJsonValueStore
     extends HibernateIdentifiableObjectStore<KeyJsonValue>
     implements KeyJsonValueStore
 {
+    private static final int FETCH_SIZE = 500;
+
     public HibernateKeyJsonValueStore( SessionFactory sessionFactory, JdbcTemplate jdbcTemplate,
         ApplicationEventPublisher publisher, CurrentUserService currentUserService, AclService aclService )
     {
@@ -113,4 +124,55 @@ public class HibernateKeyJsonValueStore
             .addPredicate( root -> builder.equal( root.get( "namespace" ), namespace ) )
             .addPredicate( root -> builder.equal( root.get( "key" ), key ) ) );
     }
+
+    @Override
+    public void getKeyJsonValues( KeyJsonValueQuery query, BiConsumer<String, String> consumer )
+    {
+        UserInfo user = currentUserService.getCurrentUserInfo();
+
+        Long userId = user == null || user.isSuper() ? null : user.getId();
+
+        KeyJsonValueQuerySqlBuilder builder = new KeyJsonValueQuerySqlBuilder( query, userId );
+
+        String sql = builder.getSql();
+
+        log.debug( "Datastore query SQL: " + sql );
+
+        // PostgreSQL only reads the result through a cursor when a fetch size
+        // is set and the query runs in a transaction, see the read-only
+        // transaction of the service
+
+        jdbcTemplate.query( connection -> {
+            PreparedStatement statement = connection.prepareStatement( sql );
+            statement.setFetchSize( FETCH_SIZE );
+            new ArgumentPreparedStatementSetter( builder.getParameters() ).setValues( statement );
+            return statement;
+        }, (RowCallbackHandler) rs -> consumer.accept( rs.getString( 1 ), rs.getString( 2 ) ) );
+    }
+
+    @Override
+    public void createIndex( String namespace, String path )
+    {
+        // A failed concurrent build leaves an invalid index behind, which
+        // would otherwise be kept as the index exists
+
+        List<Boolean> valid = jdbcTemplate.queryForList( "select i.indisvalid from pg_index i " +
+            "inner join pg_class c on i.indexrelid = c.oid where c.relname = ?", Boolean.class,
+            KeyJsonValueQuerySqlBuilder.getIndexName( namespace, path ) );
+
+        if ( valid.contains( false ) )
+        {
+            String sql = KeyJsonValueQuerySqlBuilder.getDropIndexSql( namespace, path );
+
+            log.info( "Dropping invalid datastore index: " + sql );
+
+            jdbcTemplate.execute( sql );
+        }
+
+        String sql = KeyJsonValueQuerySqlBuilder.getCreateIndexSql( namespace, path );
+
+        log.info( "Creating datastore index: " + sql );
+
+        jdbcTemplate.execute( sql );
+    }
 }
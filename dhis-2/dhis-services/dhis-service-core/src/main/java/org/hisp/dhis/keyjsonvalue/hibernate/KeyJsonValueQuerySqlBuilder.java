@@ -0,0 +1,291 @@
+package org.hisp.dhis.keyjsonvalue.hibernate;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.hisp.dhis.system.util.SqlUtils.escapeLikeWildcards;
+import static org.hisp.dhis.system.util.SqlUtils.singleQuote;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import org.hisp.dhis.keyjsonvalue.KeyJsonValueQuery;
+import org.hisp.dhis.keyjsonvalue.KeyJsonValueQuery.Filter;
+import org.hisp.dhis.keyjsonvalue.KeyJsonValueQuery.Operator;
+import org.hisp.dhis.security.acl.AclService;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+
+/**
+ * Builds PostgreSQL queries on the {@code keyjsonvalue} table for a
+ * {@link KeyJsonValueQuery}, using the jsonb path operators on the value
+ * column.
+ * <p>
+ * JSON paths and the namespace are written as literals so that the query
+ * matches the per namespace expression indexes created with
+ * {@link #getCreateIndexSql(String, String)}. Filter values are passed as
+ * parameters.
+ */
+public class KeyJsonValueQuerySqlBuilder
+{
+    private static final Pattern JSON_LITERAL = Pattern.compile(
+        "true|false|null|-?(0|[1-9][0-9]*)(\\.[0-9]+)?([eE][+-]?[0-9]+)?" );
+
+    private static final int MAX_IDENTIFIER_LENGTH = 63;
+
+    private final KeyJsonValueQuery query;
+
+    private final Long userId;
+
+    private final List<Object> parameters = new ArrayList<>();
+
+    /**
+     * @param query the query.
+     * @param userId the identifier of the user to restrict entries by
+     *        sharing for, or null to not restrict entries by sharing.
+     */
+    public KeyJsonValueQuerySqlBuilder( KeyJsonValueQuery query, Long userId )
+    {
+        this.query = query;
+        this.userId = userId;
+    }
+
+    /**
+     * Returns the SQL query. The query returns the key as the first column and
+     * the value, or the projection of the value, as JSON text as the second
+     * column.
+     */
+    public String getSql()
+    {
+        parameters.clear();
+
+        String sql = "select kjv.namespacekey, " + getProjection() + " " +
+            "from keyjsonvalue kjv " +
+            "where kjv.namespace = " + singleQuote( query.getNamespace() ) + " " +
+            "and kjv.encrypted is not true ";
+
+        for ( Filter filter : query.getFilters() )
+        {
+            sql += "and " + getFilter( filter ) + " ";
+        }
+
+        if ( userId != null )
+        {
+            sql += "and " + getSharingFilter() + " ";
+        }
+
+        sql += "order by " + getOrder();
+
+        if ( query.isPaging() )
+        {
+            sql += " limit " + query.getLimit() + " offset " + query.getOffset();
+        }
+
+        return sql;
+    }
+
+    /**
+     * Returns the parameters of the SQL query, in order. Must be called after
+     * {@link #getSql()}.
+     */
+    public Object[] getParameters()
+    {
+        return parameters.toArray();
+    }
+
+    /**
+     * Returns SQL which creates an expression index on the given path for
+     * entries of the given namespace, unless the index exists. The index is
+     * built concurrently so that writes to the table are not blocked, which
+     * means that the SQL cannot run within a transaction.
+     *
+     * @param namespace the namespace.
+     * @param path the dot separated path.
+     * @return SQL for creating the index.
+     */
+    public static String getCreateIndexSql( String namespace, String path )
+    {
+        return "create index concurrently if not exists " + getIndexName( namespace, path ) + " " +
+            "on keyjsonvalue ((jbvalue " + getPathExpression( "#>", path ) + ")) " +
+            "where namespace = " + singleQuote( namespace );
+    }
+
+    /**
+     * Returns SQL which drops the expression index on the given path for
+     * entries of the given namespace if it exists. Used to remove an invalid
+     * index left behind by a failed concurrent build.
+     *
+     * @param namespace the namespace.
+     * @param path the dot separated path.
+     * @return SQL for dropping the index.
+     */
+    public static String getDropIndexSql( String namespace, String path )
+    {
+        return "drop index concurrently if exists " + getIndexName( namespace, path );
+    }
+
+    /**
+     * Returns the name of the expression index on the given path for entries
+     * of the given namespace.
+     *
+     * @param namespace the namespace.
+     * @param path the dot separated path.
+     * @return the index name.
+     */
+    public static String getIndexName( String namespace, String path )
+    {
+        String hash = Integer.toHexString( (namespace + "/" + path).hashCode() );
+        String name = ("in_keyjsonvalue_" + namespace + "_" + path).toLowerCase()
+            .replaceAll( "[^a-z0-9_]", "_" );
+
+        return name.substring( 0, Math.min( name.length(), MAX_IDENTIFIER_LENGTH - hash.length() - 1 ) ) + "_" + hash;
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private String getProjection()
+    {
+        if ( query.getFields().isEmpty() )
+        {
+            return "kjv.jbvalue::text";
+        }
+
+        return "jsonb_build_object(" + query.getFields().stream()
+            .map( field -> singleQuote( String.join( ".", KeyJsonValueQuery.getPathElements( field ) ) ) +
+                ", " + getPath( "#>", field ) )
+            .collect( Collectors.joining( ", " ) ) + ")::text";
+    }
+
+    private String getFilter( Filter filter )
+    {
+        String path = getPath( "#>", filter.getPath() );
+
+        switch ( filter.getOperator() )
+        {
+            case NULL:
+                return "(" + path + " is null or " + path + " = 'null'::jsonb)";
+            case NOT_NULL:
+                return "(" + path + " is not null and " + path + " <> 'null'::jsonb)";
+            case LIKE:
+                parameters.add( "%" + escapeLikeWildcards( filter.getValue() ) + "%" );
+                return getPath( "#>>", filter.getPath() ) + " like ?";
+            case ILIKE:
+                parameters.add( "%" + escapeLikeWildcards( filter.getValue() ) + "%" );
+                return getPath( "#>>", filter.getPath() ) + " ilike ?";
+            case IN:
+                List<String> values = Arrays.asList( filter.getValue().split( "," ) );
+                values.forEach( value -> parameters.add( toJson( value ) ) );
+                return path + " in (" + values.stream()
+                    .map( value -> "?::jsonb" ).collect( Collectors.joining( ", " ) ) + ")";
+            default:
+                parameters.add( toJson( filter.getValue() ) );
+                return path + " " + getOperator( filter.getOperator() ) + " ?::jsonb";
+        }
+    }
+
+    private String getOrder()
+    {
+        String direction = query.isOrderDescending() ? "desc" : "asc";
+
+        if ( query.getOrder() == null )
+        {
+            return "kjv.namespacekey " + direction;
+        }
+
+        return getPath( "#>", query.getOrder() ) + " " + direction + " nulls last, kjv.namespacekey asc";
+    }
+
+    private String getSharingFilter()
+    {
+        String access = singleQuote( AclService.LIKE_READ_METADATA );
+
+        return "(kjv.publicaccess is null " +
+            "or kjv.publicaccess like " + access + " " +
+            "or kjv.userid is null " +
+            "or kjv.userid = " + userId + " " +
+            "or exists (select 1 from keyjsonvalueuseraccesses kua " +
+            "inner join useraccess ua on kua.useraccessid = ua.useraccessid " +
+            "where kua.keyjsonvalueid = kjv.keyjsonvalueid " +
+            "and ua.userid = " + userId + " and ua.access like " + access + ") " +
+            "or exists (select 1 from keyjsonvalueusergroupaccesses kuga " +
+            "inner join usergroupaccess uga on kuga.usergroupaccessid = uga.usergroupaccessid " +
+            "inner join usergroupmembers ugm on uga.usergroupid = ugm.usergroupid " +
+            "where kuga.keyjsonvalueid = kjv.keyjsonvalueid " +
+            "and ugm.userid = " + userId + " and uga.access like " + access + "))";
+    }
+
+    private static String getPath( String operator, String path )
+    {
+        return "kjv.jbvalue " + getPathExpression( operator, path );
+    }
+
+    private static String getPathExpression( String operator, String path )
+    {
+        return operator + " '{" + String.join( ",", KeyJsonValueQuery.getPathElements( path ) ) + "}'";
+    }
+
+    private static String getOperator( Operator operator )
+    {
+        switch ( operator )
+        {
+            case EQ:
+                return "=";
+            case NE:
+                return "<>";
+            case GT:
+                return ">";
+            case GE:
+                return ">=";
+            case LT:
+                return "<";
+            case LE:
+                return "<=";
+            default:
+                throw new IllegalArgumentException( "Unsupported operator: " + operator );
+        }
+    }
+
+    /**
+     * Returns the given filter value as a JSON literal. Booleans, numbers and
+     * null are kept as is, any other value is treated as a string.
+     */
+    private static String toJson( String value )
+    {
+        if ( value != null && JSON_LITERAL.matcher( value ).matches() )
+        {
+            return value;
+        }
+
+        return "\"" + new String( JsonStringEncoder.getInstance().quoteAsString( String.valueOf( value ) ) ) + "\"";
+    }
+}
@@ -0,0 +1,85 @@
+package org.hisp.dhis.period;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.Calendar;
+import java.util.Date;
+
+import org.hisp.dhis.system.startup.WarmupTask;
+import org.springframework.stereotype.Component;
+
+/**
+ * Populates the period cache of each period type for the days of the past
+ * year, and generates the periods of the past years, which exercises the
+ * calendar code used by analytics and data entry.
+ */
+@Component
+public class PeriodWarmupTask
+    implements WarmupTask
+{
+    private static final int DAYS = 365;
+
+    @Override
+    public String getName()
+    {
+        return "Periods";
+    }
+
+    @Override
+    public void execute()
+    {
+        Calendar cal = Calendar.getInstance();
+        cal.set( Calendar.HOUR_OF_DAY, 0 );
+        cal.set( Calendar.MINUTE, 0 );
+        cal.set( Calendar.SECOND, 0 );
+        cal.set( Calendar.MILLISECOND, 0 );
+
+        Date today = cal.getTime();
+
+        for ( int i = 0; i < DAYS; i++ )
+        {
+            Date date = cal.getTime();
+
+            for ( PeriodType periodType : PeriodType.getAvailablePeriodTypes() )
+            {
+                periodType.createPeriod( date );
+            }
+
+            cal.add( Calendar.DATE, -1 );
+        }
+
+        for ( PeriodType periodType : PeriodType.getAvailablePeriodTypes() )
+        {
+            if ( periodType instanceof CalendarPeriodType )
+            {
+                ((CalendarPeriodType) periodType).generateLast5Years( today );
+            }
+        }
+    }
+}
@@ -149,6 +149,13 @@ public class DefaultProgramInstanceService
         return programInstance;
     }
 
+    @Override
+    @Transactional( readOnly = true )
+    public List<ProgramInstance> getProgramInstancesWithEventsAndAttributeValues( List<Long> ids )
+    {
+        return programInstanceStore.getWithEventsAndAttributeValues( ids );
+    }
+
     @Override
     @Transactional( readOnly = true )
     public ProgramInstance getProgramInstance( String uid )
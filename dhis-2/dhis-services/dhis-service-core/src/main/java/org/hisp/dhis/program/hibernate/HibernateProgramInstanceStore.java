@@ -38,8 +38,10 @@ import static org.hisp.dhis.util.DateUtils.nowMinusDuration;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.Objects;
 import java.util.Set;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
@@ -392,4 +394,38 @@ public class HibernateProgramInstanceStore
     {
         return (programInstance == null || programInstance.isDeleted()) ? null : programInstance;
     }
+
+    @Override
+    public List<ProgramInstance> getWithEventsAndAttributeValues( List<Long> ids )
+    {
+        String hql = "select distinct pi from ProgramInstance pi left join fetch pi.programStageInstances " +
+            "where pi.id in (:ids) and pi.deleted is false";
+
+        String teiHql = "select distinct tei from TrackedEntityInstance tei " +
+            "left join fetch tei.trackedEntityAttributeValues where tei.id in (:ids)";
+
+        List<ProgramInstance> programInstances = new ArrayList<>();
+
+        for ( List<Long> partition : Lists.partition( Lists.newArrayList( Sets.newHashSet( ids ) ), 20000 ) )
+        {
+            programInstances.addAll( getQuery( hql ).setParameter( "ids", partition ).list() );
+        }
+
+        // Initializes the attribute values of the tracked entity instances
+        // already referenced by the program instances in the session
+
+        List<Long> teiIds = programInstances.stream()
+            .map( ProgramInstance::getEntityInstance )
+            .filter( Objects::nonNull )
+            .map( TrackedEntityInstance::getId )
+            .distinct()
+            .collect( Collectors.toList() );
+
+        for ( List<Long> partition : Lists.partition( teiIds, 20000 ) )
+        {
+            getSession().createQuery( teiHql, TrackedEntityInstance.class ).setParameter( "ids", partition ).list();
+        }
+
+        return programInstances;
+    }
 }
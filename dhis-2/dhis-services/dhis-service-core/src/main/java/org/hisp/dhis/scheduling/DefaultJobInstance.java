@@ -50,26 +50,54 @@ public class DefaultJobInstance
 {
     private static final String NOT_LEADER_SKIP_LOG = "Not a leader, skipping job with jobType:%s and name:%s";
 
+    private static final String NO_LEASE_SKIP_LOG = "Lease not acquired, skipping job with jobType:%s and name:%s";
+
+    private static final String NO_LEASE_FAIL_LOG = "Job failed: '%s', job is running on another node, job type: '%s'";
+
     private SchedulingManager schedulingManager;
 
     private MessageService messageService;
 
     private LeaderManager leaderManager;
 
+    private JobLeaseManager jobLeaseManager;
+
+    /**
+     * Whether the job was triggered manually rather than by its schedule.
+     */
+    private boolean manual;
+
     @SuppressWarnings("unused")
     private DefaultJobInstance()
     {
     }
 
-    public DefaultJobInstance( SchedulingManager schedulingManager, MessageService messageService, LeaderManager leaderManager )
+    public DefaultJobInstance( SchedulingManager schedulingManager, MessageService messageService,
+        LeaderManager leaderManager, JobLeaseManager jobLeaseManager )
+    {
+        this( schedulingManager, messageService, leaderManager, jobLeaseManager, false );
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param manual whether the job was triggered manually. A manual execution
+     *        which cannot acquire the lease of the job is recorded as failed
+     *        instead of being skipped.
+     */
+    public DefaultJobInstance( SchedulingManager schedulingManager, MessageService messageService,
+        LeaderManager leaderManager, JobLeaseManager jobLeaseManager, boolean manual )
     {
         this.schedulingManager = schedulingManager;
         this.messageService = messageService;
         this.leaderManager = leaderManager;
+        this.jobLeaseManager = jobLeaseManager;
+        this.manual = manual;
 
         Preconditions.checkNotNull( schedulingManager );
         Preconditions.checkNotNull( messageService );
         Preconditions.checkNotNull( leaderManager );
+        Preconditions.checkNotNull( jobLeaseManager );
     }
 
     @Override
@@ -80,7 +108,25 @@ public class DefaultJobInstance
             return;
         }
 
-        if ( jobConfiguration.isLeaderOnlyJob() && !leaderManager.isLeader() )
+        final boolean leased = isLeased( jobConfiguration );
+
+        if ( leased )
+        {
+            if ( manual && !jobLeaseManager.tryAcquireForManualExecution( jobConfiguration ) )
+            {
+                log.warn( String.format( NO_LEASE_FAIL_LOG, jobConfiguration.getName(), jobConfiguration.getJobType() ) );
+
+                jobConfiguration.setLastExecutedStatus( JobStatus.FAILED );
+                schedulingManager.jobConfigurationFinished( jobConfiguration );
+                return;
+            }
+            else if ( !manual && !jobLeaseManager.tryAcquire( jobConfiguration ) )
+            {
+                log.debug( String.format( NO_LEASE_SKIP_LOG, jobConfiguration.getJobType(), jobConfiguration.getName() ) );
+                return;
+            }
+        }
+        else if ( jobConfiguration.isLeaderOnlyJob() && !leaderManager.isLeader() )
         {
             log.debug( String.format( NOT_LEADER_SKIP_LOG, jobConfiguration.getJobType(), jobConfiguration.getName() ) );
             return;
@@ -126,9 +172,25 @@ public class DefaultJobInstance
         finally
         {
             setFinishingStatus( clock, jobConfiguration );
+
+            if ( leased )
+            {
+                jobLeaseManager.release( jobConfiguration );
+            }
         }
     }
 
+    /**
+     * Indicates whether execution of the job is arbitrated through a cluster
+     * wide lease. In-memory jobs are local to the node and never leased.
+     *
+     * @param jobConfiguration the job configuration.
+     */
+    private boolean isLeased( JobConfiguration jobConfiguration )
+    {
+        return jobLeaseManager.isEnabled() && !jobConfiguration.isInMemoryJob() && jobConfiguration.getUid() != null;
+    }
+
     /**
      * Set status properties of job after finish. If the job was executed manually and the job is disabled we want
      * to set the status back to DISABLED.
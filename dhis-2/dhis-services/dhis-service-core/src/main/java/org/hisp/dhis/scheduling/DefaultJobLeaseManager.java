@@ -0,0 +1,202 @@
+package org.hisp.dhis.scheduling;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.UUID;
+
+import org.apache.commons.lang3.StringUtils;
+import org.hisp.dhis.external.conf.ConfigurationKey;
+import org.hisp.dhis.external.conf.DhisConfigurationProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * {@link JobLeaseManager} which arbitrates job execution between nodes through
+ * a shared {@link JobLeaseStore}. Several instances with distinct node
+ * identifiers can share one store, which is how a cluster is formed.
+ */
+@Slf4j
+@Service( "org.hisp.dhis.scheduling.JobLeaseManager" )
+public class DefaultJobLeaseManager
+    implements JobLeaseManager
+{
+    private final JobLeaseStore jobLeaseStore;
+
+    private final boolean enabled;
+
+    private final String nodeId;
+
+    private final int timeToLiveSeconds;
+
+    private final int gracePeriodSeconds;
+
+    private final Set<JobType> jobTypes;
+
+    @Autowired
+    public DefaultJobLeaseManager( JobLeaseStore jobLeaseStore, DhisConfigurationProvider config )
+    {
+        this( jobLeaseStore,
+            config.isEnabled( ConfigurationKey.SCHEDULING_DISTRIBUTED_ENABLED ),
+            config.getProperty( ConfigurationKey.NODE_ID ),
+            Integer.parseInt( config.getProperty( ConfigurationKey.SCHEDULING_LEASE_TIME_TO_LIVE ) ),
+            Integer.parseInt( config.getProperty( ConfigurationKey.SCHEDULING_LEASE_GRACE_PERIOD ) ),
+            parseJobTypes( config.getProperty( ConfigurationKey.SCHEDULING_NODE_JOB_TYPES ) ) );
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param jobLeaseStore the {@link JobLeaseStore}.
+     * @param enabled whether distributed job execution is enabled.
+     * @param nodeId the node identifier, a random identifier is used if blank.
+     * @param timeToLiveSeconds the time to live of leases in seconds.
+     * @param gracePeriodSeconds the minimum time in seconds between completion
+     *        of a job and the next acquisition of its lease.
+     * @param jobTypes the job types accepted by this node, empty means all.
+     */
+    public DefaultJobLeaseManager( JobLeaseStore jobLeaseStore, boolean enabled, String nodeId,
+        int timeToLiveSeconds, int gracePeriodSeconds, Set<JobType> jobTypes )
+    {
+        checkNotNull( jobLeaseStore );
+        checkNotNull( jobTypes );
+
+        this.jobLeaseStore = jobLeaseStore;
+        this.enabled = enabled;
+        this.nodeId = StringUtils.isBlank( nodeId ) ? UUID.randomUUID().toString() : nodeId;
+        this.timeToLiveSeconds = timeToLiveSeconds;
+        this.gracePeriodSeconds = gracePeriodSeconds;
+        this.jobTypes = Collections.unmodifiableSet( jobTypes );
+
+        if ( enabled )
+        {
+            log.info( String.format( "Distributed job execution enabled on node: '%s', lease time to live: %d s, job types: %s",
+                this.nodeId, timeToLiveSeconds, jobTypes.isEmpty() ? "all" : jobTypes ) );
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // JobLeaseManager implementation
+    // -------------------------------------------------------------------------
+
+    @Override
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    @Override
+    public String getNodeId()
+    {
+        return nodeId;
+    }
+
+    @Override
+    public boolean isAccepted( JobType jobType )
+    {
+        return jobTypes.isEmpty() || jobTypes.contains( jobType );
+    }
+
+    @Override
+    public boolean tryAcquire( JobConfiguration jobConfiguration )
+    {
+        if ( !isAccepted( jobConfiguration.getJobType() ) )
+        {
+            log.debug( String.format( "Job type: '%s' not accepted by node: '%s'", jobConfiguration.getJobType(), nodeId ) );
+            return false;
+        }
+
+        return tryAcquire( jobConfiguration, gracePeriodSeconds );
+    }
+
+    @Override
+    public boolean tryAcquireForManualExecution( JobConfiguration jobConfiguration )
+    {
+        return tryAcquire( jobConfiguration, 0 );
+    }
+
+    @Override
+    public void release( JobConfiguration jobConfiguration )
+    {
+        jobLeaseStore.release( jobConfiguration.getUid(), nodeId );
+    }
+
+    @Override
+    public void renewLeases()
+    {
+        int renewed = jobLeaseStore.renew( nodeId, timeToLiveSeconds );
+
+        if ( renewed > 0 )
+        {
+            log.debug( String.format( "Renewed %d job leases for node: '%s'", renewed, nodeId ) );
+        }
+    }
+
+    /**
+     * A third of the lease time to live, so that a single missed heartbeat
+     * does not cause a lease to expire.
+     */
+    @Override
+    public int getHeartbeatIntervalSeconds()
+    {
+        return Math.max( 1, timeToLiveSeconds / 3 );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private boolean tryAcquire( JobConfiguration jobConfiguration, int gracePeriodSeconds )
+    {
+        boolean acquired = jobLeaseStore.tryAcquire( jobConfiguration.getUid(), nodeId, timeToLiveSeconds,
+            gracePeriodSeconds );
+
+        log.debug( String.format( "Lease for job: '%s' acquired by node: '%s': %b", jobConfiguration.getUid(), nodeId, acquired ) );
+
+        return acquired;
+    }
+
+    private static Set<JobType> parseJobTypes( String jobTypes )
+    {
+        Set<JobType> types = EnumSet.noneOf( JobType.class );
+
+        for ( String type : StringUtils.split( StringUtils.trimToEmpty( jobTypes ), ',' ) )
+        {
+            types.add( JobType.valueOf( type.trim() ) );
+        }
+
+        return types;
+    }
+}
@@ -84,6 +84,8 @@ public class DefaultSchedulingManager
 
     private final LeaderManager leaderManager;
 
+    private final JobLeaseManager jobLeaseManager;
+
     private final TaskScheduler jobScheduler;
 
     private final AsyncListenableTaskExecutor jobExecutor;
@@ -91,12 +93,13 @@ public class DefaultSchedulingManager
     private final ApplicationContext applicationContext;
 
     public DefaultSchedulingManager( JobConfigurationService jobConfigurationService, MessageService messageService,
-        LeaderManager leaderManager, @Qualifier( "taskScheduler" ) TaskScheduler jobScheduler,
+        LeaderManager leaderManager, JobLeaseManager jobLeaseManager, @Qualifier( "taskScheduler" ) TaskScheduler jobScheduler,
         @Qualifier( "taskScheduler" ) AsyncListenableTaskExecutor jobExecutor, ApplicationContext applicationContext )
     {
         checkNotNull( jobConfigurationService );
         checkNotNull( messageService );
         checkNotNull( leaderManager );
+        checkNotNull( jobLeaseManager );
         checkNotNull( jobScheduler );
         checkNotNull( jobExecutor );
         checkNotNull( applicationContext );
@@ -104,6 +107,7 @@ public class DefaultSchedulingManager
         this.jobConfigurationService = jobConfigurationService;
         this.messageService = messageService;
         this.leaderManager = leaderManager;
+        this.jobLeaseManager = jobLeaseManager;
         this.jobScheduler = jobScheduler;
         this.jobExecutor = jobExecutor;
         this.applicationContext = applicationContext;
@@ -113,6 +117,17 @@ public class DefaultSchedulingManager
     public void init()
     {
         leaderManager.setSchedulingManager( this );
+
+        if ( jobLeaseManager.isEnabled() )
+        {
+            int heartbeat = jobLeaseManager.getHeartbeatIntervalSeconds();
+
+            jobScheduler.scheduleWithFixedDelay( jobLeaseManager::renewLeases,
+                Instant.now().plusSeconds( heartbeat ), Duration.of( heartbeat, ChronoUnit.SECONDS ) );
+
+            log.info( String.format( "Scheduled job lease heartbeat for node: '%s' every %d s",
+                jobLeaseManager.getNodeId(), heartbeat ) );
+        }
     }
 
     // -------------------------------------------------------------------------
@@ -175,7 +190,7 @@ public class DefaultSchedulingManager
     {
         if ( ifJobInSystemStop( jobConfiguration.getUid() ) )
         {
-            JobInstance jobInstance = new DefaultJobInstance( this, messageService, leaderManager );
+            JobInstance jobInstance = new DefaultJobInstance( this, messageService, leaderManager, jobLeaseManager );
 
             if ( jobConfiguration.getUid() != null && !futures.containsKey( jobConfiguration.getUid() ) )
             {
@@ -207,7 +222,7 @@ public class DefaultSchedulingManager
     {
         if ( ifJobInSystemStop( jobConfiguration.getUid() ) )
         {
-            JobInstance jobInstance = new DefaultJobInstance( this, messageService, leaderManager );
+            JobInstance jobInstance = new DefaultJobInstance( this, messageService, leaderManager, jobLeaseManager );
 
             if ( jobConfiguration.getUid() != null && !futures.containsKey( jobConfiguration.getUid() ) )
             {
@@ -277,7 +292,7 @@ public class DefaultSchedulingManager
 
     private void internalExecuteJobConfiguration( JobConfiguration jobConfiguration )
     {
-        JobInstance jobInstance = new DefaultJobInstance( this, messageService, leaderManager );
+        JobInstance jobInstance = new DefaultJobInstance( this, messageService, leaderManager, jobLeaseManager, true );
 
         ListenableFuture<?> future = jobExecutor.submitListenable( () -> jobInstance.execute( jobConfiguration ) );
 
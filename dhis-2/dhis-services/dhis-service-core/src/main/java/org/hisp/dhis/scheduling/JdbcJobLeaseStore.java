@@ -0,0 +1,127 @@
+package org.hisp.dhis.scheduling;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Date;
+
+import org.apache.commons.lang3.time.DateUtils;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * JDBC based {@link JobLeaseStore} backed by the <code>jobconfigurationlease</code>
+ * table. Leases are acquired with conditional updates and inserts, which lets
+ * the database arbitrate between competing nodes. Expiry is compared with the
+ * time of the database, and new expiry times are computed from it, so that
+ * the clocks of the nodes are never involved.
+ */
+@Slf4j
+@Repository( "org.hisp.dhis.scheduling.JobLeaseStore" )
+public class JdbcJobLeaseStore
+    implements JobLeaseStore
+{
+    private final JdbcTemplate jdbcTemplate;
+
+    public JdbcJobLeaseStore( JdbcTemplate jdbcTemplate )
+    {
+        checkNotNull( jdbcTemplate );
+
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public boolean tryAcquire( String jobKey, String nodeId, int timeToLiveSeconds, int gracePeriodSeconds )
+    {
+        final Date now = getDatabaseTime();
+
+        final Date expires = DateUtils.addSeconds( now, timeToLiveSeconds );
+
+        final String updateSql =
+            "update jobconfigurationlease set nodeid = ?, acquired = now(), expires = ? " +
+            "where jobkey = ? and expires < now()";
+
+        final int updated = gracePeriodSeconds > 0
+            ? jdbcTemplate.update( updateSql + " and (lastcompleted is null or lastcompleted < ?)",
+                nodeId, expires, jobKey, DateUtils.addSeconds( now, -gracePeriodSeconds ) )
+            : jdbcTemplate.update( updateSql, nodeId, expires, jobKey );
+
+        if ( updated > 0 )
+        {
+            return true;
+        }
+
+        final String insertSql =
+            "insert into jobconfigurationlease (jobkey, nodeid, acquired, expires) values (?, ?, now(), ?)";
+
+        try
+        {
+            return jdbcTemplate.update( insertSql, jobKey, nodeId, expires ) > 0;
+        }
+        catch ( DuplicateKeyException ex )
+        {
+            log.debug( String.format( "Lease for job: '%s' is held by another node", jobKey ) );
+
+            return false;
+        }
+    }
+
+    @Override
+    public int renew( String nodeId, int timeToLiveSeconds )
+    {
+        final String sql =
+            "update jobconfigurationlease set expires = ? " +
+            "where nodeid = ? and expires >= now()";
+
+        return jdbcTemplate.update( sql, DateUtils.addSeconds( getDatabaseTime(), timeToLiveSeconds ), nodeId );
+    }
+
+    @Override
+    public void release( String jobKey, String nodeId )
+    {
+        final String sql =
+            "update jobconfigurationlease set expires = now(), lastcompleted = now() " +
+            "where jobkey = ? and nodeid = ?";
+
+        jdbcTemplate.update( sql, jobKey, nodeId );
+    }
+
+    /**
+     * Returns the current time of the database, which is the clock shared by
+     * all nodes.
+     */
+    private Date getDatabaseTime()
+    {
+        return jdbcTemplate.queryForObject( "select now()", Date.class );
+    }
+}
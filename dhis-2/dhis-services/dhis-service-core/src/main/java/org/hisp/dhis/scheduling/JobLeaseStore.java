@@ -0,0 +1,71 @@
+package org.hisp.dhis.scheduling;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+/**
+ * Store for job leases shared between the nodes of a cluster. All times are
+ * taken from the clock of the shared store, so that clock skew between nodes
+ * cannot make two nodes hold the same lease.
+ */
+public interface JobLeaseStore
+{
+    /**
+     * Attempts to acquire the lease for the given job. The lease is acquired
+     * if no lease exists for the job, or if the existing lease has expired
+     * and the job has not completed within the given grace period.
+     *
+     * @param jobKey the job key.
+     * @param nodeId the identifier of the node acquiring the lease.
+     * @param timeToLiveSeconds the time in seconds until the lease expires
+     *        unless renewed.
+     * @param gracePeriodSeconds the minimum time in seconds since the previous
+     *        completion of the job, or 0 to disregard the previous completion.
+     * @return true if the lease was acquired.
+     */
+    boolean tryAcquire( String jobKey, String nodeId, int timeToLiveSeconds, int gracePeriodSeconds );
+
+    /**
+     * Extends the expiry time of all unexpired leases held by the given node.
+     *
+     * @param nodeId the node identifier.
+     * @param timeToLiveSeconds the time in seconds until the leases expire
+     *        unless renewed again.
+     * @return the number of renewed leases.
+     */
+    int renew( String nodeId, int timeToLiveSeconds );
+
+    /**
+     * Releases the lease for the given job if held by the given node, and
+     * marks the job as completed.
+     *
+     * @param jobKey the job key.
+     * @param nodeId the node identifier.
+     */
+    void release( String jobKey, String nodeId );
+}
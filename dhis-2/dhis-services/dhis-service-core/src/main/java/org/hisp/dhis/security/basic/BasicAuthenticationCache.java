@@ -0,0 +1,212 @@
+package org.hisp.dhis.security.basic;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.PostConstruct;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.hisp.dhis.cache.Cache;
+import org.hisp.dhis.cache.CacheBuilder;
+import org.hisp.dhis.cache.CacheProvider;
+import org.hisp.dhis.external.conf.ConfigurationKey;
+import org.hisp.dhis.external.conf.DhisConfigurationProvider;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Short-lived cache of verified HTTP Basic credentials, which lets repeated
+ * API requests skip the password hash check. Enabled through
+ * {@link ConfigurationKey#SYSTEM_AUTHENTICATION_CACHE}.
+ * <p>
+ * Entries are keyed on username and hold a keyed digest of the presented
+ * password and the stored password hash. The digest key is random per
+ * instance, so cached entries cannot be used to recover passwords, and a
+ * password change makes the entry stale even before it is invalidated.
+ * Disabled, locked and expired accounts are rejected before the cache is
+ * consulted as the user details are loaded for every request.
+ */
+@Slf4j
+@Component
+public class BasicAuthenticationCache
+    implements MeterBinder
+{
+    private static final int DIGEST_KEY_LENGTH = 32;
+
+    private final DhisConfigurationProvider config;
+
+    private final CacheProvider cacheProvider;
+
+    private final HashFunction digestFunction;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private boolean enabled;
+
+    private Cache<String> verifiedCredentials;
+
+    public BasicAuthenticationCache( DhisConfigurationProvider config, CacheProvider cacheProvider )
+    {
+        checkNotNull( config );
+        checkNotNull( cacheProvider );
+
+        this.config = config;
+        this.cacheProvider = cacheProvider;
+
+        byte[] digestKey = new byte[DIGEST_KEY_LENGTH];
+        new SecureRandom().nextBytes( digestKey );
+
+        this.digestFunction = Hashing.hmacSha256( digestKey );
+    }
+
+    @PostConstruct
+    public void init()
+    {
+        enabled = config.isEnabled( ConfigurationKey.SYSTEM_AUTHENTICATION_CACHE );
+
+        long ttl = Long.parseLong( config.getProperty( ConfigurationKey.SYSTEM_AUTHENTICATION_CACHE_TTL ) );
+
+        CacheBuilder<String> builder = cacheProvider.newCacheBuilder( String.class )
+            .forRegion( "basicAuthenticationCache" ).expireAfterWrite( ttl, TimeUnit.SECONDS )
+            .withInitialCapacity( 100 ).forceInMemory().withMaximumSize( 10000 );
+
+        verifiedCredentials = enabled ? builder.build() : builder.disabled().build();
+
+        log.info( String.format( "Basic authentication cache is %s with TTL: %d seconds",
+            enabled ? "enabled" : "disabled", ttl ) );
+    }
+
+    /**
+     * Indicates whether the presented credentials were verified against the
+     * given user details within the TTL of the cache.
+     *
+     * @param userDetails the user details.
+     * @param authentication the authentication request.
+     */
+    public boolean isVerified( UserDetails userDetails, UsernamePasswordAuthenticationToken authentication )
+    {
+        if ( !isApplicable( authentication ) )
+        {
+            return false;
+        }
+
+        String digest = verifiedCredentials.getIfPresent( userDetails.getUsername() ).orElse( null );
+
+        boolean verified = digest != null && digest.equals( getDigest( userDetails, authentication ) );
+
+        if ( verified )
+        {
+            hits.increment();
+        }
+        else
+        {
+            misses.increment();
+        }
+
+        return verified;
+    }
+
+    /**
+     * Records that the presented credentials were verified against the given
+     * user details.
+     *
+     * @param userDetails the user details.
+     * @param authentication the authentication request.
+     */
+    public void putVerified( UserDetails userDetails, UsernamePasswordAuthenticationToken authentication )
+    {
+        if ( isApplicable( authentication ) )
+        {
+            verifiedCredentials.put( userDetails.getUsername(), getDigest( userDetails, authentication ) );
+        }
+    }
+
+    /**
+     * Invalidates the verified credentials of the given user.
+     *
+     * @param username the username.
+     */
+    public void invalidate( String username )
+    {
+        if ( username != null )
+        {
+            verifiedCredentials.invalidate( username );
+        }
+    }
+
+    @Override
+    public void bindTo( MeterRegistry registry )
+    {
+        FunctionCounter.builder( "cache.gets", hits, LongAdder::doubleValue )
+            .tags( "cache", "basicAuthentication", "result", "hit" )
+            .description( "Number of Basic authentication requests which skipped the password check" )
+            .register( registry );
+
+        FunctionCounter.builder( "cache.gets", misses, LongAdder::doubleValue )
+            .tags( "cache", "basicAuthentication", "result", "miss" )
+            .description( "Number of Basic authentication requests which required the password check" )
+            .register( registry );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private boolean isApplicable( UsernamePasswordAuthenticationToken authentication )
+    {
+        return enabled && authentication.getCredentials() != null
+            && authentication.getDetails() instanceof HttpBasicWebAuthenticationDetails;
+    }
+
+    private String getDigest( UserDetails userDetails, UsernamePasswordAuthenticationToken authentication )
+    {
+        return digestFunction.newHasher()
+            .putString( userDetails.getUsername(), StandardCharsets.UTF_8 ).putByte( (byte) 0 )
+            .putString( authentication.getCredentials().toString(), StandardCharsets.UTF_8 ).putByte( (byte) 0 )
+            .putString( String.valueOf( userDetails.getPassword() ), StandardCharsets.UTF_8 )
+            .hash().toString();
+    }
+}
@@ -0,0 +1,81 @@
+package org.hisp.dhis.security.basic;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import org.hisp.dhis.hibernate.CacheInvalidationListener;
+import org.hisp.dhis.user.User;
+import org.hisp.dhis.user.UserCredentials;
+import org.springframework.stereotype.Component;
+
+/**
+ * Invalidates the {@link BasicAuthenticationCache} entry of a user when the
+ * user credentials are updated, which covers password changes, disabling and
+ * locking, or when the user is deleted. Only committed changes are relevant,
+ * so the listener is not registered for flush events or inserts.
+ */
+@Component
+public class BasicAuthenticationCacheListener
+    extends CacheInvalidationListener
+{
+    private final BasicAuthenticationCache basicAuthenticationCache;
+
+    public BasicAuthenticationCacheListener( BasicAuthenticationCache basicAuthenticationCache )
+    {
+        checkNotNull( basicAuthenticationCache );
+
+        this.basicAuthenticationCache = basicAuthenticationCache;
+    }
+
+    @Override
+    protected boolean isInvalidateOnFlush()
+    {
+        return false;
+    }
+
+    @Override
+    protected boolean isInvalidateOnInsert()
+    {
+        return false;
+    }
+
+    @Override
+    protected void invalidate( Object entity )
+    {
+        if ( entity instanceof UserCredentials )
+        {
+            basicAuthenticationCache.invalidate( ((UserCredentials) entity).getUsername() );
+        }
+        else if ( entity instanceof User )
+        {
+            basicAuthenticationCache.invalidate( ((User) entity).getUsername() );
+        }
+    }
+}
@@ -34,6 +34,7 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.validator.routines.LongValidator;
 import org.hisp.dhis.security.SecurityService;
 import org.hisp.dhis.security.SecurityUtils;
+import org.hisp.dhis.security.basic.BasicAuthenticationCache;
 import org.hisp.dhis.user.UserCredentials;
 import org.hisp.dhis.user.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -44,6 +45,7 @@ import org.springframework.security.authentication.UsernamePasswordAuthenticatio
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.authentication.preauth.PreAuthenticatedCredentialsNotFoundException;
@@ -62,6 +64,9 @@ public class TwoFactorAuthenticationProvider extends DaoAuthenticationProvider
     @Autowired
     private SecurityService securityService;
 
+    @Autowired
+    private BasicAuthenticationCache basicAuthenticationCache;
+
     @Autowired
     public TwoFactorAuthenticationProvider( @Qualifier( "userDetailsService" ) UserDetailsService detailsService,
         PasswordEncoder passwordEncoder )
@@ -148,6 +153,25 @@ public class TwoFactorAuthenticationProvider extends DaoAuthenticationProvider
             result.getAuthorities() );
     }
 
+    /**
+     * Skips the password check for HTTP Basic credentials which were verified
+     * recently, see {@link BasicAuthenticationCache}.
+     */
+    @Override
+    protected void additionalAuthenticationChecks( UserDetails userDetails,
+        UsernamePasswordAuthenticationToken authentication )
+        throws AuthenticationException
+    {
+        if ( basicAuthenticationCache.isVerified( userDetails, authentication ) )
+        {
+            return;
+        }
+
+        super.additionalAuthenticationChecks( userDetails, authentication );
+
+        basicAuthenticationCache.putVerified( userDetails, authentication );
+    }
+
     @Override
     public boolean supports( Class<?> authentication )
     {
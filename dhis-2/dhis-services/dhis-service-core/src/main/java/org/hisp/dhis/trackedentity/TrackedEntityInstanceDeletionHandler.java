@@ -29,10 +29,16 @@ package org.hisp.dhis.trackedentity;
  */
 
 import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.hisp.dhis.commons.util.TextUtils;
 import org.hisp.dhis.system.deletion.DeletionHandler;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
 
+import java.util.Collection;
+import java.util.Set;
+
+import com.google.common.collect.ImmutableSet;
+
 import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
@@ -42,6 +48,9 @@ import static com.google.common.base.Preconditions.checkNotNull;
 public class TrackedEntityInstanceDeletionHandler
     extends DeletionHandler
 {
+    private static final Set<Class<?>> ALLOW_DELETE_ALL_TYPES = ImmutableSet.of(
+        OrganisationUnit.class, TrackedEntityType.class );
+
     // -------------------------------------------------------------------------
     // Dependencies
     // -------------------------------------------------------------------------
@@ -78,4 +87,33 @@ public class TrackedEntityInstanceDeletionHandler
 
         return jdbcTemplate.queryForObject( sql, Integer.class ) == 0 ? null : ERROR;
     }
+
+    @Override
+    public Set<Class<?>> getAllowDeleteAllTypes()
+    {
+        return ALLOW_DELETE_ALL_TYPES;
+    }
+
+    @Override
+    public String allowDeleteAll( Class<?> type, Collection<Long> ids )
+    {
+        String idList = TextUtils.getCommaDelimitedString( ids );
+
+        String sql;
+
+        if ( OrganisationUnit.class.equals( type ) )
+        {
+            sql = "select count(*) from trackedentityinstance where organisationunitid in (" + idList + ")";
+        }
+        else if ( TrackedEntityType.class.equals( type ) )
+        {
+            sql = "select count(*) from trackedentityinstance where trackedentitytypeid in (" + idList + ")";
+        }
+        else
+        {
+            return null;
+        }
+
+        return jdbcTemplate.queryForObject( sql, Integer.class ) == 0 ? null : ERROR;
+    }
 }
@@ -0,0 +1,122 @@
+package org.hisp.dhis.translation;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Collections;
+
+import org.hisp.dhis.cache.CacheRegionInvalidation;
+import org.hisp.dhis.cache.CacheRegionInvalidationEvent;
+import org.hisp.dhis.common.IdentifiableObject;
+import org.hisp.dhis.common.event.ApplicationCacheClearedEvent;
+import org.hisp.dhis.hibernate.CacheInvalidationListener;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Invalidates the {@link TranslationDictionary} entry of objects which are
+ * updated or deleted. The listener
+ * is registered for flush and for commit events, so that translations updated
+ * by the current transaction are visible to it before they are committed.
+ * Invalidations are published to be propagated to the other nodes of a
+ * cluster.
+ */
+@Component
+public class TranslationDictionaryListener
+    extends CacheInvalidationListener
+{
+    static final String REGION = "translationDictionary";
+
+    private final ApplicationEventPublisher publisher;
+
+    public TranslationDictionaryListener( ApplicationEventPublisher publisher )
+    {
+        checkNotNull( publisher );
+
+        this.publisher = publisher;
+    }
+
+    @Override
+    protected boolean isInvalidateOnInsert()
+    {
+        return false;
+    }
+
+    @Override
+    protected void invalidate( Object entity )
+    {
+        if ( entity instanceof IdentifiableObject )
+        {
+            String uid = ((IdentifiableObject) entity).getUid();
+
+            if ( uid == null )
+            {
+                return;
+            }
+
+            TranslationDictionary.invalidate( uid );
+
+            publisher.publishEvent( new CacheRegionInvalidationEvent( this, Collections.singletonList(
+                CacheRegionInvalidation.key( REGION, uid ) ), false ) );
+        }
+    }
+
+    @EventListener
+    public void handleApplicationCachesCleared( ApplicationCacheClearedEvent event )
+    {
+        TranslationDictionary.invalidateAll();
+    }
+
+    /**
+     * Applies invalidations of the dictionary received from other cluster
+     * nodes.
+     */
+    @EventListener( condition = "#event.remote" )
+    public void handleRemoteInvalidation( CacheRegionInvalidationEvent event )
+    {
+        for ( CacheRegionInvalidation invalidation : event.getInvalidations() )
+        {
+            if ( !REGION.equals( invalidation.getRegion() ) )
+            {
+                continue;
+            }
+
+            if ( invalidation.isAll() )
+            {
+                TranslationDictionary.invalidateAll();
+            }
+            else
+            {
+                TranslationDictionary.invalidate( invalidation.getKey() );
+            }
+        }
+    }
+}
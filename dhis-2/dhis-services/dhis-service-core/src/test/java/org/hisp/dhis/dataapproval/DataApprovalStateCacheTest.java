@@ -0,0 +1,346 @@
+package org.hisp.dhis.dataapproval;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static com.google.common.collect.Sets.newHashSet;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Date;
+import java.util.List;
+
+import org.hibernate.SessionFactory;
+import org.hisp.dhis.DhisTest;
+import org.hisp.dhis.cache.CacheProvider;
+import org.hisp.dhis.cache.CacheRegionInvalidation;
+import org.hisp.dhis.cache.CacheRegionInvalidationEvent;
+import org.hisp.dhis.category.Category;
+import org.hisp.dhis.category.CategoryCombo;
+import org.hisp.dhis.category.CategoryOption;
+import org.hisp.dhis.category.CategoryOptionCombo;
+import org.hisp.dhis.dataapproval.hibernate.HibernateDataApprovalStore;
+import org.hisp.dhis.dataset.DataSet;
+import org.hisp.dhis.dataset.DataSetService;
+import org.hisp.dhis.jdbc.StatementBuilder;
+import org.hisp.dhis.mock.MockCurrentUserService;
+import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.hisp.dhis.organisationunit.OrganisationUnitService;
+import org.hisp.dhis.period.Period;
+import org.hisp.dhis.period.PeriodService;
+import org.hisp.dhis.period.PeriodType;
+import org.hisp.dhis.setting.SystemSettingManager;
+import org.hisp.dhis.user.CurrentUserService;
+import org.hisp.dhis.user.User;
+import org.hisp.dhis.user.UserService;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+/**
+ * Tests the approval state cache of {@link HibernateDataApprovalStore}, which
+ * is disabled for the store of the test context. The cached store under test
+ * is not notified by the Hibernate listener, so changes made through the
+ * context store show which state is served from the cache.
+ */
+public class DataApprovalStateCacheTest
+    extends DhisTest
+{
+    @Autowired
+    private DataApprovalStore dataApprovalStore;
+
+    @Autowired
+    private DataApprovalService dataApprovalService;
+
+    @Autowired
+    private DataApprovalLevelService dataApprovalLevelService;
+
+    @Autowired
+    private PeriodService periodService;
+
+    @Autowired
+    private DataSetService dataSetService;
+
+    @Autowired
+    private OrganisationUnitService organisationUnitService;
+
+    @Autowired
+    private UserService _userService;
+
+    @Autowired
+    private CurrentUserService currentUserService;
+
+    @Autowired
+    private SessionFactory sessionFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher publisher;
+
+    @Autowired
+    private CacheProvider cacheProvider;
+
+    @Autowired
+    private SystemSettingManager systemSettingManager;
+
+    @Autowired
+    private StatementBuilder statementBuilder;
+
+    private HibernateDataApprovalStore cachedStore;
+
+    private CurrentUserService mockCurrentUserService;
+
+    private Period periodA;
+
+    private DataApprovalLevel level3;
+
+    private DataApprovalWorkflow workflowA;
+
+    private OrganisationUnit orgUnitC;
+
+    private CategoryOption catOptionA;
+
+    private CategoryCombo catComboA;
+
+    private CategoryOptionCombo catOptionComboA;
+
+    private User userA;
+
+    // -------------------------------------------------------------------------
+    // Set up/tear down
+    // -------------------------------------------------------------------------
+
+    @Override
+    public void setUpTest()
+    {
+        userService = _userService;
+
+        periodA = createPeriod( "201801" );
+        periodService.addPeriod( periodA );
+
+        DataApprovalLevel level1 = new DataApprovalLevel( "Level1", 1, null );
+        DataApprovalLevel level2 = new DataApprovalLevel( "Level2", 2, null );
+        level3 = new DataApprovalLevel( "Level3", 3, null );
+
+        dataApprovalLevelService.addDataApprovalLevel( level1 );
+        dataApprovalLevelService.addDataApprovalLevel( level2 );
+        dataApprovalLevelService.addDataApprovalLevel( level3 );
+
+        workflowA = new DataApprovalWorkflow( "workflowA", PeriodType.getPeriodTypeByName( "Monthly" ),
+            newHashSet( level1, level2, level3 ) );
+        dataApprovalService.addWorkflow( workflowA );
+
+        DataSet dataSetA = createDataSet( 'A' );
+        dataSetA.assignWorkflow( workflowA );
+        dataSetService.addDataSet( dataSetA );
+
+        OrganisationUnit orgUnitA = createOrganisationUnit( 'A' );
+        OrganisationUnit orgUnitB = createOrganisationUnit( 'B', orgUnitA );
+        orgUnitC = createOrganisationUnit( 'C', orgUnitB );
+
+        organisationUnitService.addOrganisationUnit( orgUnitA );
+        organisationUnitService.addOrganisationUnit( orgUnitB );
+        organisationUnitService.addOrganisationUnit( orgUnitC );
+
+        for ( OrganisationUnit orgUnit : Lists.newArrayList( orgUnitA, orgUnitB, orgUnitC ) )
+        {
+            orgUnit.addDataSet( dataSetA );
+            organisationUnitService.updateOrganisationUnit( orgUnit );
+        }
+
+        catOptionA = new CategoryOption( "CategoryOptionA" );
+        categoryService.addCategoryOption( catOptionA );
+
+        Category catA = createCategory( 'A', catOptionA );
+        categoryService.addCategory( catA );
+
+        catComboA = createCategoryCombo( 'A', catA );
+        categoryService.addCategoryCombo( catComboA );
+
+        catOptionComboA = createCategoryOptionCombo( catComboA, catOptionA );
+        categoryService.addCategoryOptionCombo( catOptionComboA );
+
+        userA = createUser( 'A' );
+        userService.addUser( userA );
+
+        mockCurrentUserService = new MockCurrentUserService( true, Sets.newHashSet( orgUnitA ),
+            Sets.newHashSet( orgUnitA ) );
+
+        setDependency( dataApprovalLevelService, "currentUserService", mockCurrentUserService,
+            CurrentUserService.class );
+
+        Environment environment = mock( Environment.class );
+        when( environment.getActiveProfiles() ).thenReturn( new String[0] );
+
+        cachedStore = new HibernateDataApprovalStore( sessionFactory, jdbcTemplate, publisher, cacheProvider,
+            periodService, mockCurrentUserService, categoryService, systemSettingManager, statementBuilder,
+            environment );
+
+        cachedStore.init();
+    }
+
+    @Override
+    public void tearDownTest()
+    {
+        setDependency( dataApprovalLevelService, "currentUserService", currentUserService,
+            CurrentUserService.class );
+    }
+
+    @Override
+    public boolean emptyDatabaseAfterTest()
+    {
+        return true;
+    }
+
+    // -------------------------------------------------------------------------
+    // Tests
+    // -------------------------------------------------------------------------
+
+    @Test
+    public void testServesStateUntilWorkflowPeriodIsInvalidated()
+    {
+        assertEquals( DataApprovalState.UNAPPROVED_READY, getState( cachedStore ) );
+
+        dataApprovalStore.addDataApproval( newDataApproval() );
+
+        assertEquals( DataApprovalState.APPROVED_HERE, getState( dataApprovalStore ) );
+        assertEquals( DataApprovalState.UNAPPROVED_READY, getState( cachedStore ) );
+
+        cachedStore.invalidateDataApprovalStatuses( workflowA, periodA );
+
+        assertEquals( DataApprovalState.APPROVED_HERE, getState( cachedStore ) );
+    }
+
+    @Test
+    public void testApprovalThroughStoreInvalidatesState()
+    {
+        assertEquals( DataApprovalState.UNAPPROVED_READY, getState( cachedStore ) );
+
+        DataApproval dataApproval = newDataApproval();
+
+        cachedStore.addDataApproval( dataApproval );
+
+        assertEquals( DataApprovalState.APPROVED_HERE, getState( cachedStore ) );
+
+        cachedStore.deleteDataApproval( dataApproval );
+
+        assertEquals( DataApprovalState.UNAPPROVED_READY, getState( cachedStore ) );
+    }
+
+    @Test
+    public void testOtherWorkflowPeriodKeepsState()
+    {
+        Period periodB = createPeriod( "201802" );
+        periodService.addPeriod( periodB );
+
+        assertEquals( DataApprovalState.UNAPPROVED_READY, getState( cachedStore ) );
+        assertEquals( DataApprovalState.UNAPPROVED_READY, getState( cachedStore, periodB ) );
+
+        dataApprovalStore.addDataApproval( new DataApproval( level3, workflowA, periodB, orgUnitC,
+            catOptionComboA, false, new Date(), userA ) );
+
+        cachedStore.invalidateDataApprovalStatuses( workflowA, periodA );
+
+        assertEquals( DataApprovalState.UNAPPROVED_READY, getState( cachedStore, periodB ) );
+
+        cachedStore.invalidateDataApprovalStatuses( workflowA, periodB );
+
+        assertEquals( DataApprovalState.APPROVED_HERE, getState( cachedStore, periodB ) );
+    }
+
+    @Test
+    public void testRemoteInvalidationOfWorkflowPeriod()
+    {
+        assertEquals( DataApprovalState.UNAPPROVED_READY, getState( cachedStore ) );
+
+        dataApprovalStore.addDataApproval( newDataApproval() );
+
+        assertEquals( DataApprovalState.UNAPPROVED_READY, getState( cachedStore ) );
+
+        cachedStore.handleRemoteInvalidation( new CacheRegionInvalidationEvent( this, Lists.newArrayList(
+            CacheRegionInvalidation.key( "dataApprovalStateVersion", workflowA.getId() + "-" + periodA.getId() ) ),
+            true ) );
+
+        assertEquals( DataApprovalState.APPROVED_HERE, getState( cachedStore ) );
+    }
+
+    @Test
+    public void testMetadataChangeRequiresFullInvalidation()
+    {
+        assertEquals( 1, getStatuses( cachedStore, periodA ).size() );
+
+        catOptionA.setEndDate( createPeriod( "201701" ).getEndDate() );
+        categoryService.updateCategoryOption( catOptionA );
+
+        assertEquals( 0, getStatuses( dataApprovalStore, periodA ).size() );
+        assertEquals( 1, getStatuses( cachedStore, periodA ).size() );
+
+        cachedStore.invalidateDataApprovalStatuses();
+
+        assertEquals( 0, getStatuses( cachedStore, periodA ).size() );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private DataApproval newDataApproval()
+    {
+        return new DataApproval( level3, workflowA, periodA, orgUnitC, catOptionComboA, false, new Date(), userA );
+    }
+
+    private DataApprovalState getState( DataApprovalStore store )
+    {
+        return getState( store, periodA );
+    }
+
+    private DataApprovalState getState( DataApprovalStore store, Period period )
+    {
+        List<DataApprovalStatus> statuses = getStatuses( store, period );
+
+        assertEquals( 1, statuses.size() );
+
+        return statuses.get( 0 ).getState();
+    }
+
+    private List<DataApprovalStatus> getStatuses( DataApprovalStore store, Period period )
+    {
+        return store.getDataApprovalStatuses( workflowA, period, Lists.newArrayList( orgUnitC ),
+            orgUnitC.getHierarchyLevel(), catComboA, null, dataApprovalLevelService
+                .getUserDataApprovalLevelsOrLowestLevel( mockCurrentUserService.getCurrentUser(), workflowA ),
+            dataApprovalLevelService.getDataApprovalLevelMap() );
+    }
+}
@@ -0,0 +1,153 @@
+package org.hisp.dhis.dataapproval.hibernate;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hisp.dhis.DhisConvenienceTest;
+import org.hisp.dhis.dataapproval.DataApproval;
+import org.hisp.dhis.dataapproval.DataApprovalStore;
+import org.hisp.dhis.dataapproval.DataApprovalWorkflow;
+import org.hisp.dhis.dataset.DataSet;
+import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.hisp.dhis.period.Period;
+import org.hisp.dhis.user.User;
+import org.hisp.dhis.user.UserGroup;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+public class DataApprovalStateListenerTest
+    extends DhisConvenienceTest
+{
+    private static final String[] ORG_UNIT_PROPERTIES = { "name", "openingDate", "path", "geometry" };
+
+    @Rule
+    public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    @Mock
+    private DataApprovalStore dataApprovalStore;
+
+    private DataApprovalStateListener listener;
+
+    @Before
+    public void setUp()
+    {
+        listener = new DataApprovalStateListener( dataApprovalStore );
+    }
+
+    @Test
+    public void testApprovalInvalidatesWorkflowPeriod()
+    {
+        DataApprovalWorkflow workflow = new DataApprovalWorkflow( "workflowA" );
+        Period period = createPeriod( "202001" );
+
+        DataApproval dataApproval = new DataApproval();
+        dataApproval.setWorkflow( workflow );
+        dataApproval.setPeriod( period );
+
+        listener.invalidate( dataApproval );
+
+        verify( dataApprovalStore ).invalidateDataApprovalStatuses( workflow, period );
+    }
+
+    @Test
+    public void testOrgUnitUpdateOfQueriedPropertyInvalidatesAll()
+    {
+        listener.onPostUpdate( updateEvent( createOrganisationUnit( 'A' ), ORG_UNIT_PROPERTIES, 0, 1 ) );
+        listener.onPostUpdate( updateEvent( createOrganisationUnit( 'B' ), ORG_UNIT_PROPERTIES, 2 ) );
+
+        verify( dataApprovalStore, times( 2 ) ).invalidateDataApprovalStatuses();
+    }
+
+    @Test
+    public void testOrgUnitUpdateOfOtherPropertiesIsIgnored()
+    {
+        listener.onPostUpdate( updateEvent( createOrganisationUnit( 'A' ), ORG_UNIT_PROPERTIES, 1, 3 ) );
+
+        verifyNoInteractions( dataApprovalStore );
+    }
+
+    @Test
+    public void testDataSetUpdateWithoutWorkflowChangeIsIgnored()
+    {
+        listener.onPostUpdate( updateEvent( createDataSet( 'A' ), new String[] { "name", "workflow" }, 0 ) );
+
+        verifyNoInteractions( dataApprovalStore );
+
+        listener.onPostUpdate( updateEvent( createDataSet( 'B' ), new String[] { "name", "workflow" }, 1 ) );
+
+        verify( dataApprovalStore ).invalidateDataApprovalStatuses();
+    }
+
+    @Test
+    public void testUserUpdateIsIgnored()
+    {
+        listener.invalidate( createUser( 'A' ) );
+        listener.invalidate( new UserGroup( "groupA" ) );
+        listener.invalidateCollection( createUser( 'A' ), User.class.getName() + ".organisationUnits" );
+
+        verifyNoInteractions( dataApprovalStore );
+    }
+
+    @Test
+    public void testQueriedCollectionChangeInvalidatesAll()
+    {
+        listener.invalidateCollection( createDataSet( 'A' ), DataSet.class.getName() + ".sources" );
+
+        verify( dataApprovalStore ).invalidateDataApprovalStatuses();
+    }
+
+    @Test
+    public void testOtherCollectionChangeIsIgnored()
+    {
+        listener.invalidateCollection( createDataSet( 'A' ), DataSet.class.getName() + ".dataSetElements" );
+        listener.invalidateCollection( createOrganisationUnit( 'A' ),
+            OrganisationUnit.class.getName() + ".groups" );
+
+        verifyNoInteractions( dataApprovalStore );
+    }
+
+    private PostUpdateEvent updateEvent( Object entity, String[] propertyNames, int... dirtyProperties )
+    {
+        EntityPersister persister = mock( EntityPersister.class );
+        when( persister.getPropertyNames() ).thenReturn( propertyNames );
+
+        return new PostUpdateEvent( entity, 1L, null, null, dirtyProperties, persister, null );
+    }
+}
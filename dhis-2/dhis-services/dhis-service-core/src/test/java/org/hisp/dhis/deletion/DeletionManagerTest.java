@@ -0,0 +1,179 @@
+package org.hisp.dhis.deletion;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hisp.dhis.DhisSpringTest;
+import org.hisp.dhis.category.CategoryOptionCombo;
+import org.hisp.dhis.category.CategoryService;
+import org.hisp.dhis.common.DeleteNotAllowedException;
+import org.hisp.dhis.common.IdentifiableObjectManager;
+import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.datavalue.DataValue;
+import org.hisp.dhis.datavalue.DataValueService;
+import org.hisp.dhis.feedback.ErrorCode;
+import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.hisp.dhis.period.Period;
+import org.hisp.dhis.system.deletion.DefaultDeletionManager;
+import org.hisp.dhis.system.deletion.DeletionHandler;
+import org.hisp.dhis.system.deletion.DeletionManager;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.google.common.collect.Lists;
+
+public class DeletionManagerTest
+    extends DhisSpringTest
+{
+    @Autowired
+    private DeletionManager deletionManager;
+
+    @Autowired
+    private IdentifiableObjectManager idObjectManager;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private DataValueService dataValueService;
+
+    private DataElement dataElementA;
+    private DataElement dataElementB;
+    private DataElement dataElementC;
+
+    private OrganisationUnit sourceA;
+
+    private Period periodA;
+
+    private CategoryOptionCombo optionCombo;
+
+    @Override
+    public void setUpTest()
+    {
+        dataElementA = createDataElement( 'A' );
+        dataElementB = createDataElement( 'B' );
+        dataElementC = createDataElement( 'C' );
+
+        idObjectManager.save( dataElementA );
+        idObjectManager.save( dataElementB );
+        idObjectManager.save( dataElementC );
+
+        sourceA = createOrganisationUnit( 'A' );
+        idObjectManager.save( sourceA );
+
+        periodA = createPeriod( getDay( 5 ), getDay( 6 ) );
+
+        optionCombo = categoryService.getDefaultCategoryOptionCombo();
+
+        dataValueService.addDataValue( new DataValue( dataElementC, periodA, sourceA, optionCombo, optionCombo, "1" ) );
+    }
+
+    @Test
+    public void testAllowDeleteAll()
+    {
+        deletionManager.allowDeleteAll( Lists.newArrayList( dataElementA, dataElementB ) );
+
+        // Verification alone does not delete
+
+        assertNotNull( idObjectManager.get( DataElement.class, dataElementA.getUid() ) );
+        assertNotNull( idObjectManager.get( DataElement.class, dataElementB.getUid() ) );
+
+        idObjectManager.delete( Lists.newArrayList( dataElementA, dataElementB ) );
+
+        assertNull( idObjectManager.get( DataElement.class, dataElementA.getUid() ) );
+        assertNull( idObjectManager.get( DataElement.class, dataElementB.getUid() ) );
+    }
+
+    @Test
+    public void testAllowDeleteAllInvokesHandlers()
+    {
+        CountingDeletionHandler handler = new CountingDeletionHandler();
+
+        DefaultDeletionManager manager = new DefaultDeletionManager();
+        ReflectionTestUtils.setField( manager, "deletionHandlers", Lists.newArrayList( handler ) );
+        manager.init();
+
+        manager.allowDeleteAll( Lists.newArrayList( dataElementA, dataElementB, sourceA ) );
+
+        assertEquals( Lists.newArrayList( dataElementA, dataElementB ), handler.allowed );
+    }
+
+    @Test
+    public void testAllowDeleteAllNotAllowed()
+    {
+        DeleteNotAllowedException ex = assertThrows( DeleteNotAllowedException.class,
+            () -> deletionManager.allowDeleteAll( Lists.newArrayList( dataElementA, dataElementB, dataElementC ) ) );
+
+        assertEquals( ErrorCode.E4030, ex.getErrorCode() );
+    }
+
+    @Test
+    public void testDeleteAll()
+    {
+        idObjectManager.delete( Lists.newArrayList( dataElementA, dataElementB ) );
+
+        assertNull( idObjectManager.get( DataElement.class, dataElementA.getUid() ) );
+        assertNull( idObjectManager.get( DataElement.class, dataElementB.getUid() ) );
+        assertNotNull( idObjectManager.get( DataElement.class, dataElementC.getUid() ) );
+    }
+
+    @Test
+    public void testDeleteAllNotAllowed()
+    {
+        assertThrows( DeleteNotAllowedException.class,
+            () -> idObjectManager.delete( Lists.newArrayList( dataElementA, dataElementC ) ) );
+    }
+
+    public static class CountingDeletionHandler
+        extends DeletionHandler
+    {
+        private final List<Object> allowed = new ArrayList<>();
+
+        @Override
+        protected String getClassName()
+        {
+            return "Counting";
+        }
+
+        @Override
+        public String allowDeleteDataElement( DataElement dataElement )
+        {
+            allowed.add( dataElement );
+            return null;
+        }
+    }
+}
@@ -47,6 +47,7 @@ import static org.junit.Assert.assertNull;
 
 import java.util.*;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import com.google.common.collect.Lists;
 import org.hisp.dhis.DhisSpringTest;
@@ -1278,6 +1279,29 @@ public class ExpressionServiceTest
         assertEquals( 146000.0, value.getValue(), DELTA );
     }
 
+    @Test
+    public void testGetExpressionValueReusesCompiledExpression()
+    {
+        String expr = "#{dataElemenA} * 2 + if( #{dataElemenB} > 10, #{dataElemenA}, 0 )";
+
+        Map<DimensionalItemObject, Double> otherValueMap = ImmutableMap.of( dataElementA, 1.0, dataElementB, 5.0 );
+
+        assertEquals( 9.0, expressionService.getExpressionValue( expr, INDICATOR_EXPRESSION,
+            valueMap, constantMap, null, null, NEVER_SKIP ), DELTA );
+        assertEquals( 2.0, expressionService.getExpressionValue( expr, INDICATOR_EXPRESSION,
+            otherValueMap, constantMap, null, null, NEVER_SKIP ), DELTA );
+
+        List<Double> values = IntStream.range( 0, 200 ).parallel()
+            .mapToObj( i -> expressionService.getExpressionValue( expr, INDICATOR_EXPRESSION,
+                i % 2 == 0 ? valueMap : otherValueMap, constantMap, null, null, NEVER_SKIP ) )
+            .collect( Collectors.toList() );
+
+        for ( int i = 0; i < values.size(); i++ )
+        {
+            assertEquals( i % 2 == 0 ? 9.0 : 2.0, values.get( i ), DELTA );
+        }
+    }
+
     private Indicator createIndicator( char uniqueCharacter, IndicatorType type, String numerator )
     {
         Indicator indicator = createIndicator( uniqueCharacter, type );
@@ -37,6 +37,7 @@ import org.mockito.junit.MockitoRule;
 import org.springframework.core.io.ClassPathResource;
 
 import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
@@ -116,4 +117,35 @@ public class ImageProcessingServiceTest
         Files.deleteIfExists( mediumImage.toPath() );
         Files.deleteIfExists( largeImage.toPath() );
     }
+
+    @Test
+    public void test_create_images_from_large_image() throws IOException
+    {
+        FileResource fileResource = new FileResource();
+        fileResource.setName( "large" );
+        fileResource.setContentType( "image/png" );
+
+        File file = File.createTempFile( "large", ".png" );
+
+        ImageIO.write( new BufferedImage( 5000, 2500, BufferedImage.TYPE_INT_RGB ), "png", file );
+
+        Map<ImageFileDimension, File> images = subject.createImages( fileResource, file );
+
+        assertEquals( 4, images.size() );
+        assertEquals( file, images.get( ImageFileDimension.ORIGINAL ) );
+
+        BufferedImage smallImage = ImageIO.read( images.get( ImageFileDimension.SMALL ) );
+        BufferedImage largeImage = ImageIO.read( images.get( ImageFileDimension.LARGE ) );
+
+        assertEquals( SMALL_IMAGE_WIDTH, smallImage.getWidth() );
+        assertEquals( SMALL_IMAGE_WIDTH / 2, smallImage.getHeight() );
+        assertEquals( MEDIUM_IMAGE_WIDTH, ImageIO.read( images.get( ImageFileDimension.MEDIUM ) ).getWidth() );
+        assertEquals( LARGE_IMAGE_WIDTH, largeImage.getWidth() );
+        assertEquals( LARGE_IMAGE_WIDTH / 2, largeImage.getHeight() );
+
+        for ( File image : images.values() )
+        {
+            Files.deleteIfExists( image.toPath() );
+        }
+    }
 }
@@ -0,0 +1,155 @@
+package org.hisp.dhis.fileresource;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.hisp.dhis.external.conf.ConfigurationKey;
+import org.hisp.dhis.external.conf.DhisConfigurationProvider;
+import org.hisp.dhis.scheduling.JobConfiguration;
+import org.hisp.dhis.system.notification.Notifier;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class ImageResizingJobTest
+{
+    @Rule
+    public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    @Mock
+    private FileResourceContentStore fileResourceContentStore;
+
+    @Mock
+    private FileResourceService fileResourceService;
+
+    @Mock
+    private ImageProcessingService imageProcessingService;
+
+    @Mock
+    private Notifier notifier;
+
+    @Mock
+    private DhisConfigurationProvider config;
+
+    private ImageResizingJob job;
+
+    private SimpleMeterRegistry registry;
+
+    @Before
+    public void setUp()
+    {
+        when( config.getProperty( ConfigurationKey.IMAGE_PROCESSING_PARALLELISM ) ).thenReturn( "2" );
+
+        job = new ImageResizingJob( fileResourceContentStore, fileResourceService, imageProcessingService, notifier,
+            config );
+
+        registry = new SimpleMeterRegistry();
+        job.bindTo( registry );
+    }
+
+    @Test
+    public void testExecuteCountsProcessedAndFailedImages()
+    {
+        FileResource processed = createFileResource( "processed" );
+        FileResource missing = createFileResource( "missing" );
+        FileResource empty = createFileResource( "empty" );
+
+        when( fileResourceService.getAllUnProcessedImagesFiles() )
+            .thenReturn( Arrays.asList( processed, missing, empty ) );
+        when( fileResourceContentStore.fileResourceContentExists( "processed" ) ).thenReturn( true );
+        when( fileResourceContentStore.fileResourceContentExists( "missing" ) ).thenReturn( false );
+        when( fileResourceContentStore.fileResourceContentExists( "empty" ) ).thenReturn( true );
+        when( imageProcessingService.createImages( eq( processed ), any( File.class ) ) )
+            .thenReturn( Collections.singletonMap( ImageFileDimension.SMALL, new File( "small" ) ) );
+        when( imageProcessingService.createImages( eq( empty ), any( File.class ) ) )
+            .thenReturn( Collections.emptyMap() );
+        when( fileResourceContentStore.saveFileResourceContent( eq( processed ), anyMap() ) )
+            .thenReturn( "processed" );
+
+        job.execute( new JobConfiguration() );
+
+        assertTrue( processed.isHasMultipleStorageFiles() );
+        assertFalse( empty.isHasMultipleStorageFiles() );
+        verify( fileResourceService ).updateFileResource( processed );
+        verify( fileResourceService, never() ).updateFileResource( empty );
+
+        assertEquals( 1d, registry.get( "dhis.image.processing.images" ).tag( "result", "processed" )
+            .functionCounter().count(), 0d );
+        assertEquals( 2d, registry.get( "dhis.image.processing.images" ).tag( "result", "failed" )
+            .functionCounter().count(), 0d );
+        assertEquals( 0d, registry.get( "dhis.image.processing.backlog" ).gauge().value(), 0d );
+    }
+
+    @Test
+    public void testExecuteCountsFailedUpload()
+    {
+        FileResource fileResource = createFileResource( "upload" );
+
+        when( fileResourceService.getAllUnProcessedImagesFiles() )
+            .thenReturn( Collections.singletonList( fileResource ) );
+        when( fileResourceContentStore.fileResourceContentExists( anyString() ) ).thenReturn( true );
+        when( imageProcessingService.createImages( eq( fileResource ), any( File.class ) ) )
+            .thenReturn( Collections.singletonMap( ImageFileDimension.SMALL, new File( "small" ) ) );
+
+        job.execute( new JobConfiguration() );
+
+        assertFalse( fileResource.isHasMultipleStorageFiles() );
+        assertEquals( 0d, registry.get( "dhis.image.processing.images" ).tag( "result", "processed" )
+            .functionCounter().count(), 0d );
+        assertEquals( 1d, registry.get( "dhis.image.processing.images" ).tag( "result", "failed" )
+            .functionCounter().count(), 0d );
+    }
+
+    private FileResource createFileResource( String key )
+    {
+        FileResource fileResource = new FileResource( key, key + ".png", "image/png", 1, "md5",
+            FileResourceDomain.DATA_VALUE );
+        fileResource.setStorageKey( key );
+        return fileResource;
+    }
+}
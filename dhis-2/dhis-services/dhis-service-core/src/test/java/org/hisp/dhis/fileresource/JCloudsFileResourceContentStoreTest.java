@@ -0,0 +1,173 @@
+package org.hisp.dhis.fileresource;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+import org.hisp.dhis.external.conf.ConfigurationKey;
+import org.hisp.dhis.external.conf.DhisConfigurationProvider;
+import org.hisp.dhis.external.location.LocationManager;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+import com.google.common.hash.Hashing;
+
+/**
+ * Tests the copying of content ranges of {@link JCloudsFileResourceContentStore}
+ * with the file system provider, which transfers from the blob file, and with
+ * the in-memory provider, which uses a ranged get on the blob store.
+ */
+public class JCloudsFileResourceContentStoreTest
+{
+    private static final byte[] CONTENT = "0123456789abcdefghijklmnopqrstuvwxyz".getBytes( StandardCharsets.UTF_8 );
+
+    @Rule
+    public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Mock
+    private LocationManager locationManager;
+
+    @Mock
+    private DhisConfigurationProvider configurationProvider;
+
+    private JCloudsFileResourceContentStore store;
+
+    @After
+    public void tearDown()
+    {
+        if ( store != null )
+        {
+            store.cleanUp();
+        }
+    }
+
+    @Test
+    public void testCopyContentRangeFromFile()
+        throws Exception
+    {
+        String key = saveContent( "filesystem" );
+
+        assertNotNull( store.getFileResourceContentFile( key ) );
+
+        assertArrayEquals( Arrays.copyOfRange( CONTENT, 3, 8 ), copyContent( key, 3, 5 ) );
+        assertArrayEquals( Arrays.copyOfRange( CONTENT, 30, 36 ), copyContent( key, 30, 6 ) );
+    }
+
+    @Test
+    public void testCopyContentFromFile()
+        throws Exception
+    {
+        String key = saveContent( "filesystem" );
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        store.copyContent( key, output );
+
+        assertArrayEquals( CONTENT, output.toByteArray() );
+    }
+
+    @Test
+    public void testCopyContentRangeFromBlobStore()
+        throws Exception
+    {
+        String key = saveContent( "transient" );
+
+        assertNull( store.getFileResourceContentFile( key ) );
+
+        assertArrayEquals( Arrays.copyOfRange( CONTENT, 3, 8 ), copyContent( key, 3, 5 ) );
+        assertArrayEquals( Arrays.copyOfRange( CONTENT, 0, 36 ), copyContent( key, 0, 36 ) );
+    }
+
+    @Test
+    public void testCopyEmptyRange()
+        throws Exception
+    {
+        String key = saveContent( "transient" );
+
+        assertEquals( 0, copyContent( key, 3, 0 ).length );
+    }
+
+    @Test( expected = NoSuchElementException.class )
+    public void testCopyContentRangeOfMissingKey()
+        throws Exception
+    {
+        saveContent( "filesystem" );
+
+        copyContent( "dataValue/missing", 0, 10 );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private String saveContent( String provider )
+        throws Exception
+    {
+        when( locationManager.externalDirectorySet() ).thenReturn( true );
+        when( locationManager.getExternalDirectoryPath() )
+            .thenReturn( temporaryFolder.getRoot().getAbsolutePath() );
+        when( configurationProvider.getProperty( ConfigurationKey.FILESTORE_PROVIDER ) ).thenReturn( provider );
+        when( configurationProvider.getProperty( ConfigurationKey.FILESTORE_CONTAINER ) ).thenReturn( "files" );
+
+        store = new JCloudsFileResourceContentStore( locationManager, configurationProvider );
+        store.init();
+
+        FileResource fileResource = new FileResource( "content.txt", "text/plain", CONTENT.length,
+            Hashing.md5().hashBytes( CONTENT ).toString(), FileResourceDomain.DATA_VALUE );
+
+        return store.saveFileResourceContent( fileResource, CONTENT );
+    }
+
+    private byte[] copyContent( String key, long offset, long length )
+        throws Exception
+    {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        store.copyContent( key, output, offset, length );
+
+        return output.toByteArray();
+    }
+}
@@ -0,0 +1,162 @@
+package org.hisp.dhis.keyjsonvalue.hibernate;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.hisp.dhis.common.IllegalQueryException;
+import org.hisp.dhis.keyjsonvalue.KeyJsonValueQuery;
+import org.hisp.dhis.keyjsonvalue.KeyJsonValueQuery.Filter;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+public class KeyJsonValueQuerySqlBuilderTest
+{
+    @Test
+    public void testGetSqlWithoutFilters()
+    {
+        KeyJsonValueQuery query = KeyJsonValueQuery.builder()
+            .namespace( "fruits" )
+            .build();
+
+        KeyJsonValueQuerySqlBuilder builder = new KeyJsonValueQuerySqlBuilder( query, null );
+
+        assertEquals( "select kjv.namespacekey, kjv.jbvalue::text from keyjsonvalue kjv " +
+            "where kjv.namespace = 'fruits' and kjv.encrypted is not true " +
+            "order by kjv.namespacekey asc limit 50 offset 0", builder.getSql() );
+        assertEquals( 0, builder.getParameters().length );
+    }
+
+    @Test
+    public void testGetSqlWithFieldsFiltersAndOrder()
+    {
+        KeyJsonValueQuery query = KeyJsonValueQuery.builder()
+            .namespace( "fruits" )
+            .fields( Lists.newArrayList( "name", "origin.country" ) )
+            .filters( Lists.newArrayList(
+                Filter.parse( "origin.country:eq:Norway" ),
+                Filter.parse( "weight:gt:100" ),
+                Filter.parse( "name:ilike:app" ),
+                Filter.parse( "color:in:red,green" ),
+                Filter.parse( "seeds:notnull" ) ) )
+            .order( "weight" )
+            .orderDescending( true )
+            .page( 3 )
+            .pageSize( 20 )
+            .build();
+
+        KeyJsonValueQuerySqlBuilder builder = new KeyJsonValueQuerySqlBuilder( query, null );
+
+        assertEquals( "select kjv.namespacekey, jsonb_build_object('name', kjv.jbvalue #> '{name}', " +
+            "'origin.country', kjv.jbvalue #> '{origin,country}')::text from keyjsonvalue kjv " +
+            "where kjv.namespace = 'fruits' and kjv.encrypted is not true " +
+            "and kjv.jbvalue #> '{origin,country}' = ?::jsonb " +
+            "and kjv.jbvalue #> '{weight}' > ?::jsonb " +
+            "and kjv.jbvalue #>> '{name}' ilike ? " +
+            "and kjv.jbvalue #> '{color}' in (?::jsonb, ?::jsonb) " +
+            "and (kjv.jbvalue #> '{seeds}' is not null and kjv.jbvalue #> '{seeds}' <> 'null'::jsonb) " +
+            "order by kjv.jbvalue #> '{weight}' desc nulls last, kjv.namespacekey asc limit 20 offset 40",
+            builder.getSql() );
+        assertArrayEquals( new Object[] { "\"Norway\"", "100", "%app%", "\"red\"", "\"green\"" },
+            builder.getParameters() );
+    }
+
+    @Test
+    public void testGetSqlWithSharing()
+    {
+        KeyJsonValueQuery query = KeyJsonValueQuery.builder()
+            .namespace( "fruits" )
+            .paging( false )
+            .build();
+
+        String sql = new KeyJsonValueQuerySqlBuilder( query, 42L ).getSql();
+
+        assertTrue( sql.contains( "kjv.userid = 42" ) );
+        assertTrue( sql.contains( "ugm.userid = 42" ) );
+        assertFalse( sql.contains( "limit" ) );
+    }
+
+    @Test
+    public void testGetSqlEscapesLikeWildcards()
+    {
+        KeyJsonValueQuery query = KeyJsonValueQuery.builder()
+            .namespace( "fruits" )
+            .filters( Lists.newArrayList(
+                Filter.parse( "name:like:100%_a\\b" ),
+                Filter.parse( "name:ilike:%" ) ) )
+            .build();
+
+        KeyJsonValueQuerySqlBuilder builder = new KeyJsonValueQuerySqlBuilder( query, null );
+
+        builder.getSql();
+
+        assertArrayEquals( new Object[] { "%100\\%\\_a\\\\b%", "%\\%%" }, builder.getParameters() );
+    }
+
+    @Test
+    public void testGetSqlQuotesNamespace()
+    {
+        KeyJsonValueQuery query = KeyJsonValueQuery.builder()
+            .namespace( "it's" )
+            .build();
+
+        assertTrue( new KeyJsonValueQuerySqlBuilder( query, null ).getSql()
+            .contains( "kjv.namespace = 'it''s'" ) );
+    }
+
+    @Test
+    public void testGetCreateIndexSql()
+    {
+        assertEquals( "create index concurrently if not exists " + KeyJsonValueQuerySqlBuilder.getIndexName( "fruits", "origin.country" ) +
+            " on keyjsonvalue ((jbvalue #> '{origin,country}')) where namespace = 'fruits'",
+            KeyJsonValueQuerySqlBuilder.getCreateIndexSql( "fruits", "origin.country" ) );
+        assertEquals( "drop index concurrently if exists " + KeyJsonValueQuerySqlBuilder.getIndexName( "fruits", "origin.country" ),
+            KeyJsonValueQuerySqlBuilder.getDropIndexSql( "fruits", "origin.country" ) );
+        assertTrue( KeyJsonValueQuerySqlBuilder.getIndexName( "fruits", "origin.country" )
+            .startsWith( "in_keyjsonvalue_fruits_origin_country_" ) );
+        assertTrue( KeyJsonValueQuerySqlBuilder.getIndexName( "fruits", "a.very.long.path.into.the.values.of.the.namespace" )
+            .length() <= 63 );
+    }
+
+    @Test( expected = IllegalQueryException.class )
+    public void testInvalidPath()
+    {
+        Filter.parse( "name' or 1=1 --:eq:x" );
+    }
+
+    @Test( expected = IllegalQueryException.class )
+    public void testInvalidOperator()
+    {
+        Filter.parse( "name:contains:x" );
+    }
+}
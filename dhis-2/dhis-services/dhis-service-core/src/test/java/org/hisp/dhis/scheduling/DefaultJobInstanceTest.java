@@ -0,0 +1,102 @@
+package org.hisp.dhis.scheduling;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.hisp.dhis.leader.election.LeaderManager;
+import org.hisp.dhis.message.MessageService;
+import org.hisp.dhis.scheduling.parameters.MockJobParameters;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+public class DefaultJobInstanceTest
+{
+    @Mock
+    private SchedulingManager schedulingManager;
+
+    @Mock
+    private MessageService messageService;
+
+    @Mock
+    private LeaderManager leaderManager;
+
+    @Mock
+    private JobLeaseManager jobLeaseManager;
+
+    @Rule
+    public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    private JobConfiguration jobConfiguration;
+
+    @Before
+    public void setUp()
+    {
+        jobConfiguration = new JobConfiguration( "jobA", JobType.MOCK, "0 * * ? * *", new MockJobParameters() );
+        jobConfiguration.setUid( "jobUidAAAAA" );
+
+        when( jobLeaseManager.isEnabled() ).thenReturn( true );
+    }
+
+    @Test
+    public void testScheduledExecutionSkippedWithoutLease()
+    {
+        when( jobLeaseManager.tryAcquire( jobConfiguration ) ).thenReturn( false );
+
+        new DefaultJobInstance( schedulingManager, messageService, leaderManager, jobLeaseManager )
+            .execute( jobConfiguration );
+
+        verify( jobLeaseManager, never() ).tryAcquireForManualExecution( any() );
+        verify( schedulingManager, never() ).jobConfigurationFinished( any() );
+        verify( jobLeaseManager, never() ).release( any() );
+    }
+
+    @Test
+    public void testManualExecutionFailsWithoutLease()
+    {
+        when( jobLeaseManager.tryAcquireForManualExecution( jobConfiguration ) ).thenReturn( false );
+
+        new DefaultJobInstance( schedulingManager, messageService, leaderManager, jobLeaseManager, true )
+            .execute( jobConfiguration );
+
+        assertEquals( JobStatus.FAILED, jobConfiguration.getLastExecutedStatus() );
+        verify( jobLeaseManager, never() ).tryAcquire( any() );
+        verify( schedulingManager ).jobConfigurationFinished( jobConfiguration );
+        verify( schedulingManager, never() ).jobConfigurationStarted( any() );
+        verify( jobLeaseManager, never() ).release( any() );
+    }
+}
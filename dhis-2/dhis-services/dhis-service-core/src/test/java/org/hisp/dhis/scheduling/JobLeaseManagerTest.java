@@ -0,0 +1,166 @@
+package org.hisp.dhis.scheduling;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.EnumSet;
+
+import org.hisp.dhis.DhisSpringTest;
+import org.hisp.dhis.scheduling.parameters.MockJobParameters;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Simulates a cluster through several in-process lease managers sharing one
+ * lease store.
+ */
+public class JobLeaseManagerTest
+    extends DhisSpringTest
+{
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private JobLeaseStore jobLeaseStore;
+
+    private JobLeaseManager nodeA;
+
+    private JobLeaseManager nodeB;
+
+    private JobConfiguration jobA;
+
+    private JobConfiguration jobB;
+
+    @Override
+    public void setUpTest()
+    {
+        jdbcTemplate.execute( "create table if not exists jobconfigurationlease (" +
+            "jobkey varchar(11) not null primary key, nodeid varchar(255) not null, " +
+            "acquired timestamp not null, expires timestamp not null, lastcompleted timestamp)" );
+
+        jobLeaseStore = new JdbcJobLeaseStore( jdbcTemplate );
+
+        nodeA = new DefaultJobLeaseManager( jobLeaseStore, true, "nodeA", 60, 10, EnumSet.noneOf( JobType.class ) );
+        nodeB = new DefaultJobLeaseManager( jobLeaseStore, true, "nodeB", 60, 0, EnumSet.noneOf( JobType.class ) );
+
+        jobA = new JobConfiguration( "jobA", JobType.MOCK, "0 * * ? * *", new MockJobParameters() );
+        jobA.setUid( "jobUidAAAAA" );
+        jobB = new JobConfiguration( "jobB", JobType.ANALYTICS_TABLE, "0 * * ? * *", null );
+        jobB.setUid( "jobUidBBBBB" );
+    }
+
+    @Override
+    public void tearDownTest()
+    {
+        jdbcTemplate.execute( "drop table if exists jobconfigurationlease" );
+    }
+
+    @Test
+    public void testLeaseIsExclusive()
+    {
+        assertTrue( nodeA.tryAcquire( jobA ) );
+        assertFalse( nodeB.tryAcquire( jobA ) );
+        assertFalse( nodeA.tryAcquire( jobA ) );
+
+        assertTrue( nodeB.tryAcquire( jobB ) );
+        assertFalse( nodeA.tryAcquire( jobB ) );
+    }
+
+    @Test
+    public void testGracePeriodAfterRelease()
+    {
+        assertTrue( nodeB.tryAcquire( jobA ) );
+        nodeB.release( jobA );
+
+        // Node A requires the job to have completed more than 10 seconds ago
+
+        assertFalse( nodeA.tryAcquire( jobA ) );
+    }
+
+    @Test
+    public void testFailoverOnExpiredLease()
+    {
+        assertTrue( jobLeaseStore.tryAcquire( jobA.getUid(), "deadNode", -1, 0 ) );
+        assertEquals( 0, jobLeaseStore.renew( "deadNode", 60 ) );
+
+        assertTrue( nodeA.tryAcquire( jobA ) );
+        assertFalse( nodeB.tryAcquire( jobA ) );
+    }
+
+    @Test
+    public void testRenewLeases()
+    {
+        assertTrue( nodeA.tryAcquire( jobA ) );
+        assertTrue( nodeA.tryAcquire( jobB ) );
+
+        assertEquals( 2, jobLeaseStore.renew( nodeA.getNodeId(), 60 ) );
+        assertEquals( 0, jobLeaseStore.renew( nodeB.getNodeId(), 60 ) );
+    }
+
+    @Test
+    public void testManualExecutionIgnoresGracePeriodAndPinnedJobTypes()
+    {
+        JobLeaseManager analyticsNode = new DefaultJobLeaseManager(
+            jobLeaseStore, true, "analyticsNode", 60, 10, EnumSet.of( JobType.ANALYTICS_TABLE ) );
+
+        assertTrue( nodeB.tryAcquire( jobA ) );
+        nodeB.release( jobA );
+
+        assertFalse( nodeA.tryAcquire( jobA ) );
+        assertFalse( analyticsNode.tryAcquire( jobA ) );
+        assertTrue( analyticsNode.tryAcquireForManualExecution( jobA ) );
+        assertFalse( nodeA.tryAcquireForManualExecution( jobA ) );
+    }
+
+    @Test
+    public void testPinnedJobTypes()
+    {
+        JobLeaseManager analyticsNode = new DefaultJobLeaseManager(
+            jobLeaseStore, true, "analyticsNode", 60, 0, EnumSet.of( JobType.ANALYTICS_TABLE ) );
+
+        assertTrue( analyticsNode.isAccepted( JobType.ANALYTICS_TABLE ) );
+        assertFalse( analyticsNode.isAccepted( JobType.MOCK ) );
+
+        assertFalse( analyticsNode.tryAcquire( jobA ) );
+        assertTrue( analyticsNode.tryAcquire( jobB ) );
+    }
+
+    @Test
+    public void testRandomNodeId()
+    {
+        JobLeaseManager nodeX = new DefaultJobLeaseManager( jobLeaseStore, true, "", 60, 0, EnumSet.noneOf( JobType.class ) );
+        JobLeaseManager nodeY = new DefaultJobLeaseManager( jobLeaseStore, true, null, 60, 0, EnumSet.noneOf( JobType.class ) );
+
+        assertNotEquals( nodeX.getNodeId(), nodeY.getNodeId() );
+    }
+}
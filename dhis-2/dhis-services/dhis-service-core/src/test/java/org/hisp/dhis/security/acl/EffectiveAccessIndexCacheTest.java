@@ -0,0 +1,204 @@
+package org.hisp.dhis.security.acl;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+
+import org.hibernate.SessionFactory;
+import org.hisp.dhis.DhisSpringTest;
+import org.hisp.dhis.cache.CacheProvider;
+import org.hisp.dhis.cache.CacheRegionInvalidation;
+import org.hisp.dhis.cache.CacheRegionInvalidationEvent;
+import org.hisp.dhis.common.IdentifiableObjectManager;
+import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.security.acl.AccessStringHelper.Permission;
+import org.hisp.dhis.user.User;
+import org.hisp.dhis.user.UserGroup;
+import org.hisp.dhis.user.UserGroupAccess;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.env.Environment;
+
+import com.google.common.collect.Sets;
+
+/**
+ * Tests the caches of {@link DefaultEffectiveAccessIndex}, which are disabled
+ * for the index of the test context. The cached index under test is not
+ * notified by the Hibernate listener, so changes show which state is served
+ * from the cache.
+ */
+public class EffectiveAccessIndexCacheTest
+    extends DhisSpringTest
+{
+    @Autowired
+    private IdentifiableObjectManager manager;
+
+    @Autowired
+    private SessionFactory sessionFactory;
+
+    @Autowired
+    private CacheProvider cacheProvider;
+
+    private ApplicationEventPublisher publisher;
+
+    private DefaultEffectiveAccessIndex cachedIndex;
+
+    private User userA;
+
+    private UserGroup groupA;
+
+    @Override
+    protected void setUpTest()
+    {
+        userA = createUser( 'A' );
+        manager.save( userA );
+
+        groupA = createUserGroup( 'A', Sets.newHashSet( userA ) );
+        manager.save( groupA );
+
+        Environment environment = mock( Environment.class );
+        when( environment.getActiveProfiles() ).thenReturn( new String[0] );
+
+        publisher = mock( ApplicationEventPublisher.class );
+
+        cachedIndex = new DefaultEffectiveAccessIndex( sessionFactory, cacheProvider, environment, publisher );
+        cachedIndex.init();
+    }
+
+    @Test
+    public void testServesMembershipUntilUserIsInvalidated()
+    {
+        assertEquals( Sets.newHashSet( groupA.getId() ), cachedIndex.getMembership( userA.getId() ).getUserGroupIds() );
+
+        UserGroup groupB = createUserGroup( 'B', Sets.newHashSet( userA ) );
+        manager.save( groupB );
+
+        assertEquals( Sets.newHashSet( groupA.getId() ), cachedIndex.getMembership( userA.getId() ).getUserGroupIds() );
+
+        cachedIndex.invalidateUser( userA.getId() );
+
+        assertEquals( Sets.newHashSet( groupA.getId(), groupB.getId() ),
+            cachedIndex.getMembership( userA.getId() ).getUserGroupIds() );
+    }
+
+    @Test
+    public void testInvalidationIsPublished()
+    {
+        cachedIndex.invalidateUser( userA.getId() );
+        cachedIndex.invalidateObjects();
+
+        ArgumentCaptor<CacheRegionInvalidationEvent> captor = ArgumentCaptor.forClass( CacheRegionInvalidationEvent.class );
+        verify( publisher, times( 2 ) ).publishEvent( captor.capture() );
+
+        assertEquals( 2, captor.getAllValues().size() );
+        assertFalse( captor.getAllValues().get( 0 ).isRemote() );
+        assertEquals( Collections.singletonList( CacheRegionInvalidation.key(
+            DefaultEffectiveAccessIndex.MEMBERSHIP_REGION, String.valueOf( userA.getId() ) ) ),
+            captor.getAllValues().get( 0 ).getInvalidations() );
+        assertEquals( Collections.singletonList( CacheRegionInvalidation.all(
+            DefaultEffectiveAccessIndex.OBJECT_ACCESS_REGION ) ),
+            captor.getAllValues().get( 1 ).getInvalidations() );
+    }
+
+    @Test
+    public void testRemoteInvalidationIsApplied()
+    {
+        cachedIndex.getMembership( userA.getId() );
+
+        UserGroup groupB = createUserGroup( 'B', Sets.newHashSet( userA ) );
+        manager.save( groupB );
+
+        cachedIndex.handleRemoteInvalidation( new CacheRegionInvalidationEvent( this, Collections.singletonList(
+            CacheRegionInvalidation.all( "otherRegion" ) ), true ) );
+
+        assertEquals( 1, cachedIndex.getMembership( userA.getId() ).getUserGroupIds().size() );
+
+        cachedIndex.handleRemoteInvalidation( new CacheRegionInvalidationEvent( this, Collections.singletonList(
+            CacheRegionInvalidation.key( DefaultEffectiveAccessIndex.MEMBERSHIP_REGION,
+                String.valueOf( userA.getId() ) ) ), true ) );
+
+        assertEquals( 2, cachedIndex.getMembership( userA.getId() ).getUserGroupIds().size() );
+    }
+
+    @Test
+    public void testServesObjectAccessUntilObjectIsInvalidated()
+    {
+        DataElement dataElement = createDataElement( 'A' );
+        dataElement.getUserGroupAccesses().add( new UserGroupAccess( groupA, "rw------" ) );
+        manager.save( dataElement );
+
+        ObjectAccess objectAccess = cachedIndex.getObjectAccess( dataElement );
+
+        assertSame( objectAccess, cachedIndex.getObjectAccess( dataElement ) );
+        assertTrue( cachedIndex.isEnabled( objectAccess, cachedIndex.getMembership( userA ), userA.getId(),
+            Permission.WRITE ) );
+
+        cachedIndex.invalidateObject( dataElement.getUid() );
+
+        assertNotSame( objectAccess, cachedIndex.getObjectAccess( dataElement ) );
+    }
+
+    @Test
+    public void testUserGroupPositionsAreResetAtBound()
+    {
+        DataElement dataElement = createDataElement( 'A' );
+        dataElement.getUserGroupAccesses().add( new UserGroupAccess( groupA, "rw------" ) );
+        manager.save( dataElement );
+
+        ObjectAccess objectAccess = cachedIndex.getObjectAccess( dataElement );
+        UserGroupMembership membership = cachedIndex.getMembership( userA );
+
+        assertTrue( cachedIndex.isEnabled( objectAccess, membership, userA.getId(), Permission.WRITE ) );
+
+        UserGroupPositions positions = cachedIndex.getUserGroupPositions();
+
+        for ( long id = -1; positions.size() < DefaultEffectiveAccessIndex.MAX_USER_GROUP_POSITIONS; id-- )
+        {
+            positions.getPosition( id );
+        }
+
+        assertNotSame( positions, cachedIndex.getUserGroupPositions() );
+        assertEquals( 0, cachedIndex.getUserGroupPositions().size() );
+
+        assertTrue( cachedIndex.isEnabled( objectAccess, membership, userA.getId(), Permission.WRITE ) );
+        assertFalse( cachedIndex.isEnabled( objectAccess, membership, userA.getId(), Permission.DATA_READ ) );
+    }
+}
@@ -0,0 +1,154 @@
+package org.hisp.dhis.security.basic;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.hisp.dhis.cache.DefaultCacheProvider;
+import org.hisp.dhis.external.conf.ConfigurationKey;
+import org.hisp.dhis.external.conf.DhisConfigurationProvider;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class BasicAuthenticationCacheTest
+{
+    @Rule
+    public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    @Mock
+    private DhisConfigurationProvider config;
+
+    @Mock
+    private HttpServletRequest request;
+
+    private BasicAuthenticationCache cache;
+
+    private UserDetails userDetails;
+
+    @Before
+    public void setUp()
+    {
+        when( config.isEnabled( ConfigurationKey.SYSTEM_AUTHENTICATION_CACHE ) ).thenReturn( true );
+        when( config.getProperty( ConfigurationKey.SYSTEM_AUTHENTICATION_CACHE_TTL ) ).thenReturn( "60" );
+
+        DefaultCacheProvider cacheProvider = new DefaultCacheProvider();
+        cacheProvider.setConfigurationProvider( config );
+
+        cache = new BasicAuthenticationCache( config, cacheProvider );
+        cache.init();
+
+        userDetails = new User( "admin", "$2a$10$hash", Collections.emptyList() );
+    }
+
+    @Test
+    public void testVerified()
+    {
+        UsernamePasswordAuthenticationToken auth = basicAuth( "district" );
+
+        assertFalse( cache.isVerified( userDetails, auth ) );
+
+        cache.putVerified( userDetails, auth );
+
+        assertTrue( cache.isVerified( userDetails, auth ) );
+        assertFalse( cache.isVerified( userDetails, basicAuth( "wrong" ) ) );
+    }
+
+    @Test
+    public void testPasswordChanged()
+    {
+        UsernamePasswordAuthenticationToken auth = basicAuth( "district" );
+
+        cache.putVerified( userDetails, auth );
+
+        UserDetails changed = new User( "admin", "$2a$10$other", Collections.emptyList() );
+
+        assertFalse( cache.isVerified( changed, auth ) );
+    }
+
+    @Test
+    public void testInvalidate()
+    {
+        UsernamePasswordAuthenticationToken auth = basicAuth( "district" );
+
+        cache.putVerified( userDetails, auth );
+        cache.invalidate( "admin" );
+
+        assertFalse( cache.isVerified( userDetails, auth ) );
+    }
+
+    @Test
+    public void testNotBasicAuthentication()
+    {
+        UsernamePasswordAuthenticationToken auth = new UsernamePasswordAuthenticationToken( "admin", "district" );
+
+        cache.putVerified( userDetails, auth );
+
+        assertFalse( cache.isVerified( userDetails, auth ) );
+    }
+
+    @Test
+    public void testMetrics()
+    {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        cache.bindTo( registry );
+
+        UsernamePasswordAuthenticationToken auth = basicAuth( "district" );
+
+        cache.isVerified( userDetails, auth );
+        cache.putVerified( userDetails, auth );
+        cache.isVerified( userDetails, auth );
+        cache.isVerified( userDetails, auth );
+
+        assertEquals( 2d, registry.get( "cache.gets" ).tag( "result", "hit" ).functionCounter().count(), 0d );
+        assertEquals( 1d, registry.get( "cache.gets" ).tag( "result", "miss" ).functionCounter().count(), 0d );
+    }
+
+    private UsernamePasswordAuthenticationToken basicAuth( String password )
+    {
+        UsernamePasswordAuthenticationToken auth = new UsernamePasswordAuthenticationToken( "admin", password );
+        auth.setDetails( new HttpBasicWebAuthenticationDetails( request ) );
+        return auth;
+    }
+}
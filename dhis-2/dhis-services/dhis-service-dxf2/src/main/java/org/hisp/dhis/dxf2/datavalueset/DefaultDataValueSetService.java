@@ -77,6 +77,7 @@ import org.hisp.dhis.i18n.I18nManager;
 import org.hisp.dhis.importexport.ImportStrategy;
 import org.hisp.dhis.jdbc.batchhandler.DataValueAuditBatchHandler;
 import org.hisp.dhis.jdbc.batchhandler.DataValueBatchHandler;
+import org.hisp.dhis.monitoring.metrics.ApplicationMetrics;
 import org.hisp.dhis.node.types.CollectionNode;
 import org.hisp.dhis.node.types.ComplexNode;
 import org.hisp.dhis.node.types.RootNode;
@@ -127,6 +128,7 @@ import static org.hisp.dhis.system.notification.NotificationLevel.*;
 import static org.hisp.dhis.util.DateUtils.parseDate;
 
 import static org.hisp.dhis.external.conf.ConfigurationKey.CHANGELOG_AGGREGATE;
+import static org.hisp.dhis.monitoring.metrics.ApplicationMetrics.SUBSYSTEM_IMPORT;
 
 /**
  * Note that a mock BatchHandler factory is being injected.
@@ -183,6 +185,8 @@ public class DefaultDataValueSetService
 
     private final ObjectMapper jsonMapper;
 
+    private final ApplicationMetrics applicationMetrics;
+
     public DefaultDataValueSetService(
         IdentifiableObjectManager identifiableObjectManager,
         CategoryService categoryService,
@@ -204,7 +208,8 @@ public class DefaultDataValueSetService
         AclService aclService,
         AggregateAccessManager accessManager,
         DhisConfigurationProvider config,
-        ObjectMapper jsonMapper )
+        ObjectMapper jsonMapper,
+        ApplicationMetrics applicationMetrics )
     {
         checkNotNull( identifiableObjectManager );
         checkNotNull( categoryService );
@@ -227,6 +232,7 @@ public class DefaultDataValueSetService
         checkNotNull( accessManager );
         checkNotNull( config );
         checkNotNull( jsonMapper );
+        checkNotNull( applicationMetrics );
 
         this.identifiableObjectManager = identifiableObjectManager;
         this.categoryService = categoryService;
@@ -249,6 +255,7 @@ public class DefaultDataValueSetService
         this.accessManager = accessManager;
         this.config = config;
         this.jsonMapper = jsonMapper;
+        this.applicationMetrics = applicationMetrics;
     }
 
     /**
@@ -745,6 +752,7 @@ public class DefaultDataValueSetService
     {
         importOptions = ObjectUtils.firstNonNull( importOptions, ImportOptions.getDefaultImportOptions() );
 
+        long metricsStart = applicationMetrics.start();
         Clock clock = new Clock( log ).startClock().logTime( "Starting data value import, options: " + importOptions );
         NotificationLevel notificationLevel = importOptions.getNotificationLevel( INFO );
         notifier.clear( id ).notify( id, notificationLevel, "Process started" );
@@ -1436,6 +1444,8 @@ public class DefaultDataValueSetService
         summary.setDescription( "Import process completed successfully" );
 
         clock.logTime( "Data value import done, total: " + totalCount + ", import: " + importCount + ", update: " + updateCount + ", delete: " + deleteCount );
+        applicationMetrics.stop( metricsStart, SUBSYSTEM_IMPORT, "data_values" );
+        applicationMetrics.count( SUBSYSTEM_IMPORT, "data_values", totalCount );
         notifier.notify( id, notificationLevel, "Import done", true ).addJobSummary( id, notificationLevel, summary, ImportSummary.class );
 
         dataValueSet.close();
@@ -38,15 +38,32 @@ import java.io.OutputStream;
 import java.io.Writer;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import javax.annotation.PreDestroy;
 
 import org.hisp.dhis.calendar.Calendar;
 import org.hisp.dhis.common.IdScheme;
 import org.hisp.dhis.common.IdSchemes;
 import org.hisp.dhis.commons.util.TextUtils;
 import org.hisp.dhis.datavalue.DataExportParams;
+import org.hisp.dhis.external.conf.ConfigurationKey;
+import org.hisp.dhis.external.conf.DhisConfigurationProvider;
 import org.hisp.dhis.dxf2.datavalue.DataValue;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.hisp.dhis.period.Period;
 import org.hisp.dhis.period.PeriodType;
 import org.hisp.dhis.system.util.CsvUtils;
 import org.hisp.dhis.user.CurrentUserService;
@@ -58,10 +75,21 @@ import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.stereotype.Repository;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 import lombok.extern.slf4j.Slf4j;
 
 /**
+ * Data value set store which streams data values directly from the database.
+ * <p/>
+ * When the configured export parallelism is greater than one, exports are
+ * split by period or by organisation unit sub-hierarchy into partitions which
+ * are read concurrently on separate connections, using a thread pool shared by
+ * all exports. Partitions are written to the output in a fixed order. Each
+ * partition streams its rows through a bounded buffer, so at most the
+ * parallelism times the buffer size rows are held in memory per export.
+ *
  * @author Lars Helge Overland
  */
 @Slf4j
@@ -73,13 +101,53 @@ public class SpringDataValueSetStore
 
     private final JdbcTemplate jdbcTemplate;
 
-    public SpringDataValueSetStore( CurrentUserService currentUserService, JdbcTemplate jdbcTemplate )
+    /**
+     * Number of rows buffered per partition which is being read ahead of the
+     * partition being written.
+     */
+    private static final int PARTITION_BUFFER_SIZE = 5000;
+
+    private final int exportParallelism;
+
+    private final int partitionBufferSize;
+
+    /**
+     * Thread pool for reading partitions, shared by all exports. Null if
+     * exports are not split.
+     */
+    private final ExecutorService partitionExecutor;
+
+    public SpringDataValueSetStore( CurrentUserService currentUserService, JdbcTemplate jdbcTemplate,
+        DhisConfigurationProvider config )
+    {
+        this( currentUserService, jdbcTemplate,
+            Integer.parseInt( config.getProperty( ConfigurationKey.DATAVALUESET_EXPORT_PARALLELISM ) ),
+            PARTITION_BUFFER_SIZE );
+    }
+
+    SpringDataValueSetStore( CurrentUserService currentUserService, JdbcTemplate jdbcTemplate,
+        int exportParallelism, int partitionBufferSize )
     {
         checkNotNull( currentUserService );
         checkNotNull( jdbcTemplate );
 
         this.currentUserService = currentUserService;
         this.jdbcTemplate = jdbcTemplate;
+        this.exportParallelism = Math.max( 1, exportParallelism );
+        this.partitionBufferSize = Math.max( 1, partitionBufferSize );
+        this.partitionExecutor = this.exportParallelism > 1
+            ? Executors.newFixedThreadPool( this.exportParallelism,
+                new ThreadFactoryBuilder().setNameFormat( "datavalueset-export-%d" ).setDaemon( true ).build() )
+            : null;
+    }
+
+    @PreDestroy
+    public void shutdown()
+    {
+        if ( partitionExecutor != null )
+        {
+            partitionExecutor.shutdownNow();
+        }
     }
 
     /**
@@ -99,9 +167,9 @@ public class SpringDataValueSetStore
     {
         DataValueSet dataValueSet = new StreamingXmlDataValueSet( XMLFactory.getXMLWriter( out ) );
 
-        String sql = getDataValueSql( params );
+        List<String> partitionSql = getPartitionedDataValueSql( params );
 
-        writeDataValueSet( sql, params, completeDate, dataValueSet );
+        writeDataValueSet( partitionSql, params, completeDate, dataValueSet );
     }
 
     @Override
@@ -109,9 +177,9 @@ public class SpringDataValueSetStore
     {
         DataValueSet dataValueSet = new StreamingJsonDataValueSet( out );
 
-        String sql = getDataValueSql( params );
+        List<String> partitionSql = getPartitionedDataValueSql( params );
 
-        writeDataValueSet( sql, params, completeDate, dataValueSet );
+        writeDataValueSet( partitionSql, params, completeDate, dataValueSet );
     }
 
     @Override
@@ -119,9 +187,9 @@ public class SpringDataValueSetStore
     {
         DataValueSet dataValueSet = new StreamingCsvDataValueSet( CsvUtils.getWriter( writer ) );
 
-        String sql = getDataValueSql( params );
+        List<String> partitionSql = getPartitionedDataValueSql( params );
 
-        writeDataValueSet( sql, params, completeDate, dataValueSet );
+        writeDataValueSet( partitionSql, params, completeDate, dataValueSet );
     }
 
     @Override
@@ -170,6 +238,17 @@ public class SpringDataValueSetStore
     }
 
     private void writeDataValueSet( String sql, DataExportParams params, Date completeDate, final DataValueSet dataValueSet )
+    {
+        writeDataValueSet( ImmutableList.of( sql ), params, completeDate, dataValueSet );
+    }
+
+    /**
+     * Writes the data values returned by the given queries to the data value
+     * set, in the order of the queries. A single query is streamed directly
+     * to the data value set, whereas multiple queries are read in parallel.
+     */
+    private void writeDataValueSet( List<String> partitionSql, DataExportParams params, Date completeDate,
+        final DataValueSet dataValueSet )
     {
         if ( params.isSingleDataValueSet() )
         {
@@ -185,44 +264,265 @@ public class SpringDataValueSetStore
 
         final Calendar calendar = PeriodType.getCalendar();
 
-        jdbcTemplate.query( sql, new RowCallbackHandler()
+        if ( partitionSql.size() == 1 )
         {
-            @Override
-            public void processRow( ResultSet rs ) throws SQLException
+            jdbcTemplate.query( partitionSql.get( 0 ), new RowCallbackHandler()
             {
-                DataValue dataValue = dataValueSet.getDataValueInstance();
-                PeriodType pt = PeriodType.getPeriodTypeByName( rs.getString( "ptname" ) );
-                boolean deleted = rs.getBoolean( "deleted" );
-
-                dataValue.setDataElement( rs.getString( "deid" ) );
-                dataValue.setPeriod( pt.createPeriod( rs.getDate( "pestart" ), calendar ).getIsoDate() );
-                dataValue.setOrgUnit( rs.getString( "ouid" ) );
-                dataValue.setCategoryOptionCombo( rs.getString( "cocid" ) );
-                dataValue.setAttributeOptionCombo( rs.getString( "aocid" ) );
-                dataValue.setValue( rs.getString( "value" ) );
-                dataValue.setStoredBy( rs.getString( "storedby" ) );
-                dataValue.setCreated( getLongGmtDateString( rs.getTimestamp( "created" ) ) );
-                dataValue.setLastUpdated( getLongGmtDateString( rs.getTimestamp( "lastupdated" ) ) );
-                dataValue.setComment( rs.getString( "comment" ) );
-                dataValue.setFollowup( rs.getBoolean( "followup" ) );
-
-                if ( deleted )
+                @Override
+                public void processRow( ResultSet rs ) throws SQLException
                 {
-                    dataValue.setDeleted( deleted );
+                    new DataValueRow( rs, calendar ).write( dataValueSet );
                 }
+            } );
+        }
+        else
+        {
+            writeDataValuePartitions( partitionSql, calendar, dataValueSet );
+        }
 
-                dataValue.close();
+        dataValueSet.close();
+    }
+
+    /**
+     * Reads the given partition queries concurrently and writes the data
+     * values of each partition to the data value set in partition order. A
+     * partition is submitted for reading only when a partition before it has
+     * been written. Rows of the partition being written are streamed, whereas
+     * readers of later partitions block when their buffer is full.
+     */
+    private void writeDataValuePartitions( List<String> partitionSql, Calendar calendar,
+        DataValueSet dataValueSet )
+    {
+        int partitions = partitionSql.size();
+        int parallelism = Math.min( exportParallelism, partitions );
+
+        log.info( "Exporting data values in {} partitions with parallelism {}", partitions, parallelism );
+
+        List<PartitionReader> readers = new ArrayList<>( partitions );
+
+        try
+        {
+            for ( int i = 0; i < parallelism; i++ )
+            {
+                readers.add( submitPartition( partitionSql.get( i ), calendar ) );
             }
-        } );
 
-        dataValueSet.close();
+            for ( int i = 0; i < partitions; i++ )
+            {
+                readers.get( i ).writeTo( dataValueSet );
+
+                readers.set( i, null );
+
+                if ( i + parallelism < partitions )
+                {
+                    readers.add( submitPartition( partitionSql.get( i + parallelism ), calendar ) );
+                }
+            }
+        }
+        catch ( InterruptedException ex )
+        {
+            Thread.currentThread().interrupt();
+
+            throw new IllegalStateException( "Data value set export was interrupted", ex );
+        }
+        catch ( ExecutionException ex )
+        {
+            if ( ex.getCause() instanceof RuntimeException )
+            {
+                throw (RuntimeException) ex.getCause();
+            }
+
+            throw new IllegalStateException( "Data value set export failed", ex.getCause() );
+        }
+        finally
+        {
+            readers.stream().filter( reader -> reader != null ).forEach( PartitionReader::cancel );
+        }
+    }
+
+    private PartitionReader submitPartition( String sql, Calendar calendar )
+    {
+        PartitionReader reader = new PartitionReader( sql, calendar, partitionBufferSize );
+
+        reader.future = partitionExecutor.submit( reader::read );
+
+        return reader;
+    }
+
+    /**
+     * Reads the data values of a partition query into a bounded buffer, from
+     * which the exporting thread writes them to the data value set.
+     */
+    private class PartitionReader
+    {
+        private final String sql;
+
+        private final Calendar calendar;
+
+        private final BlockingQueue<DataValueRow> rows;
+
+        private Future<?> future;
+
+        PartitionReader( String sql, Calendar calendar, int bufferSize )
+        {
+            this.sql = sql;
+            this.calendar = calendar;
+            this.rows = new ArrayBlockingQueue<>( bufferSize );
+        }
+
+        void read()
+        {
+            jdbcTemplate.query( sql, (RowCallbackHandler) rs -> {
+                try
+                {
+                    rows.put( new DataValueRow( rs, calendar ) );
+                }
+                catch ( InterruptedException ex )
+                {
+                    Thread.currentThread().interrupt();
+
+                    throw new IllegalStateException( "Data value set partition read was cancelled", ex );
+                }
+            } );
+        }
+
+        /**
+         * Writes the rows of this partition as they are read, and returns
+         * when the partition is fully read and written.
+         */
+        void writeTo( DataValueSet dataValueSet )
+            throws InterruptedException, ExecutionException
+        {
+            while ( true )
+            {
+                DataValueRow row = rows.poll( 100, TimeUnit.MILLISECONDS );
+
+                if ( row != null )
+                {
+                    row.write( dataValueSet );
+                }
+                else if ( future.isDone() )
+                {
+                    while ( (row = rows.poll()) != null )
+                    {
+                        row.write( dataValueSet );
+                    }
+
+                    future.get();
+
+                    return;
+                }
+            }
+        }
+
+        void cancel()
+        {
+            future.cancel( true );
+            rows.clear();
+        }
     }
 
     //--------------------------------------------------------------------------
     // Supportive methods
     //--------------------------------------------------------------------------
 
+    /**
+     * Returns the data value queries for the given parameters. When export
+     * parallelism is enabled, the export is split into one query per period
+     * if there are multiple periods, or otherwise into one query per
+     * organisation unit sub-hierarchy if children are included. Exports with
+     * a limit are never split.
+     *
+     * @param params the data export parameters.
+     * @return a list of SQL queries, in the order the results should be written.
+     */
+    private List<String> getPartitionedDataValueSql( DataExportParams params )
+    {
+        if ( exportParallelism > 1 && !params.hasLimit() )
+        {
+            if ( !params.hasStartEndDate() && params.getPeriods().size() > 1 )
+            {
+                return params.getPeriods().stream()
+                    .sorted( Comparator.comparing( Period::getStartDate ).thenComparing( Period::getId ) )
+                    .map( period -> getDataValueSql( params, ImmutableList.of( period ), null ) )
+                    .collect( Collectors.toList() );
+            }
+
+            List<String> orgUnitClauses = getOrgUnitPartitionClauses( params );
+
+            if ( orgUnitClauses.size() > 1 )
+            {
+                return orgUnitClauses.stream()
+                    .map( clause -> getDataValueSql( params, params.getPeriods(), clause ) )
+                    .collect( Collectors.toList() );
+            }
+        }
+
+        return ImmutableList.of( getDataValueSql( params ) );
+    }
+
+    /**
+     * Returns organisation unit filter clauses which split the hierarchies of
+     * the export organisation units into disjoint partitions: one for each
+     * parent organisation unit itself and one for the sub-hierarchy of each of
+     * its children. Returns an empty list if children are not included, or if
+     * the hierarchies of the export organisation units overlap.
+     *
+     * @param params the data export parameters.
+     * @return a list of SQL filter clauses.
+     */
+    private List<String> getOrgUnitPartitionClauses( DataExportParams params )
+    {
+        List<String> clauses = new ArrayList<>();
+
+        if ( !params.isIncludeChildren() )
+        {
+            return clauses;
+        }
+
+        List<OrganisationUnit> parents = params.getOrganisationUnits().stream()
+            .sorted( Comparator.comparing( OrganisationUnit::getPath ) )
+            .collect( Collectors.toList() );
+
+        for ( int i = 1; i < parents.size(); i++ )
+        {
+            if ( parents.get( i ).getPath().startsWith( parents.get( i - 1 ).getPath() ) )
+            {
+                return new ArrayList<>();
+            }
+        }
+
+        for ( OrganisationUnit parent : parents )
+        {
+            clauses.add( "ou.path = '" + parent.getPath() + "'" );
+
+            List<String> childPaths = jdbcTemplate.queryForList(
+                "select path from organisationunit where parentid = " + parent.getId() + " order by path", String.class );
+
+            for ( String childPath : childPaths )
+            {
+                clauses.add( "ou.path like '" + childPath + "%'" );
+            }
+        }
+
+        return clauses;
+    }
+
     private String getDataValueSql( DataExportParams params )
+    {
+        return getDataValueSql( params, params.getPeriods(), null );
+    }
+
+    /**
+     * Returns the data value query for the given parameters.
+     *
+     * @param params the data export parameters.
+     * @param periods the periods to filter by, used when no start and end date is given.
+     * @param orgUnitClause the organisation unit filter clause to use, or null
+     *        to filter by the organisation units of the parameters.
+     * @return an SQL query.
+     */
+    private String getDataValueSql( DataExportParams params, Collection<Period> periods, String orgUnitClause )
     {
         Preconditions.checkArgument( !params.getAllDataElements().isEmpty() );
 
@@ -284,7 +584,11 @@ public class SpringDataValueSetStore
 
         sql += "where de.dataelementid in (" + dataElements + ") ";
 
-        if ( params.isIncludeChildren() )
+        if ( orgUnitClause != null )
+        {
+            sql += "and " + orgUnitClause + " ";
+        }
+        else if ( params.isIncludeChildren() )
         {
             sql += "and (";
 
@@ -326,9 +630,9 @@ public class SpringDataValueSetStore
         {
             sql += "and (pe.startdate >= '" + getMediumDateString( params.getStartDate() ) + "' and pe.enddate <= '" + getMediumDateString( params.getEndDate() ) + "') ";
         }
-        else if ( params.hasPeriods() )
+        else if ( periods != null && !periods.isEmpty() )
         {
-            sql += "and dv.periodid in (" + getCommaDelimitedString( getIdentifiers( params.getPeriods() ) ) + ") ";
+            sql += "and dv.periodid in (" + getCommaDelimitedString( getIdentifiers( periods ) ) + ") ";
         }
 
         if ( params.hasAttributeOptionCombos() )
@@ -402,4 +706,80 @@ public class SpringDataValueSetStore
                             "where ugm.userid = " + user.getId() + ")))) ";
 
     }
+
+    //--------------------------------------------------------------------------
+    // Supportive classes
+    //--------------------------------------------------------------------------
+
+    /**
+     * Data value read from a row of a data value query.
+     */
+    private static class DataValueRow
+    {
+        private final String dataElement;
+
+        private final String period;
+
+        private final String orgUnit;
+
+        private final String categoryOptionCombo;
+
+        private final String attributeOptionCombo;
+
+        private final String value;
+
+        private final String storedBy;
+
+        private final String created;
+
+        private final String lastUpdated;
+
+        private final String comment;
+
+        private final boolean followup;
+
+        private final boolean deleted;
+
+        DataValueRow( ResultSet rs, Calendar calendar ) throws SQLException
+        {
+            PeriodType pt = PeriodType.getPeriodTypeByName( rs.getString( "ptname" ) );
+
+            this.dataElement = rs.getString( "deid" );
+            this.period = pt.createPeriod( rs.getDate( "pestart" ), calendar ).getIsoDate();
+            this.orgUnit = rs.getString( "ouid" );
+            this.categoryOptionCombo = rs.getString( "cocid" );
+            this.attributeOptionCombo = rs.getString( "aocid" );
+            this.value = rs.getString( "value" );
+            this.storedBy = rs.getString( "storedby" );
+            this.created = getLongGmtDateString( rs.getTimestamp( "created" ) );
+            this.lastUpdated = getLongGmtDateString( rs.getTimestamp( "lastupdated" ) );
+            this.comment = rs.getString( "comment" );
+            this.followup = rs.getBoolean( "followup" );
+            this.deleted = rs.getBoolean( "deleted" );
+        }
+
+        void write( DataValueSet dataValueSet )
+        {
+            DataValue dataValue = dataValueSet.getDataValueInstance();
+
+            dataValue.setDataElement( dataElement );
+            dataValue.setPeriod( period );
+            dataValue.setOrgUnit( orgUnit );
+            dataValue.setCategoryOptionCombo( categoryOptionCombo );
+            dataValue.setAttributeOptionCombo( attributeOptionCombo );
+            dataValue.setValue( value );
+            dataValue.setStoredBy( storedBy );
+            dataValue.setCreated( created );
+            dataValue.setLastUpdated( lastUpdated );
+            dataValue.setComment( comment );
+            dataValue.setFollowup( followup );
+
+            if ( deleted )
+            {
+                dataValue.setDeleted( deleted );
+            }
+
+            dataValue.close();
+        }
+    }
 }
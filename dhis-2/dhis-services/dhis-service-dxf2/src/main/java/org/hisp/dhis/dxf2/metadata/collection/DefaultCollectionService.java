@@ -44,6 +44,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -158,7 +159,7 @@ public class DefaultCollectionService
         }
 
         dbmsManager.clearSession();
-        cacheManager.clearCache();
+        evictObjects( object, items );
     }
 
     @Override
@@ -230,7 +231,7 @@ public class DefaultCollectionService
         manager.update( object );
 
         dbmsManager.clearSession();
-        cacheManager.clearCache();
+        evictObjects( object, items );
     }
 
     @Override
@@ -274,4 +275,12 @@ public class DefaultCollectionService
             }
         }
     }
+
+    private void evictObjects( IdentifiableObject object, List<? extends IdentifiableObject> items )
+    {
+        List<IdentifiableObject> objects = new ArrayList<>( items );
+        objects.add( object );
+
+        cacheManager.evictObjects( objects );
+    }
 }
@@ -31,9 +31,11 @@ package org.hisp.dhis.dxf2.metadata.objectbundle;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
@@ -197,7 +199,8 @@ public class DefaultObjectBundleService implements ObjectBundleService
         }
 
         dbmsManager.clearSession();
-        cacheManager.clearCache();
+        cacheManager.evictObjects( bundle.getObjects( true ).values().stream()
+            .flatMap( Collection::stream ).collect( Collectors.toList() ) );
         bundle.setObjectBundleStatus( ObjectBundleStatus.COMMITTED );
 
         return commitReport;
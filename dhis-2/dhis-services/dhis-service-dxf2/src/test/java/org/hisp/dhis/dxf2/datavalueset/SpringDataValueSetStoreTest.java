@@ -0,0 +1,275 @@
+package org.hisp.dhis.dxf2.datavalueset;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.hisp.dhis.IntegrationTestBase;
+import org.hisp.dhis.category.CategoryOptionCombo;
+import org.hisp.dhis.category.CategoryService;
+import org.hisp.dhis.common.IdentifiableObjectManager;
+import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.dataset.DataSet;
+import org.hisp.dhis.datavalue.DataExportParams;
+import org.hisp.dhis.datavalue.DataValue;
+import org.hisp.dhis.datavalue.DataValueService;
+import org.hisp.dhis.mock.MockCurrentUserService;
+import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.hisp.dhis.organisationunit.OrganisationUnitService;
+import org.hisp.dhis.period.MonthlyPeriodType;
+import org.hisp.dhis.period.Period;
+import org.hisp.dhis.period.PeriodType;
+import org.hisp.dhis.user.CurrentUserService;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.google.common.collect.Sets;
+
+/**
+ * Verifies that partitioned exports write the same data values in the same
+ * order as sequential exports of the individual partitions.
+ */
+public class SpringDataValueSetStoreTest
+    extends IntegrationTestBase
+{
+    @Autowired
+    private IdentifiableObjectManager idObjectManager;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private OrganisationUnitService organisationUnitService;
+
+    @Autowired
+    private DataValueService dataValueService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private DataSet dsA;
+
+    private List<Period> periods;
+
+    private OrganisationUnit ouA;
+
+    private List<OrganisationUnit> children;
+
+    private SpringDataValueSetStore sequentialStore;
+
+    private SpringDataValueSetStore parallelStore;
+
+    @Override
+    public boolean emptyDatabaseAfterTest()
+    {
+        return true;
+    }
+
+    @Override
+    public void setUpTest()
+    {
+        DataElement deA = createDataElement( 'A' );
+        DataElement deB = createDataElement( 'B' );
+
+        idObjectManager.save( deA );
+        idObjectManager.save( deB );
+
+        dsA = createDataSet( 'A' );
+        dsA.addDataSetElement( deA );
+        dsA.addDataSetElement( deB );
+
+        idObjectManager.save( dsA );
+
+        PeriodType monthly = PeriodType.getByNameIgnoreCase( MonthlyPeriodType.NAME );
+
+        periods = new ArrayList<>();
+
+        for ( int month = 1; month <= 4; month++ )
+        {
+            periods.add( createPeriod( monthly, getDate( 2020, month, 1 ), getDate( 2020, month, 28 ) ) );
+        }
+
+        ouA = createOrganisationUnit( 'A' );
+        OrganisationUnit ouB = createOrganisationUnit( 'B', ouA );
+        OrganisationUnit ouC = createOrganisationUnit( 'C', ouA );
+        OrganisationUnit ouD = createOrganisationUnit( 'D', ouB );
+
+        organisationUnitService.addOrganisationUnit( ouA );
+        organisationUnitService.addOrganisationUnit( ouB );
+        organisationUnitService.addOrganisationUnit( ouC );
+        organisationUnitService.addOrganisationUnit( ouD );
+
+        children = Arrays.asList( ouB, ouC ).stream()
+            .sorted( Comparator.comparing( OrganisationUnit::getPath ) )
+            .collect( Collectors.toList() );
+
+        CategoryOptionCombo coc = categoryService.getDefaultCategoryOptionCombo();
+
+        int value = 0;
+
+        for ( Period period : periods )
+        {
+            for ( OrganisationUnit orgUnit : Arrays.asList( ouA, ouB, ouC, ouD ) )
+            {
+                dataValueService.addDataValue( new DataValue( deA, period, orgUnit, coc, coc, String.valueOf( ++value ) ) );
+                dataValueService.addDataValue( new DataValue( deB, period, orgUnit, coc, coc, String.valueOf( ++value ) ) );
+            }
+        }
+
+        CurrentUserService currentUserService = new MockCurrentUserService( true, new HashSet<>(), new HashSet<>(),
+            "ALL" );
+
+        // Buffers of two rows make readers of later partitions block
+
+        sequentialStore = new SpringDataValueSetStore( currentUserService, jdbcTemplate, 1, 2 );
+        parallelStore = new SpringDataValueSetStore( currentUserService, jdbcTemplate, 3, 2 );
+    }
+
+    @Override
+    public void tearDownTest()
+    {
+        parallelStore.shutdown();
+    }
+
+    // -------------------------------------------------------------------------
+    // Tests
+    // -------------------------------------------------------------------------
+
+    @Test
+    public void testExportPartitionedByPeriod()
+    {
+        DataExportParams params = new DataExportParams()
+            .setDataSets( Sets.newHashSet( dsA ) )
+            .setOrganisationUnits( Sets.newHashSet( ouA ) )
+            .setIncludeChildren( true )
+            .setPeriods( new HashSet<>( periods ) );
+
+        List<String> expected = new ArrayList<>();
+
+        for ( Period period : periods )
+        {
+            expected.addAll( exportSequential( new DataExportParams()
+                .setDataSets( Sets.newHashSet( dsA ) )
+                .setOrganisationUnits( Sets.newHashSet( ouA ) )
+                .setIncludeChildren( true )
+                .setPeriods( Sets.newHashSet( period ) ) ) );
+        }
+
+        List<String> actual = exportParallel( params );
+
+        assertEquals( 32, actual.size() );
+        assertEquals( expected, actual );
+        assertEquals( new HashSet<>( exportSequential( params ) ), new HashSet<>( actual ) );
+    }
+
+    @Test
+    public void testExportPartitionedByOrgUnitHierarchy()
+    {
+        Period period = periods.get( 0 );
+
+        DataExportParams params = new DataExportParams()
+            .setDataSets( Sets.newHashSet( dsA ) )
+            .setOrganisationUnits( Sets.newHashSet( ouA ) )
+            .setIncludeChildren( true )
+            .setPeriods( Sets.newHashSet( period ) );
+
+        List<String> expected = new ArrayList<>( exportSequential( new DataExportParams()
+            .setDataSets( Sets.newHashSet( dsA ) )
+            .setOrganisationUnits( Sets.newHashSet( ouA ) )
+            .setPeriods( Sets.newHashSet( period ) ) ) );
+
+        for ( OrganisationUnit child : children )
+        {
+            expected.addAll( exportSequential( new DataExportParams()
+                .setDataSets( Sets.newHashSet( dsA ) )
+                .setOrganisationUnits( Sets.newHashSet( child ) )
+                .setIncludeChildren( true )
+                .setPeriods( Sets.newHashSet( period ) ) ) );
+        }
+
+        List<String> actual = exportParallel( params );
+
+        assertEquals( 8, actual.size() );
+        assertEquals( expected, actual );
+        assertEquals( new HashSet<>( exportSequential( params ) ), new HashSet<>( actual ) );
+    }
+
+    @Test
+    public void testExportWithLimitIsNotPartitioned()
+    {
+        DataExportParams params = new DataExportParams()
+            .setDataSets( Sets.newHashSet( dsA ) )
+            .setOrganisationUnits( Sets.newHashSet( ouA ) )
+            .setIncludeChildren( true )
+            .setPeriods( new HashSet<>( periods ) )
+            .setLimit( 5 );
+
+        assertEquals( 5, exportParallel( params ).size() );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private List<String> exportSequential( DataExportParams params )
+    {
+        return export( sequentialStore, params );
+    }
+
+    private List<String> exportParallel( DataExportParams params )
+    {
+        return export( parallelStore, params );
+    }
+
+    /**
+     * Exports data values as CSV and returns the data value lines without
+     * the header.
+     */
+    private List<String> export( SpringDataValueSetStore store, DataExportParams params )
+    {
+        StringWriter writer = new StringWriter();
+
+        store.writeDataValueSetCsv( params, null, writer );
+
+        List<String> lines = Arrays.stream( writer.toString().split( "\\R" ) )
+            .filter( line -> !line.isEmpty() )
+            .collect( Collectors.toList() );
+
+        return lines.subList( 1, lines.size() );
+    }
+}
@@ -28,14 +28,16 @@ package org.hisp.dhis.programrule.config;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
-import org.hisp.dhis.constant.ConstantService;
-import org.hisp.dhis.organisationunit.OrganisationUnitGroupService;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.hisp.dhis.external.conf.ConfigurationKey;
+import org.hisp.dhis.external.conf.DhisConfigurationProvider;
 import org.hisp.dhis.programrule.ProgramRuleVariableService;
 import org.hisp.dhis.programrule.engine.*;
 import org.hisp.dhis.user.CurrentUserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolExecutorFactoryBean;
 
 /**
  * @author Enrico Colasante
@@ -49,14 +51,11 @@ public class ProgramRuleConfig
     @Autowired
     private ProgramRuleVariableService programRuleVariableService;
 
-    @Autowired
-    private OrganisationUnitGroupService organisationUnitGroupService;
-
     @Autowired
     private CurrentUserService currentUserService;
 
     @Autowired
-    private ConstantService constantService;
+    private RuleEngineContextCache ruleEngineContextCache;
 
     /**
      * This bean is used in the system when an event is intercepted by
@@ -67,7 +66,7 @@ public class ProgramRuleConfig
     public ProgramRuleEngine oldRuleEngine( OldImplementableRuleService oldImplementableRuleService )
     {
         return new ProgramRuleEngine( programRuleEntityMapperService, programRuleVariableService,
-            organisationUnitGroupService, currentUserService, constantService,
+            currentUserService, ruleEngineContextCache,
             oldImplementableRuleService );
     }
 
@@ -79,7 +78,30 @@ public class ProgramRuleConfig
     public ProgramRuleEngine newRuleEngine( NewImplementableRuleService newImplementableRuleService )
     {
         return new ProgramRuleEngine( programRuleEntityMapperService, programRuleVariableService,
-            organisationUnitGroupService, currentUserService, constantService,
+            currentUserService, ruleEngineContextCache,
             newImplementableRuleService );
     }
+
+    /**
+     * Bounded pool for the rule engine evaluations of bulk requests, sized by
+     * {@link ConfigurationKey#PROGRAM_RULE_EVALUATION_PARALLELISM}. Exposed as
+     * a plain executor service so that it is not picked up as the default
+     * executor of {@code @Async} methods.
+     */
+    @Bean( "programRuleEvaluationExecutor" )
+    public ThreadPoolExecutorFactoryBean programRuleEvaluationExecutor( DhisConfigurationProvider config )
+    {
+        ThreadPoolExecutorFactoryBean executor = new ThreadPoolExecutorFactoryBean();
+        executor.setCorePoolSize( getEvaluationParallelism( config ) );
+        executor.setMaxPoolSize( getEvaluationParallelism( config ) );
+        executor.setThreadNamePrefix( "program-rule-evaluation-" );
+        executor.setDaemon( true );
+        return executor;
+    }
+
+    public static int getEvaluationParallelism( DhisConfigurationProvider config )
+    {
+        return Math.max( 1, NumberUtils.toInt(
+            config.getProperty( ConfigurationKey.PROGRAM_RULE_EVALUATION_PARALLELISM ), 1 ) );
+    }
 }
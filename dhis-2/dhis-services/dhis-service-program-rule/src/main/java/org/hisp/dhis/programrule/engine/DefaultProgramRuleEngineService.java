@@ -30,10 +30,23 @@ package org.hisp.dhis.programrule.engine;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import lombok.extern.slf4j.Slf4j;
 
+import org.hisp.dhis.common.IdentifiableObject;
+import org.hisp.dhis.commons.util.DebugUtils;
+import org.hisp.dhis.external.conf.DhisConfigurationProvider;
 import org.hisp.dhis.program.Program;
 import org.hisp.dhis.program.ProgramInstance;
 import org.hisp.dhis.program.ProgramInstanceService;
@@ -41,13 +54,16 @@ import org.hisp.dhis.program.ProgramService;
 import org.hisp.dhis.program.ProgramStageInstance;
 import org.hisp.dhis.program.ProgramStageInstanceService;
 import org.hisp.dhis.programrule.ProgramRuleService;
+import org.hisp.dhis.programrule.config.ProgramRuleConfig;
 import org.hisp.dhis.rules.models.RuleEffect;
 import org.hisp.dhis.rules.models.RuleValidationResult;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import com.google.common.collect.Lists;
-import org.springframework.transaction.annotation.Transactional;
 
 /**
  * Created by zubair@dhis2.org on 23.10.17.
@@ -75,11 +91,27 @@ public class DefaultProgramRuleEngineService implements ProgramRuleEngineService
 
     private final ProgramRuleService programRuleService;
 
+    /**
+     * Bounded pool for the rule engine evaluations of bulk requests, see
+     * {@link ProgramRuleConfig}. The evaluations do not touch the persistence
+     * layer.
+     */
+    private final ExecutorService evaluationExecutor;
+
+    private final int evaluationParallelism;
+
+    private final TransactionTemplate readOnlyTemplate;
+
+    private final TransactionTemplate effectTemplate;
+
     public DefaultProgramRuleEngineService(
         @Qualifier( "serviceTrackerRuleEngine" ) ProgramRuleEngine programRuleEngineNew,
         @Qualifier( "notificationRuleEngine" ) ProgramRuleEngine programRuleEngine,
         List<RuleActionImplementer> ruleActionImplementers, ProgramInstanceService programInstanceService,
-        ProgramStageInstanceService programStageInstanceService, ProgramRuleService programRuleService, ProgramService programService )
+        ProgramStageInstanceService programStageInstanceService, ProgramRuleService programRuleService,
+        ProgramService programService, DhisConfigurationProvider config,
+        @Qualifier( "programRuleEvaluationExecutor" ) ExecutorService evaluationExecutor,
+        TransactionTemplate transactionTemplate )
     {
         checkNotNull( programRuleEngine );
         checkNotNull( programRuleEngineNew );
@@ -88,6 +120,9 @@ public class DefaultProgramRuleEngineService implements ProgramRuleEngineService
         checkNotNull( programStageInstanceService );
         checkNotNull( programRuleService );
         checkNotNull( programService );
+        checkNotNull( config );
+        checkNotNull( evaluationExecutor );
+        checkNotNull( transactionTemplate );
 
         this.programRuleEngine = programRuleEngine;
         this.programRuleEngineNew = programRuleEngineNew;
@@ -96,6 +131,12 @@ public class DefaultProgramRuleEngineService implements ProgramRuleEngineService
         this.programStageInstanceService = programStageInstanceService;
         this.programRuleService = programRuleService;
         this.programService = programService;
+        this.evaluationParallelism = ProgramRuleConfig.getEvaluationParallelism( config );
+        this.evaluationExecutor = evaluationExecutor;
+        this.readOnlyTemplate = new TransactionTemplate( transactionTemplate.getTransactionManager() );
+        this.readOnlyTemplate.setReadOnly( true );
+        this.effectTemplate = new TransactionTemplate( transactionTemplate.getTransactionManager() );
+        this.effectTemplate.setPropagationBehavior( TransactionDefinition.PROPAGATION_REQUIRES_NEW );
     }
 
     @Override
@@ -112,14 +153,7 @@ public class DefaultProgramRuleEngineService implements ProgramRuleEngineService
         List<RuleEffect> ruleEffects = programRuleEngine.evaluate( programInstance,
             programInstance.getProgramStageInstances() );
 
-        for ( RuleEffect effect : ruleEffects )
-        {
-            ruleActionImplementers.stream().filter( i -> i.accept( effect.ruleAction() ) ).forEach( i -> {
-                log.debug( String.format( "Invoking action implementer: %s", i.getClass().getSimpleName() ) );
-
-                i.implement( effect, programInstance );
-            } );
-        }
+        runEnrollmentEffects( ruleEffects, programInstance );
 
         return ruleEffects;
     }
@@ -140,14 +174,60 @@ public class DefaultProgramRuleEngineService implements ProgramRuleEngineService
         List<RuleEffect> ruleEffects = programRuleEngine.evaluate( psi.getProgramInstance(), psi,
             programInstance.getProgramStageInstances() );
 
-        for ( RuleEffect effect : ruleEffects )
-        {
-            ruleActionImplementers.stream().filter( i -> i.accept( effect.ruleAction() ) ).forEach( i -> {
-                log.debug( String.format( "Invoking action implementer: %s", i.getClass().getSimpleName() ) );
+        runEventEffects( ruleEffects, psi );
 
-                i.implement( effect, psi );
-            } );
-        }
+        return ruleEffects;
+    }
+
+    @Override
+    public Map<Long, List<RuleEffect>> evaluateEnrollmentsAndRunEffects( List<Long> programInstanceIds )
+    {
+        Map<Long, List<RuleEffect>> ruleEffects = readOnlyTemplate.execute( status -> evaluate(
+            programInstanceService.getProgramInstancesWithEventsAndAttributeValues( programInstanceIds ),
+            ProgramInstance::getProgram,
+            pi -> programRuleEngine.prepareEvaluation( pi, null, pi.getProgramStageInstances() ) ) );
+
+        runEffects( ruleEffects, "enrollment", ( id, effects ) -> {
+            ProgramInstance programInstance = programInstanceService.getProgramInstance( id );
+
+            if ( programInstance != null )
+            {
+                runEnrollmentEffects( effects, programInstance );
+            }
+        } );
+
+        return ruleEffects;
+    }
+
+    @Override
+    public Map<Long, List<RuleEffect>> evaluateEventsAndRunEffects( List<Long> programStageInstanceIds )
+    {
+        Map<Long, List<RuleEffect>> ruleEffects = readOnlyTemplate.execute( status -> {
+            List<ProgramStageInstance> events = programStageInstanceService
+                .getProgramStageInstances( programStageInstanceIds );
+
+            // Loads the enrollments of all events with their events and
+            // attribute values into the session, the events then resolve to
+            // these instances
+
+            programInstanceService.getProgramInstancesWithEventsAndAttributeValues( events.stream()
+                .map( psi -> psi.getProgramInstance().getId() )
+                .distinct()
+                .collect( Collectors.toList() ) );
+
+            return evaluate( events, psi -> psi.getProgramInstance().getProgram(),
+                psi -> programRuleEngine.prepareEvaluation( psi.getProgramInstance(), psi,
+                    psi.getProgramInstance().getProgramStageInstances() ) );
+        } );
+
+        runEffects( ruleEffects, "event", ( id, effects ) -> {
+            ProgramStageInstance psi = programStageInstanceService.getProgramStageInstance( id );
+
+            if ( psi != null )
+            {
+                runEventEffects( effects, psi );
+            }
+        } );
 
         return ruleEffects;
     }
@@ -159,4 +239,132 @@ public class DefaultProgramRuleEngineService implements ProgramRuleEngineService
 
         return programRuleEngineNew.getDescription( condition, program );
     }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    /**
+     * Evaluates the given entities grouped by program. The rule engine input is
+     * prepared in the calling thread, as it reads from the session, while the
+     * evaluations themselves run on the evaluation pool.
+     */
+    private <T extends IdentifiableObject> Map<Long, List<RuleEffect>> evaluate( List<T> entities,
+        Function<T, Program> programMapper, Function<T, Callable<List<RuleEffect>>> preparer )
+    {
+        Map<Long, List<T>> entitiesByProgram = entities.stream()
+            .collect( Collectors.groupingBy( e -> programMapper.apply( e ).getId(), LinkedHashMap::new,
+                Collectors.toList() ) );
+
+        Map<Long, Callable<List<RuleEffect>>> tasks = new LinkedHashMap<>();
+
+        for ( List<T> programEntities : entitiesByProgram.values() )
+        {
+            for ( T entity : programEntities )
+            {
+                try
+                {
+                    tasks.put( entity.getId(), preparer.apply( entity ) );
+                }
+                catch ( Exception e )
+                {
+                    log.error( DebugUtils.getStackTrace( e ) );
+                }
+            }
+        }
+
+        Map<Long, Future<List<RuleEffect>>> futures = new LinkedHashMap<>();
+
+        if ( evaluationParallelism > 1 && tasks.size() > 1 )
+        {
+            tasks.forEach( ( id, task ) -> futures.put( id, evaluationExecutor.submit( task ) ) );
+        }
+
+        Map<Long, List<RuleEffect>> ruleEffects = new LinkedHashMap<>();
+
+        for ( T entity : entities )
+        {
+            ruleEffects.put( entity.getId(), getRuleEffects( tasks.get( entity.getId() ),
+                futures.get( entity.getId() ) ) );
+        }
+
+        return ruleEffects;
+    }
+
+    /**
+     * Implements the rule effects of each entity in a transaction of its own,
+     * so that a failing action only discards the effects of its own entity.
+     * The entity is loaded again within the transaction of its effects.
+     */
+    private void runEffects( Map<Long, List<RuleEffect>> ruleEffects, String type,
+        BiConsumer<Long, List<RuleEffect>> effectRunner )
+    {
+        ruleEffects.forEach( ( id, effects ) -> {
+            if ( effects.isEmpty() )
+            {
+                return;
+            }
+
+            try
+            {
+                effectTemplate.executeWithoutResult( status -> effectRunner.accept( id, effects ) );
+            }
+            catch ( Exception e )
+            {
+                log.error( String.format( "Running rule effects of %s %d failed", type, id ), e );
+            }
+        } );
+    }
+
+    private List<RuleEffect> getRuleEffects( Callable<List<RuleEffect>> task, Future<List<RuleEffect>> future )
+    {
+        if ( task == null )
+        {
+            return new ArrayList<>();
+        }
+
+        try
+        {
+            return future != null ? future.get() : task.call();
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            log.error( "Program rule evaluation was interrupted" );
+        }
+        catch ( ExecutionException e )
+        {
+            log.error( DebugUtils.getStackTrace( e.getCause() ) );
+        }
+        catch ( Exception e )
+        {
+            log.error( DebugUtils.getStackTrace( e ) );
+        }
+
+        return new ArrayList<>();
+    }
+
+    private void runEnrollmentEffects( List<RuleEffect> ruleEffects, ProgramInstance programInstance )
+    {
+        for ( RuleEffect effect : ruleEffects )
+        {
+            ruleActionImplementers.stream().filter( i -> i.accept( effect.ruleAction() ) ).forEach( i -> {
+                log.debug( String.format( "Invoking action implementer: %s", i.getClass().getSimpleName() ) );
+
+                i.implement( effect, programInstance );
+            } );
+        }
+    }
+
+    private void runEventEffects( List<RuleEffect> ruleEffects, ProgramStageInstance psi )
+    {
+        for ( RuleEffect effect : ruleEffects )
+        {
+            ruleActionImplementers.stream().filter( i -> i.accept( effect.ruleAction() ) ).forEach( i -> {
+                log.debug( String.format( "Invoking action implementer: %s", i.getClass().getSimpleName() ) );
+
+                i.implement( effect, psi );
+            } );
+        }
+    }
 }
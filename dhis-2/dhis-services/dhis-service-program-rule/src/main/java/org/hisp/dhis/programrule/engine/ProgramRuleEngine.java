@@ -31,19 +31,22 @@ package org.hisp.dhis.programrule.engine;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.stream.Collectors;
 
 import lombok.extern.slf4j.Slf4j;
 
-import org.hisp.dhis.common.BaseIdentifiableObject;
 import org.hisp.dhis.commons.collection.ListUtils;
 import org.hisp.dhis.commons.util.DebugUtils;
-import org.hisp.dhis.constant.ConstantService;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
-import org.hisp.dhis.organisationunit.OrganisationUnitGroupService;
+import org.hisp.dhis.organisationunit.OrganisationUnitGroup;
 import org.hisp.dhis.program.Program;
 import org.hisp.dhis.program.ProgramInstance;
 import org.hisp.dhis.program.ProgramStageInstance;
@@ -70,33 +73,28 @@ public class ProgramRuleEngine
 
     private final ProgramRuleVariableService programRuleVariableService;
 
-    private final OrganisationUnitGroupService organisationUnitGroupService;
-
     private final CurrentUserService currentUserService;
 
-    private final ConstantService constantService;
+    private final RuleEngineContextCache ruleEngineContextCache;
 
     private final ImplementableRuleService implementableRuleService;
 
     public ProgramRuleEngine( ProgramRuleEntityMapperService programRuleEntityMapperService,
         ProgramRuleVariableService programRuleVariableService,
-        OrganisationUnitGroupService organisationUnitGroupService,
         CurrentUserService currentUserService,
-        ConstantService constantService,
+        RuleEngineContextCache ruleEngineContextCache,
         ImplementableRuleService implementableRuleService )
     {
         checkNotNull( programRuleEntityMapperService );
         checkNotNull( programRuleVariableService );
-        checkNotNull( organisationUnitGroupService );
         checkNotNull( currentUserService );
-        checkNotNull( constantService );
+        checkNotNull( ruleEngineContextCache );
         checkNotNull( implementableRuleService );
 
         this.programRuleEntityMapperService = programRuleEntityMapperService;
         this.programRuleVariableService = programRuleVariableService;
-        this.organisationUnitGroupService = organisationUnitGroupService;
         this.currentUserService = currentUserService;
-        this.constantService = constantService;
+        this.ruleEngineContextCache = ruleEngineContextCache;
         this.implementableRuleService = implementableRuleService;
     }
 
@@ -115,26 +113,45 @@ public class ProgramRuleEngine
         return evaluateProgramRules( enrollment, programStageInstance, events );
     }
 
-    private List<RuleEffect> evaluateProgramRules( ProgramInstance enrollment,
+    /**
+     * Prepares the rule engine evaluation of the given enrollment, or of the
+     * given event when it is not null. All entities are mapped to rule engine
+     * models in the calling thread, so the returned task does not touch the
+     * persistence layer and can be run on any thread.
+     *
+     * @param enrollment the {@link ProgramInstance} to evaluate.
+     * @param programStageInstance the event to evaluate, or null to evaluate
+     *        the enrollment.
+     * @param events the events of the enrollment.
+     * @return a task returning the rule effects.
+     */
+    public Callable<List<RuleEffect>> prepareEvaluation( ProgramInstance enrollment,
         ProgramStageInstance programStageInstance, Set<ProgramStageInstance> events )
     {
-        List<RuleEffect> ruleEffects = new ArrayList<>();
-
         List<RuleEvent> ruleEvents = getRuleEvents( events, programStageInstance );
 
         RuleEnrollment ruleEnrollment = getRuleEnrollment( enrollment );
 
+        RuleEngine ruleEngine = getRuleEngineContext( enrollment.getProgram(),
+            getOrganisationUnits( enrollment, programStageInstance, events ) )
+            .toEngineBuilder()
+            .triggerEnvironment( TriggerEnvironment.SERVER )
+            .events( ruleEvents )
+            .enrollment( ruleEnrollment )
+            .build();
+
+        return programStageInstance == null ? ruleEngine.evaluate( ruleEnrollment )
+            : ruleEngine.evaluate( getRuleEvent( programStageInstance ) );
+    }
+
+    private List<RuleEffect> evaluateProgramRules( ProgramInstance enrollment,
+        ProgramStageInstance programStageInstance, Set<ProgramStageInstance> events )
+    {
+        List<RuleEffect> ruleEffects = new ArrayList<>();
+
         try
         {
-            RuleEngine ruleEngine = getRuleEngineContext( enrollment.getProgram() )
-                .toEngineBuilder()
-                .triggerEnvironment( TriggerEnvironment.SERVER )
-                .events( ruleEvents )
-                .enrollment( ruleEnrollment )
-                .build();
-
-            ruleEffects = getRuleEngineEvaluation( ruleEngine, ruleEnrollment,
-                programStageInstance );
+            ruleEffects = prepareEvaluation( enrollment, programStageInstance, events ).call();
 
             ruleEffects
                 .stream()
@@ -174,21 +191,38 @@ public class ProgramRuleEngine
         return ruleEngine.evaluate( condition );
     }
 
-    private RuleEngineContext getRuleEngineContext( Program program )
+    private RuleEngineContext getRuleEngineContext( Program program, Collection<OrganisationUnit> organisationUnits )
+    {
+        return RuleEngineContext.builder()
+            .supplementaryData( getSupplementaryData( organisationUnits ) )
+            .rules( ruleEngineContextCache.getRules( program, implementableRuleService ) )
+            .ruleVariables( ruleEngineContextCache.getRuleVariables( program ) )
+            .constantsValue( ruleEngineContextCache.getConstants() )
+            .build();
+    }
+
+    /**
+     * Builds the supplementary data of the rule engine. Every organisation unit
+     * group is present, but group membership is only resolved for the given
+     * organisation units, which are the only ones the rule engine will check.
+     */
+    private Map<String, List<String>> getSupplementaryData( Collection<OrganisationUnit> organisationUnits )
     {
-        List<ProgramRuleVariable> programRuleVariables = programRuleVariableService
-            .getProgramRuleVariable( program );
-        List<ProgramRule> programRules = implementableRuleService
-            .getImplementableRules( program );
+        Map<String, List<String>> supplementaryData = new HashMap<>();
 
-        Map<String, String> constantMap = constantService.getConstantMap().entrySet()
-            .stream()
-            .collect( Collectors.toMap( Map.Entry::getKey, v -> v.getValue().toString() ) );
+        for ( String groupUid : ruleEngineContextCache.getOrganisationUnitGroupUids() )
+        {
+            supplementaryData.put( groupUid, new ArrayList<>() );
+        }
 
-        Map<String, List<String>> supplementaryData = organisationUnitGroupService.getAllOrganisationUnitGroups()
-            .stream()
-            .collect( Collectors.toMap( BaseIdentifiableObject::getUid,
-                g -> g.getMembers().stream().map( OrganisationUnit::getUid ).collect( Collectors.toList() ) ) );
+        for ( OrganisationUnit organisationUnit : organisationUnits )
+        {
+            for ( OrganisationUnitGroup group : organisationUnit.getGroups() )
+            {
+                supplementaryData.computeIfAbsent( group.getUid(), k -> new ArrayList<>() )
+                    .add( organisationUnit.getUid() );
+            }
+        }
 
         if ( currentUserService.getCurrentUser() != null )
         {
@@ -196,31 +230,42 @@ public class ProgramRuleEngine
                 .getUserAuthorityGroups().stream().map( UserAuthorityGroup::getUid ).collect( Collectors.toList() ) );
         }
 
-        return RuleEngineContext.builder()
-            .supplementaryData( supplementaryData )
-            .rules( programRuleEntityMapperService.toMappedProgramRules( programRules ) )
-            .ruleVariables( programRuleEntityMapperService.toMappedProgramRuleVariables( programRuleVariables ) )
-            .constantsValue( constantMap )
-            .build();
+        return supplementaryData;
     }
 
-    private RuleEngine.Builder ruleEngineBuilder( List<ProgramRule> programRules,
-        List<ProgramRuleVariable> programRuleVariables, RuleEngineIntent intent )
+    private Set<OrganisationUnit> getOrganisationUnits( ProgramInstance enrollment,
+        ProgramStageInstance programStageInstance, Set<ProgramStageInstance> events )
     {
-        Map<String, String> constantMap = constantService.getConstantMap().entrySet()
-            .stream()
-            .collect( Collectors.toMap( Map.Entry::getKey, v -> v.getValue().toString() ) );
+        Set<OrganisationUnit> organisationUnits = new HashSet<>();
 
-        Map<String, List<String>> supplementaryData = organisationUnitGroupService.getAllOrganisationUnitGroups()
-            .stream()
-            .collect( Collectors.toMap( BaseIdentifiableObject::getUid,
-                g -> g.getMembers().stream().map( OrganisationUnit::getUid ).collect( Collectors.toList() ) ) );
+        if ( enrollment.getOrganisationUnit() != null )
+        {
+            organisationUnits.add( enrollment.getOrganisationUnit() );
+        }
 
-        if ( currentUserService.getCurrentUser() != null )
+        if ( programStageInstance != null && programStageInstance.getOrganisationUnit() != null )
         {
-            supplementaryData.put( USER, currentUserService.getCurrentUser().getUserCredentials()
-                .getUserAuthorityGroups().stream().map( UserAuthorityGroup::getUid ).collect( Collectors.toList() ) );
+            organisationUnits.add( programStageInstance.getOrganisationUnit() );
         }
+
+        if ( events != null )
+        {
+            events.stream()
+                .map( ProgramStageInstance::getOrganisationUnit )
+                .filter( Objects::nonNull )
+                .forEach( organisationUnits::add );
+        }
+
+        return organisationUnits;
+    }
+
+    private RuleEngine.Builder ruleEngineBuilder( List<ProgramRule> programRules,
+        List<ProgramRuleVariable> programRuleVariables, RuleEngineIntent intent )
+    {
+        Map<String, String> constantMap = ruleEngineContextCache.getConstants();
+
+        Map<String, List<String>> supplementaryData = getSupplementaryData( ListUtils.newList() );
+
         if ( RuleEngineIntent.DESCRIPTION == intent )
         {
             Map<String, DataItem> itemStore = programRuleEntityMapperService.getItemStore( programRuleVariables );
@@ -262,18 +307,4 @@ public class ProgramRuleEngine
     {
         return programRuleEntityMapperService.toMappedRuleEnrollment( enrollment );
     }
-
-    private List<RuleEffect> getRuleEngineEvaluation( RuleEngine ruleEngine, RuleEnrollment enrollment,
-        ProgramStageInstance event )
-        throws Exception
-    {
-        if ( event == null )
-        {
-            return ruleEngine.evaluate( enrollment ).call();
-        }
-        else
-        {
-            return ruleEngine.evaluate( getRuleEvent( event ) ).call();
-        }
-    }
 }
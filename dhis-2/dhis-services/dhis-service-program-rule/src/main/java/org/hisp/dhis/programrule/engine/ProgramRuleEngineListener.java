@@ -28,49 +28,150 @@ package org.hisp.dhis.programrule.engine;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
-import org.springframework.scheduling.annotation.Async;
-import org.springframework.transaction.event.TransactionalEventListener;
-import org.springframework.stereotype.Component;
-
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
 /**
+ * Collects the enrollments and events to evaluate during a transaction and
+ * evaluates them in bulk once the transaction has committed, so that an import
+ * of many events results in one evaluation request instead of one per event.
+ *
  * @author Zubair Asghar.
  */
-
-@Async
+@Slf4j
 @Component( "org.hisp.dhis.programrule.engine.ProgramRuleEngineListener" )
 public class ProgramRuleEngineListener
 {
     private final ProgramRuleEngineService programRuleEngineService;
 
-    public ProgramRuleEngineListener( ProgramRuleEngineService programRuleEngineService )
+    private final TaskExecutor taskExecutor;
+
+    public ProgramRuleEngineListener( ProgramRuleEngineService programRuleEngineService,
+        @Qualifier( "taskScheduler" ) TaskExecutor taskExecutor )
     {
         checkNotNull( programRuleEngineService );
+        checkNotNull( taskExecutor );
+
         this.programRuleEngineService = programRuleEngineService;
+        this.taskExecutor = taskExecutor;
     }
 
-    @TransactionalEventListener
+    @EventListener
     public void onEnrollment( EnrollmentEvaluationEvent event )
     {
-        programRuleEngineService.evaluateEnrollmentAndRunEffects( event.getProgramInstance() );
+        PendingEvaluations pending = getPendingEvaluations();
+
+        if ( pending != null )
+        {
+            pending.enrollments.add( event.getProgramInstance() );
+        }
     }
 
-    @TransactionalEventListener
+    @EventListener
     public void onDataValueChange( DataValueUpdatedEvent event )
     {
-        programRuleEngineService.evaluateEventAndRunEffects( event.getProgramStageInstance() );
+        addEvent( event.getProgramStageInstance() );
     }
 
-    @TransactionalEventListener
+    @EventListener
     public void onEventCompletion( StageCompletionEvaluationEvent event )
     {
-        programRuleEngineService.evaluateEventAndRunEffects( event.getProgramStageInstance() );
+        addEvent( event.getProgramStageInstance() );
     }
 
-    @TransactionalEventListener
+    @EventListener
     public void onScheduledEvent( StageScheduledEvaluationEvent event )
     {
-        programRuleEngineService.evaluateEventAndRunEffects( event.getProgramStageInstance() );
+        addEvent( event.getProgramStageInstance() );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private void addEvent( long programStageInstance )
+    {
+        PendingEvaluations pending = getPendingEvaluations();
+
+        if ( pending != null )
+        {
+            pending.events.add( programStageInstance );
+        }
+    }
+
+    /**
+     * Returns the evaluations pending on the current transaction, or null if no
+     * transaction is active. Evaluations are only run for committed changes.
+     */
+    private PendingEvaluations getPendingEvaluations()
+    {
+        if ( !TransactionSynchronizationManager.isSynchronizationActive() )
+        {
+            log.debug( "No transaction is active, skipping program rule evaluation" );
+            return null;
+        }
+
+        PendingEvaluations pending = (PendingEvaluations) TransactionSynchronizationManager.getResource( this );
+
+        if ( pending == null )
+        {
+            pending = new PendingEvaluations();
+
+            TransactionSynchronizationManager.bindResource( this, pending );
+            TransactionSynchronizationManager.registerSynchronization( pending );
+        }
+
+        return pending;
+    }
+
+    private class PendingEvaluations
+        extends TransactionSynchronizationAdapter
+    {
+        private final Set<Long> enrollments = new LinkedHashSet<>();
+
+        private final Set<Long> events = new LinkedHashSet<>();
+
+        @Override
+        public void afterCompletion( int status )
+        {
+            TransactionSynchronizationManager.unbindResourceIfPossible( ProgramRuleEngineListener.this );
+
+            if ( STATUS_COMMITTED == status && !(enrollments.isEmpty() && events.isEmpty()) )
+            {
+                taskExecutor.execute( this::evaluate );
+            }
+        }
+
+        private void evaluate()
+        {
+            try
+            {
+                if ( !enrollments.isEmpty() )
+                {
+                    programRuleEngineService.evaluateEnrollmentsAndRunEffects( new ArrayList<>( enrollments ) );
+                }
+
+                if ( !events.isEmpty() )
+                {
+                    programRuleEngineService.evaluateEventsAndRunEffects( new ArrayList<>( events ) );
+                }
+            }
+            catch ( Exception e )
+            {
+                log.error( "Program rule evaluation failed", e );
+            }
+        }
     }
 }
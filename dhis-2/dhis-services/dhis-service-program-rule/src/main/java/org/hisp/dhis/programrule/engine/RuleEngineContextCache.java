@@ -0,0 +1,365 @@
+package org.hisp.dhis.programrule.engine;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.hisp.dhis.common.BaseIdentifiableObject;
+import org.hisp.dhis.constant.ConstantService;
+import org.hisp.dhis.organisationunit.OrganisationUnitGroupService;
+import org.hisp.dhis.program.Program;
+import org.hisp.dhis.programrule.ProgramRuleVariableService;
+import org.hisp.dhis.rules.models.Rule;
+import org.hisp.dhis.rules.models.RuleVariable;
+import org.springframework.stereotype.Component;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Holds the parts of a rule engine context which only change when metadata
+ * changes: the mapped rules and rule variables of each program, the constant
+ * values and the identifiers of all organisation unit groups. Entries are
+ * built on first use and dropped by {@link RuleEngineContextCacheListener}
+ * when the underlying metadata is modified on this or on another cluster
+ * node. Entries are in any case rebuilt one hour after they were built.
+ * <p>
+ * Entries built while an invalidation happens are not stored, so a slow build
+ * which read the old metadata can never overwrite a newer invalidation.
+ */
+@Slf4j
+@Component
+public class RuleEngineContextCache
+    implements MeterBinder
+{
+    private final ProgramRuleEntityMapperService programRuleEntityMapperService;
+
+    private final ProgramRuleVariableService programRuleVariableService;
+
+    private final ConstantService constantService;
+
+    private final OrganisationUnitGroupService organisationUnitGroupService;
+
+    private final ConcurrentMap<Long, ProgramRuleContext> programContexts = new ConcurrentHashMap<>();
+
+    private final AtomicLong version = new AtomicLong();
+
+    private volatile Entry<Map<String, String>> constants;
+
+    private volatile Entry<List<String>> organisationUnitGroupUids;
+
+    private volatile long expireAfterWriteNanos = TimeUnit.HOURS.toNanos( 1 );
+
+    private final LongAdder hitCount = new LongAdder();
+
+    private final LongAdder buildCount = new LongAdder();
+
+    private final LongAdder buildTimeNanos = new LongAdder();
+
+    public RuleEngineContextCache( ProgramRuleEntityMapperService programRuleEntityMapperService,
+        ProgramRuleVariableService programRuleVariableService, ConstantService constantService,
+        OrganisationUnitGroupService organisationUnitGroupService )
+    {
+        checkNotNull( programRuleEntityMapperService );
+        checkNotNull( programRuleVariableService );
+        checkNotNull( constantService );
+        checkNotNull( organisationUnitGroupService );
+
+        this.programRuleEntityMapperService = programRuleEntityMapperService;
+        this.programRuleVariableService = programRuleVariableService;
+        this.constantService = constantService;
+        this.organisationUnitGroupService = organisationUnitGroupService;
+    }
+
+    /**
+     * Sets the time after which entries are rebuilt regardless of
+     * invalidations.
+     */
+    void setExpireAfterWrite( long duration, TimeUnit unit )
+    {
+        this.expireAfterWriteNanos = unit.toNanos( duration );
+    }
+
+    // -------------------------------------------------------------------------
+    // Lookup
+    // -------------------------------------------------------------------------
+
+    /**
+     * Returns the mapped rules of the given program which are implementable by
+     * the given rule service.
+     */
+    public List<Rule> getRules( Program program, ImplementableRuleService implementableRuleService )
+    {
+        ProgramRuleContext context = getProgramContext( program );
+
+        List<Rule> rules = context.rules.get( implementableRuleService );
+
+        if ( rules != null )
+        {
+            hitCount.increment();
+            return rules;
+        }
+
+        long currentVersion = version.get();
+
+        rules = timed( "rules of program " + program.getUid(), () -> ImmutableList.copyOf(
+            programRuleEntityMapperService.toMappedProgramRules(
+                implementableRuleService.getImplementableRules( program ) ) ) );
+
+        if ( version.get() == currentVersion )
+        {
+            context.rules.putIfAbsent( implementableRuleService, rules );
+        }
+
+        return rules;
+    }
+
+    /**
+     * Returns the mapped rule variables of the given program.
+     */
+    public List<RuleVariable> getRuleVariables( Program program )
+    {
+        return getProgramContext( program ).ruleVariables;
+    }
+
+    /**
+     * Returns the constant values keyed on constant identifier.
+     */
+    public Map<String, String> getConstants()
+    {
+        Entry<Map<String, String>> entry = constants;
+
+        if ( entry != null && !isExpired( entry.created ) )
+        {
+            hitCount.increment();
+            return entry.value;
+        }
+
+        long currentVersion = version.get();
+
+        entry = new Entry<>( timed( "constants", () -> ImmutableMap.copyOf( constantService.getConstantMap()
+            .entrySet().stream()
+            .collect( Collectors.toMap( Map.Entry::getKey, v -> v.getValue().toString() ) ) ) ) );
+
+        if ( version.get() == currentVersion )
+        {
+            constants = entry;
+        }
+
+        return entry.value;
+    }
+
+    /**
+     * Returns the identifiers of all organisation unit groups.
+     */
+    public List<String> getOrganisationUnitGroupUids()
+    {
+        Entry<List<String>> entry = organisationUnitGroupUids;
+
+        if ( entry != null && !isExpired( entry.created ) )
+        {
+            hitCount.increment();
+            return entry.value;
+        }
+
+        long currentVersion = version.get();
+
+        entry = new Entry<>( timed( "organisation unit groups", () -> organisationUnitGroupService
+            .getAllOrganisationUnitGroups().stream()
+            .map( BaseIdentifiableObject::getUid )
+            .collect( ImmutableList.toImmutableList() ) ) );
+
+        if ( version.get() == currentVersion )
+        {
+            organisationUnitGroupUids = entry;
+        }
+
+        return entry.value;
+    }
+
+    private ProgramRuleContext getProgramContext( Program program )
+    {
+        ProgramRuleContext context = programContexts.get( program.getId() );
+
+        if ( context != null )
+        {
+            if ( !isExpired( context.created ) )
+            {
+                hitCount.increment();
+                return context;
+            }
+
+            programContexts.remove( program.getId(), context );
+        }
+
+        long currentVersion = version.get();
+
+        context = new ProgramRuleContext( timed( "rule variables of program " + program.getUid(),
+            () -> ImmutableList.copyOf( programRuleEntityMapperService.toMappedProgramRuleVariables(
+                programRuleVariableService.getProgramRuleVariable( program ) ) ) ) );
+
+        if ( version.get() == currentVersion )
+        {
+            ProgramRuleContext existing = programContexts.putIfAbsent( program.getId(), context );
+
+            return existing != null ? existing : context;
+        }
+
+        return context;
+    }
+
+    private boolean isExpired( long created )
+    {
+        return System.nanoTime() - created >= expireAfterWriteNanos;
+    }
+
+    private <T> T timed( String description, Supplier<T> builder )
+    {
+        long start = System.nanoTime();
+
+        T result = builder.get();
+
+        long elapsed = System.nanoTime() - start;
+
+        buildCount.increment();
+        buildTimeNanos.add( elapsed );
+
+        log.debug( "Built rule engine context {} in {} ms", description, TimeUnit.NANOSECONDS.toMillis( elapsed ) );
+
+        return result;
+    }
+
+    // -------------------------------------------------------------------------
+    // Invalidation
+    // -------------------------------------------------------------------------
+
+    /**
+     * Drops the rules and rule variables of the program with the given
+     * identifier.
+     */
+    public void invalidateProgram( long programId )
+    {
+        version.incrementAndGet();
+        programContexts.remove( programId );
+    }
+
+    /**
+     * Drops the rules and rule variables of all programs.
+     */
+    public void invalidatePrograms()
+    {
+        version.incrementAndGet();
+        programContexts.clear();
+    }
+
+    public void invalidateConstants()
+    {
+        version.incrementAndGet();
+        constants = null;
+    }
+
+    public void invalidateOrganisationUnitGroups()
+    {
+        version.incrementAndGet();
+        organisationUnitGroupUids = null;
+    }
+
+    public void invalidateAll()
+    {
+        version.incrementAndGet();
+        programContexts.clear();
+        constants = null;
+        organisationUnitGroupUids = null;
+    }
+
+    // -------------------------------------------------------------------------
+    // MeterBinder implementation
+    // -------------------------------------------------------------------------
+
+    @Override
+    public void bindTo( MeterRegistry registry )
+    {
+        FunctionCounter.builder( "rule_engine.context.hits", hitCount, LongAdder::sum )
+            .description( "Number of rule engine context lookups answered from the cache" )
+            .register( registry );
+
+        FunctionTimer.builder( "rule_engine.context.builds", this,
+            c -> c.buildCount.sum(), c -> c.buildTimeNanos.sum(), TimeUnit.NANOSECONDS )
+            .description( "Number of and time spent building rule engine context parts from the database" )
+            .register( registry );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive classes
+    // -------------------------------------------------------------------------
+
+    private static class Entry<T>
+    {
+        private final T value;
+
+        private final long created = System.nanoTime();
+
+        private Entry( T value )
+        {
+            this.value = value;
+        }
+    }
+
+    private static class ProgramRuleContext
+    {
+        private final List<RuleVariable> ruleVariables;
+
+        private final ConcurrentMap<ImplementableRuleService, List<Rule>> rules = new ConcurrentHashMap<>();
+
+        private final long created = System.nanoTime();
+
+        private ProgramRuleContext( List<RuleVariable> ruleVariables )
+        {
+            this.ruleVariables = ruleVariables;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package org.hisp.dhis.programrule.engine;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Collections;
+
+import org.hisp.dhis.cache.CacheRegionInvalidation;
+import org.hisp.dhis.cache.CacheRegionInvalidationEvent;
+import org.hisp.dhis.constant.Constant;
+import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.hibernate.CacheInvalidationListener;
+import org.hisp.dhis.organisationunit.OrganisationUnitGroup;
+import org.hisp.dhis.program.Program;
+import org.hisp.dhis.programrule.ProgramRule;
+import org.hisp.dhis.programrule.ProgramRuleAction;
+import org.hisp.dhis.programrule.ProgramRuleVariable;
+import org.hisp.dhis.trackedentity.TrackedEntityAttribute;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Invalidates the affected parts of the {@link RuleEngineContextCache} when
+ * program rule metadata is inserted, updated or deleted. Invalidations are
+ * published to be propagated to the other nodes of a cluster, where they are
+ * applied by {@link #handleRemoteInvalidation}.
+ */
+@Component
+public class RuleEngineContextCacheListener
+    extends CacheInvalidationListener
+{
+    static final String REGION = "ruleEngineContext";
+
+    static final String KEY_PROGRAMS = "programs";
+
+    static final String KEY_CONSTANTS = "constants";
+
+    static final String KEY_ORGANISATION_UNIT_GROUPS = "organisationUnitGroups";
+
+    private final RuleEngineContextCache ruleEngineContextCache;
+
+    private final ApplicationEventPublisher publisher;
+
+    public RuleEngineContextCacheListener( RuleEngineContextCache ruleEngineContextCache,
+        ApplicationEventPublisher publisher )
+    {
+        checkNotNull( ruleEngineContextCache );
+        checkNotNull( publisher );
+
+        this.ruleEngineContextCache = ruleEngineContextCache;
+        this.publisher = publisher;
+    }
+
+    @Override
+    protected void invalidate( Object entity )
+    {
+        if ( entity instanceof ProgramRule )
+        {
+            invalidateProgram( ((ProgramRule) entity).getProgram() );
+        }
+        else if ( entity instanceof ProgramRuleVariable )
+        {
+            invalidateProgram( ((ProgramRuleVariable) entity).getProgram() );
+        }
+        else if ( entity instanceof ProgramRuleAction )
+        {
+            ProgramRule programRule = ((ProgramRuleAction) entity).getProgramRule();
+
+            invalidateProgram( programRule != null ? programRule.getProgram() : null );
+        }
+        else if ( entity instanceof Program )
+        {
+            invalidateProgram( (Program) entity );
+        }
+        else if ( entity instanceof DataElement || entity instanceof TrackedEntityAttribute )
+        {
+            // Rule variables are mapped with the value type of their source
+
+            invalidateKey( KEY_PROGRAMS );
+        }
+        else if ( entity instanceof Constant )
+        {
+            invalidateKey( KEY_CONSTANTS );
+        }
+        else if ( entity instanceof OrganisationUnitGroup )
+        {
+            invalidateKey( KEY_ORGANISATION_UNIT_GROUPS );
+        }
+    }
+
+    /**
+     * Applies invalidations of the rule engine context received from other
+     * cluster nodes.
+     */
+    @EventListener( condition = "#event.remote" )
+    public void handleRemoteInvalidation( CacheRegionInvalidationEvent event )
+    {
+        for ( CacheRegionInvalidation invalidation : event.getInvalidations() )
+        {
+            if ( REGION.equals( invalidation.getRegion() ) )
+            {
+                apply( invalidation.isAll() ? null : invalidation.getKey() );
+            }
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private void invalidateProgram( Program program )
+    {
+        invalidateKey( program != null ? String.valueOf( program.getId() ) : KEY_PROGRAMS );
+    }
+
+    private void invalidateKey( String key )
+    {
+        apply( key );
+
+        publisher.publishEvent( new CacheRegionInvalidationEvent( this, Collections.singletonList(
+            CacheRegionInvalidation.key( REGION, key ) ), false ) );
+    }
+
+    /**
+     * Invalidates the part of the cache identified by the given key, or the
+     * whole cache if the key is null.
+     */
+    private void apply( String key )
+    {
+        if ( key == null )
+        {
+            ruleEngineContextCache.invalidateAll();
+        }
+        else if ( KEY_PROGRAMS.equals( key ) )
+        {
+            ruleEngineContextCache.invalidatePrograms();
+        }
+        else if ( KEY_CONSTANTS.equals( key ) )
+        {
+            ruleEngineContextCache.invalidateConstants();
+        }
+        else if ( KEY_ORGANISATION_UNIT_GROUPS.equals( key ) )
+        {
+            ruleEngineContextCache.invalidateOrganisationUnitGroups();
+        }
+        else
+        {
+            ruleEngineContextCache.invalidateProgram( Long.parseLong( key ) );
+        }
+    }
+}
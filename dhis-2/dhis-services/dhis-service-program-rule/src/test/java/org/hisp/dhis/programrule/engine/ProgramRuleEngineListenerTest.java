@@ -0,0 +1,134 @@
+package org.hisp.dhis.programrule.engine;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.google.common.collect.Lists;
+
+public class ProgramRuleEngineListenerTest
+{
+    @Rule
+    public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    @Mock
+    private ProgramRuleEngineService programRuleEngineService;
+
+    private ProgramRuleEngineListener listener;
+
+    @Before
+    public void setUp()
+    {
+        listener = new ProgramRuleEngineListener( programRuleEngineService, Runnable::run );
+
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    @After
+    public void tearDown()
+    {
+        if ( TransactionSynchronizationManager.isSynchronizationActive() )
+        {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void testEvaluatesTransactionInBulkAfterCommit()
+    {
+        listener.onEnrollment( new EnrollmentEvaluationEvent( this, 1L ) );
+        listener.onEnrollment( new EnrollmentEvaluationEvent( this, 2L ) );
+        listener.onDataValueChange( new DataValueUpdatedEvent( this, 11L ) );
+        listener.onEventCompletion( new StageCompletionEvaluationEvent( this, 11L ) );
+        listener.onScheduledEvent( new StageScheduledEvaluationEvent( this, 12L ) );
+
+        verifyNoInteractions( programRuleEngineService );
+
+        complete( TransactionSynchronization.STATUS_COMMITTED );
+
+        verify( programRuleEngineService ).evaluateEnrollmentsAndRunEffects( Lists.newArrayList( 1L, 2L ) );
+        verify( programRuleEngineService ).evaluateEventsAndRunEffects( Lists.newArrayList( 11L, 12L ) );
+    }
+
+    @Test
+    public void testSkipsEvaluationOnRollback()
+    {
+        listener.onEnrollment( new EnrollmentEvaluationEvent( this, 1L ) );
+        listener.onDataValueChange( new DataValueUpdatedEvent( this, 11L ) );
+
+        complete( TransactionSynchronization.STATUS_ROLLED_BACK );
+
+        verifyNoInteractions( programRuleEngineService );
+    }
+
+    @Test
+    public void testSkipsEmptyBulkEvaluation()
+    {
+        listener.onDataValueChange( new DataValueUpdatedEvent( this, 11L ) );
+
+        complete( TransactionSynchronization.STATUS_COMMITTED );
+
+        verify( programRuleEngineService, never() ).evaluateEnrollmentsAndRunEffects( anyList() );
+        verify( programRuleEngineService ).evaluateEventsAndRunEffects( Lists.newArrayList( 11L ) );
+    }
+
+    @Test
+    public void testSkipsEvaluationWithoutTransaction()
+    {
+        TransactionSynchronizationManager.clearSynchronization();
+
+        listener.onEnrollment( new EnrollmentEvaluationEvent( this, 1L ) );
+
+        verifyNoInteractions( programRuleEngineService );
+    }
+
+    private void complete( int status )
+    {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+
+        TransactionSynchronizationManager.clearSynchronization();
+
+        synchronizations.forEach( s -> s.afterCompletion( status ) );
+    }
+}
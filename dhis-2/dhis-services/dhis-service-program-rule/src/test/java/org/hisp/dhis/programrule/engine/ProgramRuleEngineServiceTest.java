@@ -36,8 +36,15 @@ import static org.mockito.Mockito.*;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.hisp.dhis.DhisConvenienceTest;
+import org.hisp.dhis.common.CodeGenerator;
+import org.hisp.dhis.external.conf.ConfigurationKey;
+import org.hisp.dhis.external.conf.DhisConfigurationProvider;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.program.*;
 import org.hisp.dhis.programrule.ProgramRule;
@@ -48,13 +55,17 @@ import org.hisp.dhis.rules.models.RuleAction;
 import org.hisp.dhis.rules.models.RuleActionSendMessage;
 import org.hisp.dhis.rules.models.RuleEffect;
 import org.hisp.dhis.rules.models.RuleValidationResult;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.mockito.*;
 import org.mockito.junit.MockitoJUnit;
 import org.mockito.junit.MockitoRule;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 
 /**
@@ -91,10 +102,17 @@ public class ProgramRuleEngineServiceTest extends DhisConvenienceTest
     @Mock
     private ProgramService programService;
 
+    @Mock
+    private DhisConfigurationProvider config;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
     @Spy
     private ArrayList<RuleActionImplementer> ruleActionImplementers;
 
-    @InjectMocks
+    private ExecutorService evaluationExecutor;
+
     private DefaultProgramRuleEngineService service;
 
     private ProgramInstance programInstance;
@@ -118,6 +136,14 @@ public class ProgramRuleEngineServiceTest extends DhisConvenienceTest
 
         setUpInstances();
 
+        when( config.getProperty( ConfigurationKey.PROGRAM_RULE_EVALUATION_PARALLELISM ) ).thenReturn( "4" );
+
+        evaluationExecutor = Executors.newFixedThreadPool( 4 );
+
+        service = new DefaultProgramRuleEngineService( programRuleEngine, programRuleEngine, ruleActionImplementers,
+            programInstanceService, programStageInstanceService, programRuleService, programService, config,
+            evaluationExecutor, new TransactionTemplate( transactionManager ) );
+
         // fill up the spy
         ruleActionImplementers.add( ruleActionSendMessage );
 
@@ -125,6 +151,12 @@ public class ProgramRuleEngineServiceTest extends DhisConvenienceTest
         Mockito.lenient().when( ruleActionSendMessage.accept( any() ) ).thenReturn( true );
     }
 
+    @After
+    public void tearDown()
+    {
+        evaluationExecutor.shutdownNow();
+    }
+
     @Test
     public void testWhenNoImplementableActionExist_programInstance()
     {
@@ -208,6 +240,140 @@ public class ProgramRuleEngineServiceTest extends DhisConvenienceTest
         assertTrue( this.ruleEffects.get( 0 ).ruleAction() instanceof RuleActionSendMessage );
     }
 
+    @Test
+    public void testEvaluateEnrollmentsAndRunEffects()
+    {
+        List<RuleEffect> effects = new ArrayList<>();
+        effects.add( RuleEffect.create( RuleActionSendMessage.create( NOTIFICATION_UID, DATA ) ) );
+
+        when( programInstanceService.getProgramInstancesWithEventsAndAttributeValues( anyList() ) )
+            .thenReturn( Lists.newArrayList( programInstance ) );
+        when( programInstanceService.getProgramInstance( programInstance.getId() ) ).thenReturn( programInstance );
+        when( programRuleEngine.prepareEvaluation( any(), isNull(), any() ) ).thenReturn( () -> effects );
+
+        setProgramRuleActionType_SendMessage();
+
+        Map<Long, List<RuleEffect>> ruleEffects = service
+            .evaluateEnrollmentsAndRunEffects( Lists.newArrayList( programInstance.getId() ) );
+
+        assertEquals( 1, ruleEffects.size() );
+        assertEquals( effects, ruleEffects.get( programInstance.getId() ) );
+
+        verify( programRuleEngine, times( 1 ) ).prepareEvaluation( eq( programInstance ), isNull(), any() );
+        verify( ruleActionSendMessage ).implement( any( RuleEffect.class ), any( ProgramInstance.class ) );
+    }
+
+    @Test
+    public void testEvaluateEnrollmentsAndRunEffectsInParallel()
+    {
+        List<ProgramInstance> programInstances = new ArrayList<>();
+
+        for ( int i = 1; i <= 8; i++ )
+        {
+            ProgramInstance pi = new ProgramInstance();
+            pi.setId( i );
+            pi.setProgram( programInstance.getProgram() );
+            programInstances.add( pi );
+        }
+
+        when( programInstanceService.getProgramInstancesWithEventsAndAttributeValues( anyList() ) )
+            .thenReturn( programInstances );
+        when( programInstanceService.getProgramInstance( anyLong() ) ).thenAnswer(
+            invocation -> programInstances.get( (int) (long) invocation.getArgument( 0 ) - 1 ) );
+        when( programRuleEngine.prepareEvaluation( any(), isNull(), any() ) ).thenAnswer( invocation -> {
+            ProgramInstance pi = invocation.getArgument( 0 );
+            return (Callable<List<RuleEffect>>) () -> Lists.newArrayList(
+                RuleEffect.create( RuleActionSendMessage.create( NOTIFICATION_UID, String.valueOf( pi.getId() ) ) ) );
+        } );
+
+        setProgramRuleActionType_SendMessage();
+
+        Map<Long, List<RuleEffect>> ruleEffects = service.evaluateEnrollmentsAndRunEffects(
+            Lists.newArrayList( 1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L ) );
+
+        assertEquals( Lists.newArrayList( 1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L ), new ArrayList<>( ruleEffects.keySet() ) );
+
+        ruleEffects.forEach( ( id, effects ) -> {
+            assertEquals( 1, effects.size() );
+            assertEquals( String.valueOf( id ), ((RuleActionSendMessage) effects.get( 0 ).ruleAction()).data() );
+        } );
+
+        verify( ruleActionSendMessage, times( 8 ) ).implement( any( RuleEffect.class ), any( ProgramInstance.class ) );
+    }
+
+    @Test
+    public void testEvaluateEventsAndRunEffects()
+    {
+        ProgramStageInstance psiA = new ProgramStageInstance();
+        psiA.setId( 11 );
+        psiA.setProgramInstance( programInstance );
+
+        ProgramStageInstance psiB = new ProgramStageInstance();
+        psiB.setId( 12 );
+        psiB.setProgramInstance( programInstance );
+
+        List<RuleEffect> effects = new ArrayList<>();
+        effects.add( RuleEffect.create( RuleActionSendMessage.create( NOTIFICATION_UID, DATA ) ) );
+
+        when( programStageInstanceService.getProgramStageInstances( anyList() ) )
+            .thenReturn( Lists.newArrayList( psiA, psiB ) );
+        when( programStageInstanceService.getProgramStageInstance( psiA.getId() ) ).thenReturn( psiA );
+        when( programStageInstanceService.getProgramStageInstance( psiB.getId() ) ).thenReturn( psiB );
+        when( programRuleEngine.prepareEvaluation( any(), any( ProgramStageInstance.class ), any() ) )
+            .thenReturn( () -> effects );
+
+        setProgramRuleActionType_SendMessage();
+
+        Map<Long, List<RuleEffect>> ruleEffects = service
+            .evaluateEventsAndRunEffects( Lists.newArrayList( psiA.getId(), psiB.getId() ) );
+
+        assertEquals( 2, ruleEffects.size() );
+        assertEquals( effects, ruleEffects.get( psiA.getId() ) );
+        assertEquals( effects, ruleEffects.get( psiB.getId() ) );
+
+        verify( programInstanceService ).getProgramInstancesWithEventsAndAttributeValues(
+            Lists.newArrayList( programInstance.getId() ) );
+        verify( programRuleEngine ).prepareEvaluation( eq( programInstance ), eq( psiA ), any() );
+        verify( programRuleEngine ).prepareEvaluation( eq( programInstance ), eq( psiB ), any() );
+        verify( ruleActionSendMessage, times( 2 ) ).implement( any( RuleEffect.class ),
+            any( ProgramStageInstance.class ) );
+    }
+
+    @Test
+    public void testFailingEffectsDoNotAffectOtherEnrollments()
+    {
+        ProgramInstance programInstanceB = new ProgramInstance();
+        programInstanceB.setId( 2 );
+        programInstanceB.setUid( CodeGenerator.generateUid() );
+        programInstanceB.setProgram( programInstance.getProgram() );
+
+        when( programInstanceService.getProgramInstancesWithEventsAndAttributeValues( anyList() ) )
+            .thenReturn( Lists.newArrayList( programInstance, programInstanceB ) );
+        when( programInstanceService.getProgramInstance( programInstance.getId() ) ).thenReturn( programInstance );
+        when( programInstanceService.getProgramInstance( programInstanceB.getId() ) ).thenReturn( programInstanceB );
+        when( programRuleEngine.prepareEvaluation( any(), isNull(), any() ) ).thenReturn( () -> Lists.newArrayList(
+            RuleEffect.create( RuleActionSendMessage.create( NOTIFICATION_UID, DATA ) ) ) );
+
+        doThrow( new IllegalStateException( "Failing action" ) ).when( ruleActionSendMessage )
+            .implement( any( RuleEffect.class ), eq( programInstance ) );
+
+        setProgramRuleActionType_SendMessage();
+
+        Map<Long, List<RuleEffect>> ruleEffects = service.evaluateEnrollmentsAndRunEffects(
+            Lists.newArrayList( programInstance.getId(), programInstanceB.getId() ) );
+
+        assertEquals( 2, ruleEffects.size() );
+
+        verify( ruleActionSendMessage ).implement( any( RuleEffect.class ), eq( programInstanceB ) );
+
+        // One transaction for loading and one for the effects of each
+        // enrollment, only the failing one is rolled back
+
+        verify( transactionManager, times( 3 ) ).getTransaction( any() );
+        verify( transactionManager, times( 2 ) ).commit( any() );
+        verify( transactionManager, times( 1 ) ).rollback( any() );
+    }
+
     @Test
     public void testGetDescription()
     {
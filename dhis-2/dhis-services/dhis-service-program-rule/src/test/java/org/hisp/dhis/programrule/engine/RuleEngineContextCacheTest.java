@@ -0,0 +1,235 @@
+package org.hisp.dhis.programrule.engine;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.hisp.dhis.DhisConvenienceTest;
+import org.hisp.dhis.cache.CacheRegionInvalidation;
+import org.hisp.dhis.cache.CacheRegionInvalidationEvent;
+import org.hisp.dhis.constant.Constant;
+import org.hisp.dhis.constant.ConstantService;
+import org.hisp.dhis.organisationunit.OrganisationUnitGroupService;
+import org.hisp.dhis.program.Program;
+import org.hisp.dhis.programrule.ProgramRule;
+import org.hisp.dhis.programrule.ProgramRuleVariableService;
+import org.hisp.dhis.rules.models.RuleVariable;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.springframework.context.ApplicationEventPublisher;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class RuleEngineContextCacheTest extends DhisConvenienceTest
+{
+    @Rule
+    public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    @Mock
+    private ProgramRuleEntityMapperService programRuleEntityMapperService;
+
+    @Mock
+    private ProgramRuleVariableService programRuleVariableService;
+
+    @Mock
+    private ConstantService constantService;
+
+    @Mock
+    private OrganisationUnitGroupService organisationUnitGroupService;
+
+    @Mock
+    private ImplementableRuleService implementableRuleService;
+
+    @Mock
+    private ApplicationEventPublisher publisher;
+
+    private RuleEngineContextCache cache;
+
+    private Program programA;
+
+    private Program programB;
+
+    @Before
+    public void setUp()
+    {
+        cache = new RuleEngineContextCache( programRuleEntityMapperService, programRuleVariableService,
+            constantService, organisationUnitGroupService );
+
+        programA = createProgram( 'A' );
+        programA.setId( 1 );
+        programB = createProgram( 'B' );
+        programB.setId( 2 );
+
+        when( programRuleVariableService.getProgramRuleVariable( programA ) ).thenReturn( new ArrayList<>() );
+        when( programRuleVariableService.getProgramRuleVariable( programB ) ).thenReturn( new ArrayList<>() );
+        when( programRuleEntityMapperService.toMappedProgramRuleVariables( anyList() ) )
+            .thenReturn( new ArrayList<>() );
+        when( programRuleEntityMapperService.toMappedProgramRules( anyList() ) ).thenReturn( new ArrayList<>() );
+        when( implementableRuleService.getImplementableRules( programA ) ).thenReturn( new ArrayList<>() );
+    }
+
+    @Test
+    public void testProgramContextIsBuiltOnce()
+    {
+        List<RuleVariable> variables = cache.getRuleVariables( programA );
+
+        assertSame( variables, cache.getRuleVariables( programA ) );
+
+        cache.getRules( programA, implementableRuleService );
+        cache.getRules( programA, implementableRuleService );
+
+        verify( programRuleVariableService, times( 1 ) ).getProgramRuleVariable( programA );
+        verify( implementableRuleService, times( 1 ) ).getImplementableRules( programA );
+    }
+
+    @Test
+    public void testMetrics()
+    {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        cache.bindTo( registry );
+
+        cache.getRuleVariables( programA );
+        cache.getRuleVariables( programA );
+        cache.getRules( programA, implementableRuleService );
+
+        assertEquals( 2.0, registry.get( "rule_engine.context.hits" ).functionCounter().count(), 0 );
+        assertEquals( 2.0, registry.get( "rule_engine.context.builds" ).functionTimer().count(), 0 );
+    }
+
+    @Test
+    public void testEntriesExpire()
+    {
+        cache.setExpireAfterWrite( 0, TimeUnit.MILLISECONDS );
+
+        cache.getRuleVariables( programA );
+        cache.getRuleVariables( programA );
+
+        verify( programRuleVariableService, times( 2 ) ).getProgramRuleVariable( programA );
+    }
+
+    @Test
+    public void testInvalidateProgram()
+    {
+        cache.getRuleVariables( programA );
+        cache.getRuleVariables( programB );
+
+        cache.invalidateProgram( programA.getId() );
+
+        cache.getRuleVariables( programA );
+        cache.getRuleVariables( programB );
+
+        verify( programRuleVariableService, times( 2 ) ).getProgramRuleVariable( programA );
+        verify( programRuleVariableService, times( 1 ) ).getProgramRuleVariable( programB );
+    }
+
+    @Test
+    public void testInvalidateConstants()
+    {
+        Constant constant = createConstant( 'A', 2.5 );
+
+        when( constantService.getConstantMap() ).thenReturn( ImmutableMap.of( constant.getUid(), constant ) );
+
+        Map<String, String> constants = cache.getConstants();
+
+        assertEquals( "2.5", constants.get( constant.getUid() ) );
+        assertSame( constants, cache.getConstants() );
+
+        cache.invalidateConstants();
+        cache.getConstants();
+
+        verify( constantService, times( 2 ) ).getConstantMap();
+    }
+
+    @Test
+    public void testInvalidateOrganisationUnitGroups()
+    {
+        when( organisationUnitGroupService.getAllOrganisationUnitGroups() ).thenReturn(
+            Lists.newArrayList( createOrganisationUnitGroup( 'A' ), createOrganisationUnitGroup( 'B' ) ) );
+
+        assertEquals( 2, cache.getOrganisationUnitGroupUids().size() );
+
+        cache.getOrganisationUnitGroupUids();
+        cache.invalidateAll();
+        cache.getOrganisationUnitGroupUids();
+
+        verify( organisationUnitGroupService, times( 2 ) ).getAllOrganisationUnitGroups();
+    }
+
+    @Test
+    public void testListenerPublishesInvalidation()
+    {
+        RuleEngineContextCacheListener listener = new RuleEngineContextCacheListener( cache, publisher );
+
+        ProgramRule programRule = createProgramRule( 'A', programA );
+
+        cache.getRuleVariables( programA );
+        listener.invalidate( programRule );
+        cache.getRuleVariables( programA );
+
+        verify( programRuleVariableService, times( 2 ) ).getProgramRuleVariable( programA );
+        verify( publisher ).publishEvent( any( CacheRegionInvalidationEvent.class ) );
+    }
+
+    @Test
+    public void testListenerAppliesRemoteInvalidation()
+    {
+        RuleEngineContextCacheListener listener = new RuleEngineContextCacheListener( cache, publisher );
+
+        cache.getRuleVariables( programA );
+        cache.getRuleVariables( programB );
+
+        listener.handleRemoteInvalidation( new CacheRegionInvalidationEvent( this, Lists.newArrayList(
+            CacheRegionInvalidation.key( RuleEngineContextCacheListener.REGION, String.valueOf( programB.getId() ) ),
+            CacheRegionInvalidation.key( "otherRegion", String.valueOf( programA.getId() ) ) ), true ) );
+
+        cache.getRuleVariables( programA );
+        cache.getRuleVariables( programB );
+
+        verify( programRuleVariableService, times( 1 ) ).getProgramRuleVariable( programA );
+        verify( programRuleVariableService, times( 2 ) ).getProgramRuleVariable( programB );
+    }
+}
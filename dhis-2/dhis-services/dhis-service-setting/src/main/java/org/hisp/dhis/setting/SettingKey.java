@@ -108,6 +108,9 @@ public enum SettingKey
     CUSTOM_TOP_MENU_LOGO( "keyCustomTopMenuLogo", Boolean.FALSE, Boolean.class ),
     ANALYTICS_MAINTENANCE_MODE( "keyAnalyticsMaintenanceMode", Boolean.FALSE, Boolean.class ),
     DATABASE_SERVER_CPUS( "keyDatabaseServerCpus", 0, Integer.class ),
+    ANALYTICS_INDEX_ADVISOR( "keyAnalyticsIndexAdvisor", Boolean.FALSE, Boolean.class ),
+    ANALYTICS_INDEX_ADVISOR_MIN_QUERIES( "keyAnalyticsIndexAdvisorMinQueries", 1000, Integer.class ),
+    ANALYTICS_ROLLUPS( "keyAnalyticsRollups", "", String.class ),
     LAST_SUCCESSFUL_ANALYTICS_TABLES_RUNTIME( "keyLastSuccessfulAnalyticsTablesRuntime" ),
     LAST_SUCCESSFUL_LATEST_ANALYTICS_PARTITION_RUNTIME( "keyLastSuccessfulLatestAnalyticsPartitionRuntime" ),
     LAST_MONITORING_RUN( "keyLastMonitoringRun", Date.class ),
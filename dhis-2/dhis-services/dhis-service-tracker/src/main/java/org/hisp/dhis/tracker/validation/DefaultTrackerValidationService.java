@@ -30,6 +30,7 @@ package org.hisp.dhis.tracker.validation;
 
 import lombok.extern.slf4j.Slf4j;
 import org.hisp.dhis.commons.timer.Timer;
+import org.hisp.dhis.monitoring.metrics.ApplicationMetrics;
 import org.hisp.dhis.tracker.ValidationMode;
 import org.hisp.dhis.tracker.bundle.TrackerBundle;
 import org.hisp.dhis.tracker.report.TrackerValidationHookTimerReport;
@@ -41,6 +42,9 @@ import org.springframework.stereotype.Service;
 import java.util.ArrayList;
 import java.util.List;
 
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.hisp.dhis.monitoring.metrics.ApplicationMetrics.SUBSYSTEM_TRACKER;
+
 /**
  * @author Morten Olav Hansen <mortenoh@gmail.com>
  */
@@ -51,6 +55,15 @@ public class DefaultTrackerValidationService
 {
     private List<TrackerValidationHook> validationHooks = new ArrayList<>();
 
+    private final ApplicationMetrics applicationMetrics;
+
+    public DefaultTrackerValidationService( ApplicationMetrics applicationMetrics )
+    {
+        checkNotNull( applicationMetrics );
+
+        this.applicationMetrics = applicationMetrics;
+    }
+
     @Autowired( required = false )
     public void setValidationHooks( List<TrackerValidationHook> validationHooks )
     {
@@ -84,8 +97,17 @@ public class DefaultTrackerValidationService
                 if ( hook.isEnabled() )
                 {
                     Timer hookTimer = Timer.startTimer();
+                    long start = applicationMetrics.start();
 
-                    validationReport.add( hook.validate( context ) );
+                    try
+                    {
+                        validationReport.add( hook.validate( context ) );
+                    }
+                    finally
+                    {
+                        applicationMetrics.stop( start, SUBSYSTEM_TRACKER, "validation_hook", "hook",
+                            hook.getClass().getSimpleName() );
+                    }
 
                     validationReport.add( TrackerValidationHookTimerReport.builder()
                         .name( hook.getClass().getName() )
@@ -31,17 +31,24 @@ package org.hisp.dhis.dataanalysis;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
 import org.hisp.dhis.category.CategoryOptionCombo;
-import org.hisp.dhis.common.MapMap;
+import org.hisp.dhis.commons.collection.PaginatedList;
 import org.hisp.dhis.dataelement.DataElement;
 import org.hisp.dhis.datavalue.DeflatedDataValue;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.period.Period;
 import org.hisp.dhis.system.util.MathUtils;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 
+import com.google.common.base.Throwables;
+
 import lombok.extern.slf4j.Slf4j;
 
 /**
@@ -52,16 +59,30 @@ import lombok.extern.slf4j.Slf4j;
 public class StdDevOutlierAnalysisService
     implements DataAnalysisService
 {
+    /**
+     * Number of data elements analysed per query.
+     */
+    private static final int DATA_ELEMENT_PAGE_SIZE = 50;
+
     // -------------------------------------------------------------------------
     // Dependencies
     // -------------------------------------------------------------------------
 
     private final DataAnalysisStore dataAnalysisStore;
 
-    public StdDevOutlierAnalysisService( DataAnalysisStore dataAnalysisStore )
+    /**
+     * Bounded pool for the outlier queries of data element pages. The queries
+     * only use the identifiers of the given objects.
+     */
+    private final ExecutorService executor;
+
+    public StdDevOutlierAnalysisService( DataAnalysisStore dataAnalysisStore,
+        @Qualifier( "dataAnalysisExecutor" ) ExecutorService executor )
     {
         checkNotNull( dataAnalysisStore );
+        checkNotNull( executor );
         this.dataAnalysisStore = dataAnalysisStore;
+        this.executor = executor;
     }
 
     // -------------------------------------------------------------------------
@@ -72,50 +93,138 @@ public class StdDevOutlierAnalysisService
     public final List<DeflatedDataValue> analyse( Collection<OrganisationUnit> parents,
         Collection<DataElement> dataElements, Collection<Period> periods, Double stdDevFactor, Date from )
     {
-        log.info( "Starting std dev analysis, no of org units: " + parents.size() + ", factor: " + stdDevFactor + ", from: " + from );
+        return analyse( parents, dataElements, periods, stdDevFactor, from, OutlierDetectionAlgorithm.Z_SCORE );
+    }
+
+    /**
+     * Finds outlier data values using the given algorithm. Data elements are
+     * analysed in pages, with one query per page computing the statistics and
+     * outliers for all data elements of the page. The category option combos
+     * of each page are resolved on the calling thread, which keeps their lazy
+     * loading within the current session, while the page queries run on the
+     * data analysis pool. The outliers of all pages are ranked by
+     * deviation, largest first, and at most
+     * {@link #MAX_OUTLIERS} + 1 outliers are returned, so that callers can
+     * detect that the limit was exceeded.
+     *
+     * @param parents the parent organisation units.
+     * @param dataElements the data elements.
+     * @param periods the periods for which to find outliers.
+     * @param stdDevFactor the number of standard deviations, or the modified
+     *        z-score threshold.
+     * @param from the from date for which to include data values in statistics.
+     * @param algorithm the {@link OutlierDetectionAlgorithm}.
+     * @return a list of outliers.
+     */
+    public List<DeflatedDataValue> analyse( Collection<OrganisationUnit> parents,
+        Collection<DataElement> dataElements, Collection<Period> periods, Double stdDevFactor, Date from,
+        OutlierDetectionAlgorithm algorithm )
+    {
+        log.info( "Starting std dev analysis, no of org units: " + parents.size() + ", factor: " + stdDevFactor +
+            ", from: " + from + ", algorithm: " + algorithm );
 
-        List<DeflatedDataValue> outlierCollection = new ArrayList<>();
+        if ( stdDevFactor == null )
+        {
+            return new ArrayList<>();
+        }
+
+        // TODO filter periods with data element period type
 
         List<String> parentsPaths = parents.stream().map( OrganisationUnit::getPath ).collect( Collectors.toList() );
 
-        loop : for ( DataElement dataElement : dataElements )
-        {
-            // TODO filter periods with data element period type
+        List<DataElement> numericDataElements = dataElements.stream()
+            .filter( dataElement -> dataElement.getValueType().isNumeric() )
+            .collect( Collectors.toList() );
 
-            if ( dataElement.getValueType().isNumeric() && stdDevFactor != null )
-            {
-                Set<CategoryOptionCombo> categoryOptionCombos = dataElement.getCategoryOptionCombos();
+        List<List<DataElement>> dataElementPages = new PaginatedList<>( numericDataElements )
+            .setPageSize( DATA_ELEMENT_PAGE_SIZE ).getPages();
+
+        log.debug( "No of data element pages: " + dataElementPages.size() );
 
-                List<DataAnalysisMeasures> measuresList = dataAnalysisStore.getDataAnalysisMeasures( dataElement, categoryOptionCombos, parentsPaths, from );
+        List<Callable<List<DeflatedDataValue>>> queries = new ArrayList<>();
 
-                MapMap<Long, Long, Integer> lowBoundMapMap = new MapMap<>(); // catOptionComboId, orgUnitId, lowBound
-                MapMap<Long, Long, Integer> highBoundMapMap = new MapMap<>(); // catOptionComboId, orgUnitId, highBound
+        for ( List<DataElement> page : dataElementPages )
+        {
+            Set<CategoryOptionCombo> categoryOptionCombos = getCategoryOptionCombos( page );
+
+            queries.add( () -> dataAnalysisStore.getOutliers( page, categoryOptionCombos, periods,
+                parentsPaths, from, stdDevFactor, algorithm, MAX_OUTLIERS + 1 ) );
+        }
 
-                for ( DataAnalysisMeasures measures : measuresList )
-                {
-                    int lowBound = (int) Math.round( MathUtils.getLowBound( measures.getStandardDeviation(), stdDevFactor, measures.getAverage() ) );
-                    int highBound = (int) Math.round( MathUtils.getHighBound( measures.getStandardDeviation(), stdDevFactor, measures.getAverage() ) );
+        return getOutliers( queries ).stream()
+            .sorted( Comparator.comparingDouble( StdDevOutlierAnalysisService::getDeviation ).reversed() )
+            .limit( MAX_OUTLIERS + 1 )
+            .collect( Collectors.toList() );
+    }
 
-                    lowBoundMapMap.putEntry( measures.getCategoryOptionComboId(), measures.getOrgUnitId(), lowBound );
-                    highBoundMapMap.putEntry( measures.getCategoryOptionComboId(), measures.getOrgUnitId(), highBound );
-                }
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
 
-                for ( CategoryOptionCombo categoryOptionCombo : categoryOptionCombos )
-                {
-                    Map<Long, Integer> lowBoundMap = lowBoundMapMap.get( categoryOptionCombo.getId() );
-                    Map<Long, Integer> highBoundMap = highBoundMapMap.get( categoryOptionCombo.getId() );
+    /**
+     * Runs the given page queries and returns the outliers of all pages. A
+     * single page is queried on the calling thread.
+     */
+    private List<DeflatedDataValue> getOutliers( List<Callable<List<DeflatedDataValue>>> queries )
+    {
+        List<DeflatedDataValue> outliers = new ArrayList<>();
 
-                    outlierCollection.addAll( dataAnalysisStore.getDeflatedDataValues( dataElement, categoryOptionCombo, periods,
-                        lowBoundMap, highBoundMap ) );
+        try
+        {
+            if ( queries.size() == 1 )
+            {
+                return queries.get( 0 ).call();
+            }
 
-                    if ( outlierCollection.size() > MAX_OUTLIERS )
-                    {
-                        break loop;
-                    }
-                }
+            for ( Future<List<DeflatedDataValue>> future : executor.invokeAll( queries ) )
+            {
+                outliers.addAll( future.get() );
             }
         }
+        catch ( InterruptedException ex )
+        {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException( "Outlier analysis was interrupted", ex );
+        }
+        catch ( ExecutionException ex )
+        {
+            Throwables.throwIfUnchecked( ex.getCause() );
+            throw new IllegalStateException( ex.getCause() );
+        }
+        catch ( Exception ex )
+        {
+            Throwables.throwIfUnchecked( ex );
+            throw new IllegalStateException( ex );
+        }
+
+        return outliers;
+    }
+
+    private Set<CategoryOptionCombo> getCategoryOptionCombos( List<DataElement> dataElements )
+    {
+        return dataElements.stream()
+            .flatMap( dataElement -> dataElement.getCategoryOptionCombos().stream() )
+            .collect( Collectors.toSet() );
+    }
+
+    /**
+     * Returns the deviation of the given outlier relative to the distance
+     * between the middle and the bounds of the outlier range.
+     *
+     * @param outlier the outlier {@link DeflatedDataValue}.
+     */
+    static double getDeviation( DeflatedDataValue outlier )
+    {
+        Double value = MathUtils.parseDouble( outlier.getValue() );
+
+        if ( value == null )
+        {
+            return 0d;
+        }
+
+        double middle = ( outlier.getMin() + outlier.getMax() ) / 2d;
+        double radius = ( outlier.getMax() - outlier.getMin() ) / 2d;
 
-        return outlierCollection;
+        return radius > 0 ? Math.abs( value - middle ) / radius : Math.abs( value - middle );
     }
 }
@@ -41,6 +41,7 @@ import org.hisp.dhis.commons.collection.PaginatedList;
 import org.hisp.dhis.commons.util.TextUtils;
 import org.hisp.dhis.dataanalysis.DataAnalysisMeasures;
 import org.hisp.dhis.dataanalysis.DataAnalysisStore;
+import org.hisp.dhis.dataanalysis.OutlierDetectionAlgorithm;
 import org.hisp.dhis.dataelement.DataElement;
 import org.hisp.dhis.datavalue.DeflatedDataValue;
 import org.hisp.dhis.jdbc.StatementBuilder;
@@ -62,6 +63,12 @@ import org.springframework.stereotype.Repository;
 @Repository( "org.hisp.dhis.dataanalysis.DataAnalysisStore" )
 public class JdbcDataAnalysisStore implements DataAnalysisStore
 {
+    /**
+     * Scale factor relating the median absolute deviation to the standard
+     * deviation, used for the modified z-score.
+     */
+    private static final double MAD_SCALE_FACTOR = 0.6745;
+
     // -------------------------------------------------------------------------
     // Dependencies
     // -------------------------------------------------------------------------
@@ -135,6 +142,52 @@ public class JdbcDataAnalysisStore implements DataAnalysisStore
         return measures;
     }
 
+    @Override
+    public List<DeflatedDataValue> getOutliers( Collection<DataElement> dataElements,
+        Collection<CategoryOptionCombo> categoryOptionCombos, Collection<Period> periods,
+        Collection<String> parentPaths, Date from, double threshold, OutlierDetectionAlgorithm algorithm, int limit )
+    {
+        if ( dataElements.isEmpty() || categoryOptionCombos.isEmpty() || periods.isEmpty() || parentPaths.isEmpty() )
+        {
+            return new ArrayList<>();
+        }
+
+        boolean modZScore = OutlierDetectionAlgorithm.MOD_Z_SCORE == algorithm;
+
+        String value = "cast( dv.value as " + statementBuilder.getDoubleColumnType() + " )";
+        String periodIds = getCommaDelimitedString( getIdentifiers( periods ) );
+        String statsSql = modZScore ?
+            getMedianStatisticsSql( dataElements, categoryOptionCombos, parentPaths, from ) :
+            getMeanStatisticsSql( dataElements, categoryOptionCombos, parentPaths, from );
+
+        String deviation = modZScore ? "( st.deviation / " + MAD_SCALE_FACTOR + " )" : "st.deviation";
+        String lowerBound = "round( st.middle - " + threshold + " * " + deviation + " )";
+        String upperBound = "round( st.middle + " + threshold + " * " + deviation + " )";
+
+        String sql = "select dv.dataelementid, dv.periodid, dv.sourceid, dv.categoryoptioncomboid, dv.attributeoptioncomboid, dv.value, dv.storedby, dv.lastupdated, "
+            + "dv.created, dv.comment, dv.followup, ou.name as sourcename, de.name as dataelementname, "
+            + "pt.name as periodtypename, pe.startdate, pe.enddate, coc.name as categoryoptioncomboname, "
+            + lowerBound + " as minimumvalue, " + upperBound + " as maximumvalue "
+            + "from datavalue dv "
+            + "join (" + statsSql + ") as st on ( dv.dataelementid = st.dataelementid and dv.sourceid = st.sourceid and dv.categoryoptioncomboid = st.categoryoptioncomboid ) "
+            + "join dataelement de on dv.dataelementid = de.dataelementid "
+            + "join period pe on dv.periodid = pe.periodid "
+            + "join periodtype pt on pe.periodtypeid = pt.periodtypeid "
+            + "join organisationunit ou on dv.sourceid = ou.organisationunitid "
+            + "join categoryoptioncombo coc on dv.categoryoptioncomboid = coc.categoryoptioncomboid "
+            + "where dv.periodid in (" + periodIds + ") "
+            + "and st.deviation != 0 "
+            + "and ( " + value + " < " + lowerBound + " or " + value + " > " + upperBound + " ) "
+            + "and dv.deleted is false "
+            + "order by abs( " + value + " - st.middle ) / " + deviation + " desc ";
+
+        sql += statementBuilder.limitRecord( 0, limit );
+
+        log.debug( "Outlier SQL: " + sql );
+
+        return jdbcTemplate.query( sql, new DeflatedDataValueNameMinMaxRowMapper( null, null ) );
+    }
+
     @Override
     public List<DeflatedDataValue> getMinMaxViolations( Collection<DataElement> dataElements,
         Collection<CategoryOptionCombo> categoryOptionCombos, Collection<Period> periods,
@@ -239,6 +292,68 @@ public class JdbcDataAnalysisStore implements DataAnalysisStore
         return jdbcTemplate.query( sql, pss, new DeflatedDataValueNameMinMaxRowMapper( lowerBoundMap, upperBoundMap ) );
     }
 
+    /**
+     * Returns SQL for the mean and standard deviation of data values per
+     * data element, org unit and category option combo.
+     */
+    private String getMeanStatisticsSql( Collection<DataElement> dataElements,
+        Collection<CategoryOptionCombo> categoryOptionCombos, Collection<String> parentPaths, Date from )
+    {
+        String value = "cast( dv.value as " + statementBuilder.getDoubleColumnType() + " )";
+
+        return "select dv.dataelementid, dv.sourceid, dv.categoryoptioncomboid, "
+            + "avg( " + value + " ) as middle, stddev_pop( " + value + " ) as deviation "
+            + getStatisticsFromWhereSql( dataElements, categoryOptionCombos, parentPaths, from )
+            + "group by dv.dataelementid, dv.sourceid, dv.categoryoptioncomboid";
+    }
+
+    /**
+     * Returns SQL for the median and median absolute deviation of data values
+     * per data element, org unit and category option combo.
+     */
+    private String getMedianStatisticsSql( Collection<DataElement> dataElements,
+        Collection<CategoryOptionCombo> categoryOptionCombos, Collection<String> parentPaths, Date from )
+    {
+        String value = "cast( dv.value as " + statementBuilder.getDoubleColumnType() + " )";
+
+        String medianSql = "select dv.dataelementid, dv.sourceid, dv.categoryoptioncomboid, "
+            + "percentile_cont( 0.5 ) within group ( order by " + value + " ) as middle "
+            + getStatisticsFromWhereSql( dataElements, categoryOptionCombos, parentPaths, from )
+            + "group by dv.dataelementid, dv.sourceid, dv.categoryoptioncomboid";
+
+        return "select md.dataelementid, md.sourceid, md.categoryoptioncomboid, md.middle, "
+            + "percentile_cont( 0.5 ) within group ( order by abs( " + value + " - md.middle ) ) as deviation "
+            + "from (" + medianSql + ") as md "
+            + "join datavalue dv on ( dv.dataelementid = md.dataelementid and dv.sourceid = md.sourceid and dv.categoryoptioncomboid = md.categoryoptioncomboid ) "
+            + "join period pe on dv.periodid = pe.periodid "
+            + "where pe.startdate >= '" + DateUtils.getMediumDateString( from ) + "' "
+            + "and dv.deleted is false "
+            + "group by md.dataelementid, md.sourceid, md.categoryoptioncomboid, md.middle";
+    }
+
+    /**
+     * Returns the from and where clauses selecting the data values which
+     * statistics are based on.
+     */
+    private String getStatisticsFromWhereSql( Collection<DataElement> dataElements,
+        Collection<CategoryOptionCombo> categoryOptionCombos, Collection<String> parentPaths, Date from )
+    {
+        String sql = "from datavalue dv "
+            + "join organisationunit ou on ou.organisationunitid = dv.sourceid "
+            + "join period pe on dv.periodid = pe.periodid "
+            + "where dv.dataelementid in (" + getCommaDelimitedString( getIdentifiers( dataElements ) ) + ") "
+            + "and dv.categoryoptioncomboid in (" + getCommaDelimitedString( getIdentifiers( categoryOptionCombos ) ) + ") "
+            + "and pe.startdate >= '" + DateUtils.getMediumDateString( from ) + "' "
+            + "and (";
+
+        for ( String path : parentPaths )
+        {
+            sql += "ou.path like '" + path + "%' or ";
+        }
+
+        return TextUtils.removeLastOr( sql ) + ") and dv.deleted is false ";
+    }
+
     @Override
     public List<DeflatedDataValue> getFollowupDataValues( Collection<DataElement> dataElements,
         Collection<CategoryOptionCombo> categoryOptionCombos, Collection<Period> periods,
@@ -29,12 +29,16 @@ package org.hisp.dhis.validation.config;
  */
 
 import com.google.common.collect.ImmutableMap;
+import org.apache.commons.lang3.math.NumberUtils;
 import org.hisp.dhis.common.ServiceProvider;
 import org.hisp.dhis.dataanalysis.DataAnalysisService;
 import org.hisp.dhis.dataanalysis.MinMaxOutlierAnalysisService;
 import org.hisp.dhis.dataanalysis.StdDevOutlierAnalysisService;
+import org.hisp.dhis.external.conf.ConfigurationKey;
+import org.hisp.dhis.external.conf.DhisConfigurationProvider;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolExecutorFactoryBean;
 
 /**
  * @author Luciano Fiandesio
@@ -52,4 +56,25 @@ public class ServiceConfig
             minMaxOutlierAnalysisService ) );
         return serviceProvider;
     }
+
+    /**
+     * Bounded pool for the outlier queries of data analysis, sized by
+     * {@link ConfigurationKey#DATA_ANALYSIS_PARALLELISM}. Exposed as a plain
+     * executor service so that it is not picked up as the default executor of
+     * {@code @Async} methods.
+     */
+    @Bean( "dataAnalysisExecutor" )
+    public ThreadPoolExecutorFactoryBean dataAnalysisExecutor( DhisConfigurationProvider config )
+    {
+        int parallelism = Math.max( 1, NumberUtils.toInt(
+            config.getProperty( ConfigurationKey.DATA_ANALYSIS_PARALLELISM ),
+            Integer.parseInt( ConfigurationKey.DATA_ANALYSIS_PARALLELISM.getDefaultValue() ) ) );
+
+        ThreadPoolExecutorFactoryBean executor = new ThreadPoolExecutorFactoryBean();
+        executor.setCorePoolSize( parallelism );
+        executor.setMaxPoolSize( parallelism );
+        executor.setThreadNamePrefix( "data-analysis-" );
+        executor.setDaemon( true );
+        return executor;
+    }
 }
@@ -35,6 +35,7 @@ import org.hisp.dhis.category.CategoryOptionCombo;
 import org.hisp.dhis.category.CategoryService;
 import org.hisp.dhis.dataelement.*;
 import org.hisp.dhis.datavalue.DataValueService;
+import org.hisp.dhis.datavalue.DeflatedDataValue;
 import org.hisp.dhis.organisationunit.OrganisationUnit;
 import org.hisp.dhis.organisationunit.OrganisationUnitService;
 import org.hisp.dhis.period.MonthlyPeriodType;
@@ -160,4 +161,46 @@ public class DataAnalysisStoreTest
         assertEquals( 12.78, measures.get( 0 ).getAverage(), DELTA );
         assertEquals( 15.26, measures.get( 0 ).getStandardDeviation(), DELTA );
     }
+
+    @Test
+    public void testGetOutliersZScore()
+    {
+        addDataValues();
+
+        List<DeflatedDataValue> outliers = dataAnalysisStore.getOutliers( Lists.newArrayList( dataElementA ),
+            Lists.newArrayList( categoryOptionCombo ), Lists.newArrayList( periodA, periodB, periodG, periodH ),
+            Lists.newArrayList( organisationUnitA.getPath() ), from, 2.0, OutlierDetectionAlgorithm.Z_SCORE, 10 );
+
+        assertEquals( 1, outliers.size() );
+        assertEquals( "52", outliers.get( 0 ).getValue() );
+    }
+
+    @Test
+    public void testGetOutliersModifiedZScore()
+    {
+        addDataValues();
+
+        List<DeflatedDataValue> outliers = dataAnalysisStore.getOutliers( Lists.newArrayList( dataElementA ),
+            Lists.newArrayList( categoryOptionCombo ), Lists.newArrayList( periodA, periodB, periodG, periodH ),
+            Lists.newArrayList( organisationUnitA.getPath() ), from, 3.5, OutlierDetectionAlgorithm.MOD_Z_SCORE, 10 );
+
+        assertEquals( 1, outliers.size() );
+        assertEquals( "52", outliers.get( 0 ).getValue() );
+        assertEquals( -23, outliers.get( 0 ).getMin() );
+        assertEquals( 40, outliers.get( 0 ).getMax() );
+    }
+
+    private void addDataValues()
+    {
+        dataValueService.addDataValue( createDataValue( dataElementA, periodA, organisationUnitA, "5", categoryOptionCombo ) );
+        dataValueService.addDataValue( createDataValue( dataElementA, periodB, organisationUnitA, "2", categoryOptionCombo ) );
+        dataValueService.addDataValue( createDataValue( dataElementA, periodC, organisationUnitA, "1", categoryOptionCombo ) );
+        dataValueService.addDataValue( createDataValue( dataElementA, periodD, organisationUnitA, "12", categoryOptionCombo ) );
+        dataValueService.addDataValue( createDataValue( dataElementA, periodE, organisationUnitA, "10", categoryOptionCombo ) );
+        dataValueService.addDataValue( createDataValue( dataElementA, periodF, organisationUnitA, "7", categoryOptionCombo ) );
+        dataValueService.addDataValue( createDataValue( dataElementA, periodG, organisationUnitA, "52", categoryOptionCombo ) );
+        dataValueService.addDataValue( createDataValue( dataElementA, periodH, organisationUnitA, "23", categoryOptionCombo ) );
+        dataValueService.addDataValue( createDataValue( dataElementA, periodI, organisationUnitA, "3", categoryOptionCombo ) );
+        dataValueService.addDataValue( createDataValue( dataElementA, periodJ, organisationUnitA, "15", categoryOptionCombo ) );
+    }
 }
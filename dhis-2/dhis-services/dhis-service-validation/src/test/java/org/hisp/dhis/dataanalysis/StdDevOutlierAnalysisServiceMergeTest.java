@@ -0,0 +1,199 @@
+package org.hisp.dhis.dataanalysis;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.hisp.dhis.DhisConvenienceTest.createCategoryCombo;
+import static org.hisp.dhis.DhisConvenienceTest.createDataElement;
+import static org.hisp.dhis.DhisConvenienceTest.createOrganisationUnit;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+import org.hisp.dhis.category.CategoryCombo;
+import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.datavalue.DeflatedDataValue;
+import org.hisp.dhis.organisationunit.OrganisationUnit;
+import org.hisp.dhis.period.Period;
+import org.hisp.dhis.period.PeriodType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Tests the merging and ranking of outliers across data element pages.
+ */
+public class StdDevOutlierAnalysisServiceMergeTest
+{
+    @Rule
+    public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    @Mock
+    private DataAnalysisStore dataAnalysisStore;
+
+    @Captor
+    private ArgumentCaptor<Collection<DataElement>> dataElementsCaptor;
+
+    private ExecutorService executor;
+
+    private StdDevOutlierAnalysisService subject;
+
+    private List<DataElement> dataElements;
+
+    private List<Period> periods;
+
+    private List<OrganisationUnit> parents;
+
+    @Before
+    public void setUp()
+    {
+        executor = Executors.newFixedThreadPool( 2 );
+
+        subject = new StdDevOutlierAnalysisService( dataAnalysisStore, executor );
+
+        CategoryCombo categoryCombo = createCategoryCombo( 'A' );
+
+        dataElements = new ArrayList<>();
+
+        for ( int i = 0; i < 60; i++ )
+        {
+            dataElements.add( createDataElement( (char) ('A' + i), categoryCombo ) );
+        }
+
+        periods = Lists.newArrayList( PeriodType.getPeriodFromIsoString( "202001" ) );
+        parents = Lists.newArrayList( createOrganisationUnit( 'A' ) );
+    }
+
+    @After
+    public void tearDown()
+    {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testMergeAndRankOutliersAcrossPages()
+    {
+        when( getOutliers() )
+            .thenReturn( Lists.newArrayList( createOutlier( "12" ), createOutlier( "30" ) ) )
+            .thenReturn( Lists.newArrayList( createOutlier( "-15" ), createOutlier( "15" ) ) );
+
+        List<DeflatedDataValue> outliers = subject.analyse( parents, dataElements, periods, 2d, new Date(),
+            OutlierDetectionAlgorithm.Z_SCORE );
+
+        verify( dataAnalysisStore, times( 2 ) ).getOutliers( dataElementsCaptor.capture(), anyCollection(),
+            anyCollection(), anyCollection(), any(), anyDouble(), any(), anyInt() );
+
+        // Pages are queried concurrently, so in no particular order
+
+        assertEquals( Lists.newArrayList( 10, 50 ), dataElementsCaptor.getAllValues().stream()
+            .map( Collection::size ).sorted().collect( Collectors.toList() ) );
+
+        assertEquals( Lists.newArrayList( "30", "-15", "15", "12" ), getValues( outliers ) );
+    }
+
+    @Test
+    public void testMergedOutliersAreCappedAcrossPages()
+    {
+        List<DeflatedDataValue> small = new ArrayList<>();
+        List<DeflatedDataValue> large = new ArrayList<>();
+
+        for ( int i = 0; i < DataAnalysisService.MAX_OUTLIERS + 1; i++ )
+        {
+            small.add( createOutlier( "11" ) );
+            large.add( createOutlier( "100" ) );
+        }
+
+        when( getOutliers() ).thenReturn( small ).thenReturn( large );
+
+        List<DeflatedDataValue> outliers = subject.analyse( parents, dataElements, periods, 2d, new Date(),
+            OutlierDetectionAlgorithm.Z_SCORE );
+
+        assertEquals( DataAnalysisService.MAX_OUTLIERS + 1, outliers.size() );
+        assertEquals( 1, getValues( outliers ).stream().distinct().count() );
+        assertEquals( "100", outliers.get( 0 ).getValue() );
+    }
+
+    @Test
+    public void testPassesLimitAndAlgorithmToStore()
+    {
+        when( getOutliers() ).thenReturn( new ArrayList<>() );
+
+        subject.analyse( parents, dataElements.subList( 0, 1 ), periods, 3d, null,
+            OutlierDetectionAlgorithm.MOD_Z_SCORE );
+
+        verify( dataAnalysisStore ).getOutliers( anyCollection(), anyCollection(), eq( periods ),
+            eq( Lists.newArrayList( "/ouabcdefghA" ) ), any(), eq( 3d ),
+            eq( OutlierDetectionAlgorithm.MOD_Z_SCORE ), eq( DataAnalysisService.MAX_OUTLIERS + 1 ) );
+    }
+
+    private List<DeflatedDataValue> getOutliers()
+    {
+        return dataAnalysisStore.getOutliers( anyCollection(), anyCollection(), anyCollection(), anyCollection(),
+            any(), anyDouble(), any(), anyInt() );
+    }
+
+    /**
+     * Creates an outlier with the range 0 to 10, so the deviation grows with
+     * the distance of the value from 5.
+     */
+    private DeflatedDataValue createOutlier( String value )
+    {
+        DeflatedDataValue outlier = new DeflatedDataValue();
+        outlier.setValue( value );
+        outlier.setMin( 0 );
+        outlier.setMax( 10 );
+        return outlier;
+    }
+
+    private List<String> getValues( List<DeflatedDataValue> outliers )
+    {
+        return outliers.stream().map( DeflatedDataValue::getValue ).collect( Collectors.toList() );
+    }
+}
@@ -37,5 +37,7 @@ public enum MessageType
 
     TRACKER_JOB,
 
-    TRACKER_SIDE_EFFECT
+    TRACKER_SIDE_EFFECT,
+
+    CACHE_INVALIDATION
 }
@@ -0,0 +1,214 @@
+package org.hisp.dhis.artemis.cache;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceUnit;
+
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.AbstractCollectionEvent;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCollectionRecreateEvent;
+import org.hibernate.event.spi.PostCollectionRecreateEventListener;
+import org.hibernate.event.spi.PostCollectionRemoveEvent;
+import org.hibernate.event.spi.PostCollectionRemoveEventListener;
+import org.hibernate.event.spi.PostCollectionUpdateEvent;
+import org.hibernate.event.spi.PostCollectionUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.internal.SessionFactoryImpl;
+import org.hibernate.persister.collection.CollectionPersister;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hisp.dhis.cache.EntityInvalidation;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Collects the cached entities and collections written by each transaction
+ * and hands them to the {@link CacheInvalidationManager} once the transaction
+ * has committed. Invalidations of the same entry within a transaction are
+ * coalesced.
+ */
+@Component
+@Conditional( CacheInvalidationEnabledCondition.class )
+public class CacheInvalidationCollector
+    implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener,
+    PostCollectionRecreateEventListener, PostCollectionUpdateEventListener, PostCollectionRemoveEventListener
+{
+    private static final Object RESOURCE_KEY = new Object();
+
+    @PersistenceUnit
+    private EntityManagerFactory emf;
+
+    private final CacheInvalidationManager invalidationManager;
+
+    public CacheInvalidationCollector( CacheInvalidationManager invalidationManager )
+    {
+        checkNotNull( invalidationManager );
+
+        this.invalidationManager = invalidationManager;
+    }
+
+    @PostConstruct
+    public void init()
+    {
+        SessionFactoryImpl sessionFactory = emf.unwrap( SessionFactoryImpl.class );
+
+        EventListenerRegistry registry = sessionFactory.getServiceRegistry().getService( EventListenerRegistry.class );
+
+        registry.appendListeners( EventType.POST_INSERT, this );
+        registry.appendListeners( EventType.POST_UPDATE, this );
+        registry.appendListeners( EventType.POST_DELETE, this );
+        registry.appendListeners( EventType.POST_COLLECTION_RECREATE, this );
+        registry.appendListeners( EventType.POST_COLLECTION_UPDATE, this );
+        registry.appendListeners( EventType.POST_COLLECTION_REMOVE, this );
+    }
+
+    @Override
+    public void onPostInsert( PostInsertEvent event )
+    {
+        onEntity( event.getPersister(), event.getId(), event.getEntity() );
+    }
+
+    @Override
+    public void onPostUpdate( PostUpdateEvent event )
+    {
+        onEntity( event.getPersister(), event.getId(), event.getEntity() );
+    }
+
+    @Override
+    public void onPostDelete( PostDeleteEvent event )
+    {
+        onEntity( event.getPersister(), event.getId(), event.getEntity() );
+    }
+
+    @Override
+    public void onPostRecreateCollection( PostCollectionRecreateEvent event )
+    {
+        onCollection( event );
+    }
+
+    @Override
+    public void onPostUpdateCollection( PostCollectionUpdateEvent event )
+    {
+        onCollection( event );
+    }
+
+    @Override
+    public void onPostRemoveCollection( PostCollectionRemoveEvent event )
+    {
+        onCollection( event );
+    }
+
+    @Override
+    public boolean requiresPostCommitHanding( EntityPersister persister )
+    {
+        return false;
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private void onEntity( EntityPersister persister, Serializable id, Object entity )
+    {
+        if ( persister.hasCache() && id instanceof Number )
+        {
+            add( EntityInvalidation.entity( persister.getEntityName(), ((Number) id).longValue() ) );
+        }
+    }
+
+    private void onCollection( AbstractCollectionEvent event )
+    {
+        String role = event.getCollection().getRole();
+        Serializable ownerId = event.getAffectedOwnerIdOrNull();
+
+        if ( role == null || !(ownerId instanceof Number) )
+        {
+            return;
+        }
+
+        CollectionPersister persister = event.getSession().getFactory().getMetamodel().collectionPersister( role );
+
+        if ( persister.hasCache() )
+        {
+            add( EntityInvalidation.collection( role, ((Number) ownerId).longValue() ) );
+        }
+    }
+
+    @SuppressWarnings( "unchecked" )
+    private void add( EntityInvalidation invalidation )
+    {
+        if ( !TransactionSynchronizationManager.isSynchronizationActive() )
+        {
+            invalidationManager.broadcast( Collections.singletonList( invalidation ), false, false );
+            return;
+        }
+
+        Set<EntityInvalidation> pending =
+            (Set<EntityInvalidation>) TransactionSynchronizationManager.getResource( RESOURCE_KEY );
+
+        if ( pending == null )
+        {
+            Set<EntityInvalidation> invalidations = new LinkedHashSet<>();
+            pending = invalidations;
+
+            TransactionSynchronizationManager.bindResource( RESOURCE_KEY, invalidations );
+            TransactionSynchronizationManager.registerSynchronization( new TransactionSynchronizationAdapter()
+            {
+                @Override
+                public void afterCompletion( int status )
+                {
+                    TransactionSynchronizationManager.unbindResourceIfPossible( RESOURCE_KEY );
+
+                    if ( STATUS_COMMITTED == status && !invalidations.isEmpty() )
+                    {
+                        invalidationManager.broadcast( invalidations, false, false );
+                    }
+                }
+            } );
+        }
+
+        pending.add( invalidation );
+    }
+}
@@ -0,0 +1,316 @@
+package org.hisp.dhis.artemis.cache;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.jms.JMSException;
+import javax.jms.TextMessage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hisp.dhis.artemis.MessageManager;
+import org.hisp.dhis.artemis.Topics;
+import org.hisp.dhis.artemis.config.ArtemisConfigData;
+import org.hisp.dhis.artemis.config.ArtemisMode;
+import org.hisp.dhis.cache.CacheRegionInvalidation;
+import org.hisp.dhis.cache.CacheRegionInvalidationEvent;
+import org.hisp.dhis.cache.EntityInvalidation;
+import org.hisp.dhis.cache.HibernateCacheEvictionEvent;
+import org.hisp.dhis.cache.HibernateCacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.context.event.EventListener;
+import org.springframework.jms.annotation.JmsListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Propagates Hibernate second-level cache evictions between cluster nodes
+ * over the message broker, and applies evictions received from other nodes
+ * to the local cache. Replaces the Ehcache RMI replication when
+ * {@code cluster.cache.invalidation} is set to {@code artemis}.
+ * <p>
+ * Invalidations of application cache regions, published as local
+ * {@link CacheRegionInvalidationEvent}s, are propagated as well and published
+ * again as remote events on the receiving nodes.
+ * <p>
+ * Messages raised within a transaction are sent after the transaction has
+ * committed, so that other nodes do not reload the stale state from the
+ * database.
+ */
+@Slf4j
+@Component
+@Conditional( CacheInvalidationEnabledCondition.class )
+public class CacheInvalidationManager
+{
+    private static final Object REGION_RESOURCE_KEY = new Object();
+
+    /**
+     * Number of recently applied messages remembered for ignoring
+     * redelivered messages.
+     */
+    private static final int MAX_SEEN_MESSAGES = 10_000;
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final Set<String> seenMessages = Collections.newSetFromMap( new LinkedHashMap<String, Boolean>()
+    {
+        @Override
+        protected boolean removeEldestEntry( Map.Entry<String, Boolean> eldest )
+        {
+            return size() > MAX_SEEN_MESSAGES;
+        }
+    } );
+
+    private final MessageManager messageManager;
+
+    private final ObjectMapper objectMapper;
+
+    private final HibernateCacheManager cacheManager;
+
+    private final ApplicationEventPublisher publisher;
+
+    public CacheInvalidationManager( MessageManager messageManager, ObjectMapper objectMapper,
+        HibernateCacheManager cacheManager, ApplicationEventPublisher publisher, ArtemisConfigData artemisConfigData )
+    {
+        checkNotNull( messageManager );
+        checkNotNull( objectMapper );
+        checkNotNull( cacheManager );
+        checkNotNull( publisher );
+        checkNotNull( artemisConfigData );
+
+        this.messageManager = messageManager;
+        this.objectMapper = objectMapper;
+        this.cacheManager = cacheManager;
+        this.publisher = publisher;
+
+        if ( ArtemisMode.EMBEDDED == artemisConfigData.getMode() )
+        {
+            log.warn( "Cache invalidation is propagated through an embedded message broker, " +
+                "configure a shared broker in native mode to reach other cluster nodes" );
+        }
+
+        log.info( "Cache invalidation through message broker enabled for node: " + nodeId );
+    }
+
+    @EventListener
+    public void handleCacheEviction( HibernateCacheEvictionEvent event )
+    {
+        publish( event.getInvalidations(), event.isAllCollections(), event.isAll() );
+    }
+
+    /**
+     * Broadcasts local invalidations of application cache regions to the
+     * other cluster nodes. Invalidations raised within a transaction are
+     * coalesced and sent after commit, and discarded on rollback.
+     */
+    @EventListener( condition = "!#event.remote" )
+    @SuppressWarnings( "unchecked" )
+    public void handleCacheRegionInvalidation( CacheRegionInvalidationEvent event )
+    {
+        if ( !TransactionSynchronizationManager.isSynchronizationActive() )
+        {
+            broadcastRegions( event.getInvalidations() );
+            return;
+        }
+
+        Set<CacheRegionInvalidation> pending =
+            (Set<CacheRegionInvalidation>) TransactionSynchronizationManager.getResource( REGION_RESOURCE_KEY );
+
+        if ( pending == null )
+        {
+            Set<CacheRegionInvalidation> invalidations = new LinkedHashSet<>();
+            pending = invalidations;
+
+            TransactionSynchronizationManager.bindResource( REGION_RESOURCE_KEY, invalidations );
+            TransactionSynchronizationManager.registerSynchronization( new TransactionSynchronizationAdapter()
+            {
+                @Override
+                public void afterCompletion( int status )
+                {
+                    TransactionSynchronizationManager.unbindResourceIfPossible( REGION_RESOURCE_KEY );
+
+                    if ( STATUS_COMMITTED == status && !invalidations.isEmpty() )
+                    {
+                        broadcastRegions( invalidations );
+                    }
+                }
+            } );
+        }
+
+        pending.addAll( event.getInvalidations() );
+    }
+
+    /**
+     * Broadcasts the given invalidations to the other cluster nodes. When
+     * called within a transaction, the message is sent after commit and
+     * discarded on rollback.
+     *
+     * @param invalidations the entities and collections to invalidate.
+     * @param allCollections whether all collection regions are invalidated.
+     * @param all whether the entire cache is invalidated.
+     */
+    public void publish( Collection<EntityInvalidation> invalidations, boolean allCollections, boolean all )
+    {
+        if ( TransactionSynchronizationManager.isSynchronizationActive() )
+        {
+            TransactionSynchronizationManager.registerSynchronization( new TransactionSynchronizationAdapter()
+            {
+                @Override
+                public void afterCommit()
+                {
+                    broadcast( invalidations, allCollections, all );
+                }
+            } );
+        }
+        else
+        {
+            broadcast( invalidations, allCollections, all );
+        }
+    }
+
+    @JmsListener( destination = Topics.CACHE_INVALIDATION_TOPIC_NAME )
+    public void consume( TextMessage message )
+        throws JMSException, JsonProcessingException
+    {
+        CacheInvalidationMessage invalidation = objectMapper.readValue(
+            message.getText(), CacheInvalidationMessage.class );
+
+        if ( nodeId.equals( invalidation.getNodeId() ) || !markSeen( invalidation ) )
+        {
+            return;
+        }
+
+        List<CacheRegionInvalidation> regionInvalidations = invalidation.getRegionInvalidations();
+
+        if ( regionInvalidations != null && !regionInvalidations.isEmpty() )
+        {
+            publisher.publishEvent( new CacheRegionInvalidationEvent( this, regionInvalidations, true ) );
+        }
+
+        List<EntityInvalidation> invalidations = invalidation.getInvalidations();
+
+        if ( invalidation.isAll() )
+        {
+            cacheManager.clearObjectCache();
+            cacheManager.clearQueryCache();
+        }
+        else if ( invalidation.isAllCollections() || ( invalidations != null && !invalidations.isEmpty() ) )
+        {
+            cacheManager.evictEntities( invalidations != null ? invalidations : Collections.emptyList(),
+                invalidation.isAllCollections() );
+        }
+
+        log.debug( "Applied cache invalidation from node: {} with sequence: {}",
+            invalidation.getNodeId(), invalidation.getSequence() );
+    }
+
+    /**
+     * Broadcasts the given invalidations to the other cluster nodes
+     * immediately, regardless of any ongoing transaction.
+     *
+     * @param invalidations the entities and collections to invalidate.
+     * @param allCollections whether all collection regions are invalidated.
+     * @param all whether the entire cache is invalidated.
+     */
+    public void broadcast( Collection<EntityInvalidation> invalidations, boolean allCollections, boolean all )
+    {
+        send( CacheInvalidationMessage.builder()
+            .nodeId( nodeId )
+            .sequence( sequence.incrementAndGet() )
+            .invalidations( all ? Collections.emptyList() : new ArrayList<>( invalidations ) )
+            .regionInvalidations( Collections.emptyList() )
+            .allCollections( allCollections )
+            .all( all )
+            .build() );
+    }
+
+    /**
+     * Broadcasts the given invalidations of application cache regions to the
+     * other cluster nodes immediately, regardless of any ongoing transaction.
+     *
+     * @param invalidations the cache region entries to invalidate.
+     */
+    public void broadcastRegions( Collection<CacheRegionInvalidation> invalidations )
+    {
+        send( CacheInvalidationMessage.builder()
+            .nodeId( nodeId )
+            .sequence( sequence.incrementAndGet() )
+            .invalidations( Collections.emptyList() )
+            .regionInvalidations( new ArrayList<>( invalidations ) )
+            .build() );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private void send( CacheInvalidationMessage message )
+    {
+        try
+        {
+            messageManager.sendTopic( Topics.CACHE_INVALIDATION_TOPIC_NAME, message );
+        }
+        catch ( RuntimeException ex )
+        {
+            log.error( "Failed to send cache invalidation, other cluster nodes may serve stale data", ex );
+        }
+    }
+
+    /**
+     * Records the given message as applied, returning false if it was already
+     * applied. Messages of a node may arrive in any order, as they are sent
+     * from concurrent transactions, so each message is recorded individually.
+     * Only the most recent messages are remembered.
+     */
+    private boolean markSeen( CacheInvalidationMessage message )
+    {
+        synchronized ( seenMessages )
+        {
+            return seenMessages.add( message.getNodeId() + ":" + message.getSequence() );
+        }
+    }
+}
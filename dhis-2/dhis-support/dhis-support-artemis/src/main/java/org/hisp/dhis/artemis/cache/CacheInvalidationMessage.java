@@ -0,0 +1,84 @@
+package org.hisp.dhis.artemis.cache;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonPOJOBuilder;
+import lombok.Builder;
+import lombok.Data;
+import org.hisp.dhis.artemis.Message;
+import org.hisp.dhis.artemis.MessageType;
+import org.hisp.dhis.cache.CacheRegionInvalidation;
+import org.hisp.dhis.cache.EntityInvalidation;
+
+/**
+ * Broadcast between cluster nodes to evict Hibernate second-level cache
+ * entries and application cache regions. Messages carry the id of the
+ * sending node and a sequence number which is unique per node, so that
+ * receivers can ignore their own messages as well as redelivered ones.
+ */
+@Data
+@Builder( builderClassName = "CacheInvalidationMessageBuilder" )
+@JsonDeserialize( builder = CacheInvalidationMessage.CacheInvalidationMessageBuilder.class )
+@JsonIgnoreProperties( ignoreUnknown = true )
+public class CacheInvalidationMessage implements Message
+{
+    @JsonProperty
+    private final String nodeId;
+
+    @JsonProperty
+    private final long sequence;
+
+    @JsonProperty
+    private final List<EntityInvalidation> invalidations;
+
+    @JsonProperty
+    private final List<CacheRegionInvalidation> regionInvalidations;
+
+    @JsonProperty
+    private final boolean allCollections;
+
+    @JsonProperty
+    private final boolean all;
+
+    @Override
+    public MessageType getMessageType()
+    {
+        return MessageType.CACHE_INVALIDATION;
+    }
+
+    @JsonPOJOBuilder( withPrefix = "" )
+    public static final class CacheInvalidationMessageBuilder
+    {
+    }
+}
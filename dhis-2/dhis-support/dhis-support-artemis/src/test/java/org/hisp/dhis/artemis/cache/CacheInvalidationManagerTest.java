@@ -0,0 +1,328 @@
+package org.hisp.dhis.artemis.cache;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.jms.TextMessage;
+
+import org.hisp.dhis.artemis.MessageManager;
+import org.hisp.dhis.artemis.Topics;
+import org.hisp.dhis.artemis.config.ArtemisConfigData;
+import org.hisp.dhis.cache.CacheRegionInvalidation;
+import org.hisp.dhis.cache.CacheRegionInvalidationEvent;
+import org.hisp.dhis.cache.EntityInvalidation;
+import org.hisp.dhis.cache.HibernateCacheManager;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.springframework.context.ApplicationEventPublisher;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class CacheInvalidationManagerTest
+{
+    @Mock
+    private MessageManager messageManager;
+
+    @Mock
+    private HibernateCacheManager senderCacheManager;
+
+    @Mock
+    private HibernateCacheManager receiverCacheManager;
+
+    @Mock
+    private ApplicationEventPublisher senderPublisher;
+
+    @Mock
+    private ApplicationEventPublisher receiverPublisher;
+
+    @Rule
+    public MockitoRule rule = MockitoJUnit.rule();
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private CacheInvalidationManager sender;
+
+    private CacheInvalidationManager receiver;
+
+    @Before
+    public void setUp()
+    {
+        sender = new CacheInvalidationManager( messageManager, objectMapper, senderCacheManager, senderPublisher,
+            new ArtemisConfigData() );
+        receiver = new CacheInvalidationManager( messageManager, objectMapper, receiverCacheManager, receiverPublisher,
+            new ArtemisConfigData() );
+    }
+
+    @Test
+    @SuppressWarnings( "unchecked" )
+    public void testInvalidationIsAppliedOnOtherNode()
+        throws Exception
+    {
+        EntityInvalidation invalidation = EntityInvalidation.entity( "org.hisp.dhis.dataelement.DataElement", 42L );
+
+        TextMessage message = send( Collections.singletonList( invalidation ), false );
+
+        receiver.consume( message );
+
+        ArgumentCaptor<Collection<EntityInvalidation>> captor = ArgumentCaptor.forClass( Collection.class );
+        verify( receiverCacheManager ).evictEntities( captor.capture(), eq( false ) );
+
+        assertEquals( 1, captor.getValue().size() );
+        assertEquals( invalidation, captor.getValue().iterator().next() );
+    }
+
+    @Test
+    public void testOwnMessagesAreIgnored()
+        throws Exception
+    {
+        TextMessage message = send( Collections.emptyList(), true );
+
+        sender.consume( message );
+
+        verify( senderCacheManager, never() ).evictEntities( any(), anyBoolean() );
+        verify( senderCacheManager, never() ).clearObjectCache();
+    }
+
+    @Test
+    public void testRedeliveredMessagesAreIgnored()
+        throws Exception
+    {
+        TextMessage first = send( Collections.emptyList(), true );
+        TextMessage second = send( Collections.emptyList(), true );
+
+        receiver.consume( first );
+        receiver.consume( second );
+        receiver.consume( first );
+
+        verify( receiverCacheManager, times( 2 ) ).evictEntities( any(), eq( true ) );
+    }
+
+    @Test
+    public void testOutOfOrderMessagesAreApplied()
+        throws Exception
+    {
+        TextMessage first = send( Collections.emptyList(), true );
+        TextMessage second = send( Collections.emptyList(), true );
+
+        receiver.consume( second );
+        receiver.consume( first );
+
+        verify( receiverCacheManager, times( 2 ) ).evictEntities( any(), eq( true ) );
+    }
+
+    @Test
+    public void testConcurrentBroadcastsAreAllApplied()
+        throws Exception
+    {
+        int count = 50;
+
+        ExecutorService executor = Executors.newFixedThreadPool( 8 );
+
+        try
+        {
+            List<Callable<Void>> tasks = new ArrayList<>();
+
+            for ( int i = 0; i < count; i++ )
+            {
+                EntityInvalidation invalidation = EntityInvalidation.entity(
+                    "org.hisp.dhis.dataelement.DataElement", i );
+
+                tasks.add( () -> {
+                    sender.broadcast( Collections.singletonList( invalidation ), false, false );
+                    return null;
+                } );
+            }
+
+            for ( Future<Void> future : executor.invokeAll( tasks ) )
+            {
+                future.get();
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+
+        ArgumentCaptor<CacheInvalidationMessage> captor = ArgumentCaptor.forClass( CacheInvalidationMessage.class );
+        verify( messageManager, times( count ) ).sendTopic( eq( Topics.CACHE_INVALIDATION_TOPIC_NAME ), captor.capture() );
+
+        List<CacheInvalidationMessage> messages = new ArrayList<>( captor.getAllValues() );
+        Collections.reverse( messages );
+
+        for ( CacheInvalidationMessage message : messages )
+        {
+            receiver.consume( toTextMessage( message ) );
+            receiver.consume( toTextMessage( message ) );
+        }
+
+        verify( receiverCacheManager, times( count ) ).evictEntities( any(), eq( false ) );
+    }
+
+    @Test
+    public void testConcurrentRedeliveryIsAppliedOnce()
+        throws Exception
+    {
+        TextMessage message = send( Collections.emptyList(), true );
+
+        ExecutorService executor = Executors.newFixedThreadPool( 8 );
+
+        try
+        {
+            List<Callable<Void>> tasks = new ArrayList<>();
+
+            for ( int i = 0; i < 16; i++ )
+            {
+                tasks.add( () -> {
+                    receiver.consume( message );
+                    return null;
+                } );
+            }
+
+            for ( Future<Void> future : executor.invokeAll( tasks ) )
+            {
+                future.get();
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+
+        verify( receiverCacheManager, times( 1 ) ).evictEntities( any(), eq( true ) );
+    }
+
+    @Test
+    public void testRegionInvalidationIsPublishedAsRemoteOnOtherNode()
+        throws Exception
+    {
+        List<CacheRegionInvalidation> invalidations = Arrays.asList(
+            CacheRegionInvalidation.key( "objectAccess", "deabcdefghA" ),
+            CacheRegionInvalidation.all( "userGroupMembership" ) );
+
+        sender.handleCacheRegionInvalidation( new CacheRegionInvalidationEvent( this, invalidations, false ) );
+
+        ArgumentCaptor<CacheInvalidationMessage> messageCaptor = ArgumentCaptor.forClass( CacheInvalidationMessage.class );
+        verify( messageManager ).sendTopic( eq( Topics.CACHE_INVALIDATION_TOPIC_NAME ), messageCaptor.capture() );
+
+        receiver.consume( toTextMessage( messageCaptor.getValue() ) );
+
+        ArgumentCaptor<CacheRegionInvalidationEvent> eventCaptor = ArgumentCaptor.forClass( CacheRegionInvalidationEvent.class );
+        verify( receiverPublisher ).publishEvent( eventCaptor.capture() );
+
+        assertTrue( eventCaptor.getValue().isRemote() );
+        assertEquals( invalidations, eventCaptor.getValue().getInvalidations() );
+        assertTrue( eventCaptor.getValue().getInvalidations().get( 1 ).isAll() );
+
+        verify( receiverCacheManager, never() ).evictEntities( any(), anyBoolean() );
+    }
+
+    @Test
+    public void testEntityInvalidationPublishesNoRegionEvent()
+        throws Exception
+    {
+        EntityInvalidation invalidation = EntityInvalidation.entity( "org.hisp.dhis.dataelement.DataElement", 42L );
+
+        receiver.consume( send( Collections.singletonList( invalidation ), false ) );
+
+        verifyNoInteractions( receiverPublisher );
+    }
+
+    @Test
+    public void testInvalidationsOfSameEntryAreEqual()
+    {
+        EntityInvalidation a = EntityInvalidation.entity( "org.hisp.dhis.dataelement.DataElement", 42L );
+        EntityInvalidation b = EntityInvalidation.entity( "org.hisp.dhis.dataelement.DataElement", 42L );
+        EntityInvalidation c = EntityInvalidation.collection( "org.hisp.dhis.dataelement.DataElement.aggregationLevels", 42L );
+
+        assertEquals( a, b );
+        assertEquals( a.getKey(), b.getKey() );
+        assertFalse( a.getKey().equals( c.getKey() ) );
+    }
+
+    @Test
+    public void testInvalidationWithVersionFromPreviousReleaseIsRead()
+        throws Exception
+    {
+        EntityInvalidation invalidation = objectMapper.readValue(
+            "{\"entityName\":\"org.hisp.dhis.dataelement.DataElement\",\"id\":42,\"version\":1000}",
+            EntityInvalidation.class );
+
+        assertEquals( EntityInvalidation.entity( "org.hisp.dhis.dataelement.DataElement", 42L ), invalidation );
+    }
+
+    private TextMessage send( Collection<EntityInvalidation> invalidations, boolean allCollections )
+        throws Exception
+    {
+        ArgumentCaptor<CacheInvalidationMessage> captor = ArgumentCaptor.forClass( CacheInvalidationMessage.class );
+
+        sender.broadcast( invalidations, allCollections, false );
+
+        verify( messageManager, times( 1 ) ).sendTopic( eq( Topics.CACHE_INVALIDATION_TOPIC_NAME ), captor.capture() );
+        clearInvocations( messageManager );
+
+        return toTextMessage( captor.getValue() );
+    }
+
+    private TextMessage toTextMessage( CacheInvalidationMessage invalidation )
+        throws Exception
+    {
+        TextMessage message = mock( TextMessage.class );
+        when( message.getText() ).thenReturn( objectMapper.writeValueAsString( invalidation ) );
+
+        return message;
+    }
+}
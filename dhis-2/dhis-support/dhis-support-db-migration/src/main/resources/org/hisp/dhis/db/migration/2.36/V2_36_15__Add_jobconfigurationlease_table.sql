@@ -0,0 +1,13 @@
+create table if not exists jobconfigurationlease (
+    jobkey character varying(11) NOT NULL,
+    nodeid character varying(255) NOT NULL,
+    acquired timestamp without time zone NOT NULL,
+    expires timestamp without time zone NOT NULL,
+    lastcompleted timestamp without time zone
+);
+
+alter table jobconfigurationlease drop constraint if exists jobconfigurationlease_pkey;
+
+alter table jobconfigurationlease add constraint jobconfigurationlease_pkey PRIMARY KEY (jobkey);
+
+create index if not exists in_jobconfigurationlease_nodeid on jobconfigurationlease (nodeid);
@@ -0,0 +1,10 @@
+create table if not exists analyticsindexusage (
+    tabletype character varying(50) NOT NULL,
+    columnname character varying(255) NOT NULL,
+    usagecount bigint NOT NULL,
+    lastused timestamp without time zone NOT NULL
+);
+
+alter table analyticsindexusage drop constraint if exists analyticsindexusage_pkey;
+
+alter table analyticsindexusage add constraint analyticsindexusage_pkey PRIMARY KEY (tabletype, columnname);
@@ -151,6 +151,18 @@ public class CommonExpressionVisitor
      */
     private Map<String, Double> itemValueMap;
 
+    /**
+     * Index of each dimensional item context into the item values, when
+     * evaluating a compiled expression.
+     */
+    private Map<ExprContext, Integer> itemIndexMap;
+
+    /**
+     * Values to use for dimensional items by item index, when evaluating a
+     * compiled expression.
+     */
+    private Double[] itemValues;
+
     /**
      * Dimensional item values by period for aggregating in evaluating an
      * expression.
@@ -551,6 +563,33 @@ public class CommonExpressionVisitor
         this.itemValueMap = itemValueMap;
     }
 
+    /**
+     * Gets the index of a dimensional item into the item values, if this
+     * visitor is evaluating a compiled expression.
+     *
+     * @param ctx the item context
+     * @return the item index, or null if not evaluating a compiled expression.
+     */
+    public Integer getItemIndex( ExprContext ctx )
+    {
+        return itemIndexMap != null ? itemIndexMap.get( ctx ) : null;
+    }
+
+    public void setItemIndexMap( Map<ExprContext, Integer> itemIndexMap )
+    {
+        this.itemIndexMap = itemIndexMap;
+    }
+
+    public Double[] getItemValues()
+    {
+        return itemValues;
+    }
+
+    public void setItemValues( Double[] itemValues )
+    {
+        this.itemValues = itemValues;
+    }
+
     public MapMap<Period, String, Double> getPeriodItemValueMap()
     {
         return periodItemValueMap;
@@ -39,10 +39,29 @@ public enum ConfigurationKey
     SYSTEM_READ_ONLY_MODE( "system.read_only_mode", Constants.OFF, false ),
     SYSTEM_SESSION_TIMEOUT( "system.session.timeout", "3600", false ),
     SYSTEM_INTERNAL_SERVICE_API( "system.internal_service_api", Constants.OFF, false ),
+    SYSTEM_AUTHENTICATION_CACHE( "system.authentication_cache", Constants.OFF, false ),
+    SYSTEM_AUTHENTICATION_CACHE_TTL( "system.authentication_cache.ttl", "60", false ),
+    SYSTEM_CACHE_WARMUP( "system.cache_warmup", Constants.OFF, false ),
+    SYSTEM_CACHE_WARMUP_REGIONS( "system.cache_warmup.regions", "org.hisp.dhis.organisationunit.OrganisationUnit," +
+        "org.hisp.dhis.organisationunit.OrganisationUnitLevel,org.hisp.dhis.dataelement.DataElement," +
+        "org.hisp.dhis.category.CategoryOption,org.hisp.dhis.category.CategoryOptionCombo," +
+        "org.hisp.dhis.dataset.DataSet,org.hisp.dhis.program.Program,org.hisp.dhis.program.ProgramStage," +
+        "org.hisp.dhis.trackedentity.TrackedEntityAttribute", false ),
+    SYSTEM_CACHE_WARMUP_THREADS( "system.cache_warmup.threads", "4", false ),
+    SYSTEM_CACHE_WARMUP_MAX_OBJECTS( "system.cache_warmup.max_objects", "100000", false ),
+    SYSTEM_CACHE_MEMORY_WEIGHTED( "system.cache.memory_weighted", Constants.OFF, false ),
+    SYSTEM_CACHE_MEMORY_WEIGHTED_ENTRY_SIZE( "system.cache.memory_weighted.entry_size", "1024", false ),
+    SYSTEM_CACHE_ADAPTIVE( "system.cache.adaptive", Constants.OFF, false ),
+    SYSTEM_CACHE_ADAPTIVE_MEMORY_BUDGET( "system.cache.adaptive.memory_budget", "256", false ),
+    SYSTEM_CACHE_ADAPTIVE_MIN_FACTOR( "system.cache.adaptive.min_factor", "0.25", false ),
+    SYSTEM_CACHE_ADAPTIVE_MAX_FACTOR( "system.cache.adaptive.max_factor", "4", false ),
     SYSTEM_MONITORING_URL( "system.monitoring.url" ),
     SYSTEM_MONITORING_USERNAME( "system.monitoring.username" ),
     SYSTEM_MONITORING_PASSWORD( "system.monitoring.password" ),
     SYSTEM_SQL_VIEW_TABLE_PROTECTION( "system.sql_view_table_protection", Constants.ON, false ),
+    SYSTEM_SQL_PROFILING( "system.sql_profiling", Constants.OFF, false ),
+    SYSTEM_SQL_SLOW_QUERY_THRESHOLD( "system.sql_profiling.slow_query_threshold", "1000", false ),
+    SYSTEM_SQL_SLOW_QUERY_LOG_SIZE( "system.sql_profiling.slow_query_log_size", "200", false ),
     NODE_ID( "node.id", "", false ),
     ENCRYPTION_PASSWORD( "encryption.password", "", true ),
     CONNECTION_DIALECT( "connection.dialect", "", false ),
@@ -77,6 +96,7 @@ public enum ConfigurationKey
     CLUSTER_MEMBERS( "cluster.members", "", false ),
     CLUSTER_CACHE_PORT( "cluster.cache.port", "4001", false ),
     CLUSTER_CACHE_REMOTE_OBJECT_PORT( "cluster.cache.remote.object.port", "0", false ),
+    CLUSTER_CACHE_INVALIDATION( "cluster.cache.invalidation", "rmi", false ),
     REDIS_HOST( "redis.host", "localhost", false ),
     REDIS_PORT( "redis.port", "6379", false ),
     REDIS_PASSWORD( "redis.password", "", true ),
@@ -85,7 +105,18 @@ public enum ConfigurationKey
     FLYWAY_OUT_OF_ORDER_MIGRATION( "flyway.migrate_out_of_order", Constants.FALSE, false ),
     PROGRAM_TEMPORARY_OWNERSHIP_TIMEOUT( "tracker.temporary.ownership.timeout", "3", false ),
     LEADER_TIME_TO_LIVE( "leader.time.to.live.minutes", "2", false ),
+    SCHEDULING_DISTRIBUTED_ENABLED( "scheduling.distributed.enabled", Constants.OFF, false ),
+    SCHEDULING_LEASE_TIME_TO_LIVE( "scheduling.lease.time.to.live.seconds", "60", false ),
+    SCHEDULING_LEASE_GRACE_PERIOD( "scheduling.lease.grace.period.seconds", "10", false ),
+    SCHEDULING_NODE_JOB_TYPES( "scheduling.node.job_types", "", false ),
+    DATAVALUESET_EXPORT_PARALLELISM( "datavalueset.export.parallelism", "1", false ),
+    PROGRAM_RULE_EVALUATION_PARALLELISM( "program.rule.evaluation.parallelism", "4", false ),
+    IMAGE_PROCESSING_PARALLELISM( "image.processing.parallelism", "2", false ),
+    DATA_ANALYSIS_PARALLELISM( "data.analysis.parallelism", "2", false ),
     ANALYTICS_CACHE_EXPIRATION( "analytics.cache.expiration", "0" ),
+    ANALYTICS_ASYNC( "analytics.async", Constants.OFF, false ),
+    ANALYTICS_ASYNC_THREADS( "analytics.async.threads", "16", false ),
+    ANALYTICS_ASYNC_TIMEOUT( "analytics.async.timeout", "600", false ),
     ARTEMIS_MODE( "artemis.mode", "EMBEDDED" ),
     ARTEMIS_HOST( "artemis.host", "127.0.0.1" ),
     ARTEMIS_PORT( "artemis.port", "25672" ),
@@ -104,6 +135,7 @@ public enum ConfigurationKey
     MONITORING_HIBERNATE_ENABLED( "monitoring.hibernate.enabled", Constants.OFF, false ),
     MONITORING_UPTIME_ENABLED( "monitoring.uptime.enabled", Constants.OFF, false ),
     MONITORING_CPU_ENABLED( "monitoring.cpu.enabled", Constants.OFF, false ),
+    MONITORING_APPLICATION_ENABLED( "monitoring.application.enabled", Constants.OFF, false ),
     MONITORING_LOG_REQUESTID_ENABLED( "monitoring.requestidlog.enabled", Constants.OFF, false ),
     MONITORING_LOG_REQUESTID_HASHALGO( "monitoring.requestidlog.hash", "SHA-256", false ),
     MONITORING_LOG_REQUESTID_MAXSIZE( "monitoring.requestidlog.maxsize", "-1", false ),
@@ -0,0 +1,114 @@
+package org.hisp.dhis.cache;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.Objects;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Identifies an entry of an application cache region to invalidate, or all
+ * entries of the region if no key is given. Region invalidations are
+ * propagated between cluster nodes together with {@link EntityInvalidation}s.
+ */
+public class CacheRegionInvalidation
+{
+    private final String region;
+
+    private final String key;
+
+    @JsonCreator
+    public CacheRegionInvalidation(
+        @JsonProperty( "region" ) String region,
+        @JsonProperty( "key" ) String key )
+    {
+        this.region = region;
+        this.key = key;
+    }
+
+    public static CacheRegionInvalidation key( String region, String key )
+    {
+        return new CacheRegionInvalidation( region, key );
+    }
+
+    public static CacheRegionInvalidation all( String region )
+    {
+        return new CacheRegionInvalidation( region, null );
+    }
+
+    @JsonIgnore
+    public boolean isAll()
+    {
+        return key == null;
+    }
+
+    @JsonProperty
+    public String getRegion()
+    {
+        return region;
+    }
+
+    @JsonProperty
+    public String getKey()
+    {
+        return key;
+    }
+
+    @Override
+    public boolean equals( Object o )
+    {
+        if ( this == o )
+        {
+            return true;
+        }
+
+        if ( o == null || getClass() != o.getClass() )
+        {
+            return false;
+        }
+
+        CacheRegionInvalidation other = (CacheRegionInvalidation) o;
+
+        return Objects.equals( region, other.region ) && Objects.equals( key, other.key );
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash( region, key );
+    }
+
+    @Override
+    public String toString()
+    {
+        return "CacheRegionInvalidation{region=" + region + ", key=" + ( isAll() ? "*" : key ) + "}";
+    }
+}
@@ -0,0 +1,74 @@
+package org.hisp.dhis.cache;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.context.ApplicationEvent;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Published when entries of application cache regions have been invalidated.
+ * Local invalidations are propagated to the other nodes of a cluster, where
+ * they are published again as remote invalidations for the owners of the
+ * regions to apply.
+ */
+public class CacheRegionInvalidationEvent
+    extends ApplicationEvent
+{
+    private final List<CacheRegionInvalidation> invalidations;
+
+    private final boolean remote;
+
+    public CacheRegionInvalidationEvent( Object source, Collection<CacheRegionInvalidation> invalidations,
+        boolean remote )
+    {
+        super( source );
+        this.invalidations = ImmutableList.copyOf( invalidations );
+        this.remote = remote;
+    }
+
+    /**
+     * The invalidated cache entries and regions.
+     */
+    public List<CacheRegionInvalidation> getInvalidations()
+    {
+        return invalidations;
+    }
+
+    /**
+     * Whether the invalidations were received from another cluster node.
+     */
+    public boolean isRemote()
+    {
+        return remote;
+    }
+}
@@ -28,10 +28,21 @@ package org.hisp.dhis.cache;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Cache;
+import org.hibernate.Hibernate;
+import org.hibernate.MappingException;
 import org.hibernate.SessionFactory;
 import org.hibernate.stat.Statistics;
+import org.hisp.dhis.common.IdentifiableObject;
 import org.hisp.dhis.common.event.ApplicationCacheClearedEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.ApplicationEventPublisherAware;
 import org.springframework.context.event.EventListener;
 
 /**
@@ -39,7 +50,7 @@ import org.springframework.context.event.EventListener;
  */
 @Slf4j
 public class DefaultHibernateCacheManager
-    implements HibernateCacheManager
+    implements HibernateCacheManager, ApplicationEventPublisherAware
 {
     // -------------------------------------------------------------------------
     // Dependencies
@@ -52,6 +63,14 @@ public class DefaultHibernateCacheManager
         this.sessionFactory = sessionFactory;
     }
 
+    private ApplicationEventPublisher eventPublisher;
+
+    @Override
+    public void setApplicationEventPublisher( ApplicationEventPublisher eventPublisher )
+    {
+        this.eventPublisher = eventPublisher;
+    }
+
     // -------------------------------------------------------------------------
     // HibernateCacheManager implementation
     // -------------------------------------------------------------------------
@@ -77,6 +96,63 @@ public class DefaultHibernateCacheManager
         clearQueryCache();
 
         log.info( "Hibernate caches cleared" );
+
+        publish( Collections.emptyList(), true, true );
+    }
+
+    @Override
+    public void evictObjects( Collection<? extends IdentifiableObject> objects )
+    {
+        List<EntityInvalidation> invalidations = new ArrayList<>( objects.size() );
+
+        for ( IdentifiableObject object : objects )
+        {
+            if ( object == null || object.getId() <= 0 )
+            {
+                continue;
+            }
+
+            invalidations.add( EntityInvalidation.entity( Hibernate.getClass( object ).getName(), object.getId() ) );
+        }
+
+        evictEntities( invalidations, true );
+
+        log.debug( "Evicted {} objects from Hibernate cache", invalidations.size() );
+    }
+
+    @Override
+    public void evictEntities( Collection<EntityInvalidation> invalidations, boolean allCollections )
+    {
+        Cache cache = sessionFactory.getCache();
+
+        for ( EntityInvalidation invalidation : invalidations )
+        {
+            try
+            {
+                if ( invalidation.isCollection() )
+                {
+                    if ( !allCollections )
+                    {
+                        cache.evictCollectionData( invalidation.getRole(), invalidation.getId() );
+                    }
+                }
+                else
+                {
+                    cache.evictEntityData( invalidation.getEntityName(), invalidation.getId() );
+                }
+            }
+            catch ( MappingException ex )
+            {
+                log.debug( "Ignoring invalidation of unmapped entity or collection: " + invalidation );
+            }
+        }
+
+        if ( allCollections )
+        {
+            cache.evictCollectionRegions();
+        }
+
+        clearQueryCache();
     }
 
     @Override
@@ -91,4 +167,16 @@ public class DefaultHibernateCacheManager
     {
         return sessionFactory.getStatistics();
     }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private void publish( Collection<EntityInvalidation> invalidations, boolean allCollections, boolean all )
+    {
+        if ( eventPublisher != null )
+        {
+            eventPublisher.publishEvent( new HibernateCacheEvictionEvent( this, invalidations, allCollections, all ) );
+        }
+    }
 }
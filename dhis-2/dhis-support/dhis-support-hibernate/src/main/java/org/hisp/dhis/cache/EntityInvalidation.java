@@ -0,0 +1,137 @@
+package org.hisp.dhis.cache;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.Objects;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Identifies a single second-level cache entry to evict, either the entity
+ * data of an entity or a collection owned by an entity. Evicting an entry is
+ * idempotent, so invalidations carry no version and may be applied in any
+ * order.
+ */
+@JsonIgnoreProperties( ignoreUnknown = true )
+public class EntityInvalidation
+{
+    private final String entityName;
+
+    private final String role;
+
+    private final long id;
+
+    @JsonCreator
+    public EntityInvalidation(
+        @JsonProperty( "entityName" ) String entityName,
+        @JsonProperty( "role" ) String role,
+        @JsonProperty( "id" ) long id )
+    {
+        this.entityName = entityName;
+        this.role = role;
+        this.id = id;
+    }
+
+    public static EntityInvalidation entity( String entityName, long id )
+    {
+        return new EntityInvalidation( entityName, null, id );
+    }
+
+    public static EntityInvalidation collection( String role, long ownerId )
+    {
+        return new EntityInvalidation( null, role, ownerId );
+    }
+
+    /**
+     * Returns a key which is equal for invalidations of the same cache entry.
+     */
+    @JsonIgnore
+    public String getKey()
+    {
+        return ( isCollection() ? role : entityName ) + "#" + id;
+    }
+
+    @JsonIgnore
+    public boolean isCollection()
+    {
+        return role != null;
+    }
+
+    @JsonProperty
+    public String getEntityName()
+    {
+        return entityName;
+    }
+
+    @JsonProperty
+    public String getRole()
+    {
+        return role;
+    }
+
+    @JsonProperty
+    public long getId()
+    {
+        return id;
+    }
+
+    @Override
+    public boolean equals( Object o )
+    {
+        if ( this == o )
+        {
+            return true;
+        }
+
+        if ( o == null || getClass() != o.getClass() )
+        {
+            return false;
+        }
+
+        EntityInvalidation other = (EntityInvalidation) o;
+
+        return id == other.id &&
+            Objects.equals( entityName, other.entityName ) && Objects.equals( role, other.role );
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash( entityName, role, id );
+    }
+
+    @Override
+    public String toString()
+    {
+        return "EntityInvalidation{key=" + getKey() + "}";
+    }
+}
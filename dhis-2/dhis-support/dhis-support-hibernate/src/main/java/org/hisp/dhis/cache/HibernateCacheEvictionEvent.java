@@ -0,0 +1,84 @@
+package org.hisp.dhis.cache;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.context.ApplicationEvent;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Published by the {@link HibernateCacheManager} when second-level cache
+ * entries have been evicted locally, so that the eviction can be propagated
+ * to other nodes in a cluster.
+ */
+public class HibernateCacheEvictionEvent
+    extends ApplicationEvent
+{
+    private final List<EntityInvalidation> invalidations;
+
+    private final boolean allCollections;
+
+    private final boolean all;
+
+    public HibernateCacheEvictionEvent( Object source, Collection<EntityInvalidation> invalidations,
+        boolean allCollections, boolean all )
+    {
+        super( source );
+        this.invalidations = ImmutableList.copyOf( invalidations );
+        this.allCollections = allCollections;
+        this.all = all;
+    }
+
+    /**
+     * The evicted entities and collections.
+     */
+    public List<EntityInvalidation> getInvalidations()
+    {
+        return invalidations;
+    }
+
+    /**
+     * Whether all collection regions were evicted.
+     */
+    public boolean isAllCollections()
+    {
+        return allCollections;
+    }
+
+    /**
+     * Whether the entire cache was evicted.
+     */
+    public boolean isAll()
+    {
+        return all;
+    }
+}
@@ -28,7 +28,10 @@ package org.hisp.dhis.cache;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import java.util.Collection;
+
 import org.hibernate.stat.Statistics;
+import org.hisp.dhis.common.IdentifiableObject;
 import org.hisp.dhis.common.event.ApplicationCacheClearedEvent;
 
 /**
@@ -51,6 +54,27 @@ public interface HibernateCacheManager
      */
     void clearCache();
 
+    /**
+     * Evicts the given objects from the entity cache, together with all
+     * collections and queries, from the local cache only. Intended for bulk
+     * write paths such as imports, where it replaces {@link #clearCache()}.
+     * Other nodes in a cluster are notified of the written objects by the
+     * listener of entity writes, so no event is published.
+     *
+     * @param objects the objects to evict.
+     */
+    void evictObjects( Collection<? extends IdentifiableObject> objects );
+
+    /**
+     * Evicts the given entities and collections, together with all queries,
+     * from the local cache only. No event is published. Used for applying
+     * invalidations received from other nodes in a cluster.
+     *
+     * @param invalidations the entities and collections to evict.
+     * @param allCollections whether to evict all collection regions.
+     */
+    void evictEntities( Collection<EntityInvalidation> invalidations, boolean allCollections );
+
     /**
      * Gets the statistics.
      *
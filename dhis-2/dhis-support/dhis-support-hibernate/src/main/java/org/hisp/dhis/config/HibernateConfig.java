@@ -32,6 +32,8 @@ import com.mchange.v2.c3p0.ComboPooledDataSource;
 import org.hisp.dhis.cache.DefaultHibernateCacheManager;
 import org.hisp.dhis.datasource.DataSourceManager;
 import org.hisp.dhis.datasource.DefaultDataSourceManager;
+import org.hisp.dhis.datasource.profiling.ProfilingDataSource;
+import org.hisp.dhis.datasource.profiling.SqlProfiler;
 import org.hisp.dhis.dbms.DbmsManager;
 import org.hisp.dhis.dbms.HibernateDbmsManager;
 import org.hisp.dhis.deletedobject.DeletedObject;
@@ -106,9 +108,21 @@ public class HibernateConfig
         return sessionFactory;
     }
 
+    @Bean
+    public SqlProfiler sqlProfiler()
+    {
+        return new SqlProfiler( dhisConfigurationProvider );
+    }
+
     @Bean
     public DataSource dataSource()
         throws PropertyVetoException
+    {
+        return withProfiling( pooledDataSource() );
+    }
+
+    private DataSource pooledDataSource()
+        throws PropertyVetoException
     {
         // FIXME LUCIANO destroyMethod ? destroy-method="close"
         ComboPooledDataSource dataSource = new ComboPooledDataSource();
@@ -146,7 +160,11 @@ public class HibernateConfig
     @Bean
     public DataSource readOnlyDataSource() throws PropertyVetoException
     {
-        return dataSourceManager().getReadOnlyDataSource();
+        DataSource readOnlyDataSource = dataSourceManager().getReadOnlyDataSource();
+
+        // Read replicas are not wrapped by the main data source
+
+        return readOnlyDataSource == dataSource() ? readOnlyDataSource : withProfiling( readOnlyDataSource );
     }
 
     @Bean
@@ -205,6 +223,14 @@ public class HibernateConfig
         return jdbcTemplate;
     }
 
+    /**
+     * Wraps the given data source for SQL profiling if enabled.
+     */
+    private DataSource withProfiling( DataSource dataSource )
+    {
+        return sqlProfiler().isEnabled() ? new ProfilingDataSource( dataSource, sqlProfiler() ) : dataSource;
+    }
+
     private Object getConnectionProperty( String key )
     {
         return hibernateConfigurationProvider().getConfiguration().getProperty( key );
@@ -0,0 +1,290 @@
+package org.hisp.dhis.datasource.profiling;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+/**
+ * A {@link DataSource} which times the statements executed on its connections
+ * and hands them to the {@link SqlProfiler}. Both Hibernate and
+ * {@code JdbcTemplate} obtain connections from this data source, so every
+ * statement of the application is covered.
+ */
+public class ProfilingDataSource
+    extends DelegatingDataSource
+{
+    private final SqlProfiler profiler;
+
+    public ProfilingDataSource( DataSource targetDataSource, SqlProfiler profiler )
+    {
+        super( targetDataSource );
+        this.profiler = profiler;
+    }
+
+    @Override
+    public Connection getConnection()
+        throws SQLException
+    {
+        return proxy( Connection.class, new ConnectionHandler( super.getConnection() ) );
+    }
+
+    @Override
+    public Connection getConnection( String username, String password )
+        throws SQLException
+    {
+        return proxy( Connection.class, new ConnectionHandler( super.getConnection( username, password ) ) );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private static <T> T proxy( Class<T> type, InvocationHandler handler )
+    {
+        return type.cast( Proxy.newProxyInstance( ProfilingDataSource.class.getClassLoader(),
+            new Class<?>[] { type }, handler ) );
+    }
+
+    private static Object invokeTarget( Object target, Method method, Object[] args )
+        throws Throwable
+    {
+        try
+        {
+            return method.invoke( target, args );
+        }
+        catch ( InvocationTargetException ex )
+        {
+            throw ex.getTargetException();
+        }
+    }
+
+    /**
+     * Returns the number of affected rows from the result of an execute
+     * method, 0 for result sets which are counted while read, or -1 if not
+     * known.
+     */
+    private static long getRows( Object result )
+    {
+        if ( result instanceof Number )
+        {
+            return ((Number) result).longValue();
+        }
+        else if ( result instanceof int[] )
+        {
+            return IntStream.of( (int[]) result ).asLongStream().sum();
+        }
+        else if ( result instanceof long[] )
+        {
+            return Arrays.stream( (long[]) result ).sum();
+        }
+        else if ( result instanceof ResultSet )
+        {
+            return 0;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Handles equals and hash code on the proxy itself, returns null for any
+     * other method.
+     */
+    private static Object handleIdentity( Object proxy, Method method, Object[] args )
+    {
+        switch ( method.getName() )
+        {
+        case "equals":
+            return proxy == args[0];
+        case "hashCode":
+            return System.identityHashCode( proxy );
+        default:
+            return null;
+        }
+    }
+
+    private class ConnectionHandler
+        implements InvocationHandler
+    {
+        private final Connection target;
+
+        ConnectionHandler( Connection target )
+        {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke( Object proxy, Method method, Object[] args )
+            throws Throwable
+        {
+            Object identity = handleIdentity( proxy, method, args );
+
+            if ( identity != null )
+            {
+                return identity;
+            }
+
+            Object result = invokeTarget( target, method, args );
+
+            if ( result instanceof Statement )
+            {
+                String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : null;
+
+                Class<? extends Statement> type = result instanceof CallableStatement ? CallableStatement.class
+                    : result instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+
+                return proxy( type, new StatementHandler( (Statement) result, (Connection) proxy, sql ) );
+            }
+
+            return result;
+        }
+    }
+
+    private class StatementHandler
+        implements InvocationHandler
+    {
+        private final Statement target;
+
+        private final Connection connection;
+
+        private final String sql;
+
+        StatementHandler( Statement target, Connection connection, String sql )
+        {
+            this.target = target;
+            this.connection = connection;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke( Object proxy, Method method, Object[] args )
+            throws Throwable
+        {
+            Object identity = handleIdentity( proxy, method, args );
+
+            if ( identity != null )
+            {
+                return identity;
+            }
+
+            if ( "getConnection".equals( method.getName() ) )
+            {
+                return connection;
+            }
+
+            if ( !method.getName().startsWith( "execute" ) )
+            {
+                return invokeTarget( target, method, args );
+            }
+
+            String statementSql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0]
+                : sql;
+
+            long start = System.nanoTime();
+
+            Object result;
+
+            try
+            {
+                result = invokeTarget( target, method, args );
+            }
+            catch ( Throwable ex )
+            {
+                profiler.record( statementSql, System.nanoTime() - start, -1 );
+                throw ex;
+            }
+
+            SqlStatementRecord record = profiler.record( statementSql, System.nanoTime() - start, getRows( result ) );
+
+            if ( record != null && result instanceof ResultSet )
+            {
+                return proxy( ResultSet.class, new ResultSetHandler( (ResultSet) result, (Statement) proxy, record ) );
+            }
+
+            return result;
+        }
+    }
+
+    private static class ResultSetHandler
+        implements InvocationHandler
+    {
+        private final ResultSet target;
+
+        private final Statement statement;
+
+        private final SqlStatementRecord record;
+
+        ResultSetHandler( ResultSet target, Statement statement, SqlStatementRecord record )
+        {
+            this.target = target;
+            this.statement = statement;
+            this.record = record;
+        }
+
+        @Override
+        public Object invoke( Object proxy, Method method, Object[] args )
+            throws Throwable
+        {
+            Object identity = handleIdentity( proxy, method, args );
+
+            if ( identity != null )
+            {
+                return identity;
+            }
+
+            if ( "getStatement".equals( method.getName() ) )
+            {
+                return statement;
+            }
+
+            Object result = invokeTarget( target, method, args );
+
+            if ( "next".equals( method.getName() ) && Boolean.TRUE.equals( result ) )
+            {
+                record.incrementRows();
+            }
+
+            return result;
+        }
+    }
+}
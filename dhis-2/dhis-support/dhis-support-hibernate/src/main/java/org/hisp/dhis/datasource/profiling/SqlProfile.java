@@ -0,0 +1,141 @@
+package org.hisp.dhis.datasource.profiling;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * The SQL statements executed on a thread while profiling was active, which
+ * is typically the thread serving a single API request.
+ */
+public class SqlProfile
+{
+    private final String id;
+
+    private final String description;
+
+    private final int maxStatements;
+
+    private final Date created = new Date();
+
+    private final long startNanos = System.nanoTime();
+
+    private final List<SqlStatementRecord> statements = new ArrayList<>();
+
+    private volatile double duration = -1;
+
+    private boolean truncated;
+
+    public SqlProfile( String id, String description, int maxStatements )
+    {
+        this.id = id;
+        this.description = description;
+        this.maxStatements = maxStatements;
+    }
+
+    synchronized void add( SqlStatementRecord statement )
+    {
+        if ( statements.size() < maxStatements )
+        {
+            statements.add( statement );
+        }
+        else
+        {
+            truncated = true;
+        }
+    }
+
+    void complete()
+    {
+        duration = (System.nanoTime() - startNanos) / 1_000_000d;
+    }
+
+    @JsonProperty
+    public String getId()
+    {
+        return id;
+    }
+
+    @JsonProperty
+    public String getDescription()
+    {
+        return description;
+    }
+
+    @JsonProperty
+    public Date getCreated()
+    {
+        return created;
+    }
+
+    /**
+     * Total time of the profiled request in milliseconds, or -1 if the
+     * request has not completed.
+     */
+    @JsonProperty
+    public double getDuration()
+    {
+        return duration;
+    }
+
+    /**
+     * Total execution time of the recorded statements in milliseconds.
+     */
+    @JsonProperty
+    public synchronized double getSqlDuration()
+    {
+        return statements.stream().mapToDouble( SqlStatementRecord::getDuration ).sum();
+    }
+
+    @JsonProperty
+    public synchronized int getStatementCount()
+    {
+        return statements.size();
+    }
+
+    /**
+     * Indicates whether statements were dropped because the profile exceeded
+     * the maximum number of statements.
+     */
+    @JsonProperty
+    public synchronized boolean isTruncated()
+    {
+        return truncated;
+    }
+
+    @JsonProperty
+    public synchronized List<SqlStatementRecord> getStatements()
+    {
+        return new ArrayList<>( statements );
+    }
+}
@@ -0,0 +1,277 @@
+package org.hisp.dhis.datasource.profiling;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.hisp.dhis.external.conf.ConfigurationKey.SYSTEM_SQL_PROFILING;
+import static org.hisp.dhis.external.conf.ConfigurationKey.SYSTEM_SQL_SLOW_QUERY_LOG_SIZE;
+import static org.hisp.dhis.external.conf.ConfigurationKey.SYSTEM_SQL_SLOW_QUERY_THRESHOLD;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.hisp.dhis.common.CodeGenerator;
+import org.hisp.dhis.external.conf.DhisConfigurationProvider;
+
+/**
+ * Records SQL statements executed through the {@link ProfilingDataSource}.
+ * <p>
+ * Statements are recorded into the {@link SqlProfile} of the current thread
+ * when profiling has been started for the thread, and into a bounded ring
+ * buffer of slow statements when the execution time exceeds the configured
+ * threshold. Completed profiles are retained for a short while so that they
+ * can be retrieved through the API.
+ * <p>
+ * Profiling is enabled with {@code system.sql_profiling}. When disabled, the
+ * data source is not wrapped and nothing is recorded.
+ */
+@Slf4j
+public class SqlProfiler
+{
+    private static final int MAX_PROFILE_STATEMENTS = 10_000;
+
+    private static final int MAX_PROFILES = 50;
+
+    private static final String PACKAGE_PREFIX = "org.hisp.dhis.";
+
+    private static final String PROFILING_PACKAGE = SqlProfiler.class.getPackage().getName();
+
+    private final boolean enabled;
+
+    private final long slowThresholdNanos;
+
+    private final int slowLogSize;
+
+    private final ThreadLocal<SqlProfile> currentProfile = new ThreadLocal<>();
+
+    private final Deque<SqlStatementRecord> slowStatements = new ArrayDeque<>();
+
+    private final Map<String, SqlProfile> profiles = Collections.synchronizedMap(
+        new LinkedHashMap<String, SqlProfile>()
+        {
+            @Override
+            protected boolean removeEldestEntry( Map.Entry<String, SqlProfile> eldest )
+            {
+                return size() > MAX_PROFILES;
+            }
+        } );
+
+    public SqlProfiler( DhisConfigurationProvider config )
+    {
+        this.enabled = config.isEnabled( SYSTEM_SQL_PROFILING );
+        this.slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(
+            Long.parseLong( config.getProperty( SYSTEM_SQL_SLOW_QUERY_THRESHOLD ) ) );
+        this.slowLogSize = Integer.parseInt( config.getProperty( SYSTEM_SQL_SLOW_QUERY_LOG_SIZE ) );
+
+        if ( enabled )
+        {
+            log.info( "SQL profiling enabled, slow query threshold: {} ms",
+                TimeUnit.NANOSECONDS.toMillis( slowThresholdNanos ) );
+        }
+    }
+
+    /**
+     * Indicates whether SQL profiling is enabled.
+     */
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * Starts profiling SQL statements executed on the current thread.
+     *
+     * @param description a description of the profiled work, such as the
+     *        request path.
+     * @return the profile, or null if profiling is disabled.
+     */
+    public SqlProfile startProfile( String description )
+    {
+        if ( !enabled )
+        {
+            return null;
+        }
+
+        SqlProfile profile = new SqlProfile( CodeGenerator.generateUid(), description, MAX_PROFILE_STATEMENTS );
+
+        currentProfile.set( profile );
+
+        return profile;
+    }
+
+    /**
+     * Stops profiling on the current thread and retains the profile for
+     * retrieval through {@link #getProfile(String)}.
+     *
+     * @return the completed profile, or null if no profile was started.
+     */
+    public SqlProfile stopProfile()
+    {
+        SqlProfile profile = currentProfile.get();
+
+        if ( profile == null )
+        {
+            return null;
+        }
+
+        currentProfile.remove();
+        profile.complete();
+        profiles.put( profile.getId(), profile );
+
+        log.debug( "SQL profile '{}' completed with {} statements", profile.getId(), profile.getStatementCount() );
+
+        return profile;
+    }
+
+    /**
+     * Returns the retained profile with the given identifier, or null.
+     */
+    public SqlProfile getProfile( String id )
+    {
+        return profiles.get( id );
+    }
+
+    /**
+     * Returns the captured slow statements, newest first.
+     */
+    public List<SqlStatementRecord> getSlowStatements()
+    {
+        synchronized ( slowStatements )
+        {
+            List<SqlStatementRecord> statements = new ArrayList<>( slowStatements );
+            Collections.reverse( statements );
+            return statements;
+        }
+    }
+
+    /**
+     * Removes all captured slow statements.
+     */
+    public void clearSlowStatements()
+    {
+        synchronized ( slowStatements )
+        {
+            slowStatements.clear();
+        }
+    }
+
+    /**
+     * Records an executed statement if a profile is active on the current
+     * thread or if the statement is slow.
+     *
+     * @param sql the SQL of the statement.
+     * @param durationNanos the execution time in nanoseconds.
+     * @param rows the number of affected rows, 0 for queries whose rows are
+     *        counted while read, or -1 if unknown.
+     * @return the record, or null if the statement was not recorded.
+     */
+    SqlStatementRecord record( String sql, long durationNanos, long rows )
+    {
+        SqlProfile profile = currentProfile.get();
+
+        boolean slow = slowThresholdNanos > 0 && durationNanos >= slowThresholdNanos;
+
+        if ( profile == null && !slow )
+        {
+            return null;
+        }
+
+        SqlStatementRecord statement = new SqlStatementRecord( sql, durationNanos, rows, getCaller() );
+
+        if ( profile != null )
+        {
+            profile.add( statement );
+        }
+
+        if ( slow )
+        {
+            log.debug( "Slow SQL statement from {} took {} ms", statement.getCaller(), statement.getDuration() );
+
+            synchronized ( slowStatements )
+            {
+                if ( slowStatements.size() >= slowLogSize )
+                {
+                    slowStatements.removeFirst();
+                }
+
+                slowStatements.addLast( statement );
+            }
+        }
+
+        return statement;
+    }
+
+    /**
+     * Returns the service method which executed the current statement. This is
+     * the closest calling method of a service class, or otherwise the closest
+     * method of any application class.
+     */
+    private static String getCaller()
+    {
+        StackTraceElement fallback = null;
+
+        for ( StackTraceElement element : new Throwable().getStackTrace() )
+        {
+            String className = element.getClassName();
+
+            if ( !className.startsWith( PACKAGE_PREFIX ) || className.startsWith( PROFILING_PACKAGE )
+                || className.contains( "$$" ) )
+            {
+                continue;
+            }
+
+            if ( fallback == null )
+            {
+                fallback = element;
+            }
+
+            if ( className.endsWith( "Service" ) )
+            {
+                return format( element );
+            }
+        }
+
+        return fallback != null ? format( fallback ) : null;
+    }
+
+    private static String format( StackTraceElement element )
+    {
+        String className = element.getClassName();
+
+        return className.substring( className.lastIndexOf( '.' ) + 1 ) + "." + element.getMethodName() + ":"
+            + element.getLineNumber();
+    }
+}
@@ -0,0 +1,110 @@
+package org.hisp.dhis.datasource.profiling;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.Date;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * A single SQL statement executed through the {@link ProfilingDataSource}.
+ * For queries the row count grows while the result set is read.
+ */
+public class SqlStatementRecord
+{
+    private final String sql;
+
+    private final double duration;
+
+    private final String caller;
+
+    private final String thread;
+
+    private final Date created;
+
+    private volatile long rows;
+
+    public SqlStatementRecord( String sql, long durationNanos, long rows, String caller )
+    {
+        this.sql = sql;
+        this.duration = durationNanos / 1_000_000d;
+        this.rows = rows;
+        this.caller = caller;
+        this.thread = Thread.currentThread().getName();
+        this.created = new Date();
+    }
+
+    void incrementRows()
+    {
+        rows++;
+    }
+
+    @JsonProperty
+    public String getSql()
+    {
+        return sql;
+    }
+
+    /**
+     * Execution time of the statement in milliseconds, not including the time
+     * spent reading the result set.
+     */
+    @JsonProperty
+    public double getDuration()
+    {
+        return duration;
+    }
+
+    /**
+     * Number of rows read or affected, or -1 if unknown.
+     */
+    @JsonProperty
+    public long getRows()
+    {
+        return rows;
+    }
+
+    @JsonProperty
+    public String getCaller()
+    {
+        return caller;
+    }
+
+    @JsonProperty
+    public String getThread()
+    {
+        return thread;
+    }
+
+    @JsonProperty
+    public Date getCreated()
+    {
+        return created;
+    }
+}
@@ -0,0 +1,253 @@
+package org.hisp.dhis.hibernate;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.Set;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceUnit;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.AbstractCollectionEvent;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCollectionRecreateEvent;
+import org.hibernate.event.spi.PostCollectionRecreateEventListener;
+import org.hibernate.event.spi.PostCollectionRemoveEvent;
+import org.hibernate.event.spi.PostCollectionRemoveEventListener;
+import org.hibernate.event.spi.PostCollectionUpdateEvent;
+import org.hibernate.event.spi.PostCollectionUpdateEventListener;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.internal.SessionFactoryImpl;
+import org.hibernate.persister.entity.EntityPersister;
+
+/**
+ * Base class for Hibernate listeners which invalidate application caches when
+ * entities are inserted, updated or deleted. Subclasses implement
+ * {@link #invalidate(Object)} and choose the events they are registered for.
+ * <p>
+ * By default the listener is registered for inserts, updates and deletes,
+ * both on flush and on commit. The flush event makes changes of the current
+ * transaction visible to it, while the commit event catches state which was
+ * read by another transaction between the flush and the commit of the change.
+ */
+@Slf4j
+public abstract class CacheInvalidationListener
+    implements PostCommitInsertEventListener, PostCommitUpdateEventListener, PostCommitDeleteEventListener,
+    PostCollectionRecreateEventListener, PostCollectionUpdateEventListener, PostCollectionRemoveEventListener
+{
+    @PersistenceUnit
+    private EntityManagerFactory emf;
+
+    @PostConstruct
+    protected void init()
+    {
+        SessionFactoryImpl sessionFactory = emf.unwrap( SessionFactoryImpl.class );
+
+        EventListenerRegistry registry = sessionFactory.getServiceRegistry().getService( EventListenerRegistry.class );
+
+        if ( isInvalidateOnFlush() )
+        {
+            if ( isInvalidateOnInsert() )
+            {
+                registry.getEventListenerGroup( EventType.POST_INSERT ).appendListener( this );
+            }
+
+            registry.getEventListenerGroup( EventType.POST_UPDATE ).appendListener( this );
+            registry.getEventListenerGroup( EventType.POST_DELETE ).appendListener( this );
+        }
+
+        if ( isInvalidateOnInsert() )
+        {
+            registry.getEventListenerGroup( EventType.POST_COMMIT_INSERT ).appendListener( this );
+        }
+
+        registry.getEventListenerGroup( EventType.POST_COMMIT_UPDATE ).appendListener( this );
+        registry.getEventListenerGroup( EventType.POST_COMMIT_DELETE ).appendListener( this );
+
+        if ( isInvalidateOnCollectionChange() )
+        {
+            registry.getEventListenerGroup( EventType.POST_COLLECTION_RECREATE ).appendListener( this );
+            registry.getEventListenerGroup( EventType.POST_COLLECTION_UPDATE ).appendListener( this );
+            registry.getEventListenerGroup( EventType.POST_COLLECTION_REMOVE ).appendListener( this );
+        }
+    }
+
+    /**
+     * Invalidates cached state which depends on the given entity.
+     *
+     * @param entity the inserted, updated or deleted entity, or the owner of
+     *        a changed collection. Can be null.
+     */
+    protected abstract void invalidate( Object entity );
+
+    /**
+     * Invalidates cached state which depends on the given collection. Calls
+     * {@link #invalidate(Object)} for the owner of the collection by default.
+     *
+     * @param owner the owner of the changed collection. Can be null.
+     * @param role the role of the collection, like
+     *        {@code org.hisp.dhis.dataset.DataSet.sources}. Can be null.
+     */
+    protected void invalidateCollection( Object owner, String role )
+    {
+        invalidate( owner );
+    }
+
+    /**
+     * Indicates whether the listener is registered for flush events in
+     * addition to commit events. Default is true.
+     */
+    protected boolean isInvalidateOnFlush()
+    {
+        return true;
+    }
+
+    /**
+     * Indicates whether the listener is registered for inserts. Default is
+     * true.
+     */
+    protected boolean isInvalidateOnInsert()
+    {
+        return true;
+    }
+
+    /**
+     * Indicates whether the listener is registered for changes of collections,
+     * which are reported for the owner of the collection. Collection events
+     * are only raised on flush. Default is false.
+     */
+    protected boolean isInvalidateOnCollectionChange()
+    {
+        return false;
+    }
+
+    @Override
+    public void onPostInsert( PostInsertEvent event )
+    {
+        invalidate( event.getEntity() );
+    }
+
+    @Override
+    public void onPostUpdate( PostUpdateEvent event )
+    {
+        invalidate( event.getEntity() );
+    }
+
+    @Override
+    public void onPostDelete( PostDeleteEvent event )
+    {
+        invalidate( event.getEntity() );
+    }
+
+    @Override
+    public void onPostRecreateCollection( PostCollectionRecreateEvent event )
+    {
+        invalidateOwner( event );
+    }
+
+    @Override
+    public void onPostUpdateCollection( PostCollectionUpdateEvent event )
+    {
+        invalidateOwner( event );
+    }
+
+    @Override
+    public void onPostRemoveCollection( PostCollectionRemoveEvent event )
+    {
+        invalidateOwner( event );
+    }
+
+    @Override
+    public boolean requiresPostCommitHanding( EntityPersister persister )
+    {
+        return true;
+    }
+
+    @Override
+    public void onPostInsertCommitFailed( PostInsertEvent event )
+    {
+        log.debug( "onPostInsertCommitFailed: " + event );
+    }
+
+    @Override
+    public void onPostUpdateCommitFailed( PostUpdateEvent event )
+    {
+        log.debug( "onPostUpdateCommitFailed: " + event );
+    }
+
+    @Override
+    public void onPostDeleteCommitFailed( PostDeleteEvent event )
+    {
+        log.debug( "onPostDeleteCommitFailed: " + event );
+    }
+
+    /**
+     * Indicates whether any of the given properties were changed by the given
+     * update. Updates which do not report their dirty properties, like updates
+     * of detached entities, are considered to change all properties.
+     *
+     * @param event the update event.
+     * @param properties the names of the properties.
+     */
+    protected static boolean isAnyDirty( PostUpdateEvent event, Set<String> properties )
+    {
+        int[] dirtyProperties = event.getDirtyProperties();
+
+        if ( dirtyProperties == null )
+        {
+            return true;
+        }
+
+        String[] propertyNames = event.getPersister().getPropertyNames();
+
+        for ( int dirtyProperty : dirtyProperties )
+        {
+            if ( properties.contains( propertyNames[dirtyProperty] ) )
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private void invalidateOwner( AbstractCollectionEvent event )
+    {
+        invalidateCollection( event.getAffectedOwnerOrNull(),
+            event.getCollection() != null ? event.getCollection().getRole() : null );
+    }
+}
@@ -173,7 +173,14 @@ public class DefaultHibernateConfigurationProvider
         // Handle cache replication
         // ---------------------------------------------------------------------
 
-        if ( configurationProvider.isClusterEnabled() )
+        boolean artemisInvalidation = "artemis".equalsIgnoreCase(
+            configurationProvider.getProperty( ConfigurationKey.CLUSTER_CACHE_INVALIDATION ) );
+
+        if ( configurationProvider.isClusterEnabled() && artemisInvalidation )
+        {
+            log.info( "Clustering enabled, cache invalidation is propagated through the message broker" );
+        }
+        else if ( configurationProvider.isClusterEnabled() )
         {
             config.setProperty( "net.sf.ehcache.configurationResourceName", FILENAME_EHCACHE_REPLICATION );
 
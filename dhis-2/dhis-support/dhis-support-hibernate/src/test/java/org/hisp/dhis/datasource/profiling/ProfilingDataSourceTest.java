@@ -0,0 +1,189 @@
+package org.hisp.dhis.datasource.profiling;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.hisp.dhis.external.conf.ConfigurationKey.SYSTEM_SQL_PROFILING;
+import static org.hisp.dhis.external.conf.ConfigurationKey.SYSTEM_SQL_SLOW_QUERY_LOG_SIZE;
+import static org.hisp.dhis.external.conf.ConfigurationKey.SYSTEM_SQL_SLOW_QUERY_THRESHOLD;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.hisp.dhis.common.CodeGenerator;
+import org.hisp.dhis.external.conf.DhisConfigurationProvider;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link ProfilingDataSource}.
+ */
+public class ProfilingDataSourceTest
+{
+    private SqlProfiler profiler;
+
+    private ProfilingDataSource dataSource;
+
+    private Connection connection;
+
+    @Before
+    public void setUp()
+        throws SQLException
+    {
+        DhisConfigurationProvider config = mock( DhisConfigurationProvider.class );
+        when( config.isEnabled( SYSTEM_SQL_PROFILING ) ).thenReturn( true );
+        when( config.getProperty( SYSTEM_SQL_SLOW_QUERY_THRESHOLD ) ).thenReturn( "60000" );
+        when( config.getProperty( SYSTEM_SQL_SLOW_QUERY_LOG_SIZE ) ).thenReturn( "10" );
+
+        JdbcDataSource target = new JdbcDataSource();
+        target.setURL( "jdbc:h2:mem:" + CodeGenerator.generateUid() );
+
+        profiler = new SqlProfiler( config );
+        dataSource = new ProfilingDataSource( target, profiler );
+        connection = dataSource.getConnection();
+
+        try ( Statement statement = connection.createStatement() )
+        {
+            statement.execute( "create table item (id int primary key, name varchar(50))" );
+        }
+
+        profiler.startProfile( "test" );
+    }
+
+    @After
+    public void tearDown()
+        throws SQLException
+    {
+        profiler.stopProfile();
+
+        connection.close();
+    }
+
+    @Test
+    public void testUpdateRowsAreCounted()
+        throws SQLException
+    {
+        try ( Statement statement = connection.createStatement() )
+        {
+            assertEquals( 3, statement.executeUpdate( "insert into item values (1, 'a'), (2, 'b'), (3, 'c')" ) );
+        }
+
+        try ( PreparedStatement statement = connection.prepareStatement( "delete from item where id > ?" ) )
+        {
+            statement.setInt( 1, 1 );
+
+            assertEquals( 2, statement.executeUpdate() );
+        }
+
+        List<SqlStatementRecord> records = profiler.stopProfile().getStatements();
+
+        assertEquals( 2, records.size() );
+        assertEquals( 3, records.get( 0 ).getRows() );
+        assertEquals( "delete from item where id > ?", records.get( 1 ).getSql() );
+        assertEquals( 2, records.get( 1 ).getRows() );
+    }
+
+    @Test
+    public void testQueryRowsAreCountedWhileRead()
+        throws SQLException
+    {
+        try ( Statement statement = connection.createStatement() )
+        {
+            statement.executeUpdate( "insert into item values (1, 'a'), (2, 'b'), (3, 'c')" );
+
+            try ( ResultSet resultSet = statement.executeQuery( "select * from item" ) )
+            {
+                while ( resultSet.next() )
+                {
+                    assertTrue( resultSet.getInt( "id" ) > 0 );
+                }
+            }
+        }
+
+        List<SqlStatementRecord> records = profiler.stopProfile().getStatements();
+
+        assertEquals( 2, records.size() );
+        assertEquals( "select * from item", records.get( 1 ).getSql() );
+        assertEquals( 3, records.get( 1 ).getRows() );
+    }
+
+    @Test
+    public void testStatementAndResultSetReturnProxies()
+        throws SQLException
+    {
+        try ( PreparedStatement statement = connection.prepareStatement( "select * from item" ) )
+        {
+            assertSame( connection, statement.getConnection() );
+
+            try ( ResultSet resultSet = statement.executeQuery() )
+            {
+                assertSame( statement, resultSet.getStatement() );
+            }
+        }
+
+        try ( Statement statement = connection.createStatement() )
+        {
+            assertSame( connection, statement.getConnection() );
+            assertEquals( statement, statement );
+        }
+    }
+
+    @Test
+    public void testFailedStatementIsRecorded()
+        throws SQLException
+    {
+        try ( Statement statement = connection.createStatement() )
+        {
+            statement.executeQuery( "select * from missing" );
+
+            fail( "Expected SQLException" );
+        }
+        catch ( SQLException ex )
+        {
+            // Expected, the original exception is rethrown
+        }
+
+        List<SqlStatementRecord> records = profiler.stopProfile().getStatements();
+
+        assertEquals( 1, records.size() );
+        assertEquals( "select * from missing", records.get( 0 ).getSql() );
+        assertEquals( -1, records.get( 0 ).getRows() );
+    }
+}
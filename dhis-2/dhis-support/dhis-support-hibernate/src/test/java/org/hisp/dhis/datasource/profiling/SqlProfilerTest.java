@@ -0,0 +1,192 @@
+package org.hisp.dhis.datasource.profiling;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.hisp.dhis.external.conf.ConfigurationKey.SYSTEM_SQL_PROFILING;
+import static org.hisp.dhis.external.conf.ConfigurationKey.SYSTEM_SQL_SLOW_QUERY_LOG_SIZE;
+import static org.hisp.dhis.external.conf.ConfigurationKey.SYSTEM_SQL_SLOW_QUERY_THRESHOLD;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.hisp.dhis.common.CodeGenerator;
+import org.hisp.dhis.datasource.ProfiledQueries;
+import org.hisp.dhis.external.conf.DhisConfigurationProvider;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link SqlProfiler}.
+ */
+public class SqlProfilerTest
+{
+    private static final long SLOW_NANOS = TimeUnit.MILLISECONDS.toNanos( 20 );
+
+    private static final long FAST_NANOS = TimeUnit.MILLISECONDS.toNanos( 1 );
+
+    private DhisConfigurationProvider config;
+
+    private SqlProfiler profiler;
+
+    @Before
+    public void setUp()
+    {
+        config = mock( DhisConfigurationProvider.class );
+        when( config.isEnabled( SYSTEM_SQL_PROFILING ) ).thenReturn( true );
+        when( config.getProperty( SYSTEM_SQL_SLOW_QUERY_THRESHOLD ) ).thenReturn( "10" );
+        when( config.getProperty( SYSTEM_SQL_SLOW_QUERY_LOG_SIZE ) ).thenReturn( "3" );
+
+        profiler = new SqlProfiler( config );
+    }
+
+    @After
+    public void tearDown()
+    {
+        profiler.stopProfile();
+    }
+
+    @Test
+    public void testSlowStatementsAreBounded()
+    {
+        for ( int i = 1; i <= 5; i++ )
+        {
+            assertNotNull( profiler.record( "select " + i, SLOW_NANOS, 1 ) );
+        }
+
+        List<SqlStatementRecord> statements = profiler.getSlowStatements();
+
+        assertEquals( 3, statements.size() );
+        assertEquals( "select 5", statements.get( 0 ).getSql() );
+        assertEquals( "select 4", statements.get( 1 ).getSql() );
+        assertEquals( "select 3", statements.get( 2 ).getSql() );
+    }
+
+    @Test
+    public void testClearSlowStatements()
+    {
+        profiler.record( "select 1", SLOW_NANOS, 1 );
+        profiler.clearSlowStatements();
+
+        assertTrue( profiler.getSlowStatements().isEmpty() );
+    }
+
+    @Test
+    public void testFastStatementIsNotRecordedWithoutProfile()
+    {
+        assertNull( profiler.record( "select 1", FAST_NANOS, 1 ) );
+        assertTrue( profiler.getSlowStatements().isEmpty() );
+    }
+
+    @Test
+    public void testProfileRecordsStatementsOfThread()
+        throws Exception
+    {
+        SqlProfile profile = profiler.startProfile( "GET /api/dataElements" );
+
+        profiler.record( "select 1", FAST_NANOS, 1 );
+
+        Thread other = new Thread( () -> profiler.record( "select 2", FAST_NANOS, 1 ) );
+        other.start();
+        other.join();
+
+        assertSame( profile, profiler.stopProfile() );
+        assertSame( profile, profiler.getProfile( profile.getId() ) );
+        assertNull( profiler.stopProfile() );
+        assertEquals( 1, profile.getStatementCount() );
+        assertEquals( "select 1", profile.getStatements().get( 0 ).getSql() );
+        assertTrue( profile.getDuration() >= 0 );
+        assertTrue( profiler.getSlowStatements().isEmpty() );
+    }
+
+    @Test
+    public void testProfileNotStartedWhenDisabled()
+    {
+        when( config.isEnabled( SYSTEM_SQL_PROFILING ) ).thenReturn( false );
+
+        profiler = new SqlProfiler( config );
+
+        assertFalse( profiler.isEnabled() );
+        assertNull( profiler.startProfile( "GET /api/dataElements" ) );
+        assertNull( profiler.stopProfile() );
+    }
+
+    @Test
+    public void testCallerIsClosestServiceMethod()
+        throws SQLException
+    {
+        SqlProfile profile = profiler.startProfile( "test" );
+
+        new ProfiledQueries.QueryService().execute( newDataSource(), "select 1" );
+
+        profiler.stopProfile();
+
+        assertTrue( profile.getStatements().get( 0 ).getCaller().startsWith(
+            "ProfiledQueries$QueryService.execute:" ) );
+    }
+
+    @Test
+    public void testCallerFallsBackToClosestApplicationMethod()
+        throws SQLException
+    {
+        SqlProfile profile = profiler.startProfile( "test" );
+
+        ProfiledQueries.execute( newDataSource(), "select 1" );
+
+        profiler.stopProfile();
+
+        assertTrue( profile.getStatements().get( 0 ).getCaller().startsWith( "ProfiledQueries.execute:" ) );
+    }
+
+    @Test
+    public void testCallerIsNullOutsideApplication()
+    {
+        profiler.startProfile( "test" );
+
+        assertNull( profiler.record( "select 1", FAST_NANOS, 1 ).getCaller() );
+    }
+
+    private ProfilingDataSource newDataSource()
+    {
+        JdbcDataSource target = new JdbcDataSource();
+        target.setURL( "jdbc:h2:mem:" + CodeGenerator.generateUid() );
+
+        return new ProfilingDataSource( target, profiler );
+    }
+}
@@ -0,0 +1,187 @@
+package org.hisp.dhis.cache;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Snapshot of the statistics of a single cache region. Size, capacity and
+ * memory are only known for local caches and are -1 otherwise.
+ */
+public class CacheRegionStatistics
+{
+    private final String region;
+
+    private final CacheType cacheType;
+
+    private final long hits;
+
+    private final long misses;
+
+    private final long puts;
+
+    private final long invalidations;
+
+    private final long size;
+
+    private final long capacity;
+
+    private final long configuredCapacity;
+
+    private final boolean weighted;
+
+    private final long estimatedMemory;
+
+    private final long resizes;
+
+    public CacheRegionStatistics( InstrumentedCache<?> cache, long resizes )
+    {
+        this.region = cache.getRegion();
+        this.cacheType = cache.getCacheType();
+        this.hits = cache.getHits();
+        this.misses = cache.getMisses();
+        this.puts = cache.getPuts();
+        this.invalidations = cache.getInvalidations();
+        this.configuredCapacity = cache.getConfiguredCapacity();
+        this.resizes = resizes;
+
+        if ( cache.getDelegate() instanceof LocalCache )
+        {
+            LocalCache<?> local = (LocalCache<?>) cache.getDelegate();
+
+            this.size = local.size();
+            this.capacity = local.getCapacity();
+            this.weighted = local.isWeighted();
+            this.estimatedMemory = local.estimateMemory();
+        }
+        else
+        {
+            this.size = -1;
+            this.capacity = -1;
+            this.weighted = false;
+            this.estimatedMemory = -1;
+        }
+    }
+
+    @JsonProperty
+    public String getRegion()
+    {
+        return region;
+    }
+
+    @JsonProperty
+    public CacheType getCacheType()
+    {
+        return cacheType;
+    }
+
+    @JsonProperty
+    public long getHits()
+    {
+        return hits;
+    }
+
+    @JsonProperty
+    public long getMisses()
+    {
+        return misses;
+    }
+
+    /**
+     * Ratio of hits to lookups between 0 and 1, or 0 if there were no lookups.
+     */
+    @JsonProperty
+    public double getHitRatio()
+    {
+        long requests = hits + misses;
+
+        return requests == 0 ? 0d : (double) hits / requests;
+    }
+
+    @JsonProperty
+    public long getPuts()
+    {
+        return puts;
+    }
+
+    @JsonProperty
+    public long getInvalidations()
+    {
+        return invalidations;
+    }
+
+    @JsonProperty
+    public long getSize()
+    {
+        return size;
+    }
+
+    /**
+     * Current capacity, in entries or for weighted regions in bytes.
+     */
+    @JsonProperty
+    public long getCapacity()
+    {
+        return capacity;
+    }
+
+    /**
+     * Capacity the region was created with, in entries or for weighted regions
+     * in bytes.
+     */
+    @JsonProperty
+    public long getConfiguredCapacity()
+    {
+        return configuredCapacity;
+    }
+
+    @JsonProperty
+    public boolean isWeighted()
+    {
+        return weighted;
+    }
+
+    /**
+     * Estimated heap size of the cached values in bytes.
+     */
+    @JsonProperty
+    public long getEstimatedMemory()
+    {
+        return estimatedMemory;
+    }
+
+    /**
+     * Number of times the region was resized by adaptive sizing.
+     */
+    @JsonProperty
+    public long getResizes()
+    {
+        return resizes;
+    }
+}
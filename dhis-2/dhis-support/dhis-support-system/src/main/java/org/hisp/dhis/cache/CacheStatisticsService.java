@@ -0,0 +1,75 @@
+package org.hisp.dhis.cache;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.List;
+
+/**
+ * Keeps track of the cache regions created through the {@link CacheProvider},
+ * reports their statistics and, when {@code system.cache.adaptive} is
+ * enabled, resizes local regions based on their hit rates within the
+ * configured memory budget.
+ */
+public interface CacheStatisticsService
+{
+    /**
+     * Registers a cache region. Regions registered more than once under the
+     * same name are reported individually.
+     *
+     * @param cache the instrumented cache.
+     */
+    void register( InstrumentedCache<?> cache );
+
+    /**
+     * Returns the statistics of all registered regions sorted by region.
+     *
+     * @return a list of {@link CacheRegionStatistics}.
+     */
+    List<CacheRegionStatistics> getStatistics();
+
+    /**
+     * Returns the statistics of the regions with the given name.
+     *
+     * @param region the region name.
+     * @return a list of {@link CacheRegionStatistics}, empty if no such region
+     *         exists.
+     */
+    List<CacheRegionStatistics> getStatistics( String region );
+
+    /**
+     * Resets the hit, miss, put and invalidation counters of all regions.
+     */
+    void resetStatistics();
+
+    /**
+     * Resizes the local regions based on their hit rates since the previous
+     * invocation. Does nothing unless adaptive sizing is enabled.
+     */
+    void resizeRegions();
+}
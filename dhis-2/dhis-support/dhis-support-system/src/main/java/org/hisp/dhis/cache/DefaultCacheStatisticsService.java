@@ -0,0 +1,462 @@
+package org.hisp.dhis.cache;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.hisp.dhis.external.conf.ConfigurationKey;
+import org.hisp.dhis.external.conf.DhisConfigurationProvider;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Default implementation of {@link CacheStatisticsService}. Statistics are
+ * exposed as meters tagged by region when bound to a registry.
+ * <p>
+ * Adaptive sizing grows a local region by half when it is nearly full and
+ * missed at least a fifth of its lookups since the previous run, starting with
+ * the regions with the most misses, as long as the estimated memory of all
+ * regions at full capacity stays within the budget. Regions which are less
+ * than half full are shrunk towards their size. Capacities are kept within
+ * the configured factors of the capacity each region was created with.
+ * <p>
+ * A region is not resized on the first run after it was registered or
+ * resized, so that its utilization is measured once it has warmed up, and is
+ * not shrunk within {@link #SHRINK_HOLD_RUNS} runs of being grown. Regions
+ * are held weakly and removed once their cache is closed or no longer
+ * referenced.
+ */
+@Slf4j
+@Service( "org.hisp.dhis.cache.CacheStatisticsService" )
+public class DefaultCacheStatisticsService
+    implements CacheStatisticsService, MeterBinder
+{
+    public static final String METRIC_CACHE_GETS = "dhis.cache.gets";
+
+    public static final String METRIC_CACHE_PUTS = "dhis.cache.puts";
+
+    public static final String METRIC_CACHE_SIZE = "dhis.cache.size";
+
+    public static final String METRIC_CACHE_CAPACITY = "dhis.cache.capacity";
+
+    private static final double GROW_FACTOR = 1.5;
+
+    private static final double GROW_UTILIZATION = 0.9;
+
+    private static final double GROW_MISS_RATIO = 0.2;
+
+    private static final long GROW_MIN_REQUESTS = 100;
+
+    private static final double SHRINK_UTILIZATION = 0.5;
+
+    private static final double SHRINK_HEADROOM = 1.25;
+
+    /**
+     * Number of runs after registration or resize during which a region is
+     * not resized.
+     */
+    private static final int WARMUP_RUNS = 1;
+
+    /**
+     * Number of runs after being grown during which a region is not shrunk.
+     */
+    static final int SHRINK_HOLD_RUNS = 6;
+
+    private static final long BYTES_PER_MB = 1024L * 1024L;
+
+    private final DhisConfigurationProvider config;
+
+    private final List<Region> regions = new CopyOnWriteArrayList<>();
+
+    private final Set<String> boundRegions = ConcurrentHashMap.newKeySet();
+
+    private volatile MeterRegistry registry;
+
+    public DefaultCacheStatisticsService( DhisConfigurationProvider config )
+    {
+        checkNotNull( config );
+
+        this.config = config;
+    }
+
+    // -------------------------------------------------------------------------
+    // CacheStatisticsService implementation
+    // -------------------------------------------------------------------------
+
+    @Override
+    public void register( InstrumentedCache<?> cache )
+    {
+        removeClosedRegions();
+
+        regions.add( new Region( cache ) );
+
+        MeterRegistry meterRegistry = registry;
+
+        if ( meterRegistry != null )
+        {
+            bindRegion( meterRegistry, cache.getRegion() );
+        }
+    }
+
+    @Override
+    public List<CacheRegionStatistics> getStatistics()
+    {
+        removeClosedRegions();
+
+        return toStatistics( regions.stream() );
+    }
+
+    @Override
+    public List<CacheRegionStatistics> getStatistics( String region )
+    {
+        return toStatistics( regions.stream().filter( r -> r.name.equals( region ) ) );
+    }
+
+    @Override
+    public void resetStatistics()
+    {
+        regions.forEach( r -> {
+            InstrumentedCache<?> cache = r.cache.get();
+
+            if ( cache != null )
+            {
+                cache.resetStatistics();
+            }
+
+            r.lastHits = 0;
+            r.lastMisses = 0;
+        } );
+    }
+
+    @Override
+    @Scheduled( fixedDelay = 300_000, initialDelay = 300_000 )
+    public synchronized void resizeRegions()
+    {
+        removeClosedRegions();
+
+        if ( !config.isEnabled( ConfigurationKey.SYSTEM_CACHE_ADAPTIVE ) )
+        {
+            return;
+        }
+
+        long budget = Long.parseLong( config.getProperty( ConfigurationKey.SYSTEM_CACHE_ADAPTIVE_MEMORY_BUDGET ) )
+            * BYTES_PER_MB;
+        double minFactor = Double.parseDouble( config.getProperty( ConfigurationKey.SYSTEM_CACHE_ADAPTIVE_MIN_FACTOR ) );
+        double maxFactor = Double.parseDouble( config.getProperty( ConfigurationKey.SYSTEM_CACHE_ADAPTIVE_MAX_FACTOR ) );
+
+        List<Region> localRegions = regions.stream()
+            .filter( Region::sample )
+            .collect( Collectors.toList() );
+
+        long projectedMemory = 0;
+
+        for ( Region region : localRegions )
+        {
+            long minCapacity = Math.max( 1, (long) (region.configuredCapacity * minFactor) );
+            LocalCache<?> local = region.local;
+
+            if ( region.isShrinkCandidate() && local.getCapacity() > minCapacity )
+            {
+                long used = local.isWeighted() ? region.memory : region.size;
+                resize( region, Math.max( minCapacity, (long) (used * SHRINK_HEADROOM) ) );
+            }
+
+            projectedMemory += region.projectedMemory( local.getCapacity() );
+        }
+
+        List<Region> candidates = localRegions.stream()
+            .filter( Region::isGrowCandidate )
+            .sorted( Comparator.comparingLong( ( Region r ) -> r.windowMisses ).reversed() )
+            .collect( Collectors.toList() );
+
+        for ( Region region : candidates )
+        {
+            LocalCache<?> local = region.local;
+            long maxCapacity = (long) (region.configuredCapacity * maxFactor);
+            long newCapacity = Math.min( maxCapacity, (long) (local.getCapacity() * GROW_FACTOR) );
+            long additionalMemory = region.projectedMemory( newCapacity ) - region.projectedMemory( local.getCapacity() );
+
+            if ( newCapacity > local.getCapacity() && projectedMemory + additionalMemory <= budget )
+            {
+                resize( region, newCapacity );
+                region.runsSinceGrow = 0;
+                projectedMemory += additionalMemory;
+            }
+        }
+
+        localRegions.forEach( Region::release );
+    }
+
+    // -------------------------------------------------------------------------
+    // MeterBinder implementation
+    // -------------------------------------------------------------------------
+
+    @Override
+    public void bindTo( MeterRegistry registry )
+    {
+        this.registry = registry;
+
+        regions.forEach( r -> bindRegion( registry, r.name ) );
+    }
+
+    /**
+     * Binds the meters of a region once per region name. Regions created more
+     * than once under the same name are summed up.
+     */
+    private void bindRegion( MeterRegistry registry, String region )
+    {
+        if ( !boundRegions.add( region ) )
+        {
+            return;
+        }
+
+        FunctionCounter.builder( METRIC_CACHE_GETS, this, s -> s.sum( region, InstrumentedCache::getHits ) )
+            .description( "Cache lookups which found a value" )
+            .tags( "cache", region, "result", "hit" )
+            .register( registry );
+
+        FunctionCounter.builder( METRIC_CACHE_GETS, this, s -> s.sum( region, InstrumentedCache::getMisses ) )
+            .description( "Cache lookups which did not find a value" )
+            .tags( "cache", region, "result", "miss" )
+            .register( registry );
+
+        FunctionCounter.builder( METRIC_CACHE_PUTS, this, s -> s.sum( region, InstrumentedCache::getPuts ) )
+            .description( "Values put into the cache" )
+            .tags( "cache", region )
+            .register( registry );
+
+        Gauge.builder( METRIC_CACHE_SIZE, this,
+            s -> s.sum( region, c -> c.getDelegate() instanceof LocalCache ? ((LocalCache<?>) c.getDelegate()).size() : 0 ) )
+            .description( "Number of entries in local caches" )
+            .tags( "cache", region )
+            .register( registry );
+
+        Gauge.builder( METRIC_CACHE_CAPACITY, this,
+            s -> s.sum( region, c -> c.getDelegate() instanceof LocalCache
+                ? ((LocalCache<?>) c.getDelegate()).getCapacity() : 0 ) )
+            .description( "Capacity of local caches, in entries or for weighted caches in bytes" )
+            .tags( "cache", region )
+            .register( registry );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private double sum( String region, ToDoubleFunction<InstrumentedCache<?>> function )
+    {
+        return regions.stream()
+            .filter( r -> r.name.equals( region ) )
+            .map( r -> r.cache.get() )
+            .filter( Objects::nonNull )
+            .mapToDouble( function )
+            .sum();
+    }
+
+    private List<CacheRegionStatistics> toStatistics( Stream<Region> stream )
+    {
+        return stream
+            .map( r -> {
+                InstrumentedCache<?> cache = r.cache.get();
+                return cache != null ? new CacheRegionStatistics( cache, r.resizes.get() ) : null;
+            } )
+            .filter( Objects::nonNull )
+            .sorted( Comparator.comparing( CacheRegionStatistics::getRegion ) )
+            .collect( Collectors.toCollection( ArrayList::new ) );
+    }
+
+    private void resize( Region region, long capacity )
+    {
+        LocalCache<?> local = region.local;
+
+        if ( capacity == local.getCapacity() )
+        {
+            return;
+        }
+
+        log.info( String.format( "Resizing cache region '%s' from %d to %d", region.name,
+            local.getCapacity(), capacity ) );
+
+        local.resize( capacity );
+        region.resizes.incrementAndGet();
+        region.runsSinceResize = 0;
+    }
+
+    /**
+     * Removes the regions whose cache is closed or no longer referenced.
+     */
+    private void removeClosedRegions()
+    {
+        regions.removeIf( Region::isClosed );
+    }
+
+    /**
+     * A registered region with the counters seen at the previous resize run.
+     * The cache is referenced weakly so that regions of discarded caches can
+     * be removed.
+     */
+    private static class Region
+    {
+        private final WeakReference<InstrumentedCache<?>> cache;
+
+        private final String name;
+
+        private final long configuredCapacity;
+
+        private final AtomicLong resizes = new AtomicLong();
+
+        /**
+         * The local cache of the region, only set while a resize run is in
+         * progress.
+         */
+        private LocalCache<?> local;
+
+        private int runsSinceResize;
+
+        private int runsSinceGrow = SHRINK_HOLD_RUNS;
+
+        private long lastHits;
+
+        private long lastMisses;
+
+        private long windowMisses;
+
+        private long windowRequests;
+
+        private long size;
+
+        private long memory;
+
+        private double utilization;
+
+        Region( InstrumentedCache<?> cache )
+        {
+            this.cache = new WeakReference<>( cache );
+            this.name = cache.getRegion();
+            this.configuredCapacity = cache.getConfiguredCapacity();
+        }
+
+        boolean isClosed()
+        {
+            InstrumentedCache<?> instance = cache.get();
+
+            return instance == null
+                || (instance.getDelegate() instanceof LocalCache && ((LocalCache<?>) instance.getDelegate()).isClosed());
+        }
+
+        /**
+         * Takes the counters since the previous run and the current
+         * utilization of the region, holding on to its local cache until
+         * {@link #release()}. Returns false if the region is not local or
+         * its cache is no longer referenced.
+         */
+        boolean sample()
+        {
+            InstrumentedCache<?> instance = cache.get();
+
+            if ( instance == null || !(instance.getDelegate() instanceof LocalCache) )
+            {
+                return false;
+            }
+
+            long hits = instance.getHits();
+            long misses = instance.getMisses();
+
+            windowMisses = Math.max( 0, misses - lastMisses );
+            windowRequests = windowMisses + Math.max( 0, hits - lastHits );
+            lastHits = hits;
+            lastMisses = misses;
+            runsSinceResize++;
+            runsSinceGrow++;
+
+            local = (LocalCache<?>) instance.getDelegate();
+            size = local.size();
+            memory = local.estimateMemory();
+            utilization = local.getCapacity() > 0
+                ? (double) (local.isWeighted() ? memory : size) / local.getCapacity()
+                : 0d;
+
+            return true;
+        }
+
+        void release()
+        {
+            local = null;
+        }
+
+        boolean isWarm()
+        {
+            return runsSinceResize > WARMUP_RUNS;
+        }
+
+        boolean isShrinkCandidate()
+        {
+            return isWarm() && runsSinceGrow > SHRINK_HOLD_RUNS && utilization < SHRINK_UTILIZATION;
+        }
+
+        boolean isGrowCandidate()
+        {
+            return isWarm() && utilization >= GROW_UTILIZATION && windowRequests >= GROW_MIN_REQUESTS
+                && (double) windowMisses / windowRequests >= GROW_MISS_RATIO;
+        }
+
+        /**
+         * Estimated memory of the region when filled to the given capacity.
+         */
+        long projectedMemory( long capacity )
+        {
+            if ( local.isWeighted() )
+            {
+                return capacity;
+            }
+
+            return size == 0 ? 0 : memory / size * capacity;
+        }
+    }
+}
@@ -48,13 +48,22 @@ public class ExtendedCacheBuilder<V> extends SimpleCacheBuilder<V>
 
     private RedisTemplate<String, ?> redisTemplate;
 
+    private CacheStatisticsService cacheStatisticsService;
+
     private boolean forceInMemory;
     
     public ExtendedCacheBuilder( RedisTemplate<String, ?> redisTemplate, DhisConfigurationProvider configurationProvider )
+    {
+        this( redisTemplate, configurationProvider, null );
+    }
+
+    public ExtendedCacheBuilder( RedisTemplate<String, ?> redisTemplate, DhisConfigurationProvider configurationProvider,
+        CacheStatisticsService cacheStatisticsService )
     {
         super();
         this.configurationProvider = configurationProvider;
         this.redisTemplate = redisTemplate;
+        this.cacheStatisticsService = cacheStatisticsService;
         this.forceInMemory = false;
     }
 
@@ -100,20 +109,54 @@ public class ExtendedCacheBuilder<V> extends SimpleCacheBuilder<V>
         else if ( forceInMemory )
         {
             log.info( String.format( "Local Cache (forced) instance created for region:'%s'", getRegion() ) );
-            return new LocalCache<V>( this );
+            return instrument( newLocalCache() );
         }
         else if ( configurationProvider.getProperty( ConfigurationKey.REDIS_ENABLED ).equalsIgnoreCase( "true" ) )
         {
             log.info( String.format( "Redis Cache instance created for region:'%s'", getRegion() ) );
-            return new RedisCache<V>( this );
+            return instrument( new RedisCache<V>( this ) );
         }
         else
         {
             log.info( String.format( "Local Cache instance created for region:'%s'", getRegion() ) );
-            return new LocalCache<V>( this );
+            return instrument( newLocalCache() );
         }
     }
 
+    /**
+     * Creates a local cache, bounded by the estimated memory of its values
+     * when {@code system.cache.memory_weighted} is enabled. The memory limit is
+     * the maximum size multiplied by the configured average entry size.
+     */
+    private LocalCache<V> newLocalCache()
+    {
+        if ( configurationProvider.isEnabled( ConfigurationKey.SYSTEM_CACHE_MEMORY_WEIGHTED ) && getMaximumSize() > 0 )
+        {
+            long entrySize = Long.parseLong(
+                configurationProvider.getProperty( ConfigurationKey.SYSTEM_CACHE_MEMORY_WEIGHTED_ENTRY_SIZE ) );
+
+            return new LocalCache<>( this, getMaximumSize() * entrySize );
+        }
+
+        return new LocalCache<>( this );
+    }
+
+    /**
+     * Wraps the given cache so that statistics of the region are recorded and
+     * registers it, if the cache statistics service is available.
+     */
+    private Cache<V> instrument( Cache<V> cache )
+    {
+        if ( cacheStatisticsService == null )
+        {
+            return cache;
+        }
+
+        InstrumentedCache<V> instrumented = new InstrumentedCache<>( cache, this );
+        cacheStatisticsService.register( instrumented );
+        return instrumented;
+    }
+
     public RedisTemplate<String, ?> getRedisTemplate()
     {
         return redisTemplate;
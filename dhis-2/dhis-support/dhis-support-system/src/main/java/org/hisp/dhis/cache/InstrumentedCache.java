@@ -0,0 +1,208 @@
+package org.hisp.dhis.cache;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.Collection;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * A {@link Cache} decorator which records hits, misses, puts and
+ * invalidations of the region, exposed through {@link CacheStatisticsService}.
+ *
+ * @param <V> The Value type to be stored in cache
+ */
+public class InstrumentedCache<V> implements Cache<V>
+{
+    private final Cache<V> delegate;
+
+    private final String region;
+
+    private final V defaultValue;
+
+    private final long configuredCapacity;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder puts = new LongAdder();
+
+    private final LongAdder invalidations = new LongAdder();
+
+    public InstrumentedCache( Cache<V> delegate, CacheBuilder<V> cacheBuilder )
+    {
+        this.delegate = delegate;
+        this.region = cacheBuilder.getRegion();
+        this.defaultValue = cacheBuilder.getDefaultValue();
+        this.configuredCapacity = delegate instanceof LocalCache ? ((LocalCache<V>) delegate).getCapacity()
+            : cacheBuilder.getMaximumSize();
+    }
+
+    @Override
+    public Optional<V> getIfPresent( String key )
+    {
+        Optional<V> value = delegate.getIfPresent( key );
+
+        record( value.isPresent() );
+
+        return value;
+    }
+
+    @Override
+    public Optional<V> get( String key )
+    {
+        Optional<V> value = delegate.getIfPresent( key );
+
+        record( value.isPresent() );
+
+        return value.isPresent() ? value : Optional.ofNullable( defaultValue );
+    }
+
+    @Override
+    public Optional<V> get( String key, Function<String, V> mappingFunction )
+    {
+        if ( null == mappingFunction )
+        {
+            throw new IllegalArgumentException( "MappingFunction cannot be null" );
+        }
+
+        boolean[] loaded = { false };
+
+        Optional<V> value = delegate.get( key, k -> {
+            loaded[0] = true;
+            return mappingFunction.apply( k );
+        } );
+
+        record( !loaded[0] );
+
+        if ( loaded[0] )
+        {
+            puts.increment();
+        }
+
+        return value;
+    }
+
+    @Override
+    public Collection<V> getAll()
+    {
+        return delegate.getAll();
+    }
+
+    @Override
+    public void put( String key, V value )
+    {
+        delegate.put( key, value );
+        puts.increment();
+    }
+
+    @Override
+    public void put( String key, V value, long ttlInSeconds )
+    {
+        delegate.put( key, value, ttlInSeconds );
+        puts.increment();
+    }
+
+    @Override
+    public void invalidate( String key )
+    {
+        delegate.invalidate( key );
+        invalidations.increment();
+    }
+
+    @Override
+    public void invalidateAll()
+    {
+        delegate.invalidateAll();
+        invalidations.increment();
+    }
+
+    @Override
+    public CacheType getCacheType()
+    {
+        return delegate.getCacheType();
+    }
+
+    private void record( boolean hit )
+    {
+        (hit ? hits : misses).increment();
+    }
+
+    /**
+     * Resets all counters of this region.
+     */
+    public void resetStatistics()
+    {
+        hits.reset();
+        misses.reset();
+        puts.reset();
+        invalidations.reset();
+    }
+
+    public Cache<V> getDelegate()
+    {
+        return delegate;
+    }
+
+    public String getRegion()
+    {
+        return region;
+    }
+
+    /**
+     * Returns the capacity the region was created with, which adaptive sizing
+     * uses as the reference for its bounds.
+     */
+    public long getConfiguredCapacity()
+    {
+        return configuredCapacity;
+    }
+
+    public long getHits()
+    {
+        return hits.sum();
+    }
+
+    public long getMisses()
+    {
+        return misses.sum();
+    }
+
+    public long getPuts()
+    {
+        return puts.sum();
+    }
+
+    public long getInvalidations()
+    {
+        return invalidations.sum();
+    }
+}
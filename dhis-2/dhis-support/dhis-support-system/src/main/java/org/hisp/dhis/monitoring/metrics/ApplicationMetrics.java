@@ -0,0 +1,208 @@
+package org.hisp.dhis.monitoring.metrics;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Application level instrumentation of hot paths such as analytics query
+ * planning, data value import and tracker validation. Meters are tagged by
+ * {@code subsystem} and {@code stage}, and are exported through the registry
+ * of the configured monitoring provider.
+ * <p>
+ * Until a {@link MeterRegistry} is bound, which happens only when
+ * {@code monitoring.application.enabled} is on, all methods are no-ops apart
+ * from reading the system clock, so instrumented code can call them
+ * unconditionally.
+ */
+@Component
+public class ApplicationMetrics
+    implements MeterBinder
+{
+    public static final String METRIC_STAGE_DURATION = "dhis.stage.duration";
+
+    public static final String METRIC_STAGE_ITEMS = "dhis.stage.items";
+
+    public static final String TAG_SUBSYSTEM = "subsystem";
+
+    public static final String TAG_STAGE = "stage";
+
+    public static final String SUBSYSTEM_ANALYTICS = "analytics";
+
+    public static final String SUBSYSTEM_IMPORT = "import";
+
+    public static final String SUBSYSTEM_TRACKER = "tracker";
+
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+    private volatile MeterRegistry registry;
+
+    @Override
+    public void bindTo( MeterRegistry registry )
+    {
+        this.timers.clear();
+        this.counters.clear();
+        this.registry = registry;
+    }
+
+    /**
+     * Indicates whether meters are recorded.
+     */
+    public boolean isEnabled()
+    {
+        return registry != null;
+    }
+
+    /**
+     * Returns a start time to later pass to
+     * {@link #stop(long, String, String)}.
+     */
+    public long start()
+    {
+        return System.nanoTime();
+    }
+
+    /**
+     * Records the time elapsed since the given start time for the given
+     * subsystem and stage.
+     *
+     * @param start the start time as returned by {@link #start()}.
+     * @param subsystem the subsystem, such as {@link #SUBSYSTEM_ANALYTICS}.
+     * @param stage the stage within the subsystem.
+     */
+    public void stop( long start, String subsystem, String stage )
+    {
+        stop( start, subsystem, stage, null, null );
+    }
+
+    /**
+     * Records the time elapsed since the given start time for the given
+     * subsystem and stage, with an additional tag. The tag value must have a
+     * low cardinality.
+     */
+    public void stop( long start, String subsystem, String stage, String tagKey, String tagValue )
+    {
+        MeterRegistry meterRegistry = this.registry;
+
+        if ( meterRegistry != null )
+        {
+            getTimer( meterRegistry, subsystem, stage, tagKey, tagValue )
+                .record( System.nanoTime() - start, TimeUnit.NANOSECONDS );
+        }
+    }
+
+    /**
+     * Times the given supplier for the given subsystem and stage.
+     */
+    public <T> T time( String subsystem, String stage, Supplier<T> supplier )
+    {
+        long start = start();
+
+        try
+        {
+            return supplier.get();
+        }
+        finally
+        {
+            stop( start, subsystem, stage );
+        }
+    }
+
+    /**
+     * Times the given runnable for the given subsystem and stage.
+     */
+    public void time( String subsystem, String stage, Runnable runnable )
+    {
+        long start = start();
+
+        try
+        {
+            runnable.run();
+        }
+        finally
+        {
+            stop( start, subsystem, stage );
+        }
+    }
+
+    /**
+     * Counts items, such as rows or objects, processed by the given subsystem
+     * and stage. Combined with the stage duration this gives throughput.
+     */
+    public void count( String subsystem, String stage, long amount )
+    {
+        MeterRegistry meterRegistry = this.registry;
+
+        if ( meterRegistry != null && amount > 0 )
+        {
+            counters.computeIfAbsent( subsystem + ":" + stage, k -> Counter.builder( METRIC_STAGE_ITEMS )
+                .description( "Number of items processed" )
+                .tags( TAG_SUBSYSTEM, subsystem, TAG_STAGE, stage )
+                .register( meterRegistry ) )
+                .increment( amount );
+        }
+    }
+
+    private Timer getTimer( MeterRegistry meterRegistry, String subsystem, String stage, String tagKey,
+        String tagValue )
+    {
+        String key = subsystem + ":" + stage + ( tagKey != null ? ":" + tagKey + "=" + tagValue : "" );
+
+        return timers.computeIfAbsent( key, k -> {
+            Tags tags = Tags.of( TAG_SUBSYSTEM, subsystem, TAG_STAGE, stage );
+
+            if ( tagKey != null )
+            {
+                tags = tags.and( tagKey, String.valueOf( tagValue ) );
+            }
+
+            return Timer.builder( METRIC_STAGE_DURATION )
+                .description( "Execution time of application stages" )
+                .tags( tags )
+                .publishPercentileHistogram()
+                .minimumExpectedValue( Duration.ofMillis( 1 ) )
+                .maximumExpectedValue( Duration.ofMinutes( 10 ) )
+                .register( meterRegistry );
+        } );
+    }
+}
@@ -44,6 +44,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Conditional;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
 import org.springframework.util.StringUtils;
 
 import com.google.common.collect.Lists;
@@ -108,12 +109,33 @@ public class DataSourcePoolMetricsConfig
     @Bean
     public Collection<DataSourcePoolMetadataProvider> dataSourceMetadataProvider()
     {
-        DataSourcePoolMetadataProvider provider = dataSource -> new C3p0MetadataProvider(
-            (ComboPooledDataSource) dataSource );
+        DataSourcePoolMetadataProvider provider = dataSource -> {
+            ComboPooledDataSource pooledDataSource = getPooledDataSource( dataSource );
+
+            return pooledDataSource != null ? new C3p0MetadataProvider( pooledDataSource ) : null;
+        };
 
         return Lists.newArrayList( provider );
     }
 
+    /**
+     * Returns the pooled data source behind the given data source, which may
+     * be wrapped by a delegating data source such as for SQL profiling.
+     */
+    private static ComboPooledDataSource getPooledDataSource( DataSource dataSource )
+    {
+        if ( dataSource instanceof ComboPooledDataSource )
+        {
+            return (ComboPooledDataSource) dataSource;
+        }
+        else if ( dataSource instanceof DelegatingDataSource )
+        {
+            return getPooledDataSource( ((DelegatingDataSource) dataSource).getTargetDataSource() );
+        }
+
+        return null;
+    }
+
     static class DataSourcePoolMetricsEnabledCondition
         extends MetricsEnabler
     {
@@ -28,23 +28,43 @@ package org.hisp.dhis.system.deletion;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
-import javassist.util.proxy.ProxyObject;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
+import javax.annotation.PostConstruct;
 
+import javassist.util.proxy.ProxyObject;
 import lombok.extern.slf4j.Slf4j;
+
 import org.hisp.dhis.common.DeleteNotAllowedException;
+import org.hisp.dhis.common.IdentifiableObject;
 import org.hisp.dhis.common.ObjectDeletionRequestedEvent;
+import org.hisp.dhis.common.ObjectsDeletionRequestedEvent;
 import org.hisp.dhis.feedback.ErrorCode;
 import org.hisp.dhis.feedback.ErrorMessage;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.event.EventListener;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.stereotype.Component;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.util.List;
+import org.springframework.util.ClassUtils;
 
 /**
+ * Dispatches deletion notifications to the registered deletion handlers. A
+ * dispatch table is built once at startup, mapping each type to the handlers
+ * which override the allowDelete and delete methods for that type, together
+ * with pre-resolved method handles.
+ *
  * TODO: Add support for failed allow tests on "transitive" deletion handlers which
  * are called as part of delete methods.
  *
@@ -58,6 +78,16 @@ public class DefaultDeletionManager
     private static final String DELETE_METHOD_PREFIX = "delete";
     private static final String ALLOW_METHOD_PREFIX = "allowDelete";
 
+    private static final MethodType ALLOW_METHOD_TYPE = MethodType.methodType( Object.class, Object.class );
+    private static final MethodType DELETE_METHOD_TYPE = MethodType.methodType( void.class, Object.class );
+
+    /**
+     * Objects verified through a set based check in the current thread, for
+     * which the object specific allow checks are skipped.
+     */
+    private static final ThreadLocal<Set<Object>> VERIFIED_OBJECTS = ThreadLocal.withInitial(
+        () -> Collections.newSetFromMap( new IdentityHashMap<>() ) );
+
     /**
      * Deletion handlers registered in context are subscribed to deletion
      * notifications through auto-wiring.
@@ -65,6 +95,50 @@ public class DefaultDeletionManager
     @Autowired(required = false)
     private List<DeletionHandler> deletionHandlers;
 
+    /**
+     * Mapping of type to handlers overriding the allowDelete method of the type.
+     */
+    private Map<Class<?>, List<HandlerMethod>> allowDispatch = new HashMap<>();
+
+    /**
+     * Mapping of type to handlers overriding the delete method of the type.
+     */
+    private Map<Class<?>, List<HandlerMethod>> deleteDispatch = new HashMap<>();
+
+    @PostConstruct
+    public void init()
+    {
+        if ( deletionHandlers == null || deletionHandlers.isEmpty() )
+        {
+            return;
+        }
+
+        MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+
+        for ( Method method : DeletionHandler.class.getDeclaredMethods() )
+        {
+            if ( method.getParameterCount() != 1 )
+            {
+                continue;
+            }
+
+            Class<?> type = method.getParameterTypes()[0];
+            String className = type.getSimpleName();
+
+            if ( method.getName().equals( ALLOW_METHOD_PREFIX + className ) )
+            {
+                allowDispatch.put( type, getHandlerMethods( lookup, method, ALLOW_METHOD_TYPE ) );
+            }
+            else if ( method.getName().equals( DELETE_METHOD_PREFIX + className ) )
+            {
+                deleteDispatch.put( type, getHandlerMethods( lookup, method, DELETE_METHOD_TYPE ) );
+            }
+        }
+
+        log.info( String.format( "Built deletion dispatch table for %d types and %d handlers",
+            allowDispatch.size(), deletionHandlers.size() ) );
+    }
+
     // -------------------------------------------------------------------------
     // DeletionManager implementation
     // -------------------------------------------------------------------------
@@ -83,6 +157,82 @@ public class DefaultDeletionManager
         deleteObjects( event );
     }
 
+    @Transactional
+    @EventListener
+    public void objectsDeletionListener( ObjectsDeletionRequestedEvent event )
+    {
+        event.setHandled( true );
+
+        allowDeleteAll( event.getObjects() );
+
+        Set<Object> verified = VERIFIED_OBJECTS.get();
+
+        try
+        {
+            verified.addAll( event.getObjects() );
+
+            event.getDeletion().run();
+        }
+        finally
+        {
+            VERIFIED_OBJECTS.remove();
+        }
+    }
+
+    @Override
+    public void allowDeleteAll( Collection<? extends IdentifiableObject> objects )
+    {
+        Map<Class<?>, List<IdentifiableObject>> typeObjects = new HashMap<>();
+
+        for ( IdentifiableObject object : objects )
+        {
+            typeObjects.computeIfAbsent( getClazz( object ), k -> new ArrayList<>() ).add( object );
+        }
+
+        for ( Map.Entry<Class<?>, List<IdentifiableObject>> entry : typeObjects.entrySet() )
+        {
+            Class<?> clazz = entry.getKey();
+            List<IdentifiableObject> list = entry.getValue();
+            List<Long> ids = list.stream().map( IdentifiableObject::getId ).collect( Collectors.toList() );
+
+            for ( HandlerMethod handlerMethod : allowDispatch.getOrDefault( clazz, Collections.emptyList() ) )
+            {
+                DeletionHandler handler = handlerMethod.handler;
+
+                if ( handler.getAllowDeleteAllTypes().contains( clazz ) )
+                {
+                    log.debug( "Check if allowed using set based check of " + handler.getClass().getSimpleName() +
+                        " for " + ids.size() + " objects of class " + clazz.getSimpleName() );
+
+                    checkAllowed( handler, handler.allowDeleteAll( clazz, ids ) );
+                }
+                else
+                {
+                    for ( Object object : list )
+                    {
+                        try
+                        {
+                            checkAllowed( handler, (String) (Object) handlerMethod.method.invokeExact( object ) );
+                        }
+                        catch ( DeleteNotAllowedException ex )
+                        {
+                            throw ex;
+                        }
+                        catch ( Throwable ex )
+                        {
+                            log.error( "Method '" + ALLOW_METHOD_PREFIX + clazz.getSimpleName() +
+                                "' threw exception on DeletionHandler '" + handler.getClass().getSimpleName() + "'", ex );
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
     private void deleteObjects( ObjectDeletionRequestedEvent event )
     {
         if ( deletionHandlers == null || deletionHandlers.isEmpty() )
@@ -91,90 +241,117 @@ public class DefaultDeletionManager
             return;
         }
 
-        log.debug( "Deletion handlers detected: " + deletionHandlers.size() );
-
         Object object = event.getSource();
 
         Class<?> clazz = getClazz( object );
 
         String className = clazz.getSimpleName();
 
+        List<HandlerMethod> allowMethods = allowDispatch.get( clazz );
+
+        if ( allowMethods == null )
+        {
+            log.error( "Method '" + ALLOW_METHOD_PREFIX + className + "' does not exist on class '" + clazz + "'" );
+            return;
+        }
+
         // ---------------------------------------------------------------------
         // Verify that object is allowed to be deleted
         // ---------------------------------------------------------------------
 
-        String allowMethodName = ALLOW_METHOD_PREFIX + className;
-
-        String currentHandler = null;
-
-        try
+        if ( !VERIFIED_OBJECTS.get().remove( object ) )
         {
-            Method allowMethod = DeletionHandler.class.getMethod( allowMethodName, clazz );
-
-            for ( DeletionHandler handler : deletionHandlers )
+            for ( HandlerMethod handlerMethod : allowMethods )
             {
-                currentHandler = handler.getClass().getSimpleName();
+                String currentHandler = handlerMethod.handler.getClass().getSimpleName();
 
                 log.debug( "Check if allowed using " + currentHandler + " for class " + className );
 
-                Object allow = allowMethod.invoke( handler, object );
+                String allow;
 
-                if ( allow != null )
+                try
                 {
-                    String hint = String.valueOf( allow );
-                    hint = hint.isEmpty() ? hint : ( " (" + hint + ")" );
-                    String argument = handler.getClassName() + hint;
-
-                    ErrorMessage errorMessage = new ErrorMessage( ErrorCode.E4030, argument );
-
-                    log.info( "Delete was not allowed by " + currentHandler + ": " + errorMessage.toString() );
-
-                    throw new DeleteNotAllowedException( errorMessage );
+                    allow = (String) (Object) handlerMethod.method.invokeExact( object );
+                }
+                catch ( Throwable ex )
+                {
+                    log.error( "Method '" + ALLOW_METHOD_PREFIX + className + "' threw exception on DeletionHandler '" + currentHandler + "'", ex );
+                    return;
                 }
+
+                checkAllowed( handlerMethod.handler, allow );
             }
         }
-        catch ( NoSuchMethodException e )
-        {
-            log.error( "Method '" + allowMethodName + "' does not exist on class '" + clazz + "'", e );
-            return;
-        }
-        catch ( IllegalAccessException ex )
-        {
-            log.error( "Method '" + allowMethodName + "' can not be invoked on DeletionHandler '" + currentHandler + "'", ex );
-            return;
-        }
-        catch ( InvocationTargetException ex )
-        {
-            log.error( "Method '" + allowMethodName + "' threw exception on DeletionHandler '" + currentHandler + "'", ex );
-            return;
-        }
 
         // ---------------------------------------------------------------------
         // Delete associated objects
         // ---------------------------------------------------------------------
 
-        String deleteMethodName = DELETE_METHOD_PREFIX + className;
-
-        try
+        for ( HandlerMethod handlerMethod : deleteDispatch.getOrDefault( clazz, Collections.emptyList() ) )
         {
-            Method deleteMethod = DeletionHandler.class.getMethod( deleteMethodName, clazz );
+            String currentHandler = handlerMethod.handler.getClass().getSimpleName();
 
-            for ( DeletionHandler handler : deletionHandlers )
+            log.debug( "Deleting object using " + currentHandler + " for class " + className );
+
+            try
+            {
+                handlerMethod.method.invokeExact( object );
+            }
+            catch ( Throwable ex )
             {
-                currentHandler = handler.getClass().getSimpleName();
+                log.error( "Failed to invoke method " + DELETE_METHOD_PREFIX + className + " on DeletionHandler '" + currentHandler + "'", ex );
+                return;
+            }
+        }
 
-                log.debug( "Deleting object using " + currentHandler + " for class " + className );
+        log.info( "Deleted objects associated with object of type " + className );
+    }
 
-                deleteMethod.invoke( handler, object );
-            }
+    private void checkAllowed( DeletionHandler handler, String allow )
+    {
+        if ( allow != null )
+        {
+            String hint = allow.isEmpty() ? allow : ( " (" + allow + ")" );
+            String argument = handler.getClassName() + hint;
+
+            ErrorMessage errorMessage = new ErrorMessage( ErrorCode.E4030, argument );
+
+            log.info( "Delete was not allowed by " + handler.getClass().getSimpleName() + ": " + errorMessage.toString() );
+
+            throw new DeleteNotAllowedException( errorMessage );
         }
-        catch ( Exception ex )
+    }
+
+    /**
+     * Returns handler methods for the handlers overriding the given method,
+     * bound to the respective handler.
+     */
+    private List<HandlerMethod> getHandlerMethods( MethodHandles.Lookup lookup, Method method, MethodType methodType )
+    {
+        List<HandlerMethod> handlerMethods = new ArrayList<>();
+
+        for ( DeletionHandler handler : deletionHandlers )
         {
-            log.error( "Failed to invoke method " + deleteMethodName + " on DeletionHandler '" + currentHandler + "'", ex );
-            return;
+            try
+            {
+                Method handlerMethod = ClassUtils.getUserClass( handler )
+                    .getMethod( method.getName(), method.getParameterTypes() );
+
+                if ( handlerMethod.getDeclaringClass() != DeletionHandler.class )
+                {
+                    MethodHandle methodHandle = lookup.unreflect( method ).bindTo( handler ).asType( methodType );
+
+                    handlerMethods.add( new HandlerMethod( handler, methodHandle ) );
+                }
+            }
+            catch ( NoSuchMethodException | IllegalAccessException ex )
+            {
+                log.error( "Method '" + method.getName() + "' can not be resolved on DeletionHandler '" +
+                    handler.getClass().getSimpleName() + "'", ex );
+            }
         }
 
-        log.info( "Deleted objects associated with object of type " + className );
+        return handlerMethods;
     }
 
     private Class<?> getClazz( Object object )
@@ -188,4 +365,20 @@ public class DefaultDeletionManager
 
         return clazz;
     }
+
+    /**
+     * Deletion handler method bound to a handler instance.
+     */
+    private static class HandlerMethod
+    {
+        private final DeletionHandler handler;
+
+        private final MethodHandle method;
+
+        private HandlerMethod( DeletionHandler handler, MethodHandle method )
+        {
+            this.handler = handler;
+            this.method = method;
+        }
+    }
 }
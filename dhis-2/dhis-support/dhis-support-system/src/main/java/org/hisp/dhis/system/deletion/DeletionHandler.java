@@ -28,6 +28,10 @@ package org.hisp.dhis.system.deletion;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+
 import org.hisp.dhis.attribute.Attribute;
 import org.hisp.dhis.attribute.AttributeValue;
 import org.hisp.dhis.category.Category;
@@ -157,6 +161,36 @@ public abstract class DeletionHandler
 
     protected abstract String getClassName();
 
+    // -------------------------------------------------------------------------
+    // Set based methods
+    // -------------------------------------------------------------------------
+
+    /**
+     * Returns the types for which this handler implements a set based check
+     * through {@link #allowDeleteAll(Class, Collection)}. For other types, the
+     * allowDelete method of the type is invoked for each object.
+     *
+     * @return the types supporting set based delete checks.
+     */
+    public Set<Class<?>> getAllowDeleteAllTypes()
+    {
+        return Collections.emptySet();
+    }
+
+    /**
+     * Set based counterpart of the allowDelete methods. Should return a
+     * non-null String value if any of the objects of the given type with the
+     * given identifiers are not allowed to be deleted.
+     *
+     * @param type the type of the objects.
+     * @param ids the identifiers of the objects.
+     * @return null if all objects can be deleted, a hint otherwise.
+     */
+    public String allowDeleteAll( Class<?> type, Collection<Long> ids )
+    {
+        return null;
+    }
+
     // -------------------------------------------------------------------------
     // Public methods
     // -------------------------------------------------------------------------
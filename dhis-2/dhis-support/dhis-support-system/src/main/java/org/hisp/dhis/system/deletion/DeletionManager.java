@@ -28,10 +28,25 @@ package org.hisp.dhis.system.deletion;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import java.util.Collection;
+
+import org.hisp.dhis.common.DeleteNotAllowedException;
+import org.hisp.dhis.common.IdentifiableObject;
+
 /**
  * @author Lars Helge Overland
  */
 public interface DeletionManager
 {
     String ID = DeletionManager.class.getName();
+
+    /**
+     * Verifies that all given objects can be deleted. Deletion handlers
+     * supporting set based checks for a type run a single check for all
+     * objects of that type.
+     *
+     * @param objects the objects to verify.
+     * @throws DeleteNotAllowedException if any object cannot be deleted.
+     */
+    void allowDeleteAll( Collection<? extends IdentifiableObject> objects );
 }
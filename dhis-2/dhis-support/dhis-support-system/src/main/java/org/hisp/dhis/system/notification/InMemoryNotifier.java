@@ -33,7 +33,6 @@ import org.hisp.dhis.scheduling.JobConfiguration;
 import org.hisp.dhis.scheduling.JobType;
 import org.springframework.util.StringUtils;
 
-import java.util.ArrayList;
 import java.util.Date;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
@@ -41,12 +40,15 @@ import java.util.List;
 import java.util.Map;
 
 /**
+ * Notifier which keeps notifications in memory, bounded in number and size.
+ * Safe for concurrent notifications and polling.
+ *
  * @author Lars Helge Overland
  */
 @Slf4j
 public class InMemoryNotifier implements Notifier
 {
-    private NotificationMap notificationMap = new NotificationMap();
+    private final NotificationMap notificationMap = new NotificationMap();
 
     // -------------------------------------------------------------------------
     // Notifier implementation
@@ -116,22 +118,7 @@ public class InMemoryNotifier implements Notifier
     @Override
     public List<Notification> getLastNotificationsByJobType( JobType jobType, String lastId )
     {
-        List<Notification> list = new ArrayList<>();
-
-        for ( Notification notification : notificationMap.getLastNotificationsByJobType( jobType ) )
-        {
-            if ( lastId != null && lastId.equals( notification.getUid() ) )
-            {
-                if ( list.isEmpty() )
-                {
-                    list.add( notification );
-                }
-                break;
-            }
-            list.add( notification );
-        }
-
-        return list;
+        return notificationMap.getLastNotificationsByJobType( jobType, lastId );
     }
 
     @Override
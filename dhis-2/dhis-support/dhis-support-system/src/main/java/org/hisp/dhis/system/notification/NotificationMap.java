@@ -31,127 +31,145 @@ package org.hisp.dhis.system.notification;
 import org.hisp.dhis.scheduling.JobConfiguration;
 import org.hisp.dhis.scheduling.JobType;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.HashMap;
+import java.util.Deque;
+import java.util.EnumMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
+ * Notifications and job summaries by job type and job identifier.
+ * <p/>
+ * Notifications of each job are kept in a fixed size {@link NotificationRing}.
+ * At most {@link #MAX_POOL_TYPE_SIZE} jobs are kept per job type, and the
+ * oldest jobs of a job type are evicted when the estimated memory used by the
+ * notifications of the job type exceeds {@link #MAX_JOB_TYPE_SIZE}. All
+ * operations are safe for concurrent use, and all maps and lists returned are
+ * snapshots which are not affected by later notifications.
+ *
  * @author Henning Håkonsen
  */
 public class NotificationMap
 {
-    private final static int MAX_POOL_TYPE_SIZE = 100;
+    final static int MAX_POOL_TYPE_SIZE = 100;
+
+    final static int MAX_NOTIFICATIONS_PER_JOB = 500;
+
+    final static long MAX_JOB_TYPE_SIZE = 4L * 1024 * 1024;
 
-    private Map<JobType, LinkedHashMap<String, LinkedList<Notification>>> notificationsWithType;
+    private final Map<JobType, JobMap<NotificationRing>> notificationsWithType = new EnumMap<>( JobType.class );
 
-    private Map<JobType, LinkedHashMap<String, Object>> summariesWithType;
+    private final Map<JobType, AtomicLong> sizeWithType = new EnumMap<>( JobType.class );
+
+    private final Map<JobType, JobMap<Object>> summariesWithType = new EnumMap<>( JobType.class );
 
     NotificationMap()
     {
-        notificationsWithType = new HashMap<>();
-        Arrays.stream( JobType.values() )
-            .forEach( jobType -> notificationsWithType.put( jobType, new LinkedHashMap<>() ) );
-
-        summariesWithType = new HashMap<>();
-        Arrays.stream( JobType.values() )
-            .forEach( jobType -> summariesWithType.put( jobType, new LinkedHashMap<>() ) );
+        for ( JobType jobType : JobType.values() )
+        {
+            notificationsWithType.put( jobType, new JobMap<>() );
+            sizeWithType.put( jobType, new AtomicLong() );
+            summariesWithType.put( jobType, new JobMap<>() );
+        }
     }
 
     public List<Notification> getLastNotificationsByJobType( JobType jobType )
     {
-        LinkedHashMap<String, LinkedList<Notification>> jobTypeNotifications = notificationsWithType.get( jobType );
-
-        if ( jobTypeNotifications.size() == 0 )
-        {
-            return new ArrayList<>();
-        }
+        return getLastNotificationsByJobType( jobType, null );
+    }
 
-        String key = (String) jobTypeNotifications.keySet().toArray()[jobTypeNotifications.size() - 1];
+    /**
+     * Returns the notifications of the most recently started job of the given
+     * job type, newest first, down to the notification with the given
+     * identifier.
+     *
+     * @param jobType the job type.
+     * @param lastId the identifier of the last notification seen by the
+     *        caller, or null to return all notifications of the job.
+     * @return a list of notifications.
+     */
+    public List<Notification> getLastNotificationsByJobType( JobType jobType, String lastId )
+    {
+        NotificationRing ring = notificationsWithType.get( jobType ).getLast();
 
-        return jobTypeNotifications.get( key );
+        return ring != null ? ring.getNotificationsSince( lastId ) : new LinkedList<>();
     }
 
     public Map<JobType, LinkedHashMap<String, LinkedList<Notification>>> getNotifications()
     {
-        return notificationsWithType;
+        Map<JobType, LinkedHashMap<String, LinkedList<Notification>>> notifications = new EnumMap<>( JobType.class );
+
+        for ( JobType jobType : JobType.values() )
+        {
+            notifications.put( jobType, getNotificationsWithType( jobType ) );
+        }
+
+        return notifications;
     }
 
     public LinkedList<Notification> getNotificationsByJobId( JobType jobType, String jobId )
     {
-        if ( notificationsWithType.get( jobType ).containsKey( jobId ) )
-        {
-            return notificationsWithType.get( jobType ).get( jobId );
-        }
-        else
-        {
-            return new LinkedList<>();
-        }
+        NotificationRing ring = notificationsWithType.get( jobType ).get( jobId );
+
+        return ring != null ? new LinkedList<>( ring.getNotifications() ) : new LinkedList<>();
     }
 
-    public Map<String, LinkedList<Notification>> getNotificationsWithType( JobType jobType )
+    public LinkedHashMap<String, LinkedList<Notification>> getNotificationsWithType( JobType jobType )
     {
-        return notificationsWithType.get( jobType );
+        return notificationsWithType.get( jobType ).snapshot( ring -> new LinkedList<>( ring.getNotifications() ) );
     }
 
     public void add( JobConfiguration jobConfiguration, Notification notification )
     {
-        String uid = jobConfiguration.getUid();
+        JobType jobType = jobConfiguration.getJobType();
+        String uid = getKey( jobConfiguration );
 
-        LinkedHashMap<String, LinkedList<Notification>> uidNotifications = notificationsWithType
-            .get( jobConfiguration.getJobType() );
+        JobMap<NotificationRing> rings = notificationsWithType.get( jobType );
+        AtomicLong size = sizeWithType.get( jobType );
 
-        LinkedList<Notification> notifications;
-        if ( uidNotifications.containsKey( uid ) )
-        {
-            notifications = uidNotifications.get( uid );
-        }
-        else
-        {
-            notifications = new LinkedList<>();
-        }
+        NotificationRing ring = rings.computeIfAbsent( uid, () -> new NotificationRing( MAX_NOTIFICATIONS_PER_JOB ) );
 
-        notifications.addFirst( notification );
+        long typeSize = size.addAndGet( ring.add( notification ) );
 
-        if ( uidNotifications.size() >= MAX_POOL_TYPE_SIZE )
+        while ( rings.size() > MAX_POOL_TYPE_SIZE || (typeSize > MAX_JOB_TYPE_SIZE && rings.size() > 1) )
         {
-            String key = (String) uidNotifications.keySet().toArray()[0];
-            uidNotifications.remove( key );
-        }
+            NotificationRing evicted = rings.removeFirst( uid );
 
-        uidNotifications.put( uid, notifications );
+            if ( evicted == null )
+            {
+                break;
+            }
 
-        notificationsWithType.put( jobConfiguration.getJobType(), uidNotifications );
+            typeSize = size.addAndGet( -evicted.getEstimatedSize() );
+        }
     }
 
     public void addSummary( JobConfiguration jobConfiguration, Object summary )
     {
-        LinkedHashMap<String, Object> summaries = summariesWithType.get( jobConfiguration.getJobType() );
+        JobMap<Object> summaries = summariesWithType.get( jobConfiguration.getJobType() );
+
+        summaries.put( getKey( jobConfiguration ), summary );
 
-        if ( summaries.size() >= MAX_POOL_TYPE_SIZE )
+        while ( summaries.size() > MAX_POOL_TYPE_SIZE )
         {
-            String key = (String) summaries.keySet().toArray()[0];
-            summaries.remove( key );
+            if ( summaries.removeFirst( null ) == null )
+            {
+                break;
+            }
         }
-
-        summaries.put( jobConfiguration.getUid(), summary );
     }
 
     public Object getSummary( JobType jobType )
     {
-        LinkedHashMap<String, Object> summariesForJobType = summariesWithType.get( jobType );
-
-        if ( summariesForJobType.size() == 0 )
-        {
-            return null;
-        }
-        else
-        {
-            return summariesForJobType.values().toArray()[summariesForJobType.size() - 1];
-        }
+        return summariesWithType.get( jobType ).getLast();
     }
 
     public Object getSummary( JobType jobType, String jobId )
@@ -161,12 +179,117 @@ public class NotificationMap
 
     public Object getJobSummariesForJobType( JobType jobType )
     {
-        return summariesWithType.get( jobType );
+        return summariesWithType.get( jobType ).snapshot( Function.identity() );
     }
 
     public void clear( JobConfiguration jobConfiguration )
     {
-        notificationsWithType.get( jobConfiguration.getJobType() ).remove( jobConfiguration.getUid() );
-        summariesWithType.get( jobConfiguration.getJobType() ).remove( jobConfiguration.getUid() );
+        String uid = getKey( jobConfiguration );
+
+        NotificationRing ring = notificationsWithType.get( jobConfiguration.getJobType() ).remove( uid );
+
+        if ( ring != null )
+        {
+            sizeWithType.get( jobConfiguration.getJobType() ).addAndGet( -ring.getEstimatedSize() );
+        }
+
+        summariesWithType.get( jobConfiguration.getJobType() ).remove( uid );
+    }
+
+    private String getKey( JobConfiguration jobConfiguration )
+    {
+        return Objects.toString( jobConfiguration.getUid(), "" );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive classes
+    // -------------------------------------------------------------------------
+
+    /**
+     * Concurrent map of values by job identifier which keeps the order in
+     * which jobs were first added.
+     */
+    private static class JobMap<V>
+    {
+        private final ConcurrentMap<String, V> values = new ConcurrentHashMap<>();
+
+        private final Deque<String> order = new ConcurrentLinkedDeque<>();
+
+        V get( String uid )
+        {
+            return uid != null ? values.get( uid ) : null;
+        }
+
+        V getLast()
+        {
+            String uid = order.peekLast();
+
+            return uid != null ? values.get( uid ) : null;
+        }
+
+        V computeIfAbsent( String uid, Supplier<V> supplier )
+        {
+            V value = values.get( uid );
+
+            return value != null ? value : values.computeIfAbsent( uid, key -> {
+                order.addLast( key );
+                return supplier.get();
+            } );
+        }
+
+        void put( String uid, V value )
+        {
+            if ( values.put( uid, value ) == null )
+            {
+                order.addLast( uid );
+            }
+        }
+
+        V remove( String uid )
+        {
+            order.remove( uid );
+
+            return values.remove( uid );
+        }
+
+        /**
+         * Removes the oldest job, unless that is the given job.
+         *
+         * @param retainedUid the identifier of a job which must not be removed.
+         * @return the value of the removed job, or null if none was removed.
+         */
+        V removeFirst( String retainedUid )
+        {
+            String uid = order.peekFirst();
+
+            if ( uid == null || uid.equals( retainedUid ) || !order.remove( uid ) )
+            {
+                return null;
+            }
+
+            return values.remove( uid );
+        }
+
+        int size()
+        {
+            return values.size();
+        }
+
+        <R> LinkedHashMap<String, R> snapshot( Function<V, R> mapper )
+        {
+            LinkedHashMap<String, R> snapshot = new LinkedHashMap<>();
+
+            for ( String uid : order )
+            {
+                V value = values.get( uid );
+
+                if ( value != null )
+                {
+                    snapshot.put( uid, mapper.apply( value ) );
+                }
+            }
+
+            return snapshot;
+        }
     }
 }
@@ -0,0 +1,180 @@
+package org.hisp.dhis.system.notification;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Fixed size ring buffer of the notifications of a single job. Appends are
+ * lock-free and overwrite the oldest notification once the ring is full.
+ * Reads never block appends and return notifications newest first.
+ * <p/>
+ * The ring keeps an estimate of the memory used by the notifications it
+ * currently holds, so that the owner can bound the total memory used.
+ */
+final class NotificationRing
+{
+    private final AtomicReferenceArray<Entry> slots;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final AtomicLong estimatedSize = new AtomicLong();
+
+    NotificationRing( int capacity )
+    {
+        this.slots = new AtomicReferenceArray<>( capacity );
+    }
+
+    // -------------------------------------------------------------------------
+    // Logic
+    // -------------------------------------------------------------------------
+
+    /**
+     * Appends a notification, overwriting the oldest notification if the ring
+     * is full.
+     *
+     * @param notification the notification.
+     * @return the change in estimated memory size of this ring.
+     */
+    long add( Notification notification )
+    {
+        long seq = sequence.getAndIncrement();
+        int index = index( seq );
+        Entry entry = new Entry( seq, notification );
+
+        while ( true )
+        {
+            Entry previous = slots.get( index );
+
+            if ( previous != null && previous.seq > seq )
+            {
+                return 0L; // Overtaken by a newer notification, drop
+            }
+
+            if ( slots.compareAndSet( index, previous, entry ) )
+            {
+                long delta = entry.size - (previous != null ? previous.size : 0L);
+
+                estimatedSize.addAndGet( delta );
+
+                return delta;
+            }
+        }
+    }
+
+    /**
+     * Returns the notifications of this ring, newest first, down to and
+     * excluding the notification with the given identifier. If the given
+     * identifier is the newest notification, that notification is returned
+     * so that the result is never empty for a ring with notifications.
+     *
+     * @param lastId the identifier of the last notification seen by the
+     *        caller, or null to return all notifications.
+     * @return a list of notifications.
+     */
+    List<Notification> getNotificationsSince( String lastId )
+    {
+        List<Notification> list = new ArrayList<>();
+
+        long newest = sequence.get() - 1;
+        long oldest = Math.max( 0L, newest - slots.length() + 1 );
+
+        for ( long seq = newest; seq >= oldest; seq-- )
+        {
+            Entry entry = slots.get( index( seq ) );
+
+            if ( entry == null || entry.seq < seq )
+            {
+                continue; // Not yet written
+            }
+
+            if ( entry.seq > seq )
+            {
+                break; // Overwritten, older notifications are gone as well
+            }
+
+            if ( lastId != null && lastId.equals( entry.notification.getUid() ) )
+            {
+                if ( list.isEmpty() )
+                {
+                    list.add( entry.notification );
+                }
+
+                break;
+            }
+
+            list.add( entry.notification );
+        }
+
+        return list;
+    }
+
+    /**
+     * Returns all notifications of this ring, newest first.
+     */
+    List<Notification> getNotifications()
+    {
+        return getNotificationsSince( null );
+    }
+
+    long getEstimatedSize()
+    {
+        return estimatedSize.get();
+    }
+
+    private int index( long seq )
+    {
+        return (int) (seq % slots.length());
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive classes
+    // -------------------------------------------------------------------------
+
+    private static final class Entry
+    {
+        private static final long OVERHEAD = 160L;
+
+        private final long seq;
+
+        private final Notification notification;
+
+        private final long size;
+
+        Entry( long seq, Notification notification )
+        {
+            this.seq = seq;
+            this.notification = notification;
+            this.size = OVERHEAD + 2L * (notification.getMessage() != null ? notification.getMessage().length() : 0);
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package org.hisp.dhis.system.startup;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.hibernate.CacheMode;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hisp.dhis.external.conf.ConfigurationKey;
+import org.hisp.dhis.external.conf.DhisConfigurationProvider;
+import org.hisp.dhis.system.startup.WarmupStatus.State;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Runs the configured {@link WarmupTask} beans, together with one task per
+ * Hibernate entity region listed in {@code system.cache_warmup.regions}, on
+ * a dedicated thread pool. Region tasks load the entities in a read-only
+ * transaction with {@link CacheMode#PUT}, which populates the second-level
+ * cache without reading from it.
+ */
+@Slf4j
+@Service( "org.hisp.dhis.system.startup.WarmupService" )
+public class DefaultWarmupService
+    implements WarmupService
+{
+    private static final int CLEAR_INTERVAL = 500;
+
+    private final DhisConfigurationProvider config;
+
+    private final SessionFactory sessionFactory;
+
+    private final TransactionTemplate readOnlyTemplate;
+
+    private List<WarmupTask> warmupTasks;
+
+    private final AtomicReference<State> state;
+
+    private final Map<String, Long> taskMillis = new ConcurrentHashMap<>();
+
+    private final Map<String, String> failedTasks = new ConcurrentHashMap<>();
+
+    private volatile Date started;
+
+    private volatile Date finished;
+
+    public DefaultWarmupService( DhisConfigurationProvider config, SessionFactory sessionFactory,
+        TransactionTemplate transactionTemplate )
+    {
+        checkNotNull( config );
+        checkNotNull( sessionFactory );
+        checkNotNull( transactionTemplate );
+
+        this.config = config;
+        this.sessionFactory = sessionFactory;
+        this.readOnlyTemplate = new TransactionTemplate( transactionTemplate.getTransactionManager() );
+        this.readOnlyTemplate.setReadOnly( true );
+        this.state = new AtomicReference<>(
+            config.isEnabled( ConfigurationKey.SYSTEM_CACHE_WARMUP ) ? State.PENDING : State.DISABLED );
+    }
+
+    @Autowired( required = false )
+    public void setWarmupTasks( List<WarmupTask> warmupTasks )
+    {
+        this.warmupTasks = warmupTasks;
+    }
+
+    // -------------------------------------------------------------------------
+    // WarmupService implementation
+    // -------------------------------------------------------------------------
+
+    @Override
+    public void startWarmup()
+    {
+        if ( !state.compareAndSet( State.PENDING, State.RUNNING ) )
+        {
+            return;
+        }
+
+        started = new Date();
+
+        List<WarmupTask> tasks = new ArrayList<>( getRegionTasks() );
+
+        if ( warmupTasks != null )
+        {
+            tasks.addAll( warmupTasks );
+        }
+
+        int threads = Math.max( 1, NumberUtils.toInt(
+            config.getProperty( ConfigurationKey.SYSTEM_CACHE_WARMUP_THREADS ), 4 ) );
+
+        log.info( String.format( "Starting warm-up with %d tasks on %d threads", tasks.size(), threads ) );
+
+        ExecutorService executor = Executors.newFixedThreadPool( threads,
+            new ThreadFactoryBuilder().setNameFormat( "cache-warmup-%d" ).setDaemon( true ).build() );
+
+        CompletableFuture<?>[] futures = tasks.stream()
+            .map( task -> CompletableFuture.runAsync( () -> execute( task ), executor ) )
+            .toArray( CompletableFuture[]::new );
+
+        CompletableFuture.allOf( futures ).whenComplete( ( result, ex ) -> {
+            finished = new Date();
+            state.set( State.READY );
+            executor.shutdown();
+
+            log.info( String.format( "Warm-up done in %d ms, failed tasks: %d",
+                finished.getTime() - started.getTime(), failedTasks.size() ) );
+        } );
+    }
+
+    @Override
+    public boolean isReady()
+    {
+        return getStatus().isReady();
+    }
+
+    @Override
+    public WarmupStatus getStatus()
+    {
+        return new WarmupStatus( state.get(), started, finished, taskMillis, failedTasks );
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private void execute( WarmupTask task )
+    {
+        long start = System.currentTimeMillis();
+
+        try
+        {
+            task.execute();
+
+            taskMillis.put( task.getName(), System.currentTimeMillis() - start );
+
+            log.debug( "Warm-up task done: " + task.getName() );
+        }
+        catch ( Exception ex )
+        {
+            failedTasks.put( task.getName(), String.valueOf( ex.getMessage() ) );
+
+            log.warn( "Warm-up task failed: " + task.getName(), ex );
+        }
+    }
+
+    private List<WarmupTask> getRegionTasks()
+    {
+        List<WarmupTask> tasks = new ArrayList<>();
+
+        String regions = config.getProperty( ConfigurationKey.SYSTEM_CACHE_WARMUP_REGIONS );
+
+        for ( String entityName : StringUtils.split( StringUtils.defaultString( regions ), ',' ) )
+        {
+            String name = entityName.trim();
+
+            if ( !name.isEmpty() )
+            {
+                tasks.add( new WarmupTask()
+                {
+                    @Override
+                    public String getName()
+                    {
+                        return "Region " + name;
+                    }
+
+                    @Override
+                    public void execute()
+                    {
+                        loadRegion( name );
+                    }
+                } );
+            }
+        }
+
+        return tasks;
+    }
+
+    /**
+     * Loads up to {@code system.cache_warmup.max_objects} entities of the
+     * given entity into the second-level cache. The session is cleared
+     * periodically so that loaded entities can be garbage collected.
+     */
+    private void loadRegion( String entityName )
+    {
+        EntityPersister persister = sessionFactory.getMetamodel().entityPersister( entityName );
+
+        if ( !persister.hasCache() )
+        {
+            log.info( "Skipping warm-up of entity without second-level cache: " + entityName );
+            return;
+        }
+
+        int maxObjects = NumberUtils.toInt(
+            config.getProperty( ConfigurationKey.SYSTEM_CACHE_WARMUP_MAX_OBJECTS ), 100000 );
+
+        readOnlyTemplate.execute( status -> {
+            Session session = sessionFactory.getCurrentSession();
+            session.setCacheMode( CacheMode.PUT );
+
+            ScrollableResults results = session.createQuery( "from " + persister.getEntityName() )
+                .setReadOnly( true )
+                .setFetchSize( CLEAR_INTERVAL )
+                .setMaxResults( maxObjects )
+                .scroll( ScrollMode.FORWARD_ONLY );
+
+            int count = 0;
+
+            try
+            {
+                while ( results.next() )
+                {
+                    if ( ++count % CLEAR_INTERVAL == 0 )
+                    {
+                        session.clear();
+                    }
+                }
+            }
+            finally
+            {
+                results.close();
+            }
+
+            log.info( String.format( "Warmed up %d objects of %s", count, entityName ) );
+
+            return null;
+        } );
+    }
+}
@@ -0,0 +1,122 @@
+package org.hisp.dhis.system.startup;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Snapshot of the warm-up progress of this node.
+ */
+public class WarmupStatus
+{
+    public enum State
+    {
+        DISABLED, PENDING, RUNNING, READY
+    }
+
+    private final State state;
+
+    private final Date started;
+
+    private final Date finished;
+
+    private final Map<String, Long> taskMillis;
+
+    private final Map<String, String> failedTasks;
+
+    public WarmupStatus( State state, Date started, Date finished, Map<String, Long> taskMillis,
+        Map<String, String> failedTasks )
+    {
+        this.state = state;
+        this.started = started;
+        this.finished = finished;
+        this.taskMillis = taskMillis != null ? new LinkedHashMap<>( taskMillis ) : null;
+        this.failedTasks = failedTasks != null ? new LinkedHashMap<>( failedTasks ) : null;
+    }
+
+    /**
+     * Returns a status with the state of this status only, without timings
+     * and task errors, for callers which are not authenticated.
+     */
+    public WarmupStatus withoutDetails()
+    {
+        return new WarmupStatus( state, null, null, null, null );
+    }
+
+    @JsonProperty
+    public boolean isReady()
+    {
+        return state == State.DISABLED || state == State.READY;
+    }
+
+    @JsonProperty
+    public State getState()
+    {
+        return state;
+    }
+
+    @JsonProperty
+    @JsonInclude( JsonInclude.Include.NON_NULL )
+    public Date getStarted()
+    {
+        return started;
+    }
+
+    @JsonProperty
+    @JsonInclude( JsonInclude.Include.NON_NULL )
+    public Date getFinished()
+    {
+        return finished;
+    }
+
+    /**
+     * Execution time in milliseconds of each completed task.
+     */
+    @JsonProperty
+    @JsonInclude( JsonInclude.Include.NON_NULL )
+    public Map<String, Long> getTaskMillis()
+    {
+        return taskMillis;
+    }
+
+    /**
+     * Error message of each failed task.
+     */
+    @JsonProperty
+    @JsonInclude( JsonInclude.Include.NON_NULL )
+    public Map<String, String> getFailedTasks()
+    {
+        return failedTasks;
+    }
+}
@@ -79,6 +79,31 @@ public class SqlUtils
         return alias + SEPARATOR + quote( relation );
     }
 
+    /**
+     * Single quotes the given value as a SQL string literal. Single quotes
+     * part of the given value are encoded (replaced by two single quotes).
+     *
+     * @param value the value.
+     * @return the single quoted value.
+     */
+    public static String singleQuote( String value )
+    {
+        return "'" + value.replace( "'", "''" ) + "'";
+    }
+
+    /**
+     * Escapes the wildcard characters of like patterns in the given value, so
+     * that the value is matched literally. Uses backslash, which is the
+     * default escape character.
+     *
+     * @param value the value.
+     * @return the escaped value.
+     */
+    public static String escapeLikeWildcards( String value )
+    {
+        return value.replace( "\\", "\\\\" ).replace( "%", "\\%" ).replace( "_", "\\_" );
+    }
+
     /**
      * Returns a string set for the given result set and column. Assumes
      * that the SQL type is an array of text values.
@@ -0,0 +1,224 @@
+package org.hisp.dhis.cache;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.hisp.dhis.cache.DefaultCacheStatisticsService.METRIC_CACHE_GETS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.hisp.dhis.external.conf.ConfigurationKey;
+import org.hisp.dhis.external.conf.DhisConfigurationProvider;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class DefaultCacheStatisticsServiceTest
+{
+    private DhisConfigurationProvider config;
+
+    private DefaultCacheStatisticsService service;
+
+    @Before
+    public void setUp()
+    {
+        config = mock( DhisConfigurationProvider.class );
+        when( config.isEnabled( ConfigurationKey.SYSTEM_CACHE_ADAPTIVE ) ).thenReturn( true );
+        when( config.getProperty( ConfigurationKey.SYSTEM_CACHE_ADAPTIVE_MEMORY_BUDGET ) ).thenReturn( "256" );
+        when( config.getProperty( ConfigurationKey.SYSTEM_CACHE_ADAPTIVE_MIN_FACTOR ) ).thenReturn( "0.25" );
+        when( config.getProperty( ConfigurationKey.SYSTEM_CACHE_ADAPTIVE_MAX_FACTOR ) ).thenReturn( "4" );
+
+        service = new DefaultCacheStatisticsService( config );
+    }
+
+    @Test
+    public void testStatistics()
+    {
+        InstrumentedCache<String> cache = newCache( "regionA", 10 );
+
+        cache.put( "a", "A" );
+        cache.getIfPresent( "a" );
+        cache.getIfPresent( "b" );
+        cache.get( "c", key -> "C" );
+        cache.invalidate( "a" );
+
+        List<CacheRegionStatistics> statistics = service.getStatistics( "regionA" );
+
+        assertEquals( 1, statistics.size() );
+        assertEquals( 1, statistics.get( 0 ).getHits() );
+        assertEquals( 2, statistics.get( 0 ).getMisses() );
+        assertEquals( 2, statistics.get( 0 ).getPuts() );
+        assertEquals( 1, statistics.get( 0 ).getInvalidations() );
+        assertEquals( 1, statistics.get( 0 ).getSize() );
+        assertEquals( 10, statistics.get( 0 ).getCapacity() );
+        assertTrue( service.getStatistics( "regionB" ).isEmpty() );
+
+        service.resetStatistics();
+
+        assertEquals( 0, service.getStatistics( "regionA" ).get( 0 ).getMisses() );
+    }
+
+    @Test
+    public void testMeters()
+    {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        service.bindTo( registry );
+
+        InstrumentedCache<String> cache = newCache( "regionA", 10 );
+        cache.getIfPresent( "a" );
+
+        assertEquals( 1.0, registry.get( METRIC_CACHE_GETS ).tags( "cache", "regionA", "result", "miss" )
+            .functionCounter().count(), 0.0 );
+    }
+
+    @Test
+    public void testGrowFullRegionWithMisses()
+    {
+        InstrumentedCache<String> cache = newCache( "regionA", 10 );
+
+        service.resizeRegions();
+
+        for ( int i = 0; i < 200; i++ )
+        {
+            cache.get( String.valueOf( i % 20 ), key -> key );
+        }
+
+        service.resizeRegions();
+
+        assertEquals( 15, service.getStatistics( "regionA" ).get( 0 ).getCapacity() );
+        assertEquals( 1, service.getStatistics( "regionA" ).get( 0 ).getResizes() );
+        assertEquals( 10, cache.getAll().size() );
+    }
+
+    @Test
+    public void testNoResizeDuringWarmup()
+    {
+        InstrumentedCache<String> cache = newCache( "regionA", 10 );
+
+        for ( int i = 0; i < 200; i++ )
+        {
+            cache.get( String.valueOf( i % 20 ), key -> key );
+        }
+
+        service.resizeRegions();
+
+        assertEquals( 10, service.getStatistics( "regionA" ).get( 0 ).getCapacity() );
+    }
+
+    @Test
+    public void testNoShrinkAfterGrow()
+    {
+        InstrumentedCache<String> cache = newCache( "regionA", 10 );
+
+        service.resizeRegions();
+
+        for ( int i = 0; i < 200; i++ )
+        {
+            cache.get( String.valueOf( i % 20 ), key -> key );
+        }
+
+        service.resizeRegions();
+
+        assertEquals( 15, service.getStatistics( "regionA" ).get( 0 ).getCapacity() );
+
+        cache.invalidateAll();
+
+        for ( int i = 0; i < DefaultCacheStatisticsService.SHRINK_HOLD_RUNS; i++ )
+        {
+            service.resizeRegions();
+
+            assertEquals( 15, service.getStatistics( "regionA" ).get( 0 ).getCapacity() );
+        }
+
+        service.resizeRegions();
+
+        assertEquals( 2, service.getStatistics( "regionA" ).get( 0 ).getCapacity() );
+    }
+
+    @Test
+    public void testClosedRegionIsRemoved()
+    {
+        InstrumentedCache<String> cache = newCache( "regionA", 10 );
+        newCache( "regionB", 10 );
+
+        ((LocalCache<String>) cache.getDelegate()).close();
+
+        service.resizeRegions();
+
+        assertTrue( service.getStatistics( "regionA" ).isEmpty() );
+        assertEquals( 1, service.getStatistics().size() );
+    }
+
+    @Test
+    public void testShrinkUnderusedRegion()
+    {
+        InstrumentedCache<String> cache = newCache( "regionA", 100 );
+
+        service.resizeRegions();
+
+        for ( int i = 0; i < 10; i++ )
+        {
+            cache.put( String.valueOf( i ), "value" );
+        }
+
+        service.resizeRegions();
+
+        assertEquals( 25, service.getStatistics( "regionA" ).get( 0 ).getCapacity() );
+        assertEquals( Optional.of( "value" ), cache.getIfPresent( "1" ) );
+    }
+
+    @Test
+    public void testNoResizeWhenDisabled()
+    {
+        when( config.isEnabled( ConfigurationKey.SYSTEM_CACHE_ADAPTIVE ) ).thenReturn( false );
+
+        newCache( "regionA", 100 );
+
+        service.resizeRegions();
+
+        assertEquals( 100, service.getStatistics( "regionA" ).get( 0 ).getCapacity() );
+    }
+
+    private InstrumentedCache<String> newCache( String region, long maximumSize )
+    {
+        CacheBuilder<String> builder = new SimpleCacheBuilder<String>()
+            .forRegion( region )
+            .withMaximumSize( maximumSize );
+
+        InstrumentedCache<String> cache = new InstrumentedCache<>( new LocalCache<>( builder ), builder );
+        service.register( cache );
+        return cache;
+    }
+}
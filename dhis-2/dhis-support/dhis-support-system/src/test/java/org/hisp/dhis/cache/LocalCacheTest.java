@@ -0,0 +1,163 @@
+package org.hisp.dhis.cache;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class LocalCacheTest
+{
+    private static final int ENTRIES = 2_000;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool( 2 );
+
+    @After
+    public void tearDown()
+    {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testResizeCarriesOverEntries()
+    {
+        LocalCache<String> cache = newCache( 10 );
+
+        cache.put( "a", "A" );
+        cache.put( "b", "B" );
+        cache.resize( 20 );
+
+        assertEquals( 20, cache.getCapacity() );
+        assertEquals( "A", cache.getIfPresent( "a" ).get() );
+        assertEquals( "B", cache.getIfPresent( "b" ).get() );
+    }
+
+    @Test
+    public void testResizeCarriesOverEntriesWithExpiry()
+    {
+        LocalCache<String> cache = new LocalCache<>( new SimpleCacheBuilder<String>()
+            .forRegion( "regionA" )
+            .expireAfterWrite( 1, TimeUnit.HOURS )
+            .withMaximumSize( 10 ) );
+
+        cache.put( "a", "A" );
+        cache.resize( 20 );
+
+        assertEquals( "A", cache.getIfPresent( "a" ).get() );
+    }
+
+    @Test
+    public void testClose()
+    {
+        LocalCache<String> cache = newCache( 10 );
+
+        cache.put( "a", "A" );
+        cache.resize( 20 );
+
+        assertFalse( cache.isClosed() );
+
+        cache.close();
+
+        assertTrue( cache.isClosed() );
+    }
+
+    @Test
+    public void testInvalidationsDuringResizeAreNotLost()
+        throws Exception
+    {
+        LocalCache<String> cache = newCache( ENTRIES );
+
+        for ( int i = 0; i < ENTRIES; i++ )
+        {
+            cache.put( String.valueOf( i ), "value" );
+        }
+
+        Future<?> resizing = executor.submit( () -> {
+            for ( int i = 0; i < 200; i++ )
+            {
+                cache.resize( i % 2 == 0 ? ENTRIES * 2 : ENTRIES );
+            }
+        } );
+
+        Future<?> invalidating = executor.submit( () -> {
+            for ( int i = 0; i < ENTRIES; i++ )
+            {
+                cache.invalidate( String.valueOf( i ) );
+            }
+        } );
+
+        resizing.get( 30, TimeUnit.SECONDS );
+        invalidating.get( 30, TimeUnit.SECONDS );
+
+        for ( int i = 0; i < ENTRIES; i++ )
+        {
+            assertFalse( cache.getIfPresent( String.valueOf( i ) ).isPresent() );
+        }
+    }
+
+    @Test
+    public void testInvalidateAllDuringResizeIsNotLost()
+        throws Exception
+    {
+        LocalCache<String> cache = newCache( ENTRIES );
+
+        for ( int round = 0; round < 50; round++ )
+        {
+            for ( int i = 0; i < ENTRIES; i++ )
+            {
+                cache.put( String.valueOf( i ), "value" );
+            }
+
+            long capacity = round % 2 == 0 ? ENTRIES * 2 : ENTRIES;
+
+            Future<?> resizing = executor.submit( () -> cache.resize( capacity ) );
+            Future<?> invalidating = executor.submit( cache::invalidateAll );
+
+            resizing.get( 30, TimeUnit.SECONDS );
+            invalidating.get( 30, TimeUnit.SECONDS );
+
+            assertTrue( cache.getAll().isEmpty() );
+        }
+    }
+
+    private LocalCache<String> newCache( long maximumSize )
+    {
+        return new LocalCache<>( new SimpleCacheBuilder<String>()
+            .forRegion( "regionA" )
+            .withMaximumSize( maximumSize ) );
+    }
+}
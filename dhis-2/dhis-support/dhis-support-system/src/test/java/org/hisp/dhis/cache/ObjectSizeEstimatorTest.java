@@ -0,0 +1,91 @@
+package org.hisp.dhis.cache;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+
+import org.hisp.dhis.common.Grid;
+import org.hisp.dhis.common.GridHeader;
+import org.hisp.dhis.system.grid.ListGrid;
+import org.junit.Test;
+
+public class ObjectSizeEstimatorTest
+{
+    @Test
+    public void testEstimateString()
+    {
+        assertTrue( ObjectSizeEstimator.estimate( "abcdefghij" ) > ObjectSizeEstimator.estimate( "abc" ) );
+        assertEquals( 0, ObjectSizeEstimator.estimate( null ) );
+    }
+
+    @Test
+    public void testEstimateCollectionGrowsWithSize()
+    {
+        long small = ObjectSizeEstimator.estimate( Collections.nCopies( 10, "value" ) );
+        long large = ObjectSizeEstimator.estimate( Collections.nCopies( 1000, "value" ) );
+
+        assertTrue( large > 50 * small );
+    }
+
+    @Test
+    public void testEstimateGridGrowsWithRowsAndColumns()
+    {
+        long small = ObjectSizeEstimator.estimate( newGrid( 10, 5 ) );
+        long moreRows = ObjectSizeEstimator.estimate( newGrid( 1000, 5 ) );
+        long moreColumns = ObjectSizeEstimator.estimate( newGrid( 1000, 50 ) );
+
+        assertTrue( moreRows > 50 * small );
+        assertTrue( moreColumns > 5 * moreRows );
+    }
+
+    private Grid newGrid( int rows, int columns )
+    {
+        Grid grid = new ListGrid();
+
+        for ( int column = 0; column < columns; column++ )
+        {
+            grid.addHeader( new GridHeader( "column" + column ) );
+        }
+
+        for ( int row = 0; row < rows; row++ )
+        {
+            grid.addRow();
+
+            for ( int column = 0; column < columns; column++ )
+            {
+                grid.addValue( "value" + row + column );
+            }
+        }
+
+        return grid;
+    }
+}
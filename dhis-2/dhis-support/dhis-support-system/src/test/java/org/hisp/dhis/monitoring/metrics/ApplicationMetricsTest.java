@@ -0,0 +1,74 @@
+package org.hisp.dhis.monitoring.metrics;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.hisp.dhis.monitoring.metrics.ApplicationMetrics.METRIC_STAGE_DURATION;
+import static org.hisp.dhis.monitoring.metrics.ApplicationMetrics.METRIC_STAGE_ITEMS;
+import static org.hisp.dhis.monitoring.metrics.ApplicationMetrics.SUBSYSTEM_ANALYTICS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class ApplicationMetricsTest
+{
+    private final ApplicationMetrics metrics = new ApplicationMetrics();
+
+    @Test
+    public void testNoOpWithoutRegistry()
+    {
+        assertFalse( metrics.isEnabled() );
+        assertEquals( "result", metrics.time( SUBSYSTEM_ANALYTICS, "query_planning", () -> "result" ) );
+
+        metrics.count( SUBSYSTEM_ANALYTICS, "partition_query", 10 );
+    }
+
+    @Test
+    public void testRecordStagesAndCounts()
+    {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        metrics.bindTo( registry );
+
+        assertTrue( metrics.isEnabled() );
+
+        metrics.time( SUBSYSTEM_ANALYTICS, "query_planning", () -> {
+        } );
+        metrics.stop( metrics.start(), SUBSYSTEM_ANALYTICS, "partition_query", "partition", "2020" );
+        metrics.count( SUBSYSTEM_ANALYTICS, "partition_query", 10 );
+        metrics.count( SUBSYSTEM_ANALYTICS, "partition_query", 5 );
+
+        assertEquals( 1, registry.get( METRIC_STAGE_DURATION ).tag( "stage", "query_planning" ).timer().count() );
+        assertEquals( 1, registry.get( METRIC_STAGE_DURATION ).tag( "partition", "2020" ).timer().count() );
+        assertEquals( 15.0, registry.get( METRIC_STAGE_ITEMS ).tag( "stage", "partition_query" ).counter().count(), 0.0 );
+    }
+}
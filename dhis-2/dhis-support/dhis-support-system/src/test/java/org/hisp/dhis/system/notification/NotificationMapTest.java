@@ -0,0 +1,159 @@
+package org.hisp.dhis.system.notification;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.hisp.dhis.scheduling.JobType.DATAVALUE_IMPORT;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.StringUtils;
+import org.hisp.dhis.scheduling.JobConfiguration;
+import org.junit.Test;
+
+public class NotificationMapTest
+{
+    private final NotificationMap notificationMap = new NotificationMap();
+
+    @Test
+    public void testRingKeepsNewestNotifications()
+    {
+        JobConfiguration job = createJob( "dvi1" );
+
+        int count = NotificationMap.MAX_NOTIFICATIONS_PER_JOB + 20;
+
+        for ( int i = 0; i < count; i++ )
+        {
+            notificationMap.add( job, createNotification( "Message " + i ) );
+        }
+
+        List<Notification> notifications = notificationMap.getNotificationsByJobId( DATAVALUE_IMPORT, "dvi1" );
+
+        assertEquals( NotificationMap.MAX_NOTIFICATIONS_PER_JOB, notifications.size() );
+        assertEquals( "Message " + (count - 1), notifications.get( 0 ).getMessage() );
+        assertEquals( "Message 20", notifications.get( notifications.size() - 1 ).getMessage() );
+    }
+
+    @Test
+    public void testGetNotificationsSinceLastId()
+    {
+        JobConfiguration job = createJob( "dvi1" );
+
+        Notification first = createNotification( "Started" );
+        Notification second = createNotification( "Working" );
+        Notification third = createNotification( "Done" );
+
+        notificationMap.add( job, first );
+        notificationMap.add( job, second );
+
+        List<Notification> notifications = notificationMap.getLastNotificationsByJobType( DATAVALUE_IMPORT, second.getUid() );
+
+        assertEquals( 1, notifications.size() );
+        assertEquals( second.getUid(), notifications.get( 0 ).getUid() );
+
+        notificationMap.add( job, third );
+
+        notifications = notificationMap.getLastNotificationsByJobType( DATAVALUE_IMPORT, first.getUid() );
+
+        assertEquals( 2, notifications.size() );
+        assertEquals( third.getUid(), notifications.get( 0 ).getUid() );
+        assertEquals( second.getUid(), notifications.get( 1 ).getUid() );
+    }
+
+    @Test
+    public void testEvictOldestJobsWhenSizeExceeded()
+    {
+        String message = StringUtils.repeat( 'x', 10000 );
+
+        for ( int job = 0; job < 10; job++ )
+        {
+            for ( int i = 0; i < 100; i++ )
+            {
+                notificationMap.add( createJob( "dvi" + job ), createNotification( message ) );
+            }
+        }
+
+        assertTrue( notificationMap.getNotificationsWithType( DATAVALUE_IMPORT ).size() < 10 );
+        assertTrue( notificationMap.getNotificationsWithType( DATAVALUE_IMPORT ).containsKey( "dvi9" ) );
+        assertFalse( notificationMap.getNotificationsWithType( DATAVALUE_IMPORT ).containsKey( "dvi0" ) );
+    }
+
+    @Test
+    public void testConcurrentNotifyAndPoll()
+        throws Exception
+    {
+        ExecutorService executor = Executors.newFixedThreadPool( 4 );
+
+        try
+        {
+            Future<?> writer = executor.submit( () -> {
+                for ( int i = 0; i < 10000; i++ )
+                {
+                    notificationMap.add( createJob( "dvi" + (i % 150) ), createNotification( "Message " + i ) );
+                }
+            } );
+
+            Future<?> reader = executor.submit( () -> {
+                while ( !writer.isDone() )
+                {
+                    notificationMap.getNotifications();
+                    notificationMap.getLastNotificationsByJobType( DATAVALUE_IMPORT, null );
+                }
+            } );
+
+            writer.get( 60, TimeUnit.SECONDS );
+            reader.get( 60, TimeUnit.SECONDS );
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+
+        assertEquals( NotificationMap.MAX_POOL_TYPE_SIZE, notificationMap.getNotificationsWithType( DATAVALUE_IMPORT ).size() );
+    }
+
+    private JobConfiguration createJob( String uid )
+    {
+        JobConfiguration job = new JobConfiguration( null, DATAVALUE_IMPORT, null, false );
+        job.setUid( uid );
+        return job;
+    }
+
+    private Notification createNotification( String message )
+    {
+        return new Notification( NotificationLevel.INFO, DATAVALUE_IMPORT, new Date(), message, false );
+    }
+}
@@ -225,6 +225,7 @@ public class NotifierTest extends DhisSpringTest
                 .size() );
 
         notifier.notify( metadataImportJobConfig, IMPORT_FINISHED_MESSAGE );
+        notificationsMap = notifier.getNotifications();
         String importFinishedNotificationUid = getNotificationUid(
             notificationsMap.get( metadataImportJobConfig.getJobType() ),
             metadataImportJobConfig.getUid(), IMPORT_FINISHED_MESSAGE );
@@ -0,0 +1,147 @@
+package org.hisp.dhis.system.startup;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.hibernate.SessionFactory;
+import org.hisp.dhis.external.conf.ConfigurationKey;
+import org.hisp.dhis.external.conf.DhisConfigurationProvider;
+import org.hisp.dhis.system.startup.WarmupStatus.State;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+public class DefaultWarmupServiceTest
+{
+    private DhisConfigurationProvider config;
+
+    private final CountDownLatch release = new CountDownLatch( 1 );
+
+    @Before
+    public void setUp()
+    {
+        config = mock( DhisConfigurationProvider.class );
+        when( config.getProperty( ConfigurationKey.SYSTEM_CACHE_WARMUP_REGIONS ) ).thenReturn( "" );
+        when( config.getProperty( ConfigurationKey.SYSTEM_CACHE_WARMUP_THREADS ) ).thenReturn( "2" );
+    }
+
+    @Test
+    public void testDisabledIsReady()
+    {
+        when( config.isEnabled( ConfigurationKey.SYSTEM_CACHE_WARMUP ) ).thenReturn( false );
+
+        WarmupService service = createService();
+        service.startWarmup();
+
+        assertTrue( service.isReady() );
+        assertEquals( State.DISABLED, service.getStatus().getState() );
+    }
+
+    @Test
+    public void testReadyAfterTasksComplete()
+        throws Exception
+    {
+        when( config.isEnabled( ConfigurationKey.SYSTEM_CACHE_WARMUP ) ).thenReturn( true );
+
+        DefaultWarmupService service = createService();
+        service.setWarmupTasks( Arrays.asList( task( "A", false ), task( "B", true ) ) );
+
+        assertFalse( service.isReady() );
+        assertEquals( State.PENDING, service.getStatus().getState() );
+
+        service.startWarmup();
+
+        assertFalse( service.isReady() );
+        assertEquals( State.RUNNING, service.getStatus().getState() );
+
+        release.countDown();
+
+        for ( int i = 0; i < 100 && !service.isReady(); i++ )
+        {
+            TimeUnit.MILLISECONDS.sleep( 50 );
+        }
+
+        WarmupStatus status = service.getStatus();
+
+        assertTrue( status.isReady() );
+        assertTrue( status.getTaskMillis().containsKey( "A" ) );
+        assertTrue( status.getFailedTasks().containsKey( "B" ) );
+        assertEquals( "Failed", status.getFailedTasks().get( "B" ) );
+
+        WarmupStatus summary = status.withoutDetails();
+
+        assertTrue( summary.isReady() );
+        assertEquals( State.READY, summary.getState() );
+        assertNull( summary.getStarted() );
+        assertNull( summary.getFinished() );
+        assertNull( summary.getTaskMillis() );
+        assertNull( summary.getFailedTasks() );
+    }
+
+    private DefaultWarmupService createService()
+    {
+        return new DefaultWarmupService( config, mock( SessionFactory.class ),
+            new TransactionTemplate( mock( PlatformTransactionManager.class ) ) );
+    }
+
+    private WarmupTask task( String name, boolean fail )
+    {
+        return new WarmupTask()
+        {
+            @Override
+            public String getName()
+            {
+                return name;
+            }
+
+            @Override
+            public void execute()
+                throws Exception
+            {
+                release.await( 5, TimeUnit.SECONDS );
+
+                if ( fail )
+                {
+                    throw new IllegalStateException( "Failed" );
+                }
+            }
+        };
+    }
+}
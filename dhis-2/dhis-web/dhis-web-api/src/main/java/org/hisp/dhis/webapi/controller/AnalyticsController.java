@@ -33,6 +33,9 @@ import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
 import static org.springframework.http.MediaType.TEXT_HTML_VALUE;
 import static org.springframework.http.MediaType.TEXT_PLAIN_VALUE;
 
+import java.util.function.Function;
+import java.util.function.Supplier;
+
 import javax.servlet.http.HttpServletResponse;
 
 import lombok.AllArgsConstructor;
@@ -50,6 +53,7 @@ import org.hisp.dhis.common.cache.CacheStrategy;
 import org.hisp.dhis.dxf2.datavalueset.DataValueSet;
 import org.hisp.dhis.system.grid.GridUtils;
 import org.hisp.dhis.webapi.mvc.annotation.ApiVersion;
+import org.hisp.dhis.webapi.service.AsyncAnalyticsExecutor;
 import org.hisp.dhis.webapi.utils.ContextUtils;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -73,17 +77,38 @@ public class AnalyticsController
 
     @NonNull private final ContextUtils contextUtils;
 
+    @NonNull private final AsyncAnalyticsExecutor analyticsExecutor;
+
     // -------------------------------------------------------------------------
     // Resources
     // -------------------------------------------------------------------------
 
     @GetMapping( value = RESOURCE_PATH, produces = { APPLICATION_JSON_VALUE, "application/javascript" } )
-    public @ResponseBody Grid getJson( // JSON, JSONP
+    public @ResponseBody Object getJson( // JSON, JSONP
         AggregateAnalyticsQueryCriteria criteria,
         DhisApiVersion apiVersion,
         HttpServletResponse response )
     {
-        return getGrid( criteria, apiVersion, ContextUtils.CONTENT_TYPE_JSON, response );
+        DataQueryRequest request = mapFromCriteria( criteria, apiVersion );
+
+        Supplier<DataQueryParams> params = () -> {
+            DataQueryParams queryParams = dataQueryService.getFromRequest( request );
+
+            contextUtils.configureAnalyticsResponse( response, ContextUtils.CONTENT_TYPE_JSON,
+                CacheStrategy.RESPECT_SYSTEM_SETTING, null, false, queryParams.getLatestEndDate() );
+
+            return queryParams;
+        };
+
+        Function<DataQueryParams, Grid> query = p -> analyticsService.getAggregatedDataValues( p,
+            getItemsFromParam( criteria.getColumns() ), getItemsFromParam( criteria.getRows() ) );
+
+        if ( analyticsExecutor.isAsync() )
+        {
+            return analyticsExecutor.executeAsync( params, query );
+        }
+
+        return analyticsExecutor.execute( params.get(), query );
     }
 
     @GetMapping( value = RESOURCE_PATH + ".xml" )
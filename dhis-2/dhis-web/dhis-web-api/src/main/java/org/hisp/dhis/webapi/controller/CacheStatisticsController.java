@@ -0,0 +1,98 @@
+package org.hisp.dhis.webapi.controller;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.List;
+
+import org.hisp.dhis.cache.CacheRegionStatistics;
+import org.hisp.dhis.cache.CacheStatisticsService;
+import org.hisp.dhis.common.DhisApiVersion;
+import org.hisp.dhis.webapi.controller.exception.NotFoundException;
+import org.hisp.dhis.webapi.mvc.annotation.ApiVersion;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Exposes hit, miss and size statistics of the cache regions created through
+ * the cache provider.
+ */
+@RestController
+@RequestMapping( value = CacheStatisticsController.RESOURCE_PATH )
+@ApiVersion( { DhisApiVersion.DEFAULT, DhisApiVersion.ALL } )
+public class CacheStatisticsController
+{
+    public static final String RESOURCE_PATH = "/cacheStatistics";
+
+    private final CacheStatisticsService cacheStatisticsService;
+
+    public CacheStatisticsController( CacheStatisticsService cacheStatisticsService )
+    {
+        checkNotNull( cacheStatisticsService );
+
+        this.cacheStatisticsService = cacheStatisticsService;
+    }
+
+    @GetMapping
+    @PreAuthorize( "hasRole('ALL')" )
+    public List<CacheRegionStatistics> getStatistics()
+    {
+        return cacheStatisticsService.getStatistics();
+    }
+
+    @GetMapping( "/{region}" )
+    @PreAuthorize( "hasRole('ALL')" )
+    public List<CacheRegionStatistics> getStatistics( @PathVariable String region )
+        throws NotFoundException
+    {
+        List<CacheRegionStatistics> statistics = cacheStatisticsService.getStatistics( region );
+
+        if ( statistics.isEmpty() )
+        {
+            throw new NotFoundException( "Cache region", region );
+        }
+
+        return statistics;
+    }
+
+    @DeleteMapping
+    @PreAuthorize( "hasRole('ALL')" )
+    @ResponseStatus( HttpStatus.NO_CONTENT )
+    public void resetStatistics()
+    {
+        cacheStatisticsService.resetStatistics();
+    }
+}
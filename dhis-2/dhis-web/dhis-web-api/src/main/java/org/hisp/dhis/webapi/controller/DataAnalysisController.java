@@ -41,6 +41,7 @@ import org.hisp.dhis.dataanalysis.DataAnalysisService;
 import org.hisp.dhis.dataanalysis.FollowupAnalysisService;
 import org.hisp.dhis.dataanalysis.FollowupParams;
 import org.hisp.dhis.dataanalysis.MinMaxOutlierAnalysisService;
+import org.hisp.dhis.dataanalysis.OutlierDetectionAlgorithm;
 import org.hisp.dhis.dataanalysis.StdDevOutlierAnalysisService;
 import org.hisp.dhis.dataanalysis.UpdateFollowUpForDataValuesRequest;
 import org.hisp.dhis.dataanalysis.ValidationRuleExpressionDetails;
@@ -64,6 +65,7 @@ import org.hisp.dhis.period.Period;
 import org.hisp.dhis.period.PeriodService;
 import org.hisp.dhis.system.grid.GridUtils;
 import org.hisp.dhis.system.grid.ListGrid;
+import org.hisp.dhis.util.ObjectUtils;
 import org.hisp.dhis.validation.ValidationAnalysisParams;
 import org.hisp.dhis.validation.ValidationResult;
 import org.hisp.dhis.validation.ValidationRule;
@@ -292,7 +294,8 @@ public class DataAnalysisController
 
         List<DeflatedDataValue> dataValues = new ArrayList<>( stdDevOutlierAnalysisService
             .analyse( Sets.newHashSet( organisationUnit ), dataElements, periods,
-                stdDevOutlierAnalysisParams.getStandardDeviation(), from ) );
+                stdDevOutlierAnalysisParams.getStandardDeviation(), from,
+                ObjectUtils.firstNonNull( stdDevOutlierAnalysisParams.getAlgorithm(), OutlierDetectionAlgorithm.Z_SCORE ) ) );
 
         session.setAttribute( KEY_ANALYSIS_DATA_VALUES, dataValues );
         session.setAttribute( KEY_ORG_UNIT, organisationUnit );
@@ -33,9 +33,9 @@ import org.hisp.dhis.dxf2.webmessage.WebMessageUtils;
 import org.hisp.dhis.fileresource.ExternalFileResource;
 import org.hisp.dhis.fileresource.ExternalFileResourceService;
 import org.hisp.dhis.fileresource.FileResource;
-import org.hisp.dhis.fileresource.FileResourceService;
 import org.hisp.dhis.schema.descriptors.ExternalFileResourceSchemaDescriptor;
 import org.hisp.dhis.webapi.mvc.annotation.ApiVersion;
+import org.hisp.dhis.webapi.utils.FileResourceUtils;
 import org.hisp.dhis.common.DhisApiVersion;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpHeaders;
@@ -45,8 +45,8 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import java.io.IOException;
 import java.util.Date;
 
 import static org.hisp.dhis.webapi.utils.ContextUtils.setNoStore;
@@ -63,7 +63,7 @@ public class ExternalFileResourceController
     private ExternalFileResourceService externalFileResourceService;
 
     @Autowired
-    private FileResourceService fileResourceService;
+    private FileResourceUtils fileResourceUtils;
 
     /**
      * Returns a file associated with the externalFileResource resolved from the accessToken.
@@ -77,7 +77,7 @@ public class ExternalFileResourceController
      */
     @RequestMapping( value = "/{accessToken}", method = RequestMethod.GET )
     public void getExternalFileResource( @PathVariable String accessToken,
-        HttpServletResponse response )
+        HttpServletRequest request, HttpServletResponse response )
         throws WebMessageException
     {
         ExternalFileResource externalFileResource = externalFileResourceService
@@ -97,18 +97,9 @@ public class ExternalFileResourceController
         FileResource fileResource = externalFileResource.getFileResource();
 
         response.setContentType( fileResource.getContentType() );
-        response.setContentLength( new Long( fileResource.getContentLength() ).intValue() );
         response.setHeader( HttpHeaders.CONTENT_DISPOSITION, "filename=" + fileResource.getName() );
         setNoStore( response );
 
-        try
-        {
-            fileResourceService.copyFileResourceContent( fileResource, response.getOutputStream() );
-        }
-        catch ( IOException e )
-        {
-            throw new WebMessageException( WebMessageUtils.error( "Failed fetching the file from storage",
-                "There was an exception when trying to fetch the file from the storage backend, could be network or filesystem related" ) );
-        }
+        fileResourceUtils.writeFileResourceContent( fileResource, request, response );
     }
 }
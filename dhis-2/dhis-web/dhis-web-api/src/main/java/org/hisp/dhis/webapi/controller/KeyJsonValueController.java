@@ -35,6 +35,7 @@ import org.hisp.dhis.common.DhisApiVersion;
 import org.hisp.dhis.dxf2.webmessage.WebMessageException;
 import org.hisp.dhis.dxf2.webmessage.WebMessageUtils;
 import org.hisp.dhis.keyjsonvalue.KeyJsonValue;
+import org.hisp.dhis.keyjsonvalue.KeyJsonValueQuery;
 import org.hisp.dhis.keyjsonvalue.KeyJsonValueService;
 import org.hisp.dhis.render.RenderService;
 import org.hisp.dhis.security.acl.AclService;
@@ -42,6 +43,7 @@ import org.hisp.dhis.user.CurrentUserService;
 import org.hisp.dhis.user.User;
 import org.hisp.dhis.webapi.mvc.annotation.ApiVersion;
 import org.hisp.dhis.webapi.service.WebMessageService;
+import org.hisp.dhis.webapi.utils.ContextUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -51,9 +53,15 @@ import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -118,6 +126,97 @@ public class KeyJsonValueController
         return keyJsonValueService.getKeysInNamespace( namespace, lastUpdated, currentUserIsAdmin() );
     }
 
+    /**
+     * Returns the entries of the given namespace matching the given filters,
+     * with the given fields of their values. Filters are on the form
+     * {@code path:operator:value} and must all match. Fields, filter paths and
+     * the order path are dot separated paths into the values. The order is on
+     * the form {@code path:asc} or {@code path:desc}. A field of {@code .}
+     * returns the whole value. Entries are written to the response as they are
+     * read from the database.
+     */
+    @RequestMapping( value = "/{namespace}", method = RequestMethod.GET, params = "fields", produces = "application/json" )
+    public void getKeyJsonValues( @PathVariable String namespace, @RequestParam List<String> fields,
+        @RequestParam( required = false ) String order, @RequestParam( defaultValue = "true" ) boolean paging,
+        @RequestParam( defaultValue = "1" ) int page, @RequestParam( defaultValue = "50" ) int pageSize,
+        HttpServletRequest request, HttpServletResponse response )
+        throws IOException, WebMessageException
+    {
+        validateAccess( namespace );
+
+        getNameS( namespace );
+
+        // Filter values are read from the request to avoid splitting of comma separated values
+
+        String[] filters = request.getParameterValues( "filter" );
+
+        KeyJsonValueQuery query = getQuery( namespace, fields, filters, order, paging, page, pageSize );
+
+        setNoStore( response );
+        response.setContentType( ContextUtils.CONTENT_TYPE_JSON );
+
+        // Content is not completed on close, so that a failure while
+        // streaming does not produce a truncated but valid response
+
+        try ( JsonGenerator generator = new JsonFactory()
+            .disable( JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT )
+            .createGenerator( response.getOutputStream() ) )
+        {
+            generator.writeStartObject();
+
+            if ( query.isPaging() )
+            {
+                generator.writeObjectFieldStart( "pager" );
+                generator.writeNumberField( "page", Math.max( 1, query.getPage() ) );
+                generator.writeNumberField( "pageSize", query.getLimit() );
+                generator.writeEndObject();
+            }
+
+            generator.writeArrayFieldStart( "entries" );
+
+            keyJsonValueService.getKeyJsonValues( query, currentUserIsAdmin(), ( key, value ) -> {
+                try
+                {
+                    generator.writeStartObject();
+                    generator.writeStringField( "key", key );
+                    generator.writeFieldName( "value" );
+                    generator.writeRawValue( value );
+                    generator.writeEndObject();
+                }
+                catch ( IOException ex )
+                {
+                    throw new UncheckedIOException( ex );
+                }
+            } );
+
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+    }
+
+    /**
+     * Creates an index on the given path into the values of the given
+     * namespace, to speed up queries filtering or ordering on the path.
+     * Requires the current user to be admin.
+     */
+    @RequestMapping( value = "/{namespace}", method = RequestMethod.POST, params = "index" )
+    public void createIndex( @PathVariable String namespace, @RequestParam( "index" ) String path,
+        HttpServletResponse response )
+        throws WebMessageException
+    {
+        if ( !currentUserIsAdmin() )
+        {
+            throw new WebMessageException( WebMessageUtils.forbidden( "Only admins can create datastore indexes." ) );
+        }
+
+        getNameS( namespace );
+
+        keyJsonValueService.createIndex( namespace, path );
+
+        messageService.sendJson( WebMessageUtils.ok( "Index on '" + path + "' in namespace '" + namespace +
+            "' created." ), response );
+    }
+
     /**
      * Deletes all keys with the given namespace.
      */
@@ -305,6 +404,51 @@ public class KeyJsonValueController
         return keyJsonValue;
     }
 
+    private KeyJsonValueQuery getQuery( String namespace, List<String> fields, String[] filters,
+        String order, boolean paging, int page, int pageSize )
+    {
+        List<String> paths = new ArrayList<>();
+
+        for ( String field : fields )
+        {
+            Arrays.stream( field.split( "," ) )
+                .map( String::trim )
+                .filter( path -> !path.isEmpty() && !".".equals( path ) )
+                .forEach( paths::add );
+        }
+
+        List<KeyJsonValueQuery.Filter> queryFilters = new ArrayList<>();
+
+        if ( filters != null )
+        {
+            Arrays.stream( filters ).forEach( filter -> queryFilters.add( KeyJsonValueQuery.Filter.parse( filter ) ) );
+        }
+
+        String orderPath = null;
+        boolean orderDescending = false;
+
+        if ( order != null )
+        {
+            String[] orderParts = order.split( ":" );
+            orderPath = orderParts[0];
+            orderDescending = orderParts.length > 1 && "desc".equalsIgnoreCase( orderParts[1] );
+            KeyJsonValueQuery.getPathElements( orderPath );
+        }
+
+        paths.forEach( KeyJsonValueQuery::getPathElements );
+
+        return KeyJsonValueQuery.builder()
+            .namespace( namespace )
+            .fields( paths )
+            .filters( queryFilters )
+            .order( orderPath )
+            .orderDescending( orderDescending )
+            .paging( paging )
+            .page( page )
+            .pageSize( pageSize )
+            .build();
+    }
+
     /**
      * Validates access and throws an exception if the current user does not have proper access
      *
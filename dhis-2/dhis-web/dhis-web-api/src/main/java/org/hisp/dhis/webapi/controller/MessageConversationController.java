@@ -894,7 +894,7 @@ public class MessageConversationController
         @PathVariable( value = "mcUid" ) String mcUid,
         @PathVariable( value = "msgUid" ) String msgUid,
         @PathVariable( value = "fileUid" ) String fileUid,
-        HttpServletResponse response )
+        HttpServletRequest request, HttpServletResponse response )
         throws WebMessageException
     {
         User user = currentUserService.getCurrentUser();
@@ -920,7 +920,7 @@ public class MessageConversationController
             throw new WebMessageException( WebMessageUtils.conflict( "Invalid messageattachment." ) );
         }
 
-        fileResourceUtils.configureFileResourceResponse( response, fr );
+        fileResourceUtils.configureFileResourceResponse( fr, request, response );
     }
 
     //--------------------------------------------------------------------------
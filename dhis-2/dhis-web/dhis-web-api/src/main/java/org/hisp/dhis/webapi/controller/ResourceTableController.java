@@ -28,6 +28,8 @@ package org.hisp.dhis.webapi.controller;
  * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
  */
 
+import org.hisp.dhis.analytics.AnalyticsIndexAdvisor;
+import org.hisp.dhis.analytics.AnalyticsIndexReport;
 import org.hisp.dhis.analytics.AnalyticsTableType;
 import org.hisp.dhis.common.DhisApiVersion;
 import org.hisp.dhis.scheduling.JobConfiguration;
@@ -44,10 +46,12 @@ import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import static org.hisp.dhis.dxf2.webmessage.WebMessageUtils.jobConfigurationReport;
@@ -71,6 +75,9 @@ public class ResourceTableController
     @Autowired
     private WebMessageService webMessageService;
 
+    @Autowired
+    private AnalyticsIndexAdvisor analyticsIndexAdvisor;
+
     @RequestMapping( value = "/analytics", method = { RequestMethod.PUT, RequestMethod.POST } )
     @PreAuthorize( "hasRole('ALL') or hasRole('F_PERFORM_MAINTENANCE')" )
     public void analytics(
@@ -111,6 +118,13 @@ public class ResourceTableController
         webMessageService.send( jobConfigurationReport( analyticsTableJob ), response, request );
     }
 
+    @RequestMapping( value = "/analytics/indexReport", method = RequestMethod.GET )
+    @PreAuthorize( "hasRole('ALL') or hasRole('F_PERFORM_MAINTENANCE')" )
+    public @ResponseBody List<AnalyticsIndexReport> getAnalyticsIndexReports()
+    {
+        return analyticsIndexAdvisor.getReports();
+    }
+
     @RequestMapping( method = { RequestMethod.PUT, RequestMethod.POST } )
     @PreAuthorize( "hasRole('ALL') or hasRole('F_PERFORM_MAINTENANCE')" )
     public void resourceTables( HttpServletResponse response, HttpServletRequest request )
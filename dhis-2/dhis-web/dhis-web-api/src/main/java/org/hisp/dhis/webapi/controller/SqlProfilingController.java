@@ -0,0 +1,104 @@
+package org.hisp.dhis.webapi.controller;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.List;
+
+import org.hisp.dhis.common.DhisApiVersion;
+import org.hisp.dhis.datasource.profiling.SqlProfile;
+import org.hisp.dhis.datasource.profiling.SqlProfiler;
+import org.hisp.dhis.datasource.profiling.SqlStatementRecord;
+import org.hisp.dhis.webapi.controller.exception.NotFoundException;
+import org.hisp.dhis.webapi.mvc.annotation.ApiVersion;
+import org.hisp.dhis.webapi.mvc.interceptor.SqlProfilingInterceptor;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Exposes SQL profiles of requests and the captured slow SQL statements. A
+ * request is profiled when a superuser sends it with the
+ * {@link SqlProfilingInterceptor#HEADER_PROFILE} header or the
+ * {@link SqlProfilingInterceptor#PARAM_PROFILE} parameter, and the profile
+ * identifier is returned in the
+ * {@link SqlProfilingInterceptor#HEADER_PROFILE_ID} response header.
+ */
+@RestController
+@RequestMapping( value = SqlProfilingController.RESOURCE_PATH )
+@ApiVersion( { DhisApiVersion.DEFAULT, DhisApiVersion.ALL } )
+public class SqlProfilingController
+{
+    public static final String RESOURCE_PATH = "/sqlProfiling";
+
+    private final SqlProfiler sqlProfiler;
+
+    public SqlProfilingController( SqlProfiler sqlProfiler )
+    {
+        checkNotNull( sqlProfiler );
+
+        this.sqlProfiler = sqlProfiler;
+    }
+
+    @GetMapping( "/profiles/{id}" )
+    @PreAuthorize( "hasRole('ALL')" )
+    public SqlProfile getProfile( @PathVariable String id )
+        throws NotFoundException
+    {
+        SqlProfile profile = sqlProfiler.getProfile( id );
+
+        if ( profile == null )
+        {
+            throw new NotFoundException( "SQL profile", id );
+        }
+
+        return profile;
+    }
+
+    @GetMapping( "/slowQueries" )
+    @PreAuthorize( "hasRole('ALL')" )
+    public List<SqlStatementRecord> getSlowQueries()
+    {
+        return sqlProfiler.getSlowStatements();
+    }
+
+    @DeleteMapping( "/slowQueries" )
+    @PreAuthorize( "hasRole('ALL')" )
+    @ResponseStatus( HttpStatus.NO_CONTENT )
+    public void clearSlowQueries()
+    {
+        sqlProfiler.clearSlowStatements();
+    }
+}
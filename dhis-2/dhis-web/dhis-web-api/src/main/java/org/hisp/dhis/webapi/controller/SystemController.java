@@ -53,12 +53,18 @@ import org.hisp.dhis.system.SystemInfo;
 import org.hisp.dhis.system.SystemService;
 import org.hisp.dhis.system.notification.Notification;
 import org.hisp.dhis.system.notification.Notifier;
+import org.hisp.dhis.system.startup.WarmupService;
+import org.hisp.dhis.system.startup.WarmupStatus;
 import org.hisp.dhis.user.CurrentUserService;
 import org.hisp.dhis.webapi.mvc.annotation.ApiVersion;
 import org.hisp.dhis.webapi.utils.ContextUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.security.authentication.AuthenticationTrustResolver;
+import org.springframework.security.authentication.AuthenticationTrustResolverImpl;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -92,6 +98,8 @@ public class SystemController
 {
     public static final String RESOURCE_PATH = "/system";
 
+    private static final AuthenticationTrustResolver TRUST_RESOLVER = new AuthenticationTrustResolverImpl();
+
     @Autowired
     private CurrentUserService currentUserService;
 
@@ -116,6 +124,9 @@ public class SystemController
     @Autowired
     private StatisticsProvider statisticsProvider;
 
+    @Autowired
+    private WarmupService warmupService;
+
     private static final CsvFactory CSV_FACTORY = new CsvMapper().getFactory();
 
     // -------------------------------------------------------------------------
@@ -366,6 +377,21 @@ public class SystemController
         return "pong";
     }
 
+    @RequestMapping( value = "/ready", method = RequestMethod.GET, produces = { "application/json" } )
+    public @ResponseBody WarmupStatus ready( HttpServletResponse response )
+    {
+        setNoStore( response );
+
+        WarmupStatus status = warmupService.getStatus();
+
+        if ( !status.isReady() )
+        {
+            response.setStatus( HttpServletResponse.SC_SERVICE_UNAVAILABLE );
+        }
+
+        return isAuthenticated() ? status : status.withoutDetails();
+    }
+
     @RequestMapping( value = "/flags", method = RequestMethod.GET, produces = { "application/json" } )
     public @ResponseBody List<StyleObject> getFlags()
     {
@@ -382,6 +408,14 @@ public class SystemController
     // Supportive methods
     // -------------------------------------------------------------------------
 
+    private boolean isAuthenticated()
+    {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+
+        return authentication != null && authentication.isAuthenticated()
+            && !TRUST_RESOLVER.isAnonymous( authentication );
+    }
+
     private List<StyleObject> getFlagObjects()
     {
         I18n i18n = i18nManager.getI18n();
@@ -0,0 +1,95 @@
+package org.hisp.dhis.webapi.mvc.interceptor;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import lombok.AllArgsConstructor;
+
+import org.hisp.dhis.datasource.profiling.SqlProfile;
+import org.hisp.dhis.datasource.profiling.SqlProfiler;
+import org.hisp.dhis.user.CurrentUserService;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+/**
+ * Starts SQL profiling for a request when requested by a superuser through
+ * the {@link #HEADER_PROFILE} header or the {@link #PARAM_PROFILE} parameter.
+ * Only statements executed on the request thread are recorded. The identifier
+ * of the profile is returned in the {@link #HEADER_PROFILE_ID} header, and the
+ * profile can be retrieved through the SQL profiling API once the request has
+ * completed.
+ */
+@AllArgsConstructor
+public class SqlProfilingInterceptor extends HandlerInterceptorAdapter
+{
+    public static final String HEADER_PROFILE = "X-Sql-Profile";
+
+    public static final String HEADER_PROFILE_ID = "X-Sql-Profile-Id";
+
+    public static final String PARAM_PROFILE = "sqlProfile";
+
+    private final SqlProfiler sqlProfiler;
+
+    private final CurrentUserService currentUserService;
+
+    @Override
+    public boolean preHandle( final HttpServletRequest request, final HttpServletResponse response,
+        final Object handler )
+    {
+        if ( sqlProfiler.isEnabled() && isProfilingRequested( request ) && currentUserService.currentUserIsSuper() )
+        {
+            SqlProfile profile = sqlProfiler.startProfile( request.getMethod() + " " + request.getRequestURI() );
+
+            response.setHeader( HEADER_PROFILE_ID, profile.getId() );
+        }
+
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted( final HttpServletRequest request, final HttpServletResponse response,
+        final Object handler )
+    {
+        sqlProfiler.stopProfile();
+    }
+
+    @Override
+    public void afterCompletion( final HttpServletRequest request, final HttpServletResponse response,
+        final Object handler, final Exception ex )
+    {
+        sqlProfiler.stopProfile();
+    }
+
+    private boolean isProfilingRequested( HttpServletRequest request )
+    {
+        return "true".equalsIgnoreCase( request.getHeader( HEADER_PROFILE ) )
+            || "true".equalsIgnoreCase( request.getParameter( PARAM_PROFILE ) );
+    }
+}
@@ -349,6 +349,7 @@ public class DhisWebApiWebSecurityConfig
                     .antMatchers( "/api/staticContent/*" ).permitAll()
                     .antMatchers( "/api/externalFileResources/*" ).permitAll()
                     .antMatchers( "/api/icons/*/icon.svg" ).permitAll()
+                    .antMatchers( "/api/system/ready" ).permitAll()
                     .anyRequest().authenticated()
                 )
                 .httpBasic()
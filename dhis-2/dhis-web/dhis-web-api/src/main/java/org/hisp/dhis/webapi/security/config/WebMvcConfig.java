@@ -37,6 +37,7 @@ import java.util.stream.Collectors;
 
 import org.apache.commons.lang3.ArrayUtils;
 import org.hisp.dhis.common.Compression;
+import org.hisp.dhis.datasource.profiling.SqlProfiler;
 import org.hisp.dhis.node.DefaultNodeService;
 import org.hisp.dhis.node.NodeService;
 import org.hisp.dhis.user.CurrentUserService;
@@ -45,6 +46,7 @@ import org.hisp.dhis.webapi.mvc.CurrentUserHandlerMethodArgumentResolver;
 import org.hisp.dhis.webapi.mvc.CurrentUserInfoHandlerMethodArgumentResolver;
 import org.hisp.dhis.webapi.mvc.CustomRequestMappingHandlerMapping;
 import org.hisp.dhis.webapi.mvc.DhisApiVersionHandlerMethodArgumentResolver;
+import org.hisp.dhis.webapi.mvc.interceptor.SqlProfilingInterceptor;
 import org.hisp.dhis.webapi.mvc.interceptor.UserContextInterceptor;
 import org.hisp.dhis.webapi.mvc.messageconverter.CsvMessageConverter;
 import org.hisp.dhis.webapi.mvc.messageconverter.ExcelMessageConverter;
@@ -106,6 +108,9 @@ public class WebMvcConfig extends DelegatingWebMvcConfiguration
     @Autowired
     private UserSettingService userSettingService;
 
+    @Autowired
+    private SqlProfiler sqlProfiler;
+
     @Bean( "multipartResolver" )
     public MultipartResolver multipartResolver()
     {
@@ -209,6 +214,7 @@ public class WebMvcConfig extends DelegatingWebMvcConfiguration
     public void addInterceptors( InterceptorRegistry registry )
     {
         registry.addInterceptor( new UserContextInterceptor( currentUserService, userSettingService ) );
+        registry.addInterceptor( new SqlProfilingInterceptor( sqlProfiler, currentUserService ) );
     }
 
     private Map<String, MediaType> mediaTypeMap = new ImmutableMap.Builder<String, MediaType>()
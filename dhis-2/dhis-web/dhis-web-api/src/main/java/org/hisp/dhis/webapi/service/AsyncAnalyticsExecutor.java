@@ -0,0 +1,265 @@
+package org.hisp.dhis.webapi.service;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+import static org.hisp.dhis.external.conf.ConfigurationKey.ANALYTICS_ASYNC;
+import static org.hisp.dhis.external.conf.ConfigurationKey.ANALYTICS_ASYNC_THREADS;
+import static org.hisp.dhis.external.conf.ConfigurationKey.ANALYTICS_ASYNC_TIMEOUT;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import javax.annotation.PreDestroy;
+
+import lombok.extern.slf4j.Slf4j;
+
+import org.hisp.dhis.analytics.DataQueryParams;
+import org.hisp.dhis.analytics.QueryCancellation;
+import org.hisp.dhis.analytics.data.QueryCoalescer;
+import org.hisp.dhis.common.Grid;
+import org.hisp.dhis.external.conf.DhisConfigurationProvider;
+import org.springframework.security.concurrent.DelegatingSecurityContextRunnable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Executes analytics queries off the servlet container thread. The request
+ * thread is released as soon as the query is submitted, and the response is
+ * written through a {@link DeferredResult} when the query completes.
+ * <p>
+ * Each submitted query carries a {@link QueryCancellation}. When the
+ * asynchronous request times out or fails, for instance because the client
+ * disconnected, the cancellation is triggered and the database statements of
+ * the query are cancelled.
+ * <p>
+ * Asynchronous queries resolve their parameters and run within a read-only
+ * transaction on the query thread, so that the dimension items and the
+ * current user are loaded by the session of that transaction rather than by
+ * the session of the request.
+ * <p>
+ * When asynchronous execution is disabled through {@code analytics.async},
+ * queries are executed on the request thread through {@link #execute}.
+ */
+@Slf4j
+@Component
+public class AsyncAnalyticsExecutor
+    implements MeterBinder
+{
+    private static final String METRIC_REQUESTS = "analytics.requests";
+
+    private final QueryCoalescer queryCoalescer;
+
+    private final boolean async;
+
+    private final long timeoutMillis;
+
+    private final ExecutorService executor;
+
+    private final TransactionTemplate readOnlyTemplate;
+
+    private volatile MeterRegistry registry;
+
+    public AsyncAnalyticsExecutor( DhisConfigurationProvider config, QueryCoalescer queryCoalescer,
+        TransactionTemplate transactionTemplate )
+    {
+        checkNotNull( config );
+        checkNotNull( queryCoalescer );
+        checkNotNull( transactionTemplate );
+
+        this.queryCoalescer = queryCoalescer;
+        this.readOnlyTemplate = new TransactionTemplate( transactionTemplate.getTransactionManager() );
+        this.readOnlyTemplate.setReadOnly( true );
+        this.async = config.isEnabled( ANALYTICS_ASYNC );
+        this.timeoutMillis = TimeUnit.SECONDS.toMillis( Long.parseLong( config.getProperty( ANALYTICS_ASYNC_TIMEOUT ) ) );
+        this.executor = async ? Executors.newFixedThreadPool( Integer.parseInt( config.getProperty( ANALYTICS_ASYNC_THREADS ) ),
+            new ThreadFactoryBuilder().setNameFormat( "analytics-async-%d" ).setDaemon( true ).build() ) : null;
+    }
+
+    @PreDestroy
+    public void shutdown()
+    {
+        if ( executor != null )
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Indicates whether queries are executed asynchronously, in which case
+     * {@link #executeAsync} is to be used.
+     */
+    public boolean isAsync()
+    {
+        return async;
+    }
+
+    /**
+     * Executes the given analytics query on the calling thread.
+     *
+     * @param params the data query parameters.
+     * @param query the function producing the grid for the parameters.
+     * @return the grid.
+     */
+    public Grid execute( DataQueryParams params, Function<DataQueryParams, Grid> query )
+    {
+        final long start = System.nanoTime();
+
+        try
+        {
+            Grid grid = query.apply( params );
+
+            record( start, "success" );
+
+            return grid;
+        }
+        catch ( RuntimeException ex )
+        {
+            record( start, "error" );
+
+            throw ex;
+        }
+    }
+
+    /**
+     * Executes the given analytics query asynchronously. The parameters are
+     * resolved on the query thread, within the read-only transaction the query
+     * runs in. The query function receives a copy of the parameters which
+     * carries the cancellation of the request. Requires asynchronous execution
+     * to be enabled.
+     *
+     * @param params the supplier of the data query parameters.
+     * @param query the function producing the grid for the parameters.
+     * @return a {@link DeferredResult} which is completed with the grid, or
+     *         with the exception thrown by the query.
+     */
+    public DeferredResult<Grid> executeAsync( Supplier<DataQueryParams> params, Function<DataQueryParams, Grid> query )
+    {
+        checkState( async, "Asynchronous analytics execution is not enabled" );
+
+        final QueryCancellation cancellation = new QueryCancellation();
+        final DeferredResult<Grid> result = new DeferredResult<>( timeoutMillis );
+        final long start = System.nanoTime();
+
+        result.onTimeout( () -> {
+            log.warn( "Analytics request timed out after {} ms, cancelling query", timeoutMillis );
+            cancellation.cancel();
+            record( start, "timeout" );
+        } );
+
+        result.onError( ex -> {
+            log.debug( "Analytics request failed, cancelling query: {}", ex.getMessage() );
+            cancellation.cancel();
+        } );
+
+        Runnable task = () -> {
+            try
+            {
+                Grid grid = readOnlyTemplate.execute( status -> query.apply(
+                    DataQueryParams.newBuilder( params.get() ).withCancellation( cancellation ).build() ) );
+
+                if ( result.setResult( grid ) )
+                {
+                    record( start, "success" );
+                }
+            }
+            catch ( RuntimeException ex )
+            {
+                if ( cancellation.isCancelled() )
+                {
+                    log.debug( "Analytics query was cancelled" );
+                    record( start, "cancelled" );
+                }
+                else if ( result.setErrorResult( ex ) )
+                {
+                    record( start, "error" );
+                }
+            }
+        };
+
+        try
+        {
+            executor.execute( new DelegatingSecurityContextRunnable( task ) );
+        }
+        catch ( RejectedExecutionException ex )
+        {
+            result.setErrorResult( ex );
+            record( start, "rejected" );
+        }
+
+        return result;
+    }
+
+    @Override
+    public void bindTo( MeterRegistry registry )
+    {
+        FunctionCounter.builder( "analytics.queries.coalesced", queryCoalescer, QueryCoalescer::getCoalescedCount )
+            .description( "Number of analytics queries answered by an identical query already in flight" )
+            .register( registry );
+
+        Gauge.builder( "analytics.queries.in_flight", queryCoalescer, QueryCoalescer::getInFlightCount )
+            .description( "Number of distinct analytics queries currently executing" )
+            .register( registry );
+
+        this.registry = registry;
+    }
+
+    // -------------------------------------------------------------------------
+    // Supportive methods
+    // -------------------------------------------------------------------------
+
+    private void record( long start, String outcome )
+    {
+        MeterRegistry meterRegistry = this.registry;
+
+        if ( meterRegistry != null )
+        {
+            Timer.builder( METRIC_REQUESTS )
+                .description( "Execution time of analytics requests" )
+                .tag( "mode", async ? "async" : "sync" )
+                .tag( "outcome", outcome )
+                .register( meterRegistry )
+                .record( System.nanoTime() - start, TimeUnit.NANOSECONDS );
+        }
+    }
+}
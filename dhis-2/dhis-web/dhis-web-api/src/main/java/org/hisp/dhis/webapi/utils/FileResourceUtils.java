@@ -32,8 +32,11 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
+import java.util.Collections;
 import java.util.Date;
+import java.util.List;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.apache.commons.io.FilenameUtils;
@@ -48,6 +51,7 @@ import org.hisp.dhis.fileresource.ImageFileDimension;
 import org.hisp.dhis.user.CurrentUserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
 import org.springframework.stereotype.Component;
 import org.springframework.util.InvalidMimeTypeException;
 import org.springframework.util.MimeTypeUtils;
@@ -62,6 +66,14 @@ import com.google.common.io.ByteSource;
 @Component
 public class FileResourceUtils
 {
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
     @Autowired
     private FileResourceService fileResourceService;
 
@@ -136,16 +148,118 @@ public class FileResourceUtils
         }
     }
 
-    public void configureFileResourceResponse( HttpServletResponse response, FileResource fileResource )
+    /**
+     * Sets the content type and disposition of the given file resource on the
+     * response and writes the content through
+     * {@link #writeFileResourceContent(FileResource, HttpServletRequest, HttpServletResponse)}.
+     *
+     * @param fileResource the file resource.
+     * @param request the request.
+     * @param response the response.
+     * @throws WebMessageException if the content could not be read.
+     */
+    public void configureFileResourceResponse( FileResource fileResource, HttpServletRequest request,
+        HttpServletResponse response )
         throws WebMessageException
     {
         response.setContentType( fileResource.getContentType() );
-        response.setContentLength( new Long( fileResource.getContentLength() ).intValue() );
         response.setHeader( HttpHeaders.CONTENT_DISPOSITION, "filename=" + fileResource.getName() );
 
+        writeFileResourceContent( fileResource, request, response );
+    }
+
+    /**
+     * Writes the content of the given file resource to the response. The
+     * content type and disposition must be set by the caller.
+     * <p>
+     * A strong ETag based on the content MD5 is set, and requests with a
+     * matching If-None-Match header are answered with 304 Not Modified.
+     * Requests with a single byte range in the Range header are answered with
+     * 206 Partial Content, unless an If-Range header does not match the ETag.
+     * Local file content is handed to the servlet container for sendfile
+     * delivery when supported.
+     *
+     * @param fileResource the file resource.
+     * @param request the request.
+     * @param response the response.
+     * @throws WebMessageException if the content could not be read.
+     */
+    public void writeFileResourceContent( FileResource fileResource, HttpServletRequest request,
+        HttpServletResponse response )
+        throws WebMessageException
+    {
+        long contentLength = fileResourceService.getFileResourceContentLength( fileResource );
+
+        String etag = getETag( fileResource );
+
+        response.setHeader( HttpHeaders.ACCEPT_RANGES, "bytes" );
+
+        if ( etag != null )
+        {
+            response.setHeader( HttpHeaders.ETAG, etag );
+
+            if ( matchesETag( request.getHeader( HttpHeaders.IF_NONE_MATCH ), etag ) )
+            {
+                response.setStatus( HttpServletResponse.SC_NOT_MODIFIED );
+                return;
+            }
+        }
+
+        long start = 0;
+        long end = contentLength - 1;
+
+        String range = request.getHeader( HttpHeaders.RANGE );
+        String ifRange = request.getHeader( HttpHeaders.IF_RANGE );
+
+        if ( range != null && (ifRange == null || ifRange.trim().equals( etag )) )
+        {
+            List<HttpRange> ranges = parseRanges( range );
+
+            // Multiple ranges are not supported, the full content is returned instead
+
+            if ( ranges.size() == 1 )
+            {
+                HttpRange httpRange = ranges.get( 0 );
+
+                try
+                {
+                    start = httpRange.getRangeStart( contentLength );
+                    end = httpRange.getRangeEnd( contentLength );
+                }
+                catch ( IllegalArgumentException ex )
+                {
+                    start = contentLength;
+                }
+
+                if ( start >= contentLength || start > end )
+                {
+                    response.setStatus( HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE );
+                    response.setHeader( HttpHeaders.CONTENT_RANGE, "bytes */" + contentLength );
+                    return;
+                }
+
+                response.setStatus( HttpServletResponse.SC_PARTIAL_CONTENT );
+                response.setHeader( HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + contentLength );
+            }
+        }
+
+        long length = Math.max( 0, end - start + 1 );
+
+        response.setHeader( HttpHeaders.CONTENT_LENGTH, String.valueOf( length ) );
+
         try
         {
-            fileResourceService.copyFileResourceContent( fileResource, response.getOutputStream() );
+            File file = fileResourceService.getFileResourceContentFile( fileResource );
+
+            if ( file != null && Boolean.TRUE.equals( request.getAttribute( SENDFILE_SUPPORT ) ) )
+            {
+                request.setAttribute( SENDFILE_FILENAME, file.getCanonicalPath() );
+                request.setAttribute( SENDFILE_START, start );
+                request.setAttribute( SENDFILE_END, start + length );
+                return;
+            }
+
+            fileResourceService.copyFileResourceContent( fileResource, response.getOutputStream(), start, length );
         }
         catch ( IOException e )
         {
@@ -155,6 +269,68 @@ public class FileResourceUtils
         }
     }
 
+    /**
+     * Returns a strong ETag for the content of the given file resource, based
+     * on the content MD5 and the image dimension of the storage key.
+     *
+     * @param fileResource the file resource.
+     * @return the quoted ETag, or null if the content MD5 is not known.
+     */
+    public static String getETag( FileResource fileResource )
+    {
+        if ( StringUtils.isEmpty( fileResource.getContentMd5() ) )
+        {
+            return null;
+        }
+
+        String etag = fileResource.getContentMd5();
+
+        for ( ImageFileDimension dimension : ImageFileDimension.values() )
+        {
+            if ( !dimension.getDimension().isEmpty() && fileResource.getStorageKey() != null &&
+                fileResource.getStorageKey().endsWith( dimension.getDimension() ) )
+            {
+                etag += "-" + dimension.getDimension();
+            }
+        }
+
+        return "\"" + etag + "\"";
+    }
+
+    private static boolean matchesETag( String ifNoneMatch, String etag )
+    {
+        if ( ifNoneMatch == null )
+        {
+            return false;
+        }
+
+        for ( String value : ifNoneMatch.split( "," ) )
+        {
+            String tag = StringUtils.removeStart( value.trim(), "W/" );
+
+            if ( "*".equals( tag ) || etag.equals( tag ) )
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static List<HttpRange> parseRanges( String range )
+    {
+        try
+        {
+            return HttpRange.parseRanges( range );
+        }
+        catch ( IllegalArgumentException ex )
+        {
+            // Invalid ranges are ignored and the full content is returned
+
+            return Collections.emptyList();
+        }
+    }
+
     public FileResource saveFile( MultipartFile file, FileResourceDomain domain )
         throws WebMessageException,
         IOException
@@ -32,11 +32,16 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import java.io.ByteArrayInputStream;
@@ -49,29 +54,38 @@ import org.hisp.dhis.analytics.AnalyticsService;
 import org.hisp.dhis.analytics.DataQueryParams;
 import org.hisp.dhis.analytics.DataQueryService;
 import org.hisp.dhis.analytics.data.DefaultDataQueryService;
+import org.hisp.dhis.analytics.data.QueryCoalescer;
 import org.hisp.dhis.common.DimensionService;
 import org.hisp.dhis.common.Grid;
 import org.hisp.dhis.common.GridHeader;
 import org.hisp.dhis.common.IdScheme;
 import org.hisp.dhis.common.IdentifiableObjectManager;
 import org.hisp.dhis.dataelement.DataElement;
+import org.hisp.dhis.external.conf.ConfigurationKey;
+import org.hisp.dhis.external.conf.DhisConfigurationProvider;
 import org.hisp.dhis.i18n.I18nManager;
 import org.hisp.dhis.organisationunit.OrganisationUnitService;
 import org.hisp.dhis.security.acl.AclService;
 import org.hisp.dhis.setting.SystemSettingManager;
 import org.hisp.dhis.system.grid.ListGrid;
 import org.hisp.dhis.user.CurrentUserService;
+import org.hisp.dhis.webapi.service.AsyncAnalyticsExecutor;
 import org.hisp.dhis.webapi.utils.ContextUtils;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.MockitoJUnit;
 import org.mockito.junit.MockitoRule;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.ResultActions;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
 
 /**
  * @author Luciano Fiandesio
@@ -91,22 +105,35 @@ public class AnalyticsControllerTest
     @Mock
     private DimensionService dimensionService;
 
+    @Mock
+    private DhisConfigurationProvider config;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
     @Rule
     public MockitoRule mockitoRule = MockitoJUnit.rule();
 
+    private DataQueryService dataQueryService;
+
     @Before
     public void setUp()
     {
-        final DataQueryService dataQueryService = new DefaultDataQueryService(
+        dataQueryService = new DefaultDataQueryService(
             mock( IdentifiableObjectManager.class ),
             mock( OrganisationUnitService.class ),
             dimensionService, mock( AnalyticsSecurityManager.class ), mock( SystemSettingManager.class ),
             mock( AclService.class ), mock( CurrentUserService.class ),
             mock( I18nManager.class ) );
 
+        when( config.getProperty( ConfigurationKey.ANALYTICS_ASYNC_TIMEOUT ) ).thenReturn( "600" );
+
+        final AsyncAnalyticsExecutor analyticsExecutor = new AsyncAnalyticsExecutor( config, new QueryCoalescer(),
+            new TransactionTemplate( transactionManager ) );
+
         // Controller under test
         final AnalyticsController controller = new AnalyticsController( dataQueryService, analyticsService,
-            contextUtils );
+            contextUtils, analyticsExecutor );
 
         mockMvc = MockMvcBuilders.standaloneSetup( controller ).build();
 
@@ -133,6 +160,45 @@ public class AnalyticsControllerTest
             .andExpect( content().contentType( "application/json" ) );
     }
 
+    @Test
+    public void verifyAsyncJsonRequest()
+        throws Exception
+    {
+        when( config.isEnabled( ConfigurationKey.ANALYTICS_ASYNC ) ).thenReturn( true );
+        when( config.getProperty( ConfigurationKey.ANALYTICS_ASYNC_THREADS ) ).thenReturn( "1" );
+
+        final AsyncAnalyticsExecutor analyticsExecutor = new AsyncAnalyticsExecutor( config, new QueryCoalescer(),
+            new TransactionTemplate( transactionManager ) );
+
+        try
+        {
+            final MockMvc asyncMockMvc = MockMvcBuilders.standaloneSetup( new AnalyticsController(
+                dataQueryService, analyticsService, contextUtils, analyticsExecutor ) ).build();
+
+            final MvcResult mvcResult = asyncMockMvc.perform( get( ENDPOINT )
+                .param( "dimension", "dx:fbfJHSPpUQD;cYeuwXTCPkU" )
+                .param( "filter", "pe:2014Q1;2014Q2" ) )
+                .andExpect( request().asyncStarted() )
+                .andReturn();
+
+            // Then
+            asyncMockMvc.perform( asyncDispatch( mvcResult ) )
+                .andExpect( status().isOk() )
+                .andExpect( jsonPath( "$" ).exists() )
+                .andExpect( content().contentType( "application/json" ) );
+
+            ArgumentCaptor<TransactionDefinition> captor = ArgumentCaptor.forClass( TransactionDefinition.class );
+            verify( transactionManager ).getTransaction( captor.capture() );
+            verify( transactionManager ).commit( any() );
+
+            assertTrue( captor.getValue().isReadOnly() );
+        }
+        finally
+        {
+            analyticsExecutor.shutdown();
+        }
+    }
+
     @Test
     public void verifyXmlRequest()
         throws Exception
@@ -0,0 +1,129 @@
+package org.hisp.dhis.webapi.controller;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.Collections;
+import java.util.Date;
+
+import org.hisp.dhis.system.startup.WarmupService;
+import org.hisp.dhis.system.startup.WarmupStatus;
+import org.hisp.dhis.system.startup.WarmupStatus.State;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+public class SystemControllerTest
+{
+    private MockMvc mockMvc;
+
+    @Mock
+    private WarmupService warmupService;
+
+    @InjectMocks
+    private SystemController systemController;
+
+    @Rule
+    public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    private final static String ENDPOINT = "/system/ready";
+
+    @Before
+    public void setUp()
+    {
+        mockMvc = MockMvcBuilders.standaloneSetup( systemController ).build();
+
+        when( warmupService.getStatus() ).thenReturn( new WarmupStatus( State.READY, new Date(), new Date(),
+            Collections.singletonMap( "A", 10L ), Collections.singletonMap( "B", "Connection refused" ) ) );
+    }
+
+    @After
+    public void tearDown()
+    {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    public void testReadyHidesDetailsFromAnonymousCallers()
+        throws Exception
+    {
+        SecurityContextHolder.getContext().setAuthentication( new AnonymousAuthenticationToken( "key",
+            "anonymousUser", AuthorityUtils.createAuthorityList( "ROLE_ANONYMOUS" ) ) );
+
+        mockMvc.perform( get( ENDPOINT ) )
+            .andExpect( status().isOk() )
+            .andExpect( jsonPath( "$.state" ).value( "READY" ) )
+            .andExpect( jsonPath( "$.ready" ).value( true ) )
+            .andExpect( jsonPath( "$.started" ).doesNotExist() )
+            .andExpect( jsonPath( "$.taskMillis" ).doesNotExist() )
+            .andExpect( jsonPath( "$.failedTasks" ).doesNotExist() );
+    }
+
+    @Test
+    public void testReadyShowsDetailsToAuthenticatedCallers()
+        throws Exception
+    {
+        SecurityContextHolder.getContext().setAuthentication( new UsernamePasswordAuthenticationToken( "admin",
+            "district", AuthorityUtils.createAuthorityList( "ALL" ) ) );
+
+        mockMvc.perform( get( ENDPOINT ) )
+            .andExpect( status().isOk() )
+            .andExpect( jsonPath( "$.state" ).value( "READY" ) )
+            .andExpect( jsonPath( "$.taskMillis.A" ).value( 10 ) )
+            .andExpect( jsonPath( "$.failedTasks.B" ).value( "Connection refused" ) );
+    }
+
+    @Test
+    public void testNotReadyReturnsServiceUnavailable()
+        throws Exception
+    {
+        when( warmupService.getStatus() ).thenReturn( new WarmupStatus( State.RUNNING, new Date(), null,
+            Collections.emptyMap(), Collections.emptyMap() ) );
+
+        mockMvc.perform( get( ENDPOINT ) )
+            .andExpect( status().isServiceUnavailable() )
+            .andExpect( jsonPath( "$.state" ).value( "RUNNING" ) )
+            .andExpect( jsonPath( "$.ready" ).value( false ) );
+    }
+}
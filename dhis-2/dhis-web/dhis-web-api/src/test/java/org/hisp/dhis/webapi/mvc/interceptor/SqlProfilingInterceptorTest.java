@@ -0,0 +1,176 @@
+package org.hisp.dhis.webapi.mvc.interceptor;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.hisp.dhis.external.conf.ConfigurationKey.SYSTEM_SQL_PROFILING;
+import static org.hisp.dhis.external.conf.ConfigurationKey.SYSTEM_SQL_SLOW_QUERY_LOG_SIZE;
+import static org.hisp.dhis.external.conf.ConfigurationKey.SYSTEM_SQL_SLOW_QUERY_THRESHOLD;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import org.hisp.dhis.datasource.profiling.SqlProfile;
+import org.hisp.dhis.datasource.profiling.SqlProfiler;
+import org.hisp.dhis.external.conf.DhisConfigurationProvider;
+import org.hisp.dhis.user.CurrentUserService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+public class SqlProfilingInterceptorTest
+{
+    @Mock
+    private DhisConfigurationProvider config;
+
+    @Mock
+    private CurrentUserService currentUserService;
+
+    @Rule
+    public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    private SqlProfiler sqlProfiler;
+
+    private SqlProfilingInterceptor interceptor;
+
+    private MockHttpServletRequest request;
+
+    private MockHttpServletResponse response;
+
+    @Before
+    public void setUp()
+    {
+        when( config.isEnabled( SYSTEM_SQL_PROFILING ) ).thenReturn( true );
+        when( config.getProperty( SYSTEM_SQL_SLOW_QUERY_THRESHOLD ) ).thenReturn( "1000" );
+        when( config.getProperty( SYSTEM_SQL_SLOW_QUERY_LOG_SIZE ) ).thenReturn( "10" );
+
+        sqlProfiler = new SqlProfiler( config );
+        interceptor = new SqlProfilingInterceptor( sqlProfiler, currentUserService );
+
+        request = new MockHttpServletRequest( "GET", "/api/dataElements" );
+        response = new MockHttpServletResponse();
+    }
+
+    @After
+    public void tearDown()
+    {
+        sqlProfiler.stopProfile();
+    }
+
+    @Test
+    public void testProfileStartedForSuperuser()
+    {
+        when( currentUserService.currentUserIsSuper() ).thenReturn( true );
+
+        request.addHeader( SqlProfilingInterceptor.HEADER_PROFILE, "true" );
+
+        assertTrue( interceptor.preHandle( request, response, null ) );
+
+        String id = response.getHeader( SqlProfilingInterceptor.HEADER_PROFILE_ID );
+
+        assertNotNull( id );
+        assertNull( sqlProfiler.getProfile( id ) );
+
+        interceptor.afterCompletion( request, response, null, null );
+
+        SqlProfile profile = sqlProfiler.getProfile( id );
+
+        assertNotNull( profile );
+        assertTrue( profile.getDuration() >= 0 );
+    }
+
+    @Test
+    public void testProfileStartedThroughParameter()
+    {
+        when( currentUserService.currentUserIsSuper() ).thenReturn( true );
+
+        request.addParameter( SqlProfilingInterceptor.PARAM_PROFILE, "true" );
+
+        interceptor.preHandle( request, response, null );
+
+        assertNotNull( response.getHeader( SqlProfilingInterceptor.HEADER_PROFILE_ID ) );
+    }
+
+    @Test
+    public void testProfileNotStartedForOtherUsers()
+    {
+        when( currentUserService.currentUserIsSuper() ).thenReturn( false );
+
+        request.addHeader( SqlProfilingInterceptor.HEADER_PROFILE, "true" );
+
+        assertTrue( interceptor.preHandle( request, response, null ) );
+
+        assertNull( response.getHeader( SqlProfilingInterceptor.HEADER_PROFILE_ID ) );
+        assertNull( sqlProfiler.stopProfile() );
+    }
+
+    @Test
+    public void testProfileNotStartedWithoutRequest()
+    {
+        assertTrue( interceptor.preHandle( request, response, null ) );
+
+        assertNull( response.getHeader( SqlProfilingInterceptor.HEADER_PROFILE_ID ) );
+        assertNull( sqlProfiler.stopProfile() );
+        verifyNoInteractions( currentUserService );
+    }
+
+    @Test
+    public void testProfileRemovedFromThreadAfterCompletion()
+    {
+        when( currentUserService.currentUserIsSuper() ).thenReturn( true );
+
+        request.addHeader( SqlProfilingInterceptor.HEADER_PROFILE, "true" );
+
+        interceptor.preHandle( request, response, null );
+        interceptor.afterCompletion( request, response, null, new IllegalStateException() );
+
+        assertNull( sqlProfiler.stopProfile() );
+    }
+
+    @Test
+    public void testProfileRemovedFromThreadWhenAsyncHandlingStarts()
+    {
+        when( currentUserService.currentUserIsSuper() ).thenReturn( true );
+
+        request.addHeader( SqlProfilingInterceptor.HEADER_PROFILE, "true" );
+
+        interceptor.preHandle( request, response, null );
+        interceptor.afterConcurrentHandlingStarted( request, response, null );
+
+        assertNull( sqlProfiler.stopProfile() );
+        assertNotNull( sqlProfiler.getProfile( response.getHeader( SqlProfilingInterceptor.HEADER_PROFILE_ID ) ) );
+    }
+}
@@ -0,0 +1,233 @@
+package org.hisp.dhis.webapi.utils;
+
+/*
+ * Copyright (c) 2004-2020, University of Oslo
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * Redistributions of source code must retain the above copyright notice, this
+ * list of conditions and the following disclaimer.
+ *
+ * Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ * Neither the name of the HISP project nor the names of its contributors may
+ * be used to endorse or promote products derived from this software without
+ * specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON
+ * ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.OutputStream;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.hisp.dhis.fileresource.FileResource;
+import org.hisp.dhis.fileresource.FileResourceDomain;
+import org.hisp.dhis.fileresource.FileResourceService;
+import org.hisp.dhis.user.CurrentUserService;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+/**
+ * Unit tests for {@link FileResourceUtils}.
+ */
+public class FileResourceUtilsTest
+{
+    private static final String MD5 = "0cc175b9c0f1b6a831c399e269772661";
+
+    private static final String ETAG = "\"" + MD5 + "\"";
+
+    @Mock
+    private FileResourceService fileResourceService;
+
+    @Mock
+    private CurrentUserService currentUserService;
+
+    @InjectMocks
+    private FileResourceUtils fileResourceUtils;
+
+    @Rule
+    public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private FileResource fileResource;
+
+    private MockHttpServletRequest request = new MockHttpServletRequest();
+
+    private MockHttpServletResponse response = new MockHttpServletResponse();
+
+    @Before
+    public void setUp()
+    {
+        fileResource = new FileResource( "video.mp4", "video/mp4", 1000, MD5, FileResourceDomain.DATA_VALUE );
+        fileResource.setStorageKey( "dataValue/abc" );
+
+        when( fileResourceService.getFileResourceContentLength( fileResource ) ).thenReturn( 1000L );
+    }
+
+    @Test
+    public void testWriteFullContent()
+        throws Exception
+    {
+        fileResourceUtils.writeFileResourceContent( fileResource, request, response );
+
+        assertEquals( HttpServletResponse.SC_OK, response.getStatus() );
+        assertEquals( ETAG, response.getHeader( HttpHeaders.ETAG ) );
+        assertEquals( "bytes", response.getHeader( HttpHeaders.ACCEPT_RANGES ) );
+        assertEquals( "1000", response.getHeader( HttpHeaders.CONTENT_LENGTH ) );
+        verify( fileResourceService ).copyFileResourceContent( eq( fileResource ), any( OutputStream.class ), eq( 0L ), eq( 1000L ) );
+    }
+
+    @Test
+    public void testWriteNotModified()
+        throws Exception
+    {
+        request.addHeader( HttpHeaders.IF_NONE_MATCH, ETAG );
+
+        fileResourceUtils.writeFileResourceContent( fileResource, request, response );
+
+        assertEquals( HttpServletResponse.SC_NOT_MODIFIED, response.getStatus() );
+        verify( fileResourceService, never() ).copyFileResourceContent( any(), any(), anyLong(), anyLong() );
+    }
+
+    @Test
+    public void testWriteRange()
+        throws Exception
+    {
+        request.addHeader( HttpHeaders.RANGE, "bytes=100-199" );
+
+        fileResourceUtils.writeFileResourceContent( fileResource, request, response );
+
+        assertEquals( HttpServletResponse.SC_PARTIAL_CONTENT, response.getStatus() );
+        assertEquals( "bytes 100-199/1000", response.getHeader( HttpHeaders.CONTENT_RANGE ) );
+        assertEquals( "100", response.getHeader( HttpHeaders.CONTENT_LENGTH ) );
+        verify( fileResourceService ).copyFileResourceContent( eq( fileResource ), any( OutputStream.class ), eq( 100L ), eq( 100L ) );
+    }
+
+    @Test
+    public void testWriteSuffixRange()
+        throws Exception
+    {
+        request.addHeader( HttpHeaders.RANGE, "bytes=-300" );
+
+        fileResourceUtils.writeFileResourceContent( fileResource, request, response );
+
+        assertEquals( HttpServletResponse.SC_PARTIAL_CONTENT, response.getStatus() );
+        assertEquals( "bytes 700-999/1000", response.getHeader( HttpHeaders.CONTENT_RANGE ) );
+        verify( fileResourceService ).copyFileResourceContent( eq( fileResource ), any( OutputStream.class ), eq( 700L ), eq( 300L ) );
+    }
+
+    @Test
+    public void testWriteRangeNotSatisfiable()
+        throws Exception
+    {
+        request.addHeader( HttpHeaders.RANGE, "bytes=1000-" );
+
+        fileResourceUtils.writeFileResourceContent( fileResource, request, response );
+
+        assertEquals( HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE, response.getStatus() );
+        assertEquals( "bytes */1000", response.getHeader( HttpHeaders.CONTENT_RANGE ) );
+        verify( fileResourceService, never() ).copyFileResourceContent( any(), any(), anyLong(), anyLong() );
+    }
+
+    @Test
+    public void testWriteRangeWithChangedIfRange()
+        throws Exception
+    {
+        request.addHeader( HttpHeaders.RANGE, "bytes=100-199" );
+        request.addHeader( HttpHeaders.IF_RANGE, "\"other\"" );
+
+        fileResourceUtils.writeFileResourceContent( fileResource, request, response );
+
+        assertEquals( HttpServletResponse.SC_OK, response.getStatus() );
+        verify( fileResourceService ).copyFileResourceContent( eq( fileResource ), any( OutputStream.class ), eq( 0L ), eq( 1000L ) );
+    }
+
+    @Test
+    public void testWriteRangeWithSendfile()
+        throws Exception
+    {
+        File file = temporaryFolder.newFile( "abc" );
+
+        when( fileResourceService.getFileResourceContentFile( fileResource ) ).thenReturn( file );
+
+        request.setAttribute( "org.apache.tomcat.sendfile.support", Boolean.TRUE );
+        request.addHeader( HttpHeaders.RANGE, "bytes=100-199" );
+
+        fileResourceUtils.writeFileResourceContent( fileResource, request, response );
+
+        assertEquals( HttpServletResponse.SC_PARTIAL_CONTENT, response.getStatus() );
+        assertEquals( file.getCanonicalPath(), request.getAttribute( "org.apache.tomcat.sendfile.filename" ) );
+        assertEquals( 100L, request.getAttribute( "org.apache.tomcat.sendfile.start" ) );
+        assertEquals( 200L, request.getAttribute( "org.apache.tomcat.sendfile.end" ) );
+        verify( fileResourceService, never() ).copyFileResourceContent( any(), any(), anyLong(), anyLong() );
+    }
+
+    @Test
+    public void testWriteWithoutSendfileSupport()
+        throws Exception
+    {
+        when( fileResourceService.getFileResourceContentFile( fileResource ) )
+            .thenReturn( temporaryFolder.newFile( "abc" ) );
+
+        fileResourceUtils.writeFileResourceContent( fileResource, request, response );
+
+        assertNull( request.getAttribute( "org.apache.tomcat.sendfile.filename" ) );
+        verify( fileResourceService ).copyFileResourceContent( eq( fileResource ), any( OutputStream.class ), eq( 0L ), eq( 1000L ) );
+    }
+
+    @Test
+    public void testConfigureFileResourceResponseWritesRange()
+        throws Exception
+    {
+        request.addHeader( HttpHeaders.RANGE, "bytes=0-99" );
+
+        fileResourceUtils.configureFileResourceResponse( fileResource, request, response );
+
+        assertEquals( "video/mp4", response.getContentType() );
+        assertEquals( "filename=video.mp4", response.getHeader( HttpHeaders.CONTENT_DISPOSITION ) );
+        assertEquals( HttpServletResponse.SC_PARTIAL_CONTENT, response.getStatus() );
+        assertEquals( ETAG, response.getHeader( HttpHeaders.ETAG ) );
+        verify( fileResourceService ).copyFileResourceContent( eq( fileResource ), any( OutputStream.class ), eq( 0L ), eq( 100L ) );
+    }
+
+    @Test
+    public void testGetETagForImageDimension()
+    {
+        fileResource.setStorageKey( "dataValue/abcsmall" );
+
+        assertEquals( "\"" + MD5 + "-small\"", FileResourceUtils.getETag( fileResource ) );
+    }
+}